@@ -0,0 +1,251 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An open-loop arrival process shared by all client threads of a process.
+ * <p>
+ * Instead of pacing every thread on its own tick, the threads claim the next arrival of one global timeline and
+ * start their operation at that time. A thread that is late because the database stalled starts at once, and the
+ * operation is measured from its arrival, so the intended latency includes the time the request waited. Arrivals
+ * are claimed with atomic operations only: an atomic add on the next arrival for constant arrivals, a
+ * compare-and-set on it for Poisson arrivals, and a ticket counter for trace-driven arrivals.
+ * <ul>
+ * <li><code>constant</code>: one arrival every <code>1 / target</code> seconds.</li>
+ * <li><code>poisson</code>: exponentially distributed gaps with a mean of <code>1 / target</code> seconds.</li>
+ * <li><code>trace</code>: the arrival times of <code>arrivaltracefile</code>, one timestamp in microseconds per
+ * line, replayed from the start of the run and repeated when it runs out.</li>
+ * </ul>
+ * The timeline starts with the first claimed arrival. The rate of a constant or Poisson process can be changed while
+ * it runs, see {@link #setRate(double)}; at a rate of 0 every claimed arrival is now.
+ */
+public final class ArrivalScheduler {
+
+  /**
+   * The arrival process: none to pace every thread on its own as before, constant, poisson or trace.
+   */
+  public static final String ARRIVAL_PROCESS_PROPERTY = "arrivalprocess";
+  public static final String ARRIVAL_PROCESS_PROPERTY_DEFAULT = "none";
+  /**
+   * The trace of arrival timestamps in microseconds for the trace process.
+   */
+  public static final String ARRIVAL_TRACE_FILE_PROPERTY = "arrivaltracefile";
+
+  /**
+   * The supported arrival processes.
+   */
+  public enum Process {
+    CONSTANT, POISSON, TRACE
+  }
+
+  private static final long NOT_STARTED = Long.MIN_VALUE;
+
+  private final Process process;
+  private volatile double meanGapNanos;
+  private final long[] traceOffsets;
+  private final long traceSpan;
+  private final AtomicLong start = new AtomicLong(NOT_STARTED);
+  private final AtomicLong tickets = new AtomicLong();
+  private final AtomicLong nextArrival = new AtomicLong();
+
+  /**
+   * Create the arrival process configured with <code>arrivalprocess</code>.
+   *
+   * @return the scheduler, or null if every thread paces itself.
+   */
+  public static ArrivalScheduler create(Properties p) throws IOException {
+    String name = p.getProperty(ARRIVAL_PROCESS_PROPERTY, ARRIVAL_PROCESS_PROPERTY_DEFAULT);
+    if (ARRIVAL_PROCESS_PROPERTY_DEFAULT.equals(name)) {
+      return null;
+    }
+    Process process;
+    try {
+      process = Process.valueOf(name.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Unknown " + ARRIVAL_PROCESS_PROPERTY + " " + name
+          + ", use none, constant, poisson or trace");
+    }
+    if (process == Process.TRACE) {
+      String path = p.getProperty(ARRIVAL_TRACE_FILE_PROPERTY);
+      if (path == null) {
+        throw new IllegalArgumentException(ARRIVAL_PROCESS_PROPERTY + " trace needs " + ARRIVAL_TRACE_FILE_PROPERTY);
+      }
+      return new ArrivalScheduler(readTrace(path));
+    }
+    double target = Double.parseDouble(p.getProperty(Client.TARGET_PROPERTY, "0"));
+    if (target <= 0) {
+      throw new IllegalArgumentException(ARRIVAL_PROCESS_PROPERTY + " " + name + " needs a "
+          + Client.TARGET_PROPERTY);
+    }
+    return new ArrivalScheduler(process, target);
+  }
+
+  /**
+   * Create the arrival process of a run that changes the rate itself: the constant or Poisson process of
+   * <code>arrivalprocess</code>, or a Poisson process if none is configured.
+   *
+   * @param opsPerSecond The initial rate.
+   */
+  public static ArrivalScheduler create(Properties p, double opsPerSecond) {
+    String name = p.getProperty(ARRIVAL_PROCESS_PROPERTY, ARRIVAL_PROCESS_PROPERTY_DEFAULT);
+    if (ARRIVAL_PROCESS_PROPERTY_DEFAULT.equals(name)) {
+      return new ArrivalScheduler(Process.POISSON, opsPerSecond);
+    }
+    if ("constant".equals(name) || "poisson".equals(name)) {
+      return new ArrivalScheduler(Process.valueOf(name.toUpperCase()), opsPerSecond);
+    }
+    throw new IllegalArgumentException("A run that changes the rate needs a constant or poisson "
+        + ARRIVAL_PROCESS_PROPERTY + ", got " + name);
+  }
+
+  /**
+   * A constant or Poisson process.
+   *
+   * @param opsPerSecond The mean arrival rate, 0 for no limit.
+   */
+  ArrivalScheduler(Process process, double opsPerSecond) {
+    this.process = process;
+    meanGapNanos = opsPerSecond > 0 ? 1e9 / opsPerSecond : 0;
+    traceOffsets = null;
+    traceSpan = 0;
+  }
+
+  /**
+   * A trace-driven process.
+   *
+   * @param arrivalMicros The arrival timestamps in microseconds, in ascending order.
+   */
+  ArrivalScheduler(long[] arrivalMicros) {
+    if (arrivalMicros.length < 2) {
+      throw new IllegalArgumentException("An arrival trace needs at least two arrivals");
+    }
+    process = Process.TRACE;
+    traceOffsets = new long[arrivalMicros.length];
+    for (int i = 0; i < arrivalMicros.length; i++) {
+      if (i > 0 && arrivalMicros[i] < arrivalMicros[i - 1]) {
+        throw new IllegalArgumentException("Arrival " + i + " of the trace is earlier than the one before");
+      }
+      traceOffsets[i] = (arrivalMicros[i] - arrivalMicros[0]) * 1000;
+    }
+    long last = traceOffsets[traceOffsets.length - 1];
+    meanGapNanos = (double) last / (traceOffsets.length - 1);
+    // the repetition starts one mean gap after the last arrival
+    traceSpan = last + (long) meanGapNanos;
+  }
+
+  public Process getProcess() {
+    return process;
+  }
+
+  /**
+   * @return the mean arrival rate in operations per second, 0 for no limit.
+   */
+  public double getRate() {
+    double gap = meanGapNanos;
+    return gap > 0 ? 1e9 / gap : 0;
+  }
+
+  /**
+   * Change the rate of a constant or Poisson process. The timeline continues from now at the new rate: arrivals of
+   * the old rate that were not claimed yet are dropped, so the backlog of an overloaded rate does not spill over.
+   *
+   * @param opsPerSecond The new mean arrival rate, 0 for no limit.
+   */
+  public void setRate(double opsPerSecond) {
+    if (process == Process.TRACE) {
+      throw new IllegalStateException("The rate of a trace-driven arrival process is fixed by the trace");
+    }
+    if (opsPerSecond < 0) {
+      throw new IllegalArgumentException("The arrival rate must not be negative, got " + opsPerSecond);
+    }
+    meanGapNanos = opsPerSecond > 0 ? 1e9 / opsPerSecond : 0;
+    nextArrival.set(System.nanoTime() - startTime());
+  }
+
+  /**
+   * Claim the next arrival.
+   *
+   * @return the arrival time on the {@link System#nanoTime()} clock, which may already have passed.
+   */
+  public long next() {
+    if (meanGapNanos == 0) {
+      return System.nanoTime();
+    }
+    long base = startTime();
+    return base + nextOffset();
+  }
+
+  private long startTime() {
+    long base = start.get();
+    if (base == NOT_STARTED) {
+      start.compareAndSet(NOT_STARTED, System.nanoTime());
+      base = start.get();
+    }
+    return base;
+  }
+
+  /**
+   * @return the offset of the next arrival from the start of the timeline in nanoseconds.
+   */
+  long nextOffset() {
+    switch (process) {
+    case CONSTANT:
+      return nextArrival.getAndAdd((long) meanGapNanos);
+    case TRACE:
+      long ticket = tickets.getAndIncrement();
+      return ticket / traceOffsets.length * traceSpan + traceOffsets[(int) (ticket % traceOffsets.length)];
+    default:
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      while (true) {
+        long arrival = nextArrival.get();
+        long gap = (long) (-Math.log(1 - random.nextDouble()) * meanGapNanos);
+        if (nextArrival.compareAndSet(arrival, arrival + gap)) {
+          return arrival;
+        }
+      }
+    }
+  }
+
+  private static long[] readTrace(String path) throws IOException {
+    List<Long> arrivals = new ArrayList<>();
+    try (BufferedReader in = new BufferedReader(new FileReader(path))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        line = line.trim();
+        if (!line.isEmpty() && !line.startsWith("#")) {
+          arrivals.add(Long.parseLong(line));
+        }
+      }
+    }
+    long[] result = new long[arrivals.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = arrivals.get(i);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb;
+
+import site.ycsb.generator.GeoGenerator;
+
+import java.util.HashMap;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link GeoDB} whose geo operations can be issued without waiting for the database, so a few client threads can
+ * keep many operations in flight with <code>geo_async_inflight</code>.
+ * <p>
+ * An asynchronous operation reads everything it needs from the generator before it returns, because the generator
+ * already builds the predicate of the next operation while this one is in flight. The result belongs to the
+ * operation until its future completes. Failures are reported through the future, never thrown.
+ * <p>
+ * The defaults run the blocking operation and return a completed future, so a binding only overrides the operations
+ * its driver can run asynchronously.
+ */
+public abstract class AsyncGeoDB extends GeoDB {
+
+  public CompletableFuture<Status> geoInsertAsync(String table, HashMap<String, ByteIterator> result,
+                                                  GeoGenerator gen) {
+    try {
+      return completed(geoInsert(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public CompletableFuture<Status> geoUpdateAsync(String table, HashMap<String, ByteIterator> result,
+                                                  GeoGenerator gen) {
+    try {
+      return completed(geoUpdate(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public CompletableFuture<Status> geoNearAsync(String table, HashMap<String, ByteIterator> result,
+                                                GeoGenerator gen) {
+    try {
+      return completed(geoNear(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public CompletableFuture<Status> geoKnnAsync(String table, HashMap<String, ByteIterator> result,
+                                               GeoGenerator gen) {
+    try {
+      return completed(geoKnn(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public CompletableFuture<Status> geoCountAsync(String table, HashMap<String, ByteIterator> result,
+                                                 GeoGenerator gen) {
+    try {
+      return completed(geoCount(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public CompletableFuture<Status> geoGridAggregateAsync(String table, HashMap<String, ByteIterator> result,
+                                                         GeoGenerator gen) {
+    try {
+      return completed(geoGridAggregate(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public CompletableFuture<Status> geoBoxAsync(String table, HashMap<String, ByteIterator> result,
+                                               GeoGenerator gen) {
+    try {
+      return completed(geoBox(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public CompletableFuture<Status> geoIntersectAsync(String table, HashMap<String, ByteIterator> result,
+                                                     GeoGenerator gen) {
+    try {
+      return completed(geoIntersect(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  public CompletableFuture<Status> geoScanAsync(String table, Vector<HashMap<String, ByteIterator>> result,
+                                                GeoGenerator gen) {
+    try {
+      return completed(geoScan(table, result, gen));
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  protected static CompletableFuture<Status> completed(Status status) {
+    return CompletableFuture.completedFuture(status);
+  }
+
+  protected static CompletableFuture<Status> failed(Throwable error) {
+    CompletableFuture<Status> future = new CompletableFuture<>();
+    future.completeExceptionally(error);
+    return future;
+  }
+}
@@ -117,6 +117,14 @@ public final class Client {
    */
   public static final String THREAD_COUNT_PROPERTY = "threadcount";
 
+  /**
+   * How the client threads are run: "platform" for one operating system thread each, or "virtual" for virtual
+   * threads on Java 21 and later, which makes thousands of client threads cheap for blocking bindings. The virtual
+   * mode is experimental: it has not been measured against the bindings yet.
+   */
+  public static final String THREAD_MODE_PROPERTY = "threadmode";
+  public static final String THREAD_MODE_PROPERTY_DEFAULT = "platform";
+
   /**
    * Indicates how many inserts to do if less than recordcount.
    * Useful for partitioning the load among multiple servers if the client is the bottleneck.
@@ -154,6 +162,16 @@ public final class Client {
    */
   private static StatusThread statusthread = null;
 
+  /**
+   * The saturation search of the run, if enabled.
+   */
+  private static SaturationSearch saturationsearch = null;
+
+  /**
+   * The phases of the run, if configured.
+   */
+  private static PhaseController phasecontroller = null;
+
   // HTrace integration related constants.
 
   /**
@@ -171,6 +189,14 @@ public final class Client {
     System.out.println("Options:");
     System.out.println("  -threads n: execute using n threads (default: 1) - can also be specified as the \n" +
         "        \"threadcount\" property using -p");
+    System.out.println("  -p arrivalprocess=poisson: start operations at Poisson arrivals of the target rate\n" +
+        "        shared by all threads (none, constant, poisson, or trace with -p arrivaltracefile=file)");
+    System.out.println("  -p saturation.search=linear: step the target rate within the run to find the highest\n" +
+        "        throughput within latency objectives such as -p slo.GEO_NEAR.p99=20ms (none, linear or binary)");
+    System.out.println("  -p phases=warmup,steady: run the phases configured with -p phase.warmup.duration=60 and\n" +
+        "        phase.NAME.target, threads, ramp and measure; the warmup phase is discarded");
+    System.out.println("  -p threadmode=virtual: run the client threads as virtual threads (experimental, Java 21\n" +
+        "        and later)");
     System.out.println("  -target n: attempt to do n operations per second (default: unlimited) - can also\n" +
         "       be specified as the \"target\" property using -p");
     System.out.println("  -load:  run the loading phase of the workload");
@@ -265,6 +291,13 @@ public final class Client {
         exporter.write("MIN_SYS_LOAD_AVG", "Load", statusthread.getMinLoadAvg());
       }
 
+      if (saturationsearch != null) {
+        saturationsearch.exportMeasurements(exporter);
+      }
+      if (phasecontroller != null) {
+        phasecontroller.exportMeasurements(exporter);
+      }
+
       Measurements.getMeasurements().exportMeasurements(exporter);
     } finally {
       if (exporter != null) {
@@ -284,6 +317,7 @@ public final class Client {
 
     //get number of threads, target and db
     int threadcount = Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY, "1"));
+    boolean virtualThreads = useVirtualThreads(props);
     String dbname = props.getProperty(DB_PROPERTY, "site.ycsb.BasicDB");
     int target = Integer.parseInt(props.getProperty(TARGET_PROPERTY, "0"));
 
@@ -297,10 +331,19 @@ public final class Client {
     Thread warningthread = setupWarningThread();
     warningthread.start();
 
+    final ArrivalScheduler arrivals = getArrivals(props);
+
     Measurements.setProperties(props);
 
     Workload workload = getWorkload(props);
 
+    if (SaturationSearch.isEnabled(props)) {
+      saturationsearch = setupSaturationSearch(props, arrivals, workload);
+    } else if (PhaseController.isEnabled(props)) {
+      phasecontroller = setupPhases(props, arrivals, workload);
+      threadcount = phasecontroller.getMaxThreads();
+    }
+
     final Tracer tracer = getTracer(props, workload);
 
     initWorkload(props, warningthread, workload, tracer);
@@ -333,15 +376,26 @@ public final class Client {
 
       final Map<Thread, ClientThread> threads = new HashMap<>(threadcount);
       for (ClientThread client : clients) {
-        threads.put(new Thread(tracer.wrap(client, "ClientThread")), client);
+        client.setArrivalScheduler(arrivals);
+        client.setPhaseController(phasecontroller);
+        Runnable task = tracer.wrap(client, "ClientThread");
+        threads.put(virtualThreads ? VirtualThreads.newThread(task) : new Thread(task), client);
       }
 
       st = System.currentTimeMillis();
 
+      if (phasecontroller != null) {
+        phasecontroller.start();
+      }
+
       for (Thread t : threads.keySet()) {
         t.start();
       }
 
+      if (saturationsearch != null) {
+        saturationsearch.start();
+      }
+
       if (maxExecutionTime > 0) {
         terminator = new TerminatorThread(maxExecutionTime, threads.keySet(), workload);
         terminator.start();
@@ -368,6 +422,9 @@ public final class Client {
           terminator.interrupt();
         }
 
+        stopController(saturationsearch);
+        stopController(phasecontroller);
+
         if (status) {
           // wake up status thread if it's asleep
           statusthread.interrupt();
@@ -400,6 +457,96 @@ public final class Client {
     System.exit(0);
   }
 
+  private static ArrivalScheduler getArrivals(Properties props) {
+    if (SaturationSearch.isEnabled(props) && PhaseController.isEnabled(props)) {
+      System.err.println("The saturation search and " + PhaseController.PHASES_PROPERTY
+          + " cannot be used together.");
+      System.exit(-1);
+    }
+    ArrivalScheduler arrivals = null;
+    try {
+      if (SaturationSearch.isEnabled(props)) {
+        arrivals = SaturationSearch.createArrivals(props);
+      } else if (PhaseController.isEnabled(props)) {
+        arrivals = PhaseController.createArrivals(props);
+      } else {
+        arrivals = ArrivalScheduler.create(props);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("Could not create the arrival process: " + e.getMessage());
+      System.exit(-1);
+    }
+    if (arrivals != null && !props.containsKey(Measurements.MEASUREMENT_INTERVAL)) {
+      // operations are measured from their arrival, so report both the service and the intended latency
+      props.setProperty(Measurements.MEASUREMENT_INTERVAL, "both");
+    }
+    return arrivals;
+  }
+
+  private static SaturationSearch setupSaturationSearch(Properties props, ArrivalScheduler arrivals,
+                                                        Workload workload) {
+    checkOpenEnded(props, "the saturation search");
+    try {
+      return new SaturationSearch(props, arrivals, workload);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Could not set up the saturation search: " + e.getMessage());
+      System.exit(-1);
+      return null;
+    }
+  }
+
+  private static PhaseController setupPhases(Properties props, ArrivalScheduler arrivals, Workload workload) {
+    checkOpenEnded(props, "the phases");
+    try {
+      return new PhaseController(props, arrivals, workload);
+    } catch (IllegalArgumentException e) {
+      System.err.println("Could not set up the phases: " + e.getMessage());
+      System.exit(-1);
+      return null;
+    }
+  }
+
+  /**
+   * Check that the transaction phase runs until a controller thread ends it.
+   */
+  private static void checkOpenEnded(Properties props, String controller) {
+    if (!Boolean.parseBoolean(props.getProperty(DO_TRANSACTIONS_PROPERTY, String.valueOf(true)))) {
+      System.err.println("Running " + controller + " needs the transaction phase.");
+      System.exit(-1);
+    }
+    if (Integer.parseInt(props.getProperty(OPERATION_COUNT_PROPERTY, "0")) > 0) {
+      System.err.println("Warning: " + OPERATION_COUNT_PROPERTY + " may end the run early, set it to 0 to run "
+          + controller + " to the end.");
+    }
+  }
+
+  private static void stopController(Thread controller) {
+    if (controller != null && controller.isAlive()) {
+      controller.interrupt();
+      try {
+        controller.join();
+      } catch (InterruptedException ignored) {
+        // ignored
+      }
+    }
+  }
+
+  private static boolean useVirtualThreads(Properties props) {
+    String mode = props.getProperty(THREAD_MODE_PROPERTY, THREAD_MODE_PROPERTY_DEFAULT);
+    if (THREAD_MODE_PROPERTY_DEFAULT.equals(mode)) {
+      return false;
+    }
+    if (!"virtual".equals(mode)) {
+      System.err.println("Unknown " + THREAD_MODE_PROPERTY + " " + mode + ", use platform or virtual.");
+      System.exit(-1);
+    }
+    if (!VirtualThreads.isSupported()) {
+      System.err.println("Virtual threads need Java 21 or later, running the client threads as platform threads.");
+      return false;
+    }
+    return true;
+  }
+
   private static List<ClientThread> initDb(String dbname, Properties props, int threadcount,
                                            double targetperthreadperms, Workload workload, Tracer tracer,
                                            CountDownLatch completeLatch) {
@@ -43,6 +43,8 @@ public class ClientThread implements Runnable {
   private Object workloadstate;
   private Properties props;
   private long targetOpsTickNs;
+  private ArrivalScheduler arrivals;
+  private PhaseController phases;
   private final Measurements measurements;
 
   /**
@@ -81,6 +83,21 @@ public class ClientThread implements Runnable {
     threadcount = threadCount;
   }
 
+  /**
+   * Start the operations at the arrivals of a scheduler shared by all threads, instead of pacing this thread on its
+   * own share of the target.
+   */
+  public void setArrivalScheduler(final ArrivalScheduler arrivalScheduler) {
+    arrivals = arrivalScheduler;
+  }
+
+  /**
+   * Run only while the current phase of the controller includes this thread.
+   */
+  public void setPhaseController(final PhaseController phaseController) {
+    phases = phaseController;
+  }
+
   public int getOpsDone() {
     return opsdone;
   }
@@ -109,7 +126,7 @@ public class ClientThread implements Runnable {
     //spread the thread operations out so they don't all hit the DB at the same time
     // GH issue 4 - throws exception if _target>1 because random.nextInt argument must be >0
     // and the sleep() doesn't make sense for granularities < 1 ms anyway
-    if ((targetOpsPerMs > 0) && (targetOpsPerMs <= 1.0)) {
+    if ((targetOpsPerMs > 0) && (targetOpsPerMs <= 1.0) && arrivals == null) {
       long randomMinorDelay = ThreadLocalRandom.current().nextInt((int) targetOpsTickNs);
       sleepUntil(System.nanoTime() + randomMinorDelay);
     }
@@ -119,6 +136,7 @@ public class ClientThread implements Runnable {
 
         while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
 
+          awaitArrival();
           if (!workload.doTransaction(db, workloadstate)) {
             break;
           }
@@ -136,6 +154,7 @@ public class ClientThread implements Runnable {
 
         while (((opcount == 0) || (opsdone < opcount)) && !workload.isStopRequested()) {
 
+          awaitArrival();
           if (!workload.doInsert(db, workloadstate)) {
             break;
           }
@@ -151,6 +170,13 @@ public class ClientThread implements Runnable {
       System.exit(0);
     }
 
+    try {
+      workload.cleanupThread(workloadstate);
+    } catch (WorkloadException e) {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+
     try {
       measurements.setIntendedStartTimeNs(0);
       db.cleanup();
@@ -170,9 +196,24 @@ public class ClientThread implements Runnable {
     }
   }
 
+  /**
+   * Wait for the turn of this thread in the current phase and for the next arrival of the shared scheduler, and
+   * measure the operation from it.
+   */
+  private void awaitArrival() {
+    if (phases != null) {
+      phases.awaitTurn(threadid);
+    }
+    if (arrivals != null) {
+      long arrival = arrivals.next();
+      sleepUntil(arrival);
+      measurements.setIntendedStartTimeNs(arrival);
+    }
+  }
+
   private void throttleNanos(long startTimeNanos) {
     //throttle the operations
-    if (targetOpsPerMs > 0) {
+    if (targetOpsPerMs > 0 && arrivals == null) {
       // delay until next tick
       long deadline = startTimeNanos + opsdone * targetOpsTickNs;
       sleepUntil(deadline);
@@ -3,6 +3,7 @@ package site.ycsb;
 import site.ycsb.generator.GeoGenerator;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Vector;
 
 /**
@@ -38,6 +39,17 @@ public abstract class GeoDB extends DB {
     return null;
   }
 
+  /**
+   * Insert a batch of GeoJSON documents read from a dataset file.
+   *
+   * @param keys      The keys of the documents, for stores that need one.
+   * @param documents The documents as JSON text, in the same order as the keys.
+   */
+  public Status geoBulkLoad(String table, List<String> keys, List<String> documents) {
+    System.err.println("geoBulkLoad not implemented");
+    return null;
+  }
+
   public Status geoInsert(String table, HashMap<String, ByteIterator> result, GeoGenerator gen)  {
     System.err.println("geoInsert not implemented");
     return null;
@@ -48,11 +60,47 @@ public abstract class GeoDB extends DB {
     return null;
   }
 
+  /**
+   * Move a single entity of a trajectory workload. The predicate holds the document key as docid, the OBJECTID as
+   * value and the new position as predicate A.
+   */
+  public Status geoMove(String table, GeoGenerator gen)  {
+    System.err.println("geoMove not implemented");
+    return null;
+  }
+
   public Status geoNear(String table, HashMap<String, ByteIterator> result, GeoGenerator gen)  {
     System.err.println("geoNear not implemented");
     return null;
   }
 
+  /**
+   * Return the k documents nearest to the point of predicate A, nearest first, with k from
+   * {@link GeoGenerator#getKnnK()}.
+   */
+  public Status geoKnn(String table, HashMap<String, ByteIterator> result, GeoGenerator gen)  {
+    System.err.println("geoKnn not implemented");
+    return null;
+  }
+
+  /**
+   * Count the documents within the polygon of predicate D and put the number into the result as <code>count</code>.
+   */
+  public Status geoCount(String table, HashMap<String, ByteIterator> result, GeoGenerator gen)  {
+    System.err.println("geoCount not implemented");
+    return null;
+  }
+
+  /**
+   * Count the documents within the viewport {@link GeoGenerator#getGridViewport()} per grid cell, using the first
+   * position of each geometry. The result maps the row-major cell index, as returned by
+   * {@link GeoGenerator#gridCell(double, double)}, to the number of documents in the cell; empty cells are left out.
+   */
+  public Status geoGridAggregate(String table, HashMap<String, ByteIterator> result, GeoGenerator gen)  {
+    System.err.println("geoGridAggregate not implemented");
+    return null;
+  }
+
   public Status geoBox(String table, HashMap<String, ByteIterator> result, GeoGenerator gen)  {
     System.err.println("geoBox not implemented");
     return null;
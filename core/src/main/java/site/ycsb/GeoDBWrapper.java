@@ -18,19 +18,26 @@
 package site.ycsb;
 
 import site.ycsb.generator.GeoGenerator;
+import site.ycsb.generator.GeoQueryCheck;
 import site.ycsb.measurements.Measurements;
+import site.ycsb.workloads.GeoWorkload;
 import org.apache.htrace.core.TraceScope;
 import org.apache.htrace.core.Tracer;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiFunction;
 
 /**
  * Author: original Yuvraj Kanwar. Adapted by Danylo Kravchenko
  * Wrapper around a "real" DB that measures latencies and counts return codes.
  * Also reports latency separately between OK and failed operations.
+ * Asynchronous operations are measured when they complete, and at most geo_async_inflight of them are in flight.
  */
-public class GeoDBWrapper extends GeoDB {
+public class GeoDBWrapper extends AsyncGeoDB {
   private final GeoDB db;
+  private final AsyncGeoDB asyncDb;
   private final Measurements measurements;
   private final Tracer tracer;
 
@@ -50,10 +57,16 @@ public class GeoDBWrapper extends GeoDB {
   private final String scopeStringScan;
   private final String scopeStringUpdate;
 
+  private static final int RECTANGLE_VERTICES = 4;
+  private static final int NO_POLYGON = -1;
+
+  private int inFlightLimit = 1;
+  private Semaphore inFlight = new Semaphore(inFlightLimit);
 
 
   public GeoDBWrapper(final GeoDB db, final Tracer tracer) {
     this.db = db;
+    asyncDb = db instanceof AsyncGeoDB ? (AsyncGeoDB) db : new BlockingGeoDB(db);
     measurements = Measurements.getMeasurements();
     this.tracer = tracer;
     final String simple = db.getClass().getSimpleName();
@@ -101,6 +114,13 @@ public class GeoDBWrapper extends GeoDB {
         }
       }
 
+      inFlightLimit = Integer.parseInt(getProperties().getProperty(GeoWorkload.GEO_ASYNC_INFLIGHT,
+          GeoWorkload.GEO_ASYNC_INFLIGHT_DEFAULT));
+      if (inFlightLimit < 1) {
+        throw new DBException(GeoWorkload.GEO_ASYNC_INFLIGHT + " must be at least 1");
+      }
+      inFlight = new Semaphore(inFlightLimit);
+
       System.err.println("DBWrapper: report latency for each error is " +
           this.reportLatencyForEachError + " and specific error codes to track" +
           " for latency are: " + this.latencyTrackedErrors.toString());
@@ -112,6 +132,9 @@ public class GeoDBWrapper extends GeoDB {
    * Called once per DB instance; there is one DB instance per client thread.
    */
   public void cleanup() throws DBException {
+    // wait for the operations still in flight, they are measured on completion
+    inFlight.acquireUninterruptibly(inFlightLimit);
+    inFlight.release(inFlightLimit);
     try (final TraceScope span = tracer.newScope(scopeStringCleanup)) {
       long ist = measurements.getIntendedStartTimeNs();
       long st = System.nanoTime();
@@ -172,6 +195,20 @@ public class GeoDBWrapper extends GeoDB {
     }
   }
 
+  /**
+   * Report the latency of a query a second time, bucketed by the number of positions of its polygon, as for example
+   * GEO_BOX-V64 for 64 to 127 positions. The plain rectangle is reported as GEO_BOX-V4, the baseline of the buckets.
+   * Operations without a query polygon pass {@link #NO_POLYGON}.
+   */
+  private void measureComplexity(String op, int vertices, Status result, long intendedStartTimeNanos,
+      long startTimeNanos, long endTimeNanos) {
+    if (vertices == NO_POLYGON) {
+      return;
+    }
+    int bucket = vertices > 0 ? Integer.highestOneBit(vertices) : RECTANGLE_VERTICES;
+    measure(op + "-V" + bucket, result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+  }
+
   private void measure(String op, Status result, long intendedStartTimeNanos,
       long startTimeNanos, long endTimeNanos) {
     String measurementName = op;
@@ -274,6 +311,19 @@ public class GeoDBWrapper extends GeoDB {
     }
   }
 
+  public Status geoBulkLoad(String table, List<String> keys, List<String> documents) {
+    try (final TraceScope span = tracer.newScope(scopeStringInsert)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.geoBulkLoad(table, keys, documents);
+      long en = System.nanoTime();
+      measure("GEO_BULK_LOAD", res, ist, st, en);
+      measurements.reportStatus("GEO_BULK_LOAD", res);
+      measurements.count("GEO_BULK_LOAD_DOCUMENTS", documents.size());
+      return res;
+    }
+  }
+
   public Status geoInsert(String table, HashMap<String, ByteIterator> result, GeoGenerator generator) {
     try (final TraceScope span = tracer.newScope(scopeStringRead)) {
       generator.buildGeoInsertDocument();
@@ -301,27 +351,95 @@ public class GeoDBWrapper extends GeoDB {
     }
   }
 
+  public Status geoMove(String table, GeoGenerator generator) {
+    try (final TraceScope span = tracer.newScope(scopeStringUpdate)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.geoMove(table, generator);
+      long en = System.nanoTime();
+      measure("GEO_MOVE", res, ist, st, en);
+      measurements.reportStatus("GEO_MOVE", res);
+      return res;
+    }
+  }
+
+  /**
+   * A verified query reads its whole result. It ends when the binding held its answer, and the reading of the rest
+   * is reported as VERIFY_READ_*.
+   */
+  private long answered(String operation, GeoGenerator generator, long en) {
+    GeoQueryCheck check = generator.getQueryCheck();
+    if (check == null || check.getAnsweredNanos() == 0) {
+      return en;
+    }
+    long answered = check.getAnsweredNanos();
+    measurements.measure("VERIFY_READ_" + operation, (int) ((en - answered) / 1000));
+    return answered;
+  }
+
   public Status geoNear(String table, HashMap<String, ByteIterator> result, GeoGenerator generator) {
     generator.buildGeoReadPredicate();
     try (final TraceScope span = tracer.newScope(scopeStringRead)) {
       long ist = measurements.getIntendedStartTimeNs();
       long st = System.nanoTime();
       Status res = db.geoNear(table, result, generator);
-      long en = System.nanoTime();
+      long en = answered("GEO_NEAR", generator, System.nanoTime());
       measure("GEO_NEAR", res, ist, st, en);
       measurements.reportStatus("GEO_NEAR", res);
       return res;
     }
   }
 
+  public Status geoKnn(String table, HashMap<String, ByteIterator> result, GeoGenerator generator) {
+    generator.buildGeoKnnPredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.geoKnn(table, result, generator);
+      long en = answered("GEO_KNN", generator, System.nanoTime());
+      measure("GEO_KNN", res, ist, st, en);
+      measurements.reportStatus("GEO_KNN", res);
+      return res;
+    }
+  }
+
+  public Status geoCount(String table, HashMap<String, ByteIterator> result, GeoGenerator generator) {
+    generator.buildGeoAggregatePredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.geoCount(table, result, generator);
+      long en = System.nanoTime();
+      measure("GEO_COUNT", res, ist, st, en);
+      measureComplexity("GEO_COUNT", generator.getQueryVertexCount(), res, ist, st, en);
+      measurements.reportStatus("GEO_COUNT", res);
+      return res;
+    }
+  }
+
+  public Status geoGridAggregate(String table, HashMap<String, ByteIterator> result, GeoGenerator generator) {
+    generator.buildGeoAggregatePredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = System.nanoTime();
+      Status res = db.geoGridAggregate(table, result, generator);
+      long en = System.nanoTime();
+      measure("GEO_GRID", res, ist, st, en);
+      measureComplexity("GEO_GRID", generator.getQueryVertexCount(), res, ist, st, en);
+      measurements.reportStatus("GEO_GRID", res);
+      return res;
+    }
+  }
+
   public Status geoBox(String table, HashMap<String, ByteIterator> result, GeoGenerator generator) {
     generator.buildGeoReadPredicate();
     try (final TraceScope span = tracer.newScope(scopeStringRead)) {
       long ist = measurements.getIntendedStartTimeNs();
       long st = System.nanoTime();
       Status res = db.geoBox(table, result, generator);
-      long en = System.nanoTime();
+      long en = answered("GEO_BOX", generator, System.nanoTime());
       measure("GEO_BOX", res, ist, st, en);
+      measureComplexity("GEO_BOX", generator.getQueryVertexCount(), res, ist, st, en);
       measurements.reportStatus("GEO_BOX", res);
       return res;
     }
@@ -333,8 +451,9 @@ public class GeoDBWrapper extends GeoDB {
       long ist = measurements.getIntendedStartTimeNs();
       long st = System.nanoTime();
       Status res = db.geoIntersect(table, result, generator);
-      long en = System.nanoTime();
+      long en = answered("GEO_INTERSECT", generator, System.nanoTime());
       measure("GEO_INTERSECT", res, ist, st, en);
+      measureComplexity("GEO_INTERSECT", generator.getQueryVertexCount(), res, ist, st, en);
       measurements.reportStatus("GEO_INTERSECT", res);
       return res;
     }
@@ -354,4 +473,228 @@ public class GeoDBWrapper extends GeoDB {
   }
 
 
+
+  /**
+   * Asynchronous GEO operations. Each one waits for a free slot of the in-flight window, issues the operation of
+   * the wrapped database and is measured when its future completes. The intended start time includes the wait for
+   * the window.
+   */
+
+  @Override
+  public CompletableFuture<Status> geoInsertAsync(String table, HashMap<String, ByteIterator> result,
+                                                  GeoGenerator generator) {
+    try (final TraceScope span = tracer.newScope(scopeStringInsert)) {
+      generator.buildGeoInsertDocument();
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_INSERT", NO_POLYGON, ist, st, asyncDb.geoInsertAsync(table, result, generator));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> geoUpdateAsync(String table, HashMap<String, ByteIterator> result,
+                                                  GeoGenerator generator) {
+    try (final TraceScope span = tracer.newScope(scopeStringUpdate)) {
+      generator.buildGeoUpdatePredicate();
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_UPDATE", NO_POLYGON, ist, st, asyncDb.geoUpdateAsync(table, result, generator));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> geoNearAsync(String table, HashMap<String, ByteIterator> result,
+                                                GeoGenerator generator) {
+    generator.buildGeoReadPredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_NEAR", NO_POLYGON, ist, st, asyncDb.geoNearAsync(table, result, generator));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> geoKnnAsync(String table, HashMap<String, ByteIterator> result,
+                                               GeoGenerator generator) {
+    generator.buildGeoKnnPredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_KNN", NO_POLYGON, ist, st, asyncDb.geoKnnAsync(table, result, generator));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> geoCountAsync(String table, HashMap<String, ByteIterator> result,
+                                                 GeoGenerator generator) {
+    generator.buildGeoAggregatePredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      int vertices = generator.getQueryVertexCount();
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_COUNT", vertices, ist, st, asyncDb.geoCountAsync(table, result, generator));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> geoGridAggregateAsync(String table, HashMap<String, ByteIterator> result,
+                                                         GeoGenerator generator) {
+    generator.buildGeoAggregatePredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      int vertices = generator.getQueryVertexCount();
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_GRID", vertices, ist, st, asyncDb.geoGridAggregateAsync(table, result, generator));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> geoBoxAsync(String table, HashMap<String, ByteIterator> result,
+                                               GeoGenerator generator) {
+    generator.buildGeoReadPredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      int vertices = generator.getQueryVertexCount();
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_BOX", vertices, ist, st, asyncDb.geoBoxAsync(table, result, generator));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> geoIntersectAsync(String table, HashMap<String, ByteIterator> result,
+                                                     GeoGenerator generator) {
+    generator.buildGeoReadPredicate();
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      int vertices = generator.getQueryVertexCount();
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_INTERSECT", vertices, ist, st, asyncDb.geoIntersectAsync(table, result, generator));
+    }
+  }
+
+  @Override
+  public CompletableFuture<Status> geoScanAsync(String table, Vector<HashMap<String, ByteIterator>> result,
+                                                GeoGenerator generator) {
+    try (final TraceScope span = tracer.newScope(scopeStringRead)) {
+      long ist = measurements.getIntendedStartTimeNs();
+      long st = startAsync();
+      return finishAsync("GEO_SCAN", NO_POLYGON, ist, st, asyncDb.geoScanAsync(table, result, generator));
+    }
+  }
+
+  /**
+   * Wait for a free slot of the in-flight window and return the start time of the operation.
+   */
+  private long startAsync() {
+    inFlight.acquireUninterruptibly();
+    return System.nanoTime();
+  }
+
+  /**
+   * Measure the operation and free its slot of the window when the future completes.
+   */
+  private CompletableFuture<Status> finishAsync(final String op, final int vertices, final long ist, final long st,
+                                                CompletableFuture<Status> future) {
+    return future.handle(new BiFunction<Status, Throwable, Status>() {
+      @Override
+      public Status apply(Status status, Throwable error) {
+        long en = System.nanoTime();
+        try {
+          Status res = status;
+          if (error != null) {
+            System.err.println(op + " failed: " + error);
+            res = Status.ERROR;
+          }
+          measure(op, res, ist, st, en);
+          measureComplexity(op, vertices, res, ist, st, en);
+          measurements.reportStatus(op, res);
+          return res;
+        } finally {
+          inFlight.release();
+        }
+      }
+    });
+  }
+
+  /**
+   * Issues the asynchronous operations of a database without an asynchronous driver as blocking calls.
+   */
+  private static final class BlockingGeoDB extends AsyncGeoDB {
+    private final GeoDB db;
+
+    private BlockingGeoDB(GeoDB db) {
+      this.db = db;
+    }
+
+    @Override
+    public Status geoInsert(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+      return db.geoInsert(table, result, gen);
+    }
+
+    @Override
+    public Status geoUpdate(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+      return db.geoUpdate(table, result, gen);
+    }
+
+    @Override
+    public Status geoNear(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+      return db.geoNear(table, result, gen);
+    }
+
+    @Override
+    public Status geoKnn(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+      return db.geoKnn(table, result, gen);
+    }
+
+    @Override
+    public Status geoCount(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+      return db.geoCount(table, result, gen);
+    }
+
+    @Override
+    public Status geoGridAggregate(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+      return db.geoGridAggregate(table, result, gen);
+    }
+
+    @Override
+    public Status geoBox(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+      return db.geoBox(table, result, gen);
+    }
+
+    @Override
+    public Status geoIntersect(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+      return db.geoIntersect(table, result, gen);
+    }
+
+    @Override
+    public Status geoScan(String table, Vector<HashMap<String, ByteIterator>> result, GeoGenerator gen) {
+      return db.geoScan(table, result, gen);
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return db.read(table, key, fields, result);
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return db.scan(table, startkey, recordcount, fields, result);
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return db.update(table, key, values);
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return db.insert(table, key, values);
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return db.delete(table, key);
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,310 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb;
+
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.OneMeasurementHdrHistogram;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread that runs the transaction phase as a sequence of phases, e.g. warmup, ramp, steady and cooldown.
+ * <p>
+ * The phases are listed in <code>phases</code> and configured with <code>phase.NAME.*</code>:
+ * <ul>
+ * <li><code>duration</code>: the seconds the phase lasts, required.</li>
+ * <li><code>target</code>: the operations per second of the shared open-loop {@link ArrivalScheduler}, 0 for no
+ * limit (default: <code>target</code>).</li>
+ * <li><code>threads</code>: the client threads that run during the phase, the others wait (default:
+ * <code>threadcount</code>).</li>
+ * <li><code>ramp</code>: change the rate linearly from the target of the previous phase to the own target over the
+ * duration (default: true for a phase named <code>ramp</code>).</li>
+ * <li><code>measure</code>: keep the measurements of the phase; if false, everything measured so far is discarded
+ * when the phase ends, so only the phases before the first measured one can be unmeasured (default: false for a
+ * phase named <code>warmup</code>).</li>
+ * </ul>
+ * Every measured phase is exported on its own from a snapshot of the latencies recorded during the phase, next to
+ * the totals of all measured phases. The run ends after the last phase.
+ */
+public class PhaseController extends Thread {
+
+  /**
+   * The comma separated names of the phases, in order.
+   */
+  public static final String PHASES_PROPERTY = "phases";
+  /**
+   * The prefix of the properties of a phase.
+   */
+  public static final String PHASE_PREFIX = "phase.";
+
+  private static final long RAMP_INTERVAL_MS = 1000;
+
+  /**
+   * The configuration of one phase.
+   */
+  static final class Phase {
+    private final String name;
+    private final long durationMs;
+    private final double target;
+    private final int threads;
+    private final boolean ramp;
+    private final boolean measure;
+
+    Phase(Properties props, String name) {
+      this.name = name;
+      String prefix = PHASE_PREFIX + name + ".";
+      String duration = props.getProperty(prefix + "duration");
+      if (duration == null) {
+        throw new IllegalArgumentException("Phase " + name + " needs a " + prefix + "duration in seconds");
+      }
+      durationMs = (long) (Double.parseDouble(duration) * 1000);
+      target = Double.parseDouble(props.getProperty(prefix + "target",
+          props.getProperty(Client.TARGET_PROPERTY, "0")));
+      threads = Integer.parseInt(props.getProperty(prefix + "threads",
+          props.getProperty(Client.THREAD_COUNT_PROPERTY, "1")));
+      ramp = Boolean.parseBoolean(props.getProperty(prefix + "ramp", String.valueOf("ramp".equals(name))));
+      measure = Boolean.parseBoolean(props.getProperty(prefix + "measure", String.valueOf(!"warmup".equals(name))));
+      if (durationMs <= 0 || target < 0 || threads <= 0) {
+        throw new IllegalArgumentException("Phase " + name + " needs a positive duration and thread count and a "
+            + "target of at least 0");
+      }
+    }
+
+    String getName() {
+      return name;
+    }
+
+    long getDurationMs() {
+      return durationMs;
+    }
+
+    double getTarget() {
+      return target;
+    }
+
+    int getThreads() {
+      return threads;
+    }
+
+    boolean isRamp() {
+      return ramp;
+    }
+
+    boolean isMeasured() {
+      return measure;
+    }
+  }
+
+  /**
+   * The snapshot of a measured phase.
+   */
+  private static final class Snapshot {
+    private final Phase phase;
+    private final long runtimeMs;
+    private final long operations;
+    private final Map<String, Histogram> windows;
+
+    Snapshot(Phase phase, long runtimeMs, long operations, Map<String, Histogram> windows) {
+      this.phase = phase;
+      this.runtimeMs = runtimeMs;
+      this.operations = operations;
+      this.windows = windows;
+    }
+  }
+
+  private final List<Phase> phases;
+  private final List<Double> percentiles;
+  private final ArrivalScheduler arrivals;
+  private final Workload workload;
+  private final LongAdder operations = new LongAdder();
+  private final List<Snapshot> snapshots = new ArrayList<>();
+  private volatile int activeThreads;
+  private volatile boolean done = false;
+
+  /**
+   * @param props    The properties of the run.
+   * @param arrivals The arrival process whose rate the phases set, see {@link #createArrivals(Properties)}.
+   * @param workload The workload to stop after the last phase.
+   */
+  public PhaseController(Properties props, ArrivalScheduler arrivals, Workload workload) {
+    super("PhaseController");
+    setDaemon(true);
+    phases = parsePhases(props);
+    percentiles = OneMeasurementHdrHistogram.getPercentileValues(props.getProperty(
+        OneMeasurementHdrHistogram.PERCENTILES_PROPERTY, OneMeasurementHdrHistogram.PERCENTILES_PROPERTY_DEFAULT));
+    activeThreads = phases.get(0).getThreads();
+    this.arrivals = arrivals;
+    this.workload = workload;
+  }
+
+  public static boolean isEnabled(Properties props) {
+    return !props.getProperty(PHASES_PROPERTY, "").trim().isEmpty();
+  }
+
+  /**
+   * Create the arrival process the phases drive, starting at the target of the first phase.
+   */
+  public static ArrivalScheduler createArrivals(Properties props) {
+    return ArrivalScheduler.create(props, parsePhases(props).get(0).getTarget());
+  }
+
+  static List<Phase> parsePhases(Properties props) {
+    List<Phase> result = new ArrayList<>();
+    for (String name : props.getProperty(PHASES_PROPERTY, "").split(",")) {
+      if (!name.trim().isEmpty()) {
+        result.add(new Phase(props, name.trim()));
+      }
+    }
+    if (result.isEmpty()) {
+      throw new IllegalArgumentException("No phases in " + PHASES_PROPERTY);
+    }
+    for (int i = 1; i < result.size(); i++) {
+      if (result.get(i - 1).isMeasured() && !result.get(i).isMeasured()) {
+        throw new IllegalArgumentException("Phase " + result.get(i).getName() + " cannot be discarded after the "
+            + "measured phase " + result.get(i - 1).getName());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of client threads the busiest phase runs.
+   */
+  public int getMaxThreads() {
+    int max = 0;
+    for (Phase phase : phases) {
+      max = Math.max(max, phase.getThreads());
+    }
+    return max;
+  }
+
+  List<Phase> getPhases() {
+    return phases;
+  }
+
+  /**
+   * Called by a client thread before every operation: wait while the thread is not part of the current phase, then
+   * count the operation.
+   *
+   * @param threadId The id of the client thread.
+   */
+  public void awaitTurn(int threadId) {
+    if (threadId >= activeThreads && !done) {
+      synchronized (this) {
+        while (threadId >= activeThreads && !done && !workload.isStopRequested()) {
+          try {
+            wait(RAMP_INTERVAL_MS);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+        }
+      }
+    }
+    operations.increment();
+  }
+
+  @Override
+  public void run() {
+    Measurements measurements = Measurements.getMeasurements();
+    measurements.trackWindows();
+    double rate = phases.get(0).getTarget();
+    try {
+      for (Phase phase : phases) {
+        setActiveThreads(phase.getThreads());
+        long start = System.nanoTime();
+        runPhase(phase, rate);
+        rate = phase.getTarget();
+        Map<String, Histogram> windows = measurements.takeWindows();
+        long ops = operations.sumThenReset();
+        long runtimeMs = (System.nanoTime() - start) / 1000000;
+        if (phase.isMeasured()) {
+          snapshots.add(new Snapshot(phase, runtimeMs, ops, windows));
+        } else {
+          measurements.discard();
+        }
+        System.err.println("Phase " + phase.getName() + " done after " + runtimeMs + " ms, " + ops + " operations"
+            + (phase.isMeasured() ? "" : ", discarded"));
+        if (workload.isStopRequested()) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      System.err.println("Phases interrupted after " + snapshots.size() + " measured phases.");
+    }
+    done = true;
+    setActiveThreads(Integer.MAX_VALUE);
+    workload.requestStop();
+  }
+
+  private void runPhase(Phase phase, double previousRate) throws InterruptedException {
+    if (!phase.isRamp()) {
+      arrivals.setRate(phase.getTarget());
+      Thread.sleep(phase.getDurationMs());
+      return;
+    }
+    long start = System.currentTimeMillis();
+    long elapsed = 0;
+    while (elapsed < phase.getDurationMs()) {
+      double share = (double) elapsed / phase.getDurationMs();
+      arrivals.setRate(previousRate + (phase.getTarget() - previousRate) * share);
+      Thread.sleep(Math.min(RAMP_INTERVAL_MS, phase.getDurationMs() - elapsed));
+      elapsed = System.currentTimeMillis() - start;
+    }
+  }
+
+  private synchronized void setActiveThreads(int threads) {
+    activeThreads = threads;
+    notifyAll();
+  }
+
+  /**
+   * Write the throughput and the latencies of every measured phase.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    for (Snapshot snapshot : snapshots) {
+      String metric = "PHASE-" + snapshot.phase.getName();
+      exporter.write(metric, "RunTime(ms)", snapshot.runtimeMs);
+      exporter.write(metric, "Throughput(ops/sec)", 1000.0 * snapshot.operations / snapshot.runtimeMs);
+      for (Map.Entry<String, Histogram> entry : new TreeMap<>(snapshot.windows).entrySet()) {
+        Histogram window = entry.getValue();
+        if (window.getTotalCount() == 0) {
+          continue;
+        }
+        String name = metric + "-" + entry.getKey();
+        exporter.write(name, "Operations", window.getTotalCount());
+        exporter.write(name, "AverageLatency(us)", window.getMean());
+        exporter.write(name, "MinLatency(us)", window.getMinValue());
+        exporter.write(name, "MaxLatency(us)", window.getMaxValue());
+        for (Double percentile : percentiles) {
+          exporter.write(name, OneMeasurementHdrHistogram.ordinal(percentile) + "PercentileLatency(us)",
+              window.getValueAtPercentile(percentile));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,386 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb;
+
+import site.ycsb.measurements.Measurements;
+import site.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A thread that searches for the highest throughput the database sustains within latency objectives, in a single
+ * run with warm connections.
+ * <p>
+ * The search steps the rate of the shared open-loop {@link ArrivalScheduler}. Every rate is held for
+ * <code>saturation.warmup</code> seconds, which are discarded, and then for <code>saturation.window</code> seconds,
+ * whose latency percentiles are checked against the objectives. An objective is a property
+ * <code>slo.OPERATION.pNN=limit</code>, e.g. <code>slo.GEO_NEAR.p99=20ms</code> or
+ * <code>slo.GEO_NEAR.p999=50ms</code>: the digits after the first two are decimals, except for <code>p100</code>, the
+ * maximum. A limit is given in <code>us</code>, <code>ms</code> or <code>s</code>, or in microseconds without a unit.
+ * An operation that did not complete at all during a window misses its objectives.
+ * <ul>
+ * <li><code>linear</code>: start at <code>saturation.start</code> operations per second and add
+ * <code>saturation.step</code> until every operation missed an objective, or until <code>saturation.max</code>.</li>
+ * <li><code>binary</code>: bisect between <code>saturation.start</code> and <code>saturation.max</code> until the
+ * highest rate that met all objectives is known to within <code>saturation.step</code>.</li>
+ * </ul>
+ * The highest rate below the first missed one is reported for every operation with objectives and for all of them
+ * together. The run ends when the search is done.
+ */
+public class SaturationSearch extends Thread {
+
+  /**
+   * The search: none, linear or binary.
+   */
+  public static final String SATURATION_SEARCH_PROPERTY = "saturation.search";
+  public static final String SATURATION_SEARCH_PROPERTY_DEFAULT = "none";
+  /**
+   * The first rate of the search in operations per second.
+   */
+  public static final String START_PROPERTY = "saturation.start";
+  public static final String START_PROPERTY_DEFAULT = "100";
+  /**
+   * The increment of the linear search and the resolution of the binary search in operations per second.
+   */
+  public static final String STEP_PROPERTY = "saturation.step";
+  public static final String STEP_PROPERTY_DEFAULT = "100";
+  /**
+   * The highest rate to try in operations per second, 0 for no limit. The binary search needs one.
+   */
+  public static final String MAX_PROPERTY = "saturation.max";
+  public static final String MAX_PROPERTY_DEFAULT = "0";
+  /**
+   * The seconds after a change of the rate that are not measured.
+   */
+  public static final String WARMUP_PROPERTY = "saturation.warmup";
+  public static final String WARMUP_PROPERTY_DEFAULT = "5";
+  /**
+   * The seconds a rate is measured.
+   */
+  public static final String WINDOW_PROPERTY = "saturation.window";
+  public static final String WINDOW_PROPERTY_DEFAULT = "30";
+  /**
+   * The prefix of the latency objectives.
+   */
+  public static final String SLO_PREFIX = "slo.";
+
+  private static final Pattern SLO_KEY = Pattern.compile("(.+)\\.p(\\d+)");
+  private static final Pattern SLO_VALUE = Pattern.compile("([0-9.]+)\\s*(us|ms|s)?");
+
+  /**
+   * A latency objective for one percentile of one operation.
+   */
+  static final class Objective {
+    private final String operation;
+    private final double percentile;
+    private final long limitMicros;
+
+    Objective(String operation, double percentile, long limitMicros) {
+      this.operation = operation;
+      this.percentile = percentile;
+      this.limitMicros = limitMicros;
+    }
+
+    String getOperation() {
+      return operation;
+    }
+
+    double getPercentile() {
+      return percentile;
+    }
+
+    long getLimitMicros() {
+      return limitMicros;
+    }
+
+    boolean isMet(Histogram window) {
+      return window != null && window.getTotalCount() > 0 && window.getValueAtPercentile(percentile) <= limitMicros;
+    }
+  }
+
+  /**
+   * The outcome of holding one rate.
+   */
+  static final class Step {
+    private final double rate;
+    private final Map<String, Boolean> met = new LinkedHashMap<>();
+    private final Map<String, Double> throughput = new LinkedHashMap<>();
+
+    Step(double rate) {
+      this.rate = rate;
+    }
+
+    double getRate() {
+      return rate;
+    }
+
+    boolean isMet(String operation) {
+      return met.get(operation);
+    }
+
+    boolean isMet() {
+      return !met.containsValue(false);
+    }
+  }
+
+  private final boolean binary;
+  private final double startRate;
+  private final double stepRate;
+  private final double maxRate;
+  private final long warmupMs;
+  private final long windowMs;
+  private final List<Objective> objectives;
+  private final ArrivalScheduler arrivals;
+  private final Workload workload;
+  private final List<Step> steps = new ArrayList<>();
+
+  /**
+   * @param props     The properties of the run.
+   * @param arrivals  The arrival process whose rate is searched, see {@link #createArrivals(Properties)}.
+   * @param workload  The workload to stop when the search is done.
+   */
+  public SaturationSearch(Properties props, ArrivalScheduler arrivals, Workload workload) {
+    super("SaturationSearch");
+    setDaemon(true);
+    String search = props.getProperty(SATURATION_SEARCH_PROPERTY, SATURATION_SEARCH_PROPERTY_DEFAULT);
+    if (!"linear".equals(search) && !"binary".equals(search)) {
+      throw new IllegalArgumentException("Unknown " + SATURATION_SEARCH_PROPERTY + " " + search
+          + ", use none, linear or binary");
+    }
+    binary = "binary".equals(search);
+    startRate = getStartRate(props);
+    stepRate = Double.parseDouble(props.getProperty(STEP_PROPERTY, STEP_PROPERTY_DEFAULT));
+    maxRate = Double.parseDouble(props.getProperty(MAX_PROPERTY, MAX_PROPERTY_DEFAULT));
+    warmupMs = (long) (Double.parseDouble(props.getProperty(WARMUP_PROPERTY, WARMUP_PROPERTY_DEFAULT)) * 1000);
+    windowMs = (long) (Double.parseDouble(props.getProperty(WINDOW_PROPERTY, WINDOW_PROPERTY_DEFAULT)) * 1000);
+    if (stepRate <= 0 || windowMs <= 0) {
+      throw new IllegalArgumentException(STEP_PROPERTY + " and " + WINDOW_PROPERTY + " must be positive");
+    }
+    if (binary && maxRate <= startRate) {
+      throw new IllegalArgumentException("The binary search needs a " + MAX_PROPERTY + " above " + START_PROPERTY);
+    }
+    objectives = parseObjectives(props);
+    if (objectives.isEmpty()) {
+      throw new IllegalArgumentException("The saturation search needs latency objectives, e.g. "
+          + SLO_PREFIX + "GEO_NEAR.p99=20ms");
+    }
+    this.arrivals = arrivals;
+    this.workload = workload;
+  }
+
+  public static boolean isEnabled(Properties props) {
+    return !SATURATION_SEARCH_PROPERTY_DEFAULT.equals(
+        props.getProperty(SATURATION_SEARCH_PROPERTY, SATURATION_SEARCH_PROPERTY_DEFAULT));
+  }
+
+  /**
+   * Create the arrival process the search drives, starting at <code>saturation.start</code>.
+   */
+  public static ArrivalScheduler createArrivals(Properties props) {
+    return ArrivalScheduler.create(props, getStartRate(props));
+  }
+
+  private static double getStartRate(Properties props) {
+    double rate = Double.parseDouble(props.getProperty(START_PROPERTY, START_PROPERTY_DEFAULT));
+    if (rate <= 0) {
+      throw new IllegalArgumentException(START_PROPERTY + " must be positive");
+    }
+    return rate;
+  }
+
+  /**
+   * Read the <code>slo.OPERATION.pNN=limit</code> objectives.
+   */
+  static List<Objective> parseObjectives(Properties props) {
+    List<Objective> result = new ArrayList<>();
+    for (String key : props.stringPropertyNames()) {
+      if (!key.startsWith(SLO_PREFIX)) {
+        continue;
+      }
+      Matcher name = SLO_KEY.matcher(key.substring(SLO_PREFIX.length()));
+      Matcher limit = SLO_VALUE.matcher(props.getProperty(key).trim());
+      if (!name.matches() || !limit.matches()) {
+        throw new IllegalArgumentException("Cannot read the latency objective " + key + "=" + props.getProperty(key)
+            + ", use e.g. " + SLO_PREFIX + "GEO_NEAR.p99=20ms");
+      }
+      String digits = name.group(2);
+      double percentile = digits.matches("100+") ? 100 : Double.parseDouble(digits.length() <= 2 ? digits
+          : digits.substring(0, 2) + "." + digits.substring(2));
+      double micros = Double.parseDouble(limit.group(1));
+      if ("ms".equals(limit.group(2))) {
+        micros *= 1000;
+      } else if ("s".equals(limit.group(2))) {
+        micros *= 1000000;
+      }
+      result.add(new Objective(name.group(1), percentile, (long) micros));
+    }
+    return result;
+  }
+
+  @Override
+  public void run() {
+    Measurements measurements = Measurements.getMeasurements();
+    measurements.trackWindows();
+    try {
+      double rate = startRate;
+      while (rate > 0 && !workload.isStopRequested()) {
+        arrivals.setRate(rate);
+        Thread.sleep(warmupMs);
+        measurements.takeWindows();
+        long start = System.nanoTime();
+        Thread.sleep(windowMs);
+        Map<String, Histogram> windows = measurements.takeWindows();
+        Step step = evaluate(rate, windows, (System.nanoTime() - start) / 1e9);
+        steps.add(step);
+        rate = nextRate();
+      }
+      System.err.println("Saturation search done, highest rate within the objectives: "
+          + new DecimalFormat("#.##").format(getMaxRate()) + " ops/sec");
+    } catch (InterruptedException e) {
+      System.err.println("Saturation search interrupted after " + steps.size() + " steps.");
+    }
+    workload.requestStop();
+  }
+
+  Step evaluate(double rate, Map<String, Histogram> windows, double seconds) {
+    Step step = new Step(rate);
+    DecimalFormat d = new DecimalFormat("#.##");
+    StringBuilder line = new StringBuilder("Saturation search at ").append(d.format(rate)).append(" ops/sec:");
+    for (Objective objective : objectives) {
+      String operation = objective.getOperation();
+      Histogram window = windows.get(operation);
+      boolean met = objective.isMet(window);
+      Boolean before = step.met.get(operation);
+      step.met.put(operation, met && (before == null || before));
+      step.throughput.put(operation, window == null ? 0 : window.getTotalCount() / seconds);
+      line.append(' ').append(operation).append(" p").append(d.format(objective.getPercentile())).append('=')
+          .append(window == null ? "-" : String.valueOf(window.getValueAtPercentile(objective.getPercentile())))
+          .append("us/").append(objective.getLimitMicros()).append("us ").append(met ? "met" : "missed");
+    }
+    System.err.println(line);
+    return step;
+  }
+
+  /**
+   * @return the next rate to hold, or 0 if the search is done.
+   */
+  double nextRate() {
+    Step last = steps.get(steps.size() - 1);
+    if (binary) {
+      if (steps.size() == 1) {
+        return last.isMet() ? maxRate : 0;
+      }
+      double low = getMaxRate();
+      double high = lowestMissedRate(null);
+      if (Double.isNaN(high) || high - low <= stepRate) {
+        return 0;
+      }
+      return (low + high) / 2;
+    }
+    Set<String> missed = new HashSet<>();
+    for (Step step : steps) {
+      for (Map.Entry<String, Boolean> entry : step.met.entrySet()) {
+        if (!entry.getValue()) {
+          missed.add(entry.getKey());
+        }
+      }
+    }
+    double next = last.getRate() + stepRate;
+    if (missed.size() == last.met.size() || (maxRate > 0 && next > maxRate)) {
+      return 0;
+    }
+    return next;
+  }
+
+  /**
+   * @return the highest rate that met all objectives below the lowest rate that missed one, or 0.
+   */
+  double getMaxRate() {
+    Step best = bestStep(null);
+    return best == null ? 0 : best.getRate();
+  }
+
+  /**
+   * Write the highest rate for all objectives and for every operation, with the throughput the operation reached.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    exporter.write("SATURATION", "Steps", steps.size());
+    exporter.write("SATURATION", "MaxThroughput(ops/sec)", getMaxRate());
+    for (String operation : getOperations()) {
+      Step best = bestStep(operation);
+      exporter.write("SATURATION-" + operation, "MaxTargetThroughput(ops/sec)", best == null ? 0 : best.getRate());
+      exporter.write("SATURATION-" + operation, "Throughput(ops/sec)",
+          best == null ? 0 : best.throughput.get(operation));
+    }
+  }
+
+  List<Step> getSteps() {
+    return steps;
+  }
+
+  private Set<String> getOperations() {
+    Set<String> operations = new LinkedHashSet<>();
+    for (Objective objective : objectives) {
+      operations.add(objective.getOperation());
+    }
+    return operations;
+  }
+
+  /**
+   * @param operation The operation, or null for all objectives.
+   */
+  private Step bestStep(String operation) {
+    double limit = lowestMissedRate(operation);
+    Step best = null;
+    for (Step step : steps) {
+      boolean met = operation == null ? step.isMet() : step.isMet(operation);
+      boolean belowMiss = Double.isNaN(limit) || step.getRate() < limit;
+      if (met && belowMiss && (best == null || step.getRate() > best.getRate())) {
+        best = step;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @return the lowest rate that missed an objective of the operation, or NaN.
+   */
+  private double lowestMissedRate(String operation) {
+    double lowest = Double.NaN;
+    for (Step step : steps) {
+      boolean met = operation == null ? step.isMet() : step.isMet(operation);
+      if (!met && (Double.isNaN(lowest) || step.getRate() < lowest)) {
+        lowest = step.getRate();
+      }
+    }
+    return lowest;
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Creates virtual threads on Java 21 and later while the client is still built for Java 8.
+ * <p>
+ * <code>Thread.ofVirtual()</code> and <code>Thread.Builder#unstarted</code> are looked up once through reflection,
+ * so the same jar runs client threads as platform threads on older runtimes. Java 19 and 20 have the methods as
+ * a preview API that fails without <code>--enable-preview</code>, so only Java 21 and later count as supported.
+ * Virtual threads keep their own thread-local values, independent of the carrier thread they are mounted on, so the
+ * per-thread state of the client (the intended start time of {@link site.ycsb.measurements.Measurements}, the
+ * workload thread state) works unchanged.
+ */
+final class VirtualThreads {
+
+  private static final int FIRST_VERSION = 21;
+  private static final Method OF_VIRTUAL;
+  private static final Method UNSTARTED;
+
+  static {
+    Method ofVirtual = null;
+    Method unstarted = null;
+    if (featureVersion() >= FIRST_VERSION) {
+      try {
+        ofVirtual = Thread.class.getMethod("ofVirtual");
+        unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+      } catch (NoSuchMethodException | ClassNotFoundException e) {
+        ofVirtual = null;
+        unstarted = null;
+      }
+    }
+    OF_VIRTUAL = ofVirtual;
+    UNSTARTED = unstarted;
+  }
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return the feature release of the runtime, 8 for "1.8".
+   */
+  static int featureVersion() {
+    String version = System.getProperty("java.specification.version", "1.8");
+    if (version.startsWith("1.")) {
+      version = version.substring(2);
+    }
+    try {
+      return Integer.parseInt(version);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+
+  /**
+   * @return true if the runtime supports virtual threads.
+   */
+  static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Create a virtual thread that runs the task once it is started.
+   *
+   * @throws IllegalStateException if the runtime does not support virtual threads.
+   */
+  static Thread newThread(Runnable task) {
+    if (!isSupported()) {
+      throw new IllegalStateException("Virtual threads need Java 21 or later, running on Java "
+          + System.getProperty("java.version"));
+    }
+    try {
+      return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(null), task);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Could not create a virtual thread", e);
+    }
+  }
+}
@@ -77,6 +77,13 @@ public abstract class Workload {
     return null;
   }
       
+  /**
+   * Cleanup any state for a particular client thread. Called once by each client thread with the object returned
+   * by initThread(), after its last operation and before its DB is cleaned up.
+   */
+  public void cleanupThread(Object threadstate) throws WorkloadException {
+  }
+
   /**
    * Cleanup the scenario. Called once, in the main client thread, after all operations have completed.
    */
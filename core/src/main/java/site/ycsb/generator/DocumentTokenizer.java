@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb.generator;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts the token values of a GeoJSON document in a single streaming pass, without building a tree of the
+ * document.
+ * <p>
+ * The fields are configured with <code>geo_token_fields</code> as a comma separated list of
+ * <code>path[:type]</code> entries. A path names nested object fields separated by dots, and its token key is the
+ * path with {@link GeoGenerator#GEO_SYSTEMFIELD_DELIMITER} in place of the dots. The types are
+ * <ul>
+ * <li><code>text</code> (the default): the text of a scalar value.</li>
+ * <li><code>int</code>: an integer, truncated from a decimal or parsed from a string.</li>
+ * <li><code>position</code>: the first two numbers of a flat coordinate array as <code>x,y</code>, truncated to
+ * integers.</li>
+ * <li><code>any</code>: the text of a scalar value or the JSON of an object or array.</li>
+ * </ul>
+ * Fields that are missing, null or of a different shape get a null token. Everything else in the document is
+ * skipped by the parser. An instance is not thread-safe; every generator creates its own.
+ */
+public final class DocumentTokenizer {
+
+  private static final JsonFactory FACTORY = new JsonFactory();
+
+  private enum Type {
+    TEXT, INT, POSITION, ANY
+  }
+
+  /**
+   * A field of the document tree: either a configured token, or an object that leads to tokens.
+   */
+  private static final class Node {
+    private final Map<String, Node> children = new HashMap<>();
+    private String key;
+    private Type type;
+  }
+
+  private final Node root = new Node();
+  private final List<String> keys = new ArrayList<>();
+
+  /**
+   * @param fields The field list in the format of <code>geo_token_fields</code>.
+   */
+  public DocumentTokenizer(String fields) {
+    for (String entry : fields.split(",")) {
+      String field = entry.trim();
+      if (field.isEmpty()) {
+        continue;
+      }
+      Type type = Type.TEXT;
+      int colon = field.lastIndexOf(':');
+      if (colon >= 0) {
+        type = parseType(field.substring(colon + 1).trim());
+        field = field.substring(0, colon).trim();
+      }
+      Node node = root;
+      for (String name : field.split("\\.")) {
+        Node child = node.children.get(name);
+        if (child == null) {
+          child = new Node();
+          node.children.put(name, child);
+        }
+        node = child;
+      }
+      if (node.key != null) {
+        throw new IllegalArgumentException("Field " + field + " is listed twice in " + GeoWorkload.GEO_TOKEN_FIELDS);
+      }
+      node.key = field.replace(".", GeoGenerator.GEO_SYSTEMFIELD_DELIMITER);
+      node.type = type;
+      keys.add(node.key);
+    }
+  }
+
+  /**
+   * @return the token keys in the order they were configured.
+   */
+  public List<String> getKeys() {
+    return keys;
+  }
+
+  /**
+   * Clear the map and put the value of every configured token of the document into it, null for the missing ones.
+   */
+  public void tokenize(String document, Map<String, String> tokens) {
+    tokens.clear();
+    for (String key : keys) {
+      tokens.put(key, null);
+    }
+    try (JsonParser parser = FACTORY.createJsonParser(document)) {
+      if (parser.nextToken() == JsonToken.START_OBJECT) {
+        readObject(parser, root, tokens);
+      }
+    } catch (IOException e) {
+      System.err.println("Document parsing error: " + e.getMessage());
+    }
+  }
+
+  private static Type parseType(String name) {
+    for (Type type : Type.values()) {
+      if (type.name().equalsIgnoreCase(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown token type " + name + " in " + GeoWorkload.GEO_TOKEN_FIELDS);
+  }
+
+  private static void readObject(JsonParser parser, Node node, Map<String, String> tokens) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      Node child = node.children.get(parser.getCurrentName());
+      JsonToken value = parser.nextToken();
+      if (child == null) {
+        parser.skipChildren();
+      } else if (child.key != null) {
+        tokens.put(child.key, read(parser, value, child.type));
+      } else if (value == JsonToken.START_OBJECT) {
+        readObject(parser, child, tokens);
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private static String read(JsonParser parser, JsonToken value, Type type) throws IOException {
+    if (value == JsonToken.VALUE_NULL) {
+      return null;
+    }
+    switch (type) {
+    case INT:
+      return readInt(parser, value);
+    case POSITION:
+      return readPosition(parser, value);
+    case ANY:
+      if (value.isScalarValue()) {
+        return parser.getText();
+      }
+      StringWriter json = new StringWriter();
+      try (JsonGenerator generator = FACTORY.createJsonGenerator(json)) {
+        generator.copyCurrentStructure(parser);
+      }
+      return json.toString();
+    default:
+      if (value.isScalarValue()) {
+        return parser.getText();
+      }
+      parser.skipChildren();
+      return null;
+    }
+  }
+
+  private static String readInt(JsonParser parser, JsonToken value) throws IOException {
+    if (value == JsonToken.VALUE_NUMBER_INT) {
+      return String.valueOf(parser.getIntValue());
+    } else if (value == JsonToken.VALUE_NUMBER_FLOAT) {
+      return String.valueOf((int) parser.getDoubleValue());
+    } else if (value == JsonToken.VALUE_STRING) {
+      try {
+        return String.valueOf(Integer.parseInt(parser.getText().trim()));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    parser.skipChildren();
+    return null;
+  }
+
+  private static String readPosition(JsonParser parser, JsonToken value) throws IOException {
+    if (value != JsonToken.START_ARRAY) {
+      parser.skipChildren();
+      return null;
+    }
+    String position = null;
+    JsonToken x = parser.nextToken();
+    if (x.isNumeric()) {
+      long first = (long) parser.getDoubleValue();
+      JsonToken y = parser.nextToken();
+      if (y.isNumeric()) {
+        position = first + "," + (long) parser.getDoubleValue();
+      } else if (y == JsonToken.END_ARRAY) {
+        return null;
+      }
+    }
+    // skip the rest of the array, including nested arrays of lines and polygons
+    for (JsonToken token = parser.getCurrentToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+      parser.skipChildren();
+    }
+    return position;
+  }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.workloads.CoreWorkload;
+
+import java.util.Properties;
+
+/**
+ * A {@link GeoGenerator} that keeps the pre-generated documents in an {@link OffHeapStore} inside the client
+ * process instead of a remote memcached. All client threads share the same store, so a single client process can
+ * drive a geo workload without any network round-trips for predicate generation.
+ * <p>
+ * The store is kept in direct memory by default. Set <code>geo_storage_file</code> to memory-map a file instead,
+ * which keeps the seeded documents between the load and the transaction phase.
+ */
+public class EmbeddedGenerator extends GeoGenerator {
+
+  private final OffHeapStore store;
+
+  public EmbeddedGenerator(Properties p, OffHeapStore store, String totalDocs) {
+    super(p);
+    this.store = store;
+    String prefix = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER;
+
+    store.add(prefix + GEO_SYSTEMFIELD_TOTALDOCS_COUNT, totalDocs);
+    int insertOffset = Integer.parseInt(p.getProperty(CoreWorkload.INSERT_START_PROPERTY,
+        CoreWorkload.INSERT_START_PROPERTY_DEFAULT));
+    store.add(prefix + GEO_SYSTEMFIELD_INSERTDOC_COUNTER,
+        String.valueOf(Integer.parseInt(totalDocs) + 1 + insertOffset));
+    store.add(prefix + GEO_SYSTEMFIELD_STORAGEDOCS_COUNT_DOCS, "0");
+  }
+
+  @Override
+  protected void setVal(String key, String value) {
+    store.add(key, value);
+  }
+
+  @Override
+  protected String getVal(String key) {
+    return store.get(key);
+  }
+
+  @Override
+  protected int increment(String key, int step) {
+    return (int) store.incr(key, step);
+  }
+
+}
@@ -0,0 +1,500 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.LineString;
+import site.ycsb.generator.geo.MultiLineString;
+import site.ycsb.generator.geo.MultiPolygon;
+import site.ycsb.generator.geo.Polygon;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A pre-tokenized geo dataset in a single file that all client threads of a process share read-only through one
+ * memory mapping. Looking up a geometry copies its coordinates out of the mapping, nothing is parsed and nothing
+ * goes over the network.
+ * <p>
+ * All values are big-endian and every section starts on an 8 byte boundary:
+ * <pre>
+ * header       long magic "GEOYCSB1", int version, int 0, long documents, double minX, minY, maxX, maxY,
+ *              long offsets of the index, coordinate, structure and blob sections
+ * index        per document: long first point, long first structure value, long blob offset,
+ *              int points, int rings, int parts, int blob length, int geometry type (-1 for none), int 0
+ * coordinates  the x, y doubles of all points
+ * structure    per document: the end point of every ring, then the end ring of every part
+ * blobs        per document: int length and UTF-8 properties.OBJECTID, then the UTF-8 JSON of the properties
+ * </pre>
+ * Coordinates are stored once, in the coordinate section. A document is rebuilt as a compact GeoJSON feature of its
+ * properties and geometry; other members of the source feature are not kept.
+ * Build the file once from a GeoJSON file with one feature per line:
+ * <code>java -cp core.jar site.ycsb.generator.GeoDatasetFile dataset.json dataset.geods</code>
+ */
+public final class GeoDatasetFile implements GeoDocumentSource, Closeable {
+
+  private static final long MAGIC = 0x47454F5943534231L;
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = 96;
+  private static final int INDEX_ENTRY_SIZE = 48;
+  private static final int SEGMENT_BITS = 30;
+  private static final Geometry.Type[] TYPES = Geometry.Type.values();
+
+  private static GeoDatasetFile singleton = null;
+
+  private final String path;
+  private final RandomAccessFile file;
+  private final MappedByteBuffer[] segments;
+  private final int segmentBits;
+  private final long segmentMask;
+  private final int documentCount;
+  private final double[] region = new double[4];
+  private final long indexOffset;
+  private final long coordinatesOffset;
+  private final long structureOffset;
+  private final long blobOffset;
+
+  /**
+   * Return the dataset shared by all threads of this process, mapping it on first use.
+   */
+  public static synchronized GeoDatasetFile getInstance(String path) throws IOException {
+    if (singleton == null) {
+      singleton = new GeoDatasetFile(path);
+    } else if (!singleton.path.equals(path)) {
+      throw new IllegalArgumentException("Geo dataset " + singleton.path + " is already open, cannot open " + path);
+    }
+    return singleton;
+  }
+
+  /**
+   * Release the dataset shared by this process.
+   */
+  public static synchronized void closeInstance() throws IOException {
+    if (singleton != null) {
+      singleton.close();
+      singleton = null;
+    }
+  }
+
+  GeoDatasetFile(String path) throws IOException {
+    this(path, SEGMENT_BITS);
+  }
+
+  /**
+   * @param segmentBits The log2 of the size of the mapped segments, smaller than the default only in tests.
+   */
+  GeoDatasetFile(String path, int segmentBits) throws IOException {
+    this.path = path;
+    this.segmentBits = segmentBits;
+    segmentMask = (1L << segmentBits) - 1;
+    file = new RandomAccessFile(path, "r");
+    FileChannel channel = file.getChannel();
+    long size = channel.size();
+    segments = new MappedByteBuffer[(int) ((size + segmentMask) >>> segmentBits)];
+    for (int i = 0; i < segments.length; i++) {
+      long start = (long) i << segmentBits;
+      segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentMask + 1, size - start));
+    }
+    if (size < HEADER_SIZE || getLong(0) != MAGIC || getInt(8) != VERSION) {
+      file.close();
+      throw new IOException(path + " is not a geo dataset file of version " + VERSION);
+    }
+    documentCount = (int) getLong(16);
+    if (documentCount <= 0) {
+      file.close();
+      throw new IOException(path + " holds no documents");
+    }
+    for (int i = 0; i < 4; i++) {
+      region[i] = getDouble(24 + 8 * i);
+    }
+    indexOffset = getLong(56);
+    coordinatesOffset = getLong(64);
+    structureOffset = getLong(72);
+    blobOffset = getLong(80);
+  }
+
+  @Override
+  public int getDocumentCount() {
+    return documentCount;
+  }
+
+  @Override
+  public void region(double[] out) {
+    System.arraycopy(region, 0, out, 0, 4);
+  }
+
+  @Override
+  public Geometry geometry(long docId, Geometries reuse) {
+    long entry = entry(docId);
+    int type = getInt(entry + 40);
+    if (type < 0) {
+      return null;
+    }
+    long point = coordinatesOffset + (getLong(entry) << 4);
+    long structure = structureOffset + (getLong(entry + 8) << 2);
+    int points = getInt(entry + 24);
+    int rings = getInt(entry + 28);
+    switch (TYPES[type]) {
+    case POINT:
+      return reuse.getPoint().set(getDouble(point), getDouble(point + 8));
+    case LINE_STRING:
+      LineString line = (LineString) reuse.get(Geometry.Type.LINE_STRING);
+      for (int i = 0; i < points; i++, point += 16) {
+        line.add(getDouble(point), getDouble(point + 8));
+      }
+      return line;
+    case MULTI_LINE_STRING:
+      MultiLineString lines = (MultiLineString) reuse.get(Geometry.Type.MULTI_LINE_STRING);
+      for (int ring = 0, i = 0; ring < rings; ring++) {
+        for (int end = getInt(structure + 4L * ring); i < end; i++, point += 16) {
+          lines.add(getDouble(point), getDouble(point + 8));
+        }
+        lines.endLine();
+      }
+      return lines;
+    case POLYGON:
+      Polygon polygon = (Polygon) reuse.get(Geometry.Type.POLYGON);
+      for (int ring = 0, i = 0; ring < rings; ring++) {
+        for (int end = getInt(structure + 4L * ring); i < end; i++, point += 16) {
+          polygon.add(getDouble(point), getDouble(point + 8));
+        }
+        polygon.closeRing();
+      }
+      return polygon;
+    default:
+      MultiPolygon polygons = (MultiPolygon) reuse.get(Geometry.Type.MULTI_POLYGON);
+      int parts = getInt(entry + 32);
+      for (int part = 0, ring = 0, i = 0; part < parts; part++) {
+        for (int lastRing = getInt(structure + 4L * (rings + part)); ring < lastRing; ring++) {
+          for (int end = getInt(structure + 4L * ring); i < end; i++, point += 16) {
+            polygons.add(getDouble(point), getDouble(point + 8));
+          }
+          polygons.closeRing();
+        }
+        polygons.endPolygon();
+      }
+      return polygons;
+    }
+  }
+
+  @Override
+  public String document(long docId) {
+    long entry = entry(docId);
+    long blob = blobOffset + getLong(entry + 16);
+    int idLength = getInt(blob);
+    String properties = getString(blob + 4 + idLength, getInt(entry + 36) - 4 - idLength);
+    Geometry geometry = geometry(docId, new Geometries());
+    StringBuilder document = new StringBuilder(64 + properties.length()
+        + (geometry == null ? 0 : geometry.getPointCount() * 40));
+    document.append("{\"type\":\"Feature\",\"properties\":").append(properties).append(",\"geometry\":");
+    if (geometry == null) {
+      document.append("null");
+    } else {
+      GeoJson.append(document, geometry);
+    }
+    return document.append('}').toString();
+  }
+
+  @Override
+  public String objectId(long docId) {
+    long blob = blobOffset + getLong(entry(docId) + 16);
+    int idLength = getInt(blob);
+    return idLength == 0 ? null : getString(blob + 4, idLength);
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  private long entry(long docId) {
+    return indexOffset + (docId % documentCount) * INDEX_ENTRY_SIZE;
+  }
+
+  /**
+   * Read a long. Only the blob section has unaligned values, the length headers, which may span two segments.
+   */
+  private long getLong(long position) {
+    long offset = position & segmentMask;
+    if (offset > segmentMask - 7) {
+      return getSpanning(position, 8);
+    }
+    return segments[(int) (position >>> segmentBits)].getLong((int) offset);
+  }
+
+  private int getInt(long position) {
+    long offset = position & segmentMask;
+    if (offset > segmentMask - 3) {
+      return (int) getSpanning(position, 4);
+    }
+    return segments[(int) (position >>> segmentBits)].getInt((int) offset);
+  }
+
+  private double getDouble(long position) {
+    return Double.longBitsToDouble(getLong(position));
+  }
+
+  /**
+   * Assemble a big-endian value of up to 8 bytes byte by byte, across the end of a segment.
+   */
+  private long getSpanning(long position, int bytes) {
+    long value = 0;
+    for (int i = 0; i < bytes; i++, position++) {
+      value = (value << 8) | (segments[(int) (position >>> segmentBits)].get((int) (position & segmentMask)) & 0xff);
+    }
+    return value;
+  }
+
+  /**
+   * Decode a string that may span two segments.
+   */
+  private String getString(long position, int length) {
+    byte[] bytes = new byte[length];
+    int done = 0;
+    while (done < length) {
+      ByteBuffer segment = segments[(int) (position >>> segmentBits)].duplicate();
+      segment.position((int) (position & segmentMask));
+      int n = Math.min(length - done, segment.remaining());
+      segment.get(bytes, done, n);
+      done += n;
+      position += n;
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Convert a GeoJSON file with one feature per line into a dataset file.
+   *
+   * @return the number of documents written.
+   */
+  public static long write(String input, String output) throws IOException {
+    File dir = new File(output).getAbsoluteFile().getParentFile();
+    File index = File.createTempFile("geods-index", ".tmp", dir);
+    File coordinates = File.createTempFile("geods-coordinates", ".tmp", dir);
+    File structure = File.createTempFile("geods-structure", ".tmp", dir);
+    File blobs = File.createTempFile("geods-blobs", ".tmp", dir);
+    long documents = 0;
+    double[] region = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+        Double.NEGATIVE_INFINITY};
+    try {
+      try (GeoDocumentFile in = new GeoDocumentFile(input, 1);
+           DataOutputStream indexOut = open(index);
+           DataOutputStream coordinatesOut = open(coordinates);
+           DataOutputStream structureOut = open(structure);
+           DataOutputStream blobsOut = open(blobs)) {
+        GeoDocumentFile.Reader reader = in.reader(0, 1);
+        Geometries geometries = new Geometries();
+        double[] envelope = new double[4];
+        long points = 0;
+        long structureValues = 0;
+        long blobBytes = 0;
+        while (reader.next()) {
+          String document = reader.document();
+          Geometry geometry = GeoJson.readFeatureGeometry(document, geometries);
+          int rings = 0;
+          int parts = 0;
+          if (geometry != null) {
+            for (int i = 0; i < geometry.getPointCount(); i++) {
+              coordinatesOut.writeDouble(geometry.getX(i));
+              coordinatesOut.writeDouble(geometry.getY(i));
+            }
+            if (geometry.getType().getDepth() >= 2) {
+              rings = geometry.getRingCount();
+              for (int ring = 0; ring < rings; ring++) {
+                structureOut.writeInt(geometry.getRingEnd(ring));
+              }
+            }
+            if (geometry.getType() == Geometry.Type.MULTI_POLYGON) {
+              parts = geometry.getPartCount();
+              for (int part = 0; part < parts; part++) {
+                structureOut.writeInt(geometry.getPartEnd(part));
+              }
+            }
+            if (geometry.getPointCount() > 0) {
+              geometry.envelope(envelope);
+              region[0] = Math.min(region[0], envelope[0]);
+              region[1] = Math.min(region[1], envelope[1]);
+              region[2] = Math.max(region[2], envelope[2]);
+              region[3] = Math.max(region[3], envelope[3]);
+            }
+          }
+          String objectId = findObjectId(document);
+          byte[] id = objectId == null ? new byte[0] : objectId.getBytes(StandardCharsets.UTF_8);
+          byte[] body = findProperties(document).getBytes(StandardCharsets.UTF_8);
+          blobsOut.writeInt(id.length);
+          blobsOut.write(id);
+          blobsOut.write(body);
+
+          int pointCount = geometry == null ? 0 : geometry.getPointCount();
+          indexOut.writeLong(points);
+          indexOut.writeLong(structureValues);
+          indexOut.writeLong(blobBytes);
+          indexOut.writeInt(pointCount);
+          indexOut.writeInt(rings);
+          indexOut.writeInt(parts);
+          indexOut.writeInt(4 + id.length + body.length);
+          indexOut.writeInt(geometry == null ? -1 : geometry.getType().ordinal());
+          indexOut.writeInt(0);
+          points += pointCount;
+          structureValues += rings + parts;
+          blobBytes += 4 + id.length + body.length;
+          documents++;
+        }
+      }
+      if (documents == 0) {
+        throw new IOException(input + " holds no features");
+      }
+
+      try (RandomAccessFile out = new RandomAccessFile(output, "rw")) {
+        out.setLength(0);
+        out.setLength(HEADER_SIZE);
+        long indexAt = append(out, index);
+        long coordinatesAt = append(out, coordinates);
+        long structureAt = append(out, structure);
+        long blobsAt = append(out, blobs);
+        out.seek(0);
+        out.writeLong(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(0);
+        out.writeLong(documents);
+        for (double value : region) {
+          out.writeDouble(value);
+        }
+        out.writeLong(indexAt);
+        out.writeLong(coordinatesAt);
+        out.writeLong(structureAt);
+        out.writeLong(blobsAt);
+      }
+    } finally {
+      index.delete();
+      coordinates.delete();
+      structure.delete();
+      blobs.delete();
+    }
+    return documents;
+  }
+
+  private static DataOutputStream open(File file) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+  }
+
+  /**
+   * Copy the section to the end of the file, starting on an 8 byte boundary.
+   *
+   * @return the offset of the section.
+   */
+  private static long append(RandomAccessFile out, File section) throws IOException {
+    long at = (out.length() + 7) & ~7L;
+    out.setLength(at);
+    try (FileInputStream in = new FileInputStream(section)) {
+      FileChannel source = in.getChannel();
+      long size = source.size();
+      for (long done = 0; done < size;) {
+        done += source.transferTo(done, size - done, out.getChannel().position(at + done));
+      }
+    }
+    return at;
+  }
+
+  /**
+   * Find the JSON text of the properties member of a feature without parsing the whole document.
+   *
+   * @return the properties object, or "null" if the feature has none.
+   */
+  static String findProperties(String document) {
+    int at = document.indexOf("\"properties\"");
+    if (at < 0) {
+      return "null";
+    }
+    at = document.indexOf(':', at + 12) + 1;
+    while (at > 0 && at < document.length() && Character.isWhitespace(document.charAt(at))) {
+      at++;
+    }
+    if (at <= 0 || at >= document.length() || document.charAt(at) != '{') {
+      return "null";
+    }
+    int depth = 0;
+    boolean string = false;
+    for (int end = at; end < document.length(); end++) {
+      char c = document.charAt(end);
+      if (string) {
+        if (c == '\\') {
+          end++;
+        } else if (c == '"') {
+          string = false;
+        }
+      } else if (c == '"') {
+        string = true;
+      } else if (c == '{') {
+        depth++;
+      } else if (c == '}' && --depth == 0) {
+        return document.substring(at, end + 1);
+      }
+    }
+    return "null";
+  }
+
+  /**
+   * Find the value of the first OBJECTID field without parsing the whole document.
+   */
+  static String findObjectId(String document) {
+    int at = document.indexOf("\"OBJECTID\"");
+    if (at < 0) {
+      return null;
+    }
+    at = document.indexOf(':', at + 10) + 1;
+    if (at == 0) {
+      return null;
+    }
+    while (at < document.length() && Character.isWhitespace(document.charAt(at))) {
+      at++;
+    }
+    int end = at;
+    while (end < document.length() && ",}]".indexOf(document.charAt(end)) < 0) {
+      end++;
+    }
+    String value = document.substring(at, end).trim();
+    if (value.startsWith("\"") && value.endsWith("\"") && value.length() >= 2) {
+      value = value.substring(1, value.length() - 1);
+    }
+    return value.isEmpty() || value.equals("null") ? null : value;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: GeoDatasetFile <GeoJSON file with one feature per line> <dataset file>");
+      System.exit(1);
+    }
+    long start = System.currentTimeMillis();
+    long documents = write(args[0], args[1]);
+    System.err.println("Wrote " + documents + " documents to " + args[1] + " in " +
+        (System.currentTimeMillis() - start) + " ms");
+  }
+}
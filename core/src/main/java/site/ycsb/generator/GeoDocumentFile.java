@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+/**
+ * A file of GeoJSON features, one per line, read in parallel by the load threads.
+ * <p>
+ * The file is memory-mapped in chunks that are split on line boundaries. Both NDJSON and FeatureCollection files
+ * that keep one feature per line (as written by ogr2ogr) are supported: a line is a document if it starts with
+ * <code>{</code> and ends with <code>}</code>, ignoring a trailing comma, so the collection header and footer are
+ * skipped. The documents of every chunk are counted when the file is opened, which numbers all documents of the
+ * file consecutively and independently of the number of load threads.
+ */
+public final class GeoDocumentFile implements Closeable {
+
+  private static final long MAX_CHUNK_SIZE = 1L << 30;
+
+  private final RandomAccessFile file;
+  private final MappedByteBuffer[] chunks;
+  private final long[] firstOrdinals;
+  private final long documentCount;
+
+  /**
+   * @param path      The file to read.
+   * @param minChunks The minimum number of chunks, usually the number of load threads.
+   */
+  public GeoDocumentFile(String path, int minChunks) throws IOException {
+    file = new RandomAccessFile(path, "r");
+    FileChannel channel = file.getChannel();
+    long size = channel.size();
+    int count = (int) Math.max(Math.max(1, minChunks), (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+    long[] bounds = new long[count + 1];
+    bounds[count] = size;
+    for (int i = 1; i < count; i++) {
+      bounds[i] = Math.max(bounds[i - 1], nextLineStart(size * i / count, size));
+    }
+    chunks = new MappedByteBuffer[count];
+    for (int i = 0; i < count; i++) {
+      chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+    }
+
+    final long[] counts = new long[count];
+    IntStream.range(0, count).parallel().forEach(i -> counts[i] = countDocuments(chunks[i]));
+    firstOrdinals = new long[count];
+    long total = 0;
+    for (int i = 0; i < count; i++) {
+      firstOrdinals[i] = total;
+      total += counts[i];
+    }
+    documentCount = total;
+  }
+
+  public long getDocumentCount() {
+    return documentCount;
+  }
+
+  public int getChunkCount() {
+    return chunks.length;
+  }
+
+  /**
+   * @return the number of documents in the chunks <code>thread</code>, <code>thread + threads</code>, ... that the
+   * reader of the thread reads.
+   */
+  public long getDocumentCount(int thread, int threads) {
+    long count = 0;
+    for (int i = thread; i < chunks.length; i += threads) {
+      count += (i + 1 < chunks.length ? firstOrdinals[i + 1] : documentCount) - firstOrdinals[i];
+    }
+    return count;
+  }
+
+  /**
+   * @return a reader over the chunks <code>thread</code>, <code>thread + threads</code>, ... of the file.
+   */
+  public Reader reader(int thread, int threads) {
+    return new Reader(thread, threads);
+  }
+
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+
+  private long nextLineStart(long from, long size) throws IOException {
+    if (from == 0) {
+      return 0;
+    }
+    long position = from - 1;
+    file.seek(position);
+    int b;
+    while ((b = file.read()) >= 0) {
+      position++;
+      if (b == '\n') {
+        return position;
+      }
+    }
+    return size;
+  }
+
+  private static long countDocuments(MappedByteBuffer chunk) {
+    long count = 0;
+    int start = 0;
+    int limit = chunk.limit();
+    while (start < limit) {
+      int end = lineEnd(chunk, start, limit);
+      if (documentFrom(chunk, start, end) >= 0) {
+        count++;
+      }
+      start = end + 1;
+    }
+    return count;
+  }
+
+  private static int lineEnd(MappedByteBuffer chunk, int start, int limit) {
+    int end = start;
+    while (end < limit && chunk.get(end) != '\n') {
+      end++;
+    }
+    return end;
+  }
+
+  /**
+   * @return the start of the document on the line, or -1 if the line is not a document. The end of the document
+   * is found by {@link #documentTo}.
+   */
+  private static int documentFrom(MappedByteBuffer chunk, int start, int end) {
+    while (start < end && isBlank(chunk.get(start))) {
+      start++;
+    }
+    int last = documentTo(chunk, start, end) - 1;
+    if (start >= last || chunk.get(start) != '{' || chunk.get(last) != '}') {
+      return -1;
+    }
+    return start;
+  }
+
+  private static int documentTo(MappedByteBuffer chunk, int start, int end) {
+    while (end > start && (isBlank(chunk.get(end - 1)) || chunk.get(end - 1) == ',')) {
+      end--;
+    }
+    return end;
+  }
+
+  private static boolean isBlank(byte b) {
+    return b == ' ' || b == '\t' || b == '\r';
+  }
+
+  /**
+   * Reads the documents of a share of the chunks. A reader is owned by a single thread.
+   */
+  public final class Reader {
+    private final int threads;
+    private int chunk;
+    private int position = 0;
+    private long ordinal;
+    private String document;
+    private byte[] buffer = new byte[4096];
+
+    private Reader(int thread, int threads) {
+      this.threads = threads;
+      this.chunk = thread;
+      this.ordinal = thread < chunks.length ? firstOrdinals[thread] - 1 : 0;
+    }
+
+    /**
+     * Advance to the next document.
+     *
+     * @return false if the reader is exhausted.
+     */
+    public boolean next() {
+      while (chunk < chunks.length) {
+        MappedByteBuffer current = chunks[chunk];
+        int limit = current.limit();
+        while (position < limit) {
+          int end = lineEnd(current, position, limit);
+          int from = documentFrom(current, position, end);
+          position = end + 1;
+          if (from >= 0) {
+            int length = documentTo(current, from, end) - from;
+            if (buffer.length < length) {
+              buffer = new byte[Math.max(length, buffer.length << 1)];
+            }
+            ByteBuffer view = current.duplicate();
+            view.position(from);
+            view.get(buffer, 0, length);
+            document = new String(buffer, 0, length, StandardCharsets.UTF_8);
+            ordinal++;
+            return true;
+          }
+        }
+        chunk += threads;
+        position = 0;
+        if (chunk < chunks.length) {
+          ordinal = firstOrdinals[chunk] - 1;
+        }
+      }
+      document = null;
+      return false;
+    }
+
+    /**
+     * @return the current document.
+     */
+    public String document() {
+      return document;
+    }
+
+    /**
+     * @return the number of the current document within the file, counting from 0.
+     */
+    public long ordinal() {
+      return ordinal;
+    }
+  }
+}
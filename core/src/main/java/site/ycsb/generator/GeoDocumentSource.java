@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.generator.geo.Geometry;
+
+/**
+ * A dataset the {@link GeoGenerator} reads documents from by id, instead of the documents it stored during the
+ * load phase. The documents of the dataset have the ids <code>0</code> to <code>getDocumentCount() - 1</code>.
+ */
+public interface GeoDocumentSource {
+
+  int getDocumentCount();
+
+  /**
+   * Write the bounding region of the dataset as <code>minX, minY, maxX, maxY</code> into the array.
+   */
+  void region(double[] out);
+
+  /**
+   * Fill the geometry of the document into the matching instance of <code>reuse</code>.
+   *
+   * @return the filled geometry, or null if the document has none.
+   */
+  Geometry geometry(long docId, Geometries reuse);
+
+  /**
+   * @return the GeoJSON feature of the document. Ids beyond the dataset may repeat documents.
+   */
+  String document(long docId);
+
+  /**
+   * @return the properties.OBJECTID of the document, or null if it has none.
+   */
+  String objectId(long docId);
+}
@@ -1,9 +1,17 @@
 package site.ycsb.generator;
 
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.MultiLineString;
+import site.ycsb.generator.geo.Point;
+import site.ycsb.generator.geo.Polygon;
+import site.ycsb.generator.geo.RTree;
 import site.ycsb.workloads.GeoWorkload;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.*;
 
 import org.json.*;
@@ -26,45 +34,14 @@ public abstract class GeoGenerator {
   public static final String GEO_SYSTEMFIELD_INSERTDOC_COUNTER = "GEO_insert_document_counter";
   public static final String GEO_SYSTEMFIELD_STORAGEDOCS_COUNT_DOCS = "GEO_storage_docs_count_docs";
   public static final String GEO_SYSTEMFIELD_TOTALDOCS_COUNT = "GEO_total_docs_count";
+  private static final String GEO_SYSTEMFIELD_REGION = "GEO_region";
+  private static final String DEFAULT_REGION = "-112,33,-111,34";
   private static final String GEO_METAFIELD_DOCID = "GEO_doc_id";
   private static final String GEO_METAFIELD_INSERTDOC = "GEO_insert_document";
-  private static final String GEO_FIELD_DOC_ID = "_id";
-  private static final String GEO_FIELD_DOC_TYPE = "type";
-  // TODO: remove unnecessary fields/properties
-  private static final String GEO_FIELD_DOC_PROPERTIES = "properties";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_OBJECTID = "OBJECTID";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_INCIDENT_NUMBER = "INCIDENT_NUMBER";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_LOCATION = "LOCATION";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_NOTIFICATION = "NOTIFICATION";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_INCIDENT_DATE = "INCIDENT_DATE";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_TAG_COUNT = "TAG_COUNT";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_MONIKER_CLASS = "MONIKER_CLASS";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_SQ_FT = "SQ_FT";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_PROP_TYPE = "PROP_TYPE";
-  private static final String GEO_FIELD_DOC_PROPERTIES_OBJ_WAIVER = "Waiver";
-  private static final String GEO_FIELD_DOC_GEOMETRY = "geometry";
-  private static final String GEO_FIELD_DOC_GEOMETRY_OBJ_TYPE = "type";
-  private static final String GEO_FIELD_DOC_GEOMETRY_OBJ_COORDINATES = "coordinates";
-  private final Set<String> allGeoFields = new HashSet<String>() {
-    {
-      add(GEO_FIELD_DOC_ID);
-      add(GEO_FIELD_DOC_TYPE);
-      add(GEO_FIELD_DOC_PROPERTIES);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_OBJECTID);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_INCIDENT_NUMBER);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_LOCATION);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_NOTIFICATION);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_INCIDENT_DATE);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_TAG_COUNT);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_MONIKER_CLASS);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_SQ_FT);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_PROP_TYPE);
-      add(GEO_FIELD_DOC_PROPERTIES_OBJ_WAIVER);
-      add(GEO_FIELD_DOC_GEOMETRY);
-      add(GEO_FIELD_DOC_GEOMETRY_OBJ_TYPE);
-      add(GEO_FIELD_DOC_GEOMETRY_OBJ_COORDINATES);
-    }
-  };
+  private static final int WINDOW_SEARCH_STEPS = 30;
+  private static final int SPATIAL_INDEX_NODE_CAPACITY = 16;
+  private static final double METERS_PER_DEGREE = 111320;
+  private static final int TOKEN_FLUSH_SIZE = 1024;
   private final int storedDocsCountCustomer = 0;
   private final int storedDocsCountOrder = 0;
   private final Random rand = new Random();
@@ -82,7 +59,12 @@ public abstract class GeoGenerator {
 
   private int totalDocsCount = 0;
   private int storedDocsCountDocs = 0;
-  private boolean allValuesInitialized = false;
+  private final Map<String, String> lastTokenValues = new HashMap<>();
+  private final Map<String, List<Integer>> tokensWithoutValue = new HashMap<>();
+  private final Map<String, String> pendingTokens = new LinkedHashMap<>();
+  private final GeoSchema schema;
+  private final DocumentTokenizer tokenizer;
+  private final Map<String, String> documentTokens = new LinkedHashMap<>();
   private int queryLimitMin = 0;
   private int queryLimitMax = 0;
   private int queryOffsetMin = 0;
@@ -91,6 +73,47 @@ public abstract class GeoGenerator {
   private boolean isLatest = false;
   private ZipfianGenerator zipfianGenerator = null;
   private DataFilter geoPredicate;
+  private DataFilter preparedPredicate;
+  private PredicateQueue predicateQueue;
+  private GeoDocumentFile.Reader documentReader;
+  private TrajectoryTable.Shard trajectoryShard;
+  private final DataFilter trajectoryPredicate = new DataFilter();
+  private final GeoQueryCheck queryCheck = new GeoQueryCheck();
+  private boolean checking = false;
+  private final DataFilter documentPredicate = new DataFilter();
+  private final DataFilter predicateA = new DataFilter();
+  private final DataFilter predicateB = new DataFilter();
+  private final DataFilter predicateC = new DataFilter();
+  private final DataFilter predicateD = new DataFilter();
+  private final Geometries geometries = new Geometries();
+  private final Point queryPoint = new Point();
+  private final Point knnPoint = new Point();
+  private int knnK = 10;
+  private final double[] gridViewport = new double[4];
+  private int gridCells = 8;
+  private final MultiLineString queryLines = new MultiLineString();
+  private final Polygon queryBox = new Polygon();
+  private final QueryShape queryShape;
+  private SpaceFillingCurve keyCurve;
+  private final double[] keyEnvelope = new double[4];
+  private RTree spatialIndex;
+  private final GeoDocumentSource source;
+  private GeoRegion studyRegion;
+  private SpatialDistribution spatialDistribution;
+  private SpatialDistribution insertDistribution;
+  private final double[] location = new double[2];
+  private final Geometries insertGeometries = new Geometries();
+  private int targetHitsMin = 0;
+  private int targetHitsMax = 0;
+  private final double[] extent = new double[4];
+  private final HitCounter hitCounter = new HitCounter();
+  private int leaseSize = 1;
+  private int leaseNext = 1;
+  private int leaseEnd = 0;
+  private long leasedIds = 0;
+  private int prefetchDepth = 0;
+  private final Deque<String> upcomingReads = new ArrayDeque<>();
+  private final Deque<String> upcomingInserts = new ArrayDeque<>();
 
 
   public GeoGenerator(Properties p) {
@@ -120,6 +143,132 @@ public abstract class GeoGenerator {
         .equals("zipfian");
     isLatest = p.getProperty(GeoWorkload.GEO_REQUEST_DISTRIBUTION, GeoWorkload.GEO_REQUEST_DISTRIBUTION_DEFAULT)
         .equals("latest");
+
+    leaseSize = Integer.parseInt(
+        p.getProperty(GeoWorkload.GEO_INSERT_LEASE_SIZE, GeoWorkload.GEO_INSERT_LEASE_SIZE_DEFAULT));
+    if (leaseSize < 1) {
+      throw new IllegalArgumentException(GeoWorkload.GEO_INSERT_LEASE_SIZE + " must be at least 1");
+    }
+
+    int targetHits =
+        Integer.parseInt(p.getProperty(GeoWorkload.GEO_TARGET_HITS, GeoWorkload.GEO_TARGET_HITS_DEFAULT));
+    double tolerance = Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_TARGET_HITS_TOLERANCE, GeoWorkload.GEO_TARGET_HITS_TOLERANCE_DEFAULT));
+    targetHitsMin = Math.max(1, (int) Math.floor(targetHits * (1 - tolerance)));
+    targetHitsMax = (int) Math.ceil(targetHits * (1 + tolerance));
+
+    knnK = Integer.parseInt(p.getProperty(GeoWorkload.GEO_KNN_K, GeoWorkload.GEO_KNN_K_DEFAULT));
+    if (knnK < 1) {
+      throw new IllegalArgumentException(GeoWorkload.GEO_KNN_K + " must be at least 1");
+    }
+
+    queryShape = new QueryShape(p);
+    schema = GeoSchema.load(p);
+    tokenizer = new DocumentTokenizer(p.getProperty(GeoWorkload.GEO_TOKEN_FIELDS, schema.getFields()));
+
+    gridCells = Integer.parseInt(p.getProperty(GeoWorkload.GEO_GRID_CELLS, GeoWorkload.GEO_GRID_CELLS_DEFAULT));
+    if (gridCells < 1) {
+      throw new IllegalArgumentException(GeoWorkload.GEO_GRID_CELLS + " must be at least 1");
+    }
+
+    prefetchDepth = Integer.parseInt(
+        p.getProperty(GeoWorkload.GEO_NEARCACHE_PREFETCH, GeoWorkload.GEO_NEARCACHE_PREFETCH_DEFAULT));
+
+    String dataset = p.getProperty(GeoWorkload.GEO_DATASET, GeoWorkload.GEO_DATASET_DEFAULT);
+    if (dataset.equals("synthetic")) {
+      source = new SyntheticGeoSource(p);
+    } else if (dataset.equals("binary")) {
+      String path = p.getProperty(GeoWorkload.GEO_DATASET_FILE, GeoWorkload.GEO_DATASET_FILE_DEFAULT);
+      try {
+        source = GeoDatasetFile.getInstance(path);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not open the geo dataset file " + path, e);
+      }
+    } else if (dataset.equals("stored")) {
+      source = null;
+    } else {
+      throw new IllegalArgumentException("Unknown " + GeoWorkload.GEO_DATASET + " \"" + dataset + "\"");
+    }
+    GeoRegion.Crs crs = GeoRegion.Crs.parse(p.getProperty(GeoWorkload.GEO_CRS, GeoWorkload.GEO_CRS_DEFAULT));
+    String regionProperty = p.getProperty(GeoWorkload.GEO_REGION, GeoWorkload.GEO_REGION_DEFAULT);
+    if (!regionProperty.equals("auto")) {
+      setRegion(GeoRegion.parse(regionProperty, crs));
+    } else if (source != null) {
+      double[] bounds = new double[4];
+      source.region(bounds);
+      setRegion(new GeoRegion(crs, bounds[0], bounds[1], bounds[2], bounds[3]));
+    } else {
+      // until the stored documents are known, see useStoredRegion()
+      setRegion(GeoRegion.parse(DEFAULT_REGION, crs));
+    }
+  }
+
+
+  /**
+   * Draw query and insert locations from the region, recreating the spatial distributions and the key curve.
+   */
+  public void setRegion(GeoRegion newRegion) {
+    studyRegion = newRegion;
+    double[] bounds = newRegion.getBounds();
+    Properties p = properties;
+    spatialDistribution = SpatialDistribution.create(
+        p.getProperty(GeoWorkload.GEO_SPATIAL_DISTRIBUTION, GeoWorkload.GEO_SPATIAL_DISTRIBUTION_DEFAULT), p, bounds);
+    String insertLocations = p.getProperty(GeoWorkload.GEO_SPATIAL_INSERT_DISTRIBUTION,
+        GeoWorkload.GEO_SPATIAL_INSERT_DISTRIBUTION_DEFAULT);
+    insertDistribution = insertLocations.equals("none") ? null : SpatialDistribution.create(insertLocations, p,
+        bounds);
+    keyCurve = SpaceFillingCurve.create(p.getProperty(GeoWorkload.GEO_KEY_ORDER, GeoWorkload.GEO_KEY_ORDER_DEFAULT),
+        Integer.parseInt(p.getProperty(GeoWorkload.GEO_KEY_BITS, GeoWorkload.GEO_KEY_BITS_DEFAULT)), bounds);
+  }
+
+
+  public GeoRegion getRegion() {
+    return studyRegion;
+  }
+
+
+  /**
+   * With geo_region=auto and stored documents, derive the region from their extent. It is computed once and kept in
+   * the storage next to the documents, keyed by their count, so other client hosts read it instead of scanning the
+   * documents again. The workload calls this once in its init and hands the region to its other generators with
+   * {@link #setRegion(GeoRegion)}.
+   *
+   * @return the derived region, or null if the region is not derived from stored documents.
+   */
+  public GeoRegion useStoredRegion() {
+    if (source != null || !"auto".equals(properties.getProperty(GeoWorkload.GEO_REGION,
+        GeoWorkload.GEO_REGION_DEFAULT))) {
+      return null;
+    }
+    int stored = getStoredDocsCount();
+    if (stored <= 0) {
+      return null;
+    }
+    String prefix = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER;
+    String regionKey = prefix + GEO_SYSTEMFIELD_REGION + GEO_SYSTEMFIELD_DELIMITER + studyRegion.getCrs()
+        + GEO_SYSTEMFIELD_DELIMITER + stored;
+    String known = getVal(regionKey);
+    if (known != null) {
+      setRegion(GeoRegion.parse(known, studyRegion.getCrs()));
+      return studyRegion;
+    }
+    GeoRegion.Builder builder = new GeoRegion.Builder(studyRegion.getCrs());
+    Geometries reuse = new Geometries();
+    for (int i = 0; i < stored; i++) {
+      String docBody = getVal(prefix + GEO_METAFIELD_INSERTDOC + GEO_SYSTEMFIELD_DELIMITER + i);
+      if (docBody != null) {
+        builder.add(GeoJson.readFeatureGeometry(docBody, schema.getGeometryMembers(), reuse));
+      }
+    }
+    GeoRegion derived = builder.build();
+    if (derived == null) {
+      return null;
+    }
+    double[] bounds = derived.getBounds();
+    setVal(regionKey, derived.wrapX(bounds[0]) + "," + bounds[1] + "," + derived.wrapX(bounds[2]) + ","
+        + bounds[3]);
+    setRegion(derived);
+    return derived;
   }
 
 
@@ -132,56 +281,87 @@ public abstract class GeoGenerator {
   protected abstract int increment(String key, int step);
 
 
-  public final Set<String> getAllGeoFields() {
-    return allGeoFields;
+  /**
+   * Hint that the values of the keys will be read soon. Storages with a local cache can fetch them in the
+   * background; the default does nothing.
+   */
+  protected void prefetch(List<String> keys) {
+  }
+
+
+  /**
+   * @return the schema of the stored documents.
+   */
+  public final GeoSchema getSchema() {
+    return schema;
   }
 
 
+  /**
+   * Store a document and its tokens under the next storage index.
+   * <p>
+   * Every token gets a value for every stored document: a missing value is filled with the last value this
+   * generator stored for the token, and documents that precede the first value of a token get that value as soon as
+   * it shows up. Both are kept in local tables, so storing a document costs the same no matter how many documents
+   * were stored before. Token values are written in batches; call {@link #flushTokens()} when done.
+   */
   public void putDocument(String docKey, String docBody) throws
       Exception {
-    HashMap<String, String> tokens = tokenize(docBody);
+    tokenizer.tokenize(docBody, documentTokens);
     String prefix = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER;
     int storageCount = increment(prefix + GEO_SYSTEMFIELD_STORAGEDOCS_COUNT_DOCS, 1) - 1;
 
     setVal(prefix + GEO_METAFIELD_DOCID + GEO_SYSTEMFIELD_DELIMITER + storageCount, docKey);
     setVal(prefix + GEO_METAFIELD_INSERTDOC + GEO_SYSTEMFIELD_DELIMITER + storageCount, docBody);
 
-    for (String key : tokens.keySet()) {
-      String storageKey = prefix + key + GEO_SYSTEMFIELD_DELIMITER + storageCount;
-      String value = tokens.get(key);
-      if (value != null) {
-        setVal(storageKey, value);
+    for (Map.Entry<String, String> token : documentTokens.entrySet()) {
+      String key = token.getKey();
+      String value = token.getValue();
+      if (value == null) {
+        value = lastTokenValues.get(key);
+        if (value == null) {
+          List<Integer> missing = tokensWithoutValue.get(key);
+          if (missing == null) {
+            missing = new ArrayList<>();
+            tokensWithoutValue.put(key, missing);
+          }
+          missing.add(storageCount);
+          continue;
+        }
       } else {
-        for (int i = (storageCount - 1); i > 0; i--) {
-          String prevKey = prefix + key + GEO_SYSTEMFIELD_DELIMITER + i;
-          String prevVal = getVal(prevKey);
-          if (prevVal != null) {
-            setVal(storageKey, prevVal);
-            break;
+        lastTokenValues.put(key, value);
+        List<Integer> missing = tokensWithoutValue.remove(key);
+        if (missing != null) {
+          for (int index : missing) {
+            pendingTokens.put(prefix + key + GEO_SYSTEMFIELD_DELIMITER + index, value);
           }
         }
       }
+      pendingTokens.put(prefix + key + GEO_SYSTEMFIELD_DELIMITER + storageCount, value);
     }
+    if (pendingTokens.size() >= TOKEN_FLUSH_SIZE) {
+      flushTokens();
+    }
+  }
 
-    //make sure all values are initialized
-    if ((!allValuesInitialized) && (storageCount > 1)) {
-      boolean nullDetected = false;
-      for (String key : tokens.keySet()) {
-        for (int i = 0; i < storageCount; i++) {
-          String storageKey = prefix + key + GEO_SYSTEMFIELD_DELIMITER + i;
-          String storageValue = getVal(storageKey);
-          if (storageValue != null) {
-            for (int j = i; j >= 0; j--) {
-              storageKey = prefix + key + GEO_SYSTEMFIELD_DELIMITER + j;
-              setVal(storageKey, storageValue);
-            }
-            break;
-          } else {
-            nullDetected = true;
-          }
-        }
-      }
-      allValuesInitialized = !nullDetected;
+
+  /**
+   * Write the token values of stored documents that are still buffered.
+   */
+  public void flushTokens() {
+    if (!pendingTokens.isEmpty()) {
+      setVals(pendingTokens);
+      pendingTokens.clear();
+    }
+  }
+
+
+  /**
+   * Store a batch of values. Stores that can pipeline writes should override this.
+   */
+  protected void setVals(Map<String, String> values) {
+    for (Map.Entry<String, String> value : values.entrySet()) {
+      setVal(value.getKey(), value.getValue());
     }
   }
 
@@ -191,287 +371,632 @@ public abstract class GeoGenerator {
   }
 
 
-  public void buildGeoReadPredicate() {
-    String storageKey = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + GEO_METAFIELD_INSERTDOC +
-        GEO_SYSTEMFIELD_DELIMITER + getDocIdWithDistribution();
+  /**
+   * @return the queue of pre-built predicates of this generator's client thread, or null if they are built inline.
+   */
+  public PredicateQueue getPredicateQueue() {
+    return predicateQueue;
+  }
 
-    String docBody = getVal(storageKey);
-    String keyPrefix = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER;
-    int docCounter = increment(keyPrefix + GEO_SYSTEMFIELD_INSERTDOC_COUNTER, 1);
 
-    geoPredicate = new DataFilter();
-    geoPredicate.setDocid(keyPrefix + docCounter);
-    geoPredicate.setValue(docBody);
-    DataFilter queryPredicate = new DataFilter();
-    queryPredicate.setName(GEO_FIELD_DOC_GEOMETRY);
-    JSONObject obj = new JSONObject(geoPredicate.getValue());
-    JSONObject jobj = (JSONObject) obj.get("geometry");
-    queryPredicate.setValueA(jobj);
+  public void setPredicateQueue(PredicateQueue queue) {
+    this.predicateQueue = queue;
+  }
 
-    buildGeoInsertDocument();
-    DataFilter queryPredicate2 = new DataFilter();
-    queryPredicate2.setName(GEO_FIELD_DOC_GEOMETRY);
-    double[] latLong2 = {
-        -111 - rand.nextDouble(),
-        33 + rand.nextDouble()
-    };
-    JSONArray jsonArray2 = new JSONArray(latLong2);
-    JSONObject jobj2 = new JSONObject().put("type", "Point");
-    jobj2.put("coordinates", jsonArray2);
-    queryPredicate2.setValueA(jobj2);
 
-    buildGeoInsertDocument();
-    DataFilter queryPredicate3 = new DataFilter();
-    queryPredicate3.setName(GEO_FIELD_DOC_GEOMETRY);
-    double[] latLong = {
-        -111 - rand.nextDouble(),
-        33 + rand.nextDouble()
-    };
-    JSONArray jsonArray = new JSONArray(latLong);
-    double[] latLong3 = {
-        -111 - rand.nextDouble(),
-        33 + rand.nextDouble()
-    };
-    double[] latLong4 = {
-        -111 - rand.nextDouble(),
-        33 + rand.nextDouble()
-    };
-    JSONArray jsonArray3 = new JSONArray(latLong3);
-    JSONArray jsonArray4 = new JSONArray(latLong4);
-    JSONArray jsonArray5 = new JSONArray();
-    JSONArray jsonArray6 = new JSONArray();
-    JSONArray jsonArray7 = new JSONArray();
-    jsonArray5.put(jsonArray);
-    jsonArray5.put(jsonArray2);
-    jsonArray6.put(jsonArray3);
-    jsonArray6.put(jsonArray4);
-    jsonArray7.put(jsonArray5);
-    jsonArray7.put(jsonArray6);
-    JSONObject jobj3 = new JSONObject().put("type", "MultiLineString");
-    jobj3.put("coordinates", jsonArray7);
-    queryPredicate3.setValueA(jobj3);
+  /**
+   * @return the reader over this load thread's share of the dataset file, or null if the dataset is not read from a
+   * file.
+   */
+  public GeoDocumentFile.Reader getDocumentReader() {
+    return documentReader;
+  }
 
-    buildGeoInsertDocument();
-    DataFilter queryPredicate4 = new DataFilter();
-    queryPredicate4.setName(GEO_FIELD_DOC_GEOMETRY);
-    double[] startLatLong = {
-        -111 - rand.nextDouble(),
-        33 + rand.nextDouble()
-    };
-    double[] latLong5 = {
-        -111 - rand.nextDouble(),
-        startLatLong[1]
-    };
-    double[] latLong6 = {
-        -111 - rand.nextDouble(),
-        33 + rand.nextDouble()
-    };
-    double[] latLong7 = {
-        startLatLong[0],
-        latLong6[1]
-    };
-    JSONObject polygonObj = new JSONObject().put("type", "Polygon");
-    polygonObj.put("coordinates", new JSONArray().put(
-        new JSONArray()
-            .put(new JSONArray(startLatLong))
-            .put(new JSONArray(latLong5))
-            .put(new JSONArray(latLong6))
-            .put(new JSONArray(latLong7))
-            .put(new JSONArray(startLatLong))
-    ));
-    queryPredicate4.setValueA(polygonObj);
-    geoPredicate.setNestedPredicateD(queryPredicate4);
-    geoPredicate.setNestedPredicateC(queryPredicate3);
-    geoPredicate.setNestedPredicateB(queryPredicate2);
-    geoPredicate.setNestedPredicateA(queryPredicate);
+
+  public void setDocumentReader(GeoDocumentFile.Reader reader) {
+    this.documentReader = reader;
   }
 
 
-  public void buildGeoInsertDocument() {
-    String storageKey = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + GEO_METAFIELD_INSERTDOC +
-        GEO_SYSTEMFIELD_DELIMITER + getNumberRandom(getStoredDocsCount());
+  /**
+   * @return the moving entities owned by this thread, or null outside of a trajectory workload.
+   */
+  public TrajectoryTable.Shard getTrajectoryShard() {
+    return trajectoryShard;
+  }
 
-    String docBody = getVal(storageKey);
-    String keyPrefix = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER;
-    int docCounter = increment(keyPrefix + GEO_SYSTEMFIELD_INSERTDOC_COUNTER, 1);
 
-    geoPredicate = new DataFilter();
-    geoPredicate.setDocid(keyPrefix + docCounter);
-    geoPredicate.setValue(docBody);
+  public void setTrajectoryShard(TrajectoryTable.Shard shard) {
+    this.trajectoryShard = shard;
   }
 
 
-  public void buildGeoUpdatePredicate() {
-    buildGeoInsertDocument();
-    DataFilter queryPredicate = new DataFilter();
-    queryPredicate.setName(GEO_FIELD_DOC_GEOMETRY);
-    double[] latLong = {
-        -111 - rand.nextDouble(),
-        33 + rand.nextDouble()
-    };
-    JSONArray jsonArray = new JSONArray(latLong);
-    JSONObject jobj = new JSONObject().put("type", "Point");
-    jobj.put("coordinates", jsonArray);
-    queryPredicate.setValueA(jobj);
-    geoPredicate.setNestedPredicateA(queryPredicate);
+  /**
+   * @return the check of the current operation if it is sampled for verification, otherwise null.
+   */
+  public GeoQueryCheck getQueryCheck() {
+    return checking ? queryCheck : null;
   }
 
 
-  public String getDocIdRandom() {
-    return "" + getNumberRandom(getTotalDocsCount());
+  /**
+   * Sample the next operation for verification: bindings declare their query and collect its results.
+   */
+  public void startQueryCheck() {
+    queryCheck.reset();
+    checking = true;
   }
 
 
-  public String getDocIdWithDistribution() {
-    if (isZipfian) {
-      return getNumberZipfianUnifrom(getTotalDocsCount()) + "";
-    }
-    if (isLatest) {
-      return getNumberZipfianLatests(getTotalDocsCount()) + "";
+  /**
+   * @return the check of the finished operation.
+   */
+  public GeoQueryCheck finishQueryCheck() {
+    checking = false;
+    return queryCheck;
+  }
+
+
+  /**
+   * Use a predicate that was built ahead of time for the next build call instead of building a new one, or drop a
+   * prepared predicate that was not taken with null.
+   */
+  public void usePreparedPredicate(DataFilter prepared) {
+    preparedPredicate = prepared;
+  }
+
+
+  private boolean takePreparedPredicate() {
+    if (preparedPredicate == null) {
+      return false;
     }
-    return getDocIdRandom();
+    geoPredicate = preparedPredicate;
+    preparedPredicate = null;
+    return true;
   }
 
 
-  public int getRandomLimit() {
-    if (queryLimitMax == queryLimitMin) {
-      return queryLimitMax;
+  public void buildGeoReadPredicate() {
+    if (takePreparedPredicate()) {
+      return;
     }
-    return rand.nextInt(queryLimitMax - queryLimitMin + 1) + queryLimitMin;
+    Geometry stored;
+    if (source != null) {
+      stored = source.geometry(Long.parseLong(getDocIdWithDistribution()), geometries);
+    } else {
+      stored = GeoJson.readFeatureGeometry(getVal(nextStorageKey(upcomingReads, true)), schema.getGeometryMembers(),
+          geometries);
+    }
+
+    buildGeoInsertDocument();
+    geoPredicate.setNestedPredicateA(geometryPredicate(predicateA, stored));
+
+    if (spatialIndex != null && spatialIndex.size() > 0 && targetHitsMax > 0 && stored != null) {
+      buildSelectiveWindows(stored.getX(0), stored.getY(0));
+      return;
+    }
+
+    nextLocation();
+    geoPredicate.setNestedPredicateB(geometryPredicate(predicateB, queryPoint.set(location[0], location[1])));
+    double boxX = location[0];
+    double boxY = location[1];
+
+    queryLines.clear();
+    nextLocation();
+    queryLines.add(location[0], location[1]).add(queryPoint.getX(), queryPoint.getY()).endLine();
+    nextLocation();
+    queryLines.add(location[0], location[1]);
+    nextLocation();
+    queryLines.add(location[0], location[1]).endLine();
+    geoPredicate.setNestedPredicateC(geometryPredicate(predicateC, queryLines));
+
+    if (stored != null && stored.getPointCount() > 0) {
+      // the polygon spans the box between predicates A and B, so a query shape only changes the vertex count
+      setQueryPolygon(studyRegion.unwrapX(stored.getX(0)), stored.getY(0), boxX, boxY);
+    } else {
+      nextLocation();
+      double x1 = location[0];
+      double y1 = location[1];
+      nextLocation();
+      setQueryPolygon(x1, y1, location[0], location[1]);
+    }
+    wrapQueryWindows();
   }
 
 
-  public int getRandomOffset() {
+  /**
+   * Locations are drawn in the unwrapped range of a region across the antimeridian, so the windows are built
+   * continuously and only their coordinates are wrapped into valid longitudes.
+   */
+  private void wrapQueryWindows() {
+    studyRegion.wrap(queryPoint);
+    studyRegion.wrap(geoPredicate.getNestedPredicateC().getGeometry());
+    studyRegion.wrap(geoPredicate.getNestedPredicateD().getGeometry());
+  }
 
-    if (queryOffsetMax == queryOffsetMin) {
-      return queryOffsetMax;
+
+  /**
+   * Set predicate D to the query polygon inside the box. A query shape more complex than the rectangle also
+   * replaces the lines of predicate C with its rings, so intersect queries carry the same number of vertices.
+   */
+  private void setQueryPolygon(double x1, double y1, double x2, double y2) {
+    if (queryShape.isRectangle()) {
+      geoPredicate.setNestedPredicateD(geometryPredicate(predicateD, queryBox.rectangle(x1, y1, x2, y2)));
+      return;
     }
-    return rand.nextInt(queryOffsetMax - queryOffsetMin + 1) + queryOffsetMin;
+    Geometry shape = queryShape.build(x1, y1, x2, y2, rand);
+    geoPredicate.setNestedPredicateD(geometryPredicate(predicateD, shape));
+    geoPredicate.setNestedPredicateC(geometryPredicate(predicateC, QueryShape.outline(shape, queryLines)));
   }
 
 
-  private HashMap<String, String> tokenize(String jsonString) {
-    HashMap<String, String> tokens = new HashMap<String, String>();
-    JSONObject obj = new JSONObject(jsonString);
+  /**
+   * @return the number of positions of the query polygon (predicate D) if geo_query_* configures a shape other
+   * than the rectangle, otherwise 0.
+   */
+  public int getQueryVertexCount() {
+    if (queryShape.isRectangle() || geoPredicate.getNestedPredicateD() == null) {
+      return 0;
+    }
+    return geoPredicate.getNestedPredicateD().getGeometry().getPointCount();
+  }
+
 
-    try {
-      tokenizeFields(obj, tokens);
-    } catch (JSONException ex) {
-      System.err.println("Document parsing error - plain fields");
-      ex.printStackTrace();
+  /**
+   * Build a read predicate whose predicate A is a point: the first position of the sampled stored geometry.
+   */
+  public void buildGeoKnnPredicate() {
+    buildGeoReadPredicate();
+    DataFilter near = geoPredicate.getNestedPredicateA();
+    Geometry geometry = near == null ? null : near.getGeometry();
+    if (geometry != null && geometry.getType() != Geometry.Type.POINT) {
+      near.setGeometry(knnPoint.set(geometry.getX(0), geometry.getY(0)));
     }
+  }
 
-    try {
-      tokenizeObjects(obj, tokens);
-    } catch (JSONException ex) {
-      System.err.println("Document parsing error - objects");
-      ex.printStackTrace();
+
+  /**
+   * @return the number of nearest documents a GEO_KNN operation asks for.
+   */
+  public int getKnnK() {
+    return knnK;
+  }
+
+
+  /**
+   * Build the predicate of a GEO_COUNT or GEO_GRID aggregation. Predicate D is the polygon to count in, its
+   * bounding box is the viewport that GEO_GRID divides into {@link #getGridCells()} cells per side.
+   */
+  public void buildGeoAggregatePredicate() {
+    buildGeoReadPredicate();
+    geoPredicate.getNestedPredicateD().getGeometry().envelope(gridViewport);
+  }
+
+
+  /**
+   * @return the viewport of the last aggregation as <code>minX, minY, maxX, maxY</code>.
+   */
+  public double[] getGridViewport() {
+    return gridViewport;
+  }
+
+
+  /**
+   * @return the number of grid cells along each side of the viewport of a GEO_GRID operation.
+   */
+  public int getGridCells() {
+    return gridCells;
+  }
+
+
+  /**
+   * Return the row-major index of the grid cell that contains the position, or -1 if it is outside the viewport.
+   * Positions on the upper border of the viewport belong to the last cell.
+   */
+  public int gridCell(double x, double y) {
+    int column = gridIndex(x, gridViewport[0], gridViewport[2]);
+    int row = gridIndex(y, gridViewport[1], gridViewport[3]);
+    if (column < 0 || row < 0) {
+      return -1;
     }
+    return row * gridCells + column;
+  }
 
-    return tokens;
+  private int gridIndex(double value, double min, double max) {
+    if (value < min || value > max) {
+      return -1;
+    }
+    if (max <= min) {
+      return 0;
+    }
+    return Math.min(gridCells - 1, (int) ((value - min) / (max - min) * gridCells));
   }
 
 
-  private void tokenizeFields(JSONObject obj, HashMap<String, String> tokens) {
+  /**
+   * Size the query windows around a stored geometry so that they match geo_target_hits documents. The box spans
+   * from the stored position (predicate A) to predicate B, predicate D is the same box as a polygon and predicate C
+   * holds its diagonals. The near radius is set as the maximum distance of predicate A.
+   */
+  private void buildSelectiveWindows(double x, double y) {
+    double side = sizeBox(x, y);
+    geoPredicate.setNestedPredicateB(geometryPredicate(predicateB, queryPoint.set(x + side, y + side)));
+
+    queryLines.clear();
+    queryLines.add(x, y).add(x + side, y + side).endLine();
+    queryLines.add(x, y + side).add(x + side, y).endLine();
+    geoPredicate.setNestedPredicateC(geometryPredicate(predicateC, queryLines));
 
-    //string
-    ArrayList<String> stringFields = new ArrayList<>(Collections.singletonList(GEO_FIELD_DOC_TYPE));
+    setQueryPolygon(x, y, x + side, y + side);
+    wrapQueryWindows();
 
-    for (String field : stringFields) {
-      tokens.put(field, null);
-      if (obj.has(field) && !obj.isNull(field)) {
-        tokens.put(field, obj.getString(field));
+    predicateA.setMaxDistance(sizeRadius(x, y));
+  }
+
+
+  /**
+   * Binary search the side of the box with the lower left corner at the position that holds the target number of
+   * documents.
+   */
+  private double sizeBox(double x, double y) {
+    spatialIndex.envelope(extent);
+    double low = 0;
+    double high = Math.max(Math.max(extent[2] - x, extent[3] - y), 0);
+    for (int i = 0; i < WINDOW_SEARCH_STEPS; i++) {
+      double side = (low + high) / 2;
+      int hits = spatialIndex.count(x, y, x + side, y + side, targetHitsMax + 1);
+      if (hits < targetHitsMin) {
+        low = side;
+      } else if (hits > targetHitsMax) {
+        high = side;
+      } else {
+        return side;
       }
     }
+    return high;
   }
 
 
-  private void tokenizeObjects(JSONObject obj, HashMap<String, String> tokens) {
-    if (obj.has(GEO_FIELD_DOC_ID) && !obj.isNull(GEO_FIELD_DOC_ID)) {
-      if (obj.optJSONObject(GEO_FIELD_DOC_ID) != null) {
-        tokens.put(GEO_FIELD_DOC_ID, JSONObject.valueToString(obj.getJSONObject(GEO_FIELD_DOC_ID)));
-      } else if (obj.optInt(GEO_FIELD_DOC_ID) != 0) {
-        tokens.put(GEO_FIELD_DOC_ID, String.valueOf(obj.getInt(GEO_FIELD_DOC_ID)));
+  /**
+   * Binary search the radius in meters around the position that holds the target number of documents.
+   */
+  private double sizeRadius(double x, double y) {
+    spatialIndex.envelope(extent);
+    double low = 0;
+    double high = Math.max(Math.hypot(extent[2] - extent[0], extent[3] - extent[1]), 1e-6) * METERS_PER_DEGREE;
+    for (int i = 0; i < WINDOW_SEARCH_STEPS; i++) {
+      double radius = (low + high) / 2;
+      int hits = hitCounter.countWithin(x, y, radius, targetHitsMax + 1);
+      if (hits < targetHitsMin) {
+        low = radius;
+      } else if (hits > targetHitsMax) {
+        high = radius;
       } else {
-        tokens.put(GEO_FIELD_DOC_ID, obj.getString(GEO_FIELD_DOC_ID));
+        return radius;
       }
-    } else {
-      tokens.put(GEO_FIELD_DOC_ID, null);
-    }
-    //1-level nested objects
-    String field = GEO_FIELD_DOC_PROPERTIES;
-
-    String l1Prefix = field + GEO_SYSTEMFIELD_DELIMITER;
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_OBJECTID, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_INCIDENT_NUMBER, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_LOCATION, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_NOTIFICATION, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_INCIDENT_DATE, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_TAG_COUNT, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_MONIKER_CLASS, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_SQ_FT, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_PROP_TYPE, null);
-    tokens.put(l1Prefix + GEO_FIELD_DOC_PROPERTIES_OBJ_WAIVER, null);
-
-    if (obj.has(field) && !obj.isNull(field)) {
-      JSONObject inobj = obj.getJSONObject(field);
-
-      ArrayList<String> inobjStringFields = new ArrayList<>(
-          Arrays.asList(GEO_FIELD_DOC_PROPERTIES_OBJ_INCIDENT_NUMBER, GEO_FIELD_DOC_PROPERTIES_OBJ_LOCATION,
-              GEO_FIELD_DOC_PROPERTIES_OBJ_NOTIFICATION, GEO_FIELD_DOC_PROPERTIES_OBJ_INCIDENT_DATE,
-              GEO_FIELD_DOC_PROPERTIES_OBJ_MONIKER_CLASS, GEO_FIELD_DOC_PROPERTIES_OBJ_PROP_TYPE,
-              GEO_FIELD_DOC_PROPERTIES_OBJ_WAIVER));
-
-      for (String infield : inobjStringFields) {
-        if (inobj.has(infield) && !inobj.isNull(infield)) {
-          String key = field + GEO_SYSTEMFIELD_DELIMITER + infield;
-          tokens.put(key, inobj.getString(infield));
-        }
-        //integer
-        ArrayList<String> intFields = new ArrayList<>(
-            Arrays.asList(GEO_FIELD_DOC_PROPERTIES_OBJ_OBJECTID, GEO_FIELD_DOC_PROPERTIES_OBJ_TAG_COUNT,
-                GEO_FIELD_DOC_PROPERTIES_OBJ_SQ_FT));
-
-        for (String intfield : intFields) {
-          if (inobj.has(intfield) && !inobj.isNull(intfield)) {
-            String key = field + GEO_SYSTEMFIELD_DELIMITER + intfield;
-            tokens.put(key, String.valueOf(inobj.getInt(intfield)));
-          }
-        }
+    }
+    return high;
+  }
+
+
+  /**
+   * Read the geometries of all stored documents into an R-tree, keyed by their storage index.
+   */
+  public RTree buildSpatialIndex() {
+    RTree.Builder builder = new RTree.Builder(SPATIAL_INDEX_NODE_CAPACITY);
+    Geometries reuse = new Geometries();
+    double[] envelope = new double[4];
+    for (int i = 0; i < getStoredDocsCount(); i++) {
+      Geometry geometry = getStoredGeometry(i, reuse);
+      if (geometry != null && geometry.getPointCount() > 0) {
+        geometry.envelope(envelope);
+        builder.add(i, envelope[0], envelope[1], envelope[2], envelope[3]);
       }
     }
+    return builder.build();
+  }
 
-    //geospatial objects
-    String geoField = GEO_FIELD_DOC_GEOMETRY;
 
-    String lPrefix = geoField + GEO_SYSTEMFIELD_DELIMITER;
-    tokens.put(lPrefix + GEO_FIELD_DOC_GEOMETRY_OBJ_TYPE, null);
-    tokens.put(lPrefix + GEO_FIELD_DOC_GEOMETRY_OBJ_COORDINATES, null);
+  /**
+   * @return the geometry of the stored document, read into the reusable geometries, or null if it has none.
+   */
+  public Geometry getStoredGeometry(int storageIndex, Geometries reuse) {
+    if (source != null) {
+      return source.geometry(storageIndex, reuse);
+    }
+    String docBody = getVal(GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + GEO_METAFIELD_INSERTDOC +
+        GEO_SYSTEMFIELD_DELIMITER + storageIndex);
+    return docBody == null ? null : GeoJson.readFeatureGeometry(docBody, schema.getGeometryMembers(), reuse);
+  }
 
-    if (obj.has(geoField) && !obj.isNull(geoField)) {
-      JSONObject ingobj = obj.getJSONObject(geoField);
 
-      ArrayList<String> ingeoobjStringFields =
-          new ArrayList<>(Collections.singletonList(GEO_FIELD_DOC_GEOMETRY_OBJ_TYPE));
+  /**
+   * @return the schema identifier of the stored document, or null if it has none.
+   */
+  public String getStoredObjectId(int storageIndex) {
+    if (source != null) {
+      return source.objectId(storageIndex);
+    }
+    return getVal(GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + schema.getIdToken() +
+        GEO_SYSTEMFIELD_DELIMITER + storageIndex);
+  }
 
-      for (String gfield : ingeoobjStringFields) {
-        if (ingobj.has(gfield) && !ingobj.isNull(gfield)) {
-          String key = geoField + GEO_SYSTEMFIELD_DELIMITER + gfield;
-          tokens.put(key, ingobj.getString(gfield));
-        }
+
+  /**
+   * @return the database key the stored document was read from.
+   */
+  public String getStoredDocKey(int storageIndex) {
+    if (source != null) {
+      return documentKey(storageIndex, keyCurve == null ? null : source.document(storageIndex));
+    }
+    return getVal(GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + GEO_METAFIELD_DOCID +
+        GEO_SYSTEMFIELD_DELIMITER + storageIndex);
+  }
+
+
+  /**
+   * @return the number of documents stored by the load phase.
+   */
+  public int getStoredDocumentCount() {
+    return getStoredDocsCount();
+  }
+
+
+  public void setSpatialIndex(RTree index) {
+    this.spatialIndex = index;
+  }
+
+
+  public void buildGeoInsertDocument() {
+    if (takePreparedPredicate()) {
+      return;
+    }
+    int docCounter = nextInsertDocId();
+    String docBody;
+    if (source != null) {
+      docBody = source.document(docCounter);
+    } else {
+      docBody = getVal(nextStorageKey(upcomingInserts, false));
+    }
+    if (insertDistribution != null && docBody != null) {
+      docBody = relocate(docBody);
+    }
+    geoPredicate = documentPredicate;
+    geoPredicate.clear();
+    geoPredicate.setDocid(documentKey(docCounter, docBody));
+    geoPredicate.setValue(docBody);
+  }
+
+
+  /**
+   * Return the key of a document. With a geo_key_order other than sequential, the key starts with the position of
+   * the center of the document's bounding box along the space-filling curve, followed by the id to keep it unique,
+   * so that documents close in space are close in key order.
+   */
+  public String documentKey(long docId, String docBody) {
+    String keyPrefix = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER;
+    if (keyCurve == null || docBody == null) {
+      return keyPrefix + docId;
+    }
+    Geometry geometry = GeoJson.readFeatureGeometry(docBody, schema.getGeometryMembers(), geometries);
+    if (geometry == null || geometry.getPointCount() == 0) {
+      return keyPrefix + docId;
+    }
+    geometry.envelope(keyEnvelope);
+    double centerX = studyRegion.unwrapX((keyEnvelope[0] + keyEnvelope[2]) / 2);
+    return keyPrefix + keyCurve.key(centerX, (keyEnvelope[1] + keyEnvelope[3]) / 2)
+        + GEO_SYSTEMFIELD_DELIMITER + docId;
+  }
+
+
+  /**
+   * Return the key a GEO_SCAN starts at. With sequential keys it is a document id drawn from the request
+   * distribution; with a space-filling curve it is the curve position of a location drawn from the spatial
+   * distribution, so the scan reads a contiguous area.
+   */
+  public String getScanStartKey() {
+    if (keyCurve == null) {
+      return getDocIdWithDistribution();
+    }
+    nextLocation();
+    return GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + keyCurve.key(location[0], location[1]);
+  }
+
+
+  /**
+   * @return the document of the source with the id, as the load phase writes it.
+   */
+  public String getSourceDocument(long docId) {
+    return source.document(docId);
+  }
+
+
+  /**
+   * Build the predicate of a move: the document key and OBJECTID of the entity, and its new position as predicate A.
+   */
+  public void buildGeoMovePredicate(long entity, double x, double y) {
+    preparedPredicate = null;
+    geoPredicate = trajectoryPredicate;
+    geoPredicate.clear();
+    geoPredicate.setDocid(GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + entity);
+    geoPredicate.setValue(String.valueOf(entity));
+    geoPredicate.setNestedPredicateA(geometryPredicate(predicateA, queryPoint.set(x, y)));
+  }
+
+
+  /**
+   * Prepare a near query around the position with the radius in meters for the next read predicate.
+   */
+  public void prepareNearPredicate(double x, double y, double radius) {
+    trajectoryPredicate.clear();
+    trajectoryPredicate.setNestedPredicateA(geometryPredicate(predicateA, queryPoint.set(x, y)));
+    predicateA.setMaxDistance(radius);
+    usePreparedPredicate(trajectoryPredicate);
+  }
+
+
+  /**
+   * @return true if documents are taken from a {@link GeoDocumentSource} instead of sampled from the loaded dataset.
+   */
+  public boolean hasDocumentSource() {
+    return source != null;
+  }
+
+
+  public void buildGeoUpdatePredicate() {
+    if (takePreparedPredicate()) {
+      return;
+    }
+    buildGeoInsertDocument();
+    nextLocation();
+    queryPoint.set(location[0], location[1]);
+    studyRegion.wrap(queryPoint);
+    geoPredicate.setNestedPredicateA(geometryPredicate(predicateA, queryPoint));
+  }
+
+
+  /**
+   * Return the storage key of the next stored document to read. With geo_nearcache_prefetch set, the documents of
+   * the following operations are drawn ahead in batches and announced to {@link #prefetch(List)}, so their bodies
+   * are usually local by the time they are needed.
+   *
+   * @param upcoming     The keys drawn ahead for this kind of operation.
+   * @param distribution True to draw with the request distribution, false to draw uniformly.
+   */
+  private String nextStorageKey(Deque<String> upcoming, boolean distribution) {
+    if (upcoming.isEmpty()) {
+      int count = Math.max(1, prefetchDepth);
+      for (int i = 0; i < count; i++) {
+        String storageIndex = distribution ? getDocIdWithDistribution() : "" + getNumberRandom(getStoredDocsCount());
+        upcoming.add(GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + GEO_METAFIELD_INSERTDOC +
+            GEO_SYSTEMFIELD_DELIMITER + storageIndex);
       }
+      if (prefetchDepth > 0) {
+        prefetch(new ArrayList<>(upcoming));
+      }
+    }
+    return upcoming.poll();
+  }
+
+
+  private DataFilter geometryPredicate(DataFilter predicate, Geometry geometry) {
+    predicate.clear();
+    predicate.setName(schema.getGeometryPath());
+    predicate.setGeometry(geometry);
+    return predicate;
+  }
+
 
-      String coord = GEO_FIELD_DOC_GEOMETRY_OBJ_COORDINATES;
-      JSONArray arr = ingobj.getJSONArray(coord);
-      if (arr.length() > 0) {
-        String key = geoField + GEO_SYSTEMFIELD_DELIMITER + coord;
-        tokens.put(key, arr.getLong(0) + "," + arr.getLong(1));
+  /**
+   * Draw the next query location from geo_spatial_distribution into {@link #location}.
+   */
+  private void nextLocation() {
+    spatialDistribution.next(rand, location);
+  }
+
+
+  /**
+   * Move the geometry of the document to a location drawn from geo_spatial_insert_distribution, keeping its shape.
+   */
+  private String relocate(String docBody) {
+    Geometry geometry = GeoJson.readFeatureGeometry(docBody, schema.getGeometryMembers(), insertGeometries);
+    if (geometry == null || geometry.getPointCount() == 0) {
+      return docBody;
+    }
+    insertDistribution.next(rand, location);
+    double dx = location[0] - geometry.getX(0);
+    double dy = location[1] - geometry.getY(0);
+    double[] coordinates = geometry.getCoordinates();
+    for (int i = 0; i < geometry.getPointCount() << 1; i += 2) {
+      coordinates[i] += dx;
+      coordinates[i + 1] += dy;
+    }
+    studyRegion.wrap(geometry);
+    JSONObject document = new JSONObject(docBody);
+    JSONObject parent = document;
+    List<String> path = schema.getGeometrySegments();
+    for (String member : path.subList(0, path.size() - 1)) {
+      JSONObject child = parent.optJSONObject(member);
+      if (child == null) {
+        child = new JSONObject();
+        parent.put(member, child);
       }
+      parent = child;
+    }
+    parent.put(path.get(path.size() - 1), new JSONObject(GeoJson.toString(geometry)));
+    return document.toString();
+  }
+
+
+  /**
+   * Hand out the next document id. Ids are taken from a block of geo_insert_lease_size ids that is reserved with
+   * a single increment of the shared insert counter, so threads and client hosts only meet on the counter once
+   * per block.
+   */
+  public int nextInsertDocId() {
+    if (leaseNext > leaseEnd) {
+      leaseEnd = increment(GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER +
+          GEO_SYSTEMFIELD_INSERTDOC_COUNTER, leaseSize);
+      leaseNext = leaseEnd - leaseSize + 1;
+      leasedIds += leaseSize;
+    }
+    return leaseNext++;
+  }
+
+
+  /**
+   * @return the number of document ids this generator reserved on the shared insert counter.
+   */
+  public long getLeasedDocIds() {
+    return leasedIds;
+  }
+
+
+  /**
+   * @return the number of reserved document ids that were never handed out. These ids are gaps in the key space.
+   */
+  public long getUnusedLeasedDocIds() {
+    return leaseEnd - leaseNext + 1;
+  }
+
+
+  public String getDocIdRandom() {
+    return "" + getNumberRandom(getTotalDocsCount());
+  }
+
+
+  public String getDocIdWithDistribution() {
+    if (isZipfian) {
+      return getNumberZipfianUnifrom(getTotalDocsCount()) + "";
+    }
+    if (isLatest) {
+      return getNumberZipfianLatests(getTotalDocsCount()) + "";
     }
+    return getDocIdRandom();
+  }
+
+
+  public int getRandomLimit() {
+    if (queryLimitMax == queryLimitMin) {
+      return queryLimitMax;
+    }
+    return rand.nextInt(queryLimitMax - queryLimitMin + 1) + queryLimitMin;
+  }
+
+
+  public int getRandomOffset() {
+
+    if (queryOffsetMax == queryOffsetMin) {
+      return queryOffsetMax;
+    }
+    return rand.nextInt(queryOffsetMax - queryOffsetMin + 1) + queryOffsetMin;
   }
 
 
   private int getStoredDocsCount() {
+    if (source != null) {
+      return source.getDocumentCount();
+    }
     if (storedDocsCountDocs == 0) {
       storedDocsCountDocs = Integer.parseInt(getVal(
           GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + GEO_SYSTEMFIELD_STORAGEDOCS_COUNT_DOCS));
@@ -481,6 +1006,9 @@ public abstract class GeoGenerator {
 
 
   private int getTotalDocsCount() {
+    if (source != null) {
+      return source.getDocumentCount();
+    }
     if (totalDocsCount == 0) {
       totalDocsCount = Integer.parseInt(
           getVal(GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER + GEO_SYSTEMFIELD_TOTALDOCS_COUNT));
@@ -511,10 +1039,49 @@ public abstract class GeoGenerator {
   }
 
 
+  /**
+   * Counts the indexed geometries within a distance of a position, using an equirectangular approximation that is
+   * accurate enough to size query windows.
+   */
+  private final class HitCounter implements RTree.Visitor {
+    private double x;
+    private double y;
+    private double radius;
+    private double metersPerDegreeX;
+    private int count;
+    private int limit;
+
+    int countWithin(double px, double py, double meters, int max) {
+      x = px;
+      y = py;
+      radius = meters;
+      metersPerDegreeX = METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(py)), 1e-6);
+      count = 0;
+      limit = max;
+      double dx = meters / metersPerDegreeX;
+      double dy = meters / METERS_PER_DEGREE;
+      spatialIndex.search(px - dx, py - dy, px + dx, py + dy, this);
+      return count;
+    }
+
+    @Override
+    public boolean visit(int id, double minX, double minY, double maxX, double maxY) {
+      double dx = (Math.max(minX, Math.min(x, maxX)) - x) * metersPerDegreeX;
+      double dy = (Math.max(minY, Math.min(y, maxY)) - y) * METERS_PER_DEGREE;
+      if (dx * dx + dy * dy <= radius * radius) {
+        count++;
+      }
+      return count < limit;
+    }
+  }
+
+
   /**
    * Created by Yuvraj Singh Kanwar on 2/22/19.
+   * <p>
+   * A generator reuses its predicates for every operation, so a predicate is only valid until the next build call.
    */
-  public class DataFilter {
+  public static class DataFilter {
 
     public static final String GEO_PREDICATE_TYPE_STRING = "string";
     public static final String GEO_PREDICATE_TYPE_INTEGER = "int";
@@ -523,6 +1090,8 @@ public abstract class GeoGenerator {
 
     private String name;
     private JSONObject valueA;
+    private Geometry geometry;
+    private Double maxDistance;
     private JSONArray valueB;
     private String value;
     private String docid;
@@ -537,6 +1106,8 @@ public abstract class GeoGenerator {
     private DataFilter nestedPredicateB;
     private DataFilter nestedPredicateC;
     private DataFilter nestedPredicateD;
+    private Geometries ownGeometries;
+    private DataFilter[] ownNested;
 
 
     public String getName() {
@@ -549,13 +1120,113 @@ public abstract class GeoGenerator {
     }
 
 
+    /**
+     * The geometry as a JSON object. Prefer {@link #getGeometry()}, which does not build a JSON tree.
+     */
     public JSONObject getValueA() {
+      if (valueA == null && geometry != null) {
+        valueA = new JSONObject(GeoJson.toString(geometry));
+      }
       return valueA;
     }
 
 
     public void setValueA(JSONObject newValueA) {
       this.valueA = newValueA;
+      this.geometry = null;
+    }
+
+
+    public Geometry getGeometry() {
+      return geometry;
+    }
+
+
+    /**
+     * @return the radius in meters for distance queries, or null to use the binding's default.
+     */
+    public Double getMaxDistance() {
+      return maxDistance;
+    }
+
+
+    public void setMaxDistance(Double newMaxDistance) {
+      this.maxDistance = newMaxDistance;
+    }
+
+
+    public void setGeometry(Geometry newGeometry) {
+      this.geometry = newGeometry;
+      this.valueA = null;
+    }
+
+
+    /**
+     * Make this predicate a deep copy of the other one. Geometries and nested predicates are copied into buffers
+     * owned by this predicate, so the other predicate can be rebuilt while this copy is still in use.
+     */
+    public void copyFrom(DataFilter other) {
+      name = other.name;
+      valueA = other.valueA;
+      valueB = other.valueB;
+      value = other.value;
+      docid = other.docid;
+      coordinates = other.coordinates;
+      coordinates2 = other.coordinates2;
+      operation = other.operation;
+      relation = other.relation;
+      type = other.type;
+      maxDistance = other.maxDistance;
+      geometry = null;
+      if (other.geometry != null) {
+        if (ownGeometries == null) {
+          ownGeometries = new Geometries();
+        }
+        geometry = ownGeometries.get(other.geometry.getType());
+        geometry.copyFrom(other.geometry);
+      }
+      nestedPredicateA = copyNested(0, other.nestedPredicateA);
+      nestedPredicateB = copyNested(1, other.nestedPredicateB);
+      nestedPredicateC = copyNested(2, other.nestedPredicateC);
+      nestedPredicateD = copyNested(3, other.nestedPredicateD);
+    }
+
+
+    private DataFilter copyNested(int slot, DataFilter other) {
+      if (other == null) {
+        return null;
+      }
+      if (ownNested == null) {
+        ownNested = new DataFilter[4];
+      }
+      if (ownNested[slot] == null) {
+        ownNested[slot] = new DataFilter();
+      }
+      ownNested[slot].copyFrom(other);
+      return ownNested[slot];
+    }
+
+
+    /**
+     * Reset all fields so the predicate can be filled for the next operation.
+     */
+    public void clear() {
+      name = null;
+      valueA = null;
+      geometry = null;
+      maxDistance = null;
+      valueB = null;
+      value = null;
+      docid = null;
+      coordinates = null;
+      coordinates2 = null;
+      operation = null;
+      relation = null;
+      type = GEO_PREDICATE_TYPE_STRING;
+      nestedPredicateA = null;
+      nestedPredicateB = null;
+      nestedPredicateC = null;
+      nestedPredicateD = null;
     }
 
 
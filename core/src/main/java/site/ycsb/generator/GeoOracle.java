@@ -0,0 +1,274 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.RTree;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Computes the exact answer of a geo query over the stored seed documents. The R-tree the generator builds over
+ * them only selects candidates by bounding box; every candidate is then tested against its stored geometry. Distances
+ * to points are great-circle distances, while line segments and polygon edges are taken as straight lines in
+ * degrees, which is close to the geodesic edges of the databases for the short segments of the datasets.
+ * <p>
+ * The database may hold documents that were never stored by the generator, so only returned documents the oracle
+ * knows count towards precision.
+ */
+public final class GeoOracle {
+
+  private static final double EARTH_RADIUS_METERS = 6371008.8;
+  private static final double METERS_PER_DEGREE = 111320;
+
+  private final RTree index;
+  private final Geometry[] geometries;
+  private final String[] objectIds;
+  private final String[] documentKeys;
+  private final Set<String> knownObjectIds = new HashSet<>();
+  private final Set<String> knownDocumentKeys = new HashSet<>();
+
+  /**
+   * @param index        The R-tree over the stored documents, keyed by storage index.
+   * @param geometries   The geometry of each stored document, or null if it has none.
+   * @param objectIds    The properties.OBJECTID of each stored document.
+   * @param documentKeys The database key of each stored document.
+   */
+  public GeoOracle(RTree index, Geometry[] geometries, String[] objectIds, String[] documentKeys) {
+    this.index = index;
+    this.geometries = geometries;
+    this.objectIds = objectIds;
+    this.documentKeys = documentKeys;
+    for (String id : objectIds) {
+      if (id != null) {
+        knownObjectIds.add(id);
+      }
+    }
+    for (String key : documentKeys) {
+      if (key != null) {
+        knownDocumentKeys.add(key);
+      }
+    }
+  }
+
+  /**
+   * @return the ids of the stored documents that match the declared query of the check.
+   */
+  public Set<String> expected(final GeoQueryCheck check) {
+    final Set<String> expected = new HashSet<>();
+    final String[] ids = check.usesDocumentKeys() ? documentKeys : objectIds;
+    final double[] w = check.getWindow();
+    switch (check.getRelation()) {
+    case NEAR:
+      final double meters = check.getDistance();
+      double dx = meters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(w[1])), 1e-6));
+      double dy = meters / METERS_PER_DEGREE;
+      index.search(w[0] - 2 * dx, w[1] - 2 * dy, w[0] + 2 * dx, w[1] + 2 * dy, new RTree.Visitor() {
+        @Override
+        public boolean visit(int id, double minX, double minY, double maxX, double maxY) {
+          if (geometries[id] != null && distance(geometries[id], w[0], w[1]) <= meters) {
+            add(expected, ids, id);
+          }
+          return true;
+        }
+      });
+      break;
+    case WITHIN:
+      // a geometry is within the box exactly when all of its points are, which is when its bounding box is
+      index.search(w[0], w[1], w[2], w[3], new RTree.Visitor() {
+        @Override
+        public boolean visit(int id, double minX, double minY, double maxX, double maxY) {
+          if (minX >= w[0] && maxX <= w[2] && minY >= w[1] && maxY <= w[3]) {
+            add(expected, ids, id);
+          }
+          return true;
+        }
+      });
+      break;
+    default:
+      final Geometry query = check.getGeometry();
+      index.search(w[0], w[1], w[2], w[3], new RTree.Visitor() {
+        @Override
+        public boolean visit(int id, double minX, double minY, double maxX, double maxY) {
+          if (geometries[id] != null && intersects(query, geometries[id])) {
+            add(expected, ids, id);
+          }
+          return true;
+        }
+      });
+    }
+    return expected;
+  }
+
+  /**
+   * @return true if the id belongs to a stored document.
+   */
+  public boolean isKnown(String id, GeoQueryCheck check) {
+    return check.usesDocumentKeys() ? knownDocumentKeys.contains(id) : knownObjectIds.contains(id);
+  }
+
+  private static void add(Set<String> expected, String[] ids, int id) {
+    if (ids[id] != null) {
+      expected.add(ids[id]);
+    }
+  }
+
+  /**
+   * @return the distance in meters from the position to the closest point of the geometry, 0 inside a polygon.
+   */
+  static double distance(Geometry geometry, double x, double y) {
+    if (geometry.getType() == Geometry.Type.POINT) {
+      return haversine(x, y, geometry.getX(0), geometry.getY(0));
+    }
+    if (isAreal(geometry) && contains(geometry, x, y)) {
+      return 0;
+    }
+    // measure the segments in meters in a plane centered on the position
+    double scaleX = METERS_PER_DEGREE * Math.cos(Math.toRadians(y));
+    double closest = Double.POSITIVE_INFINITY;
+    for (int ring = 0; ring < geometry.getRingCount(); ring++) {
+      int end = geometry.getRingEnd(ring);
+      for (int i = geometry.getRingStart(ring); i < end; i++) {
+        int j = Math.min(i + 1, end - 1);
+        double ax = (geometry.getX(i) - x) * scaleX;
+        double ay = (geometry.getY(i) - y) * METERS_PER_DEGREE;
+        double bx = (geometry.getX(j) - x) * scaleX;
+        double by = (geometry.getY(j) - y) * METERS_PER_DEGREE;
+        closest = Math.min(closest, distanceToOrigin(ax, ay, bx, by));
+      }
+    }
+    return closest;
+  }
+
+  private static double distanceToOrigin(double ax, double ay, double bx, double by) {
+    double dx = bx - ax;
+    double dy = by - ay;
+    double length = dx * dx + dy * dy;
+    double t = length == 0 ? 0 : Math.max(0, Math.min(1, -(ax * dx + ay * dy) / length));
+    return Math.hypot(ax + t * dx, ay + t * dy);
+  }
+
+  /**
+   * Two geometries intersect if any of their segments touch, or else if one lies inside a polygon of the other.
+   * Without touching segments every line or ring is completely inside or outside a polygon, so testing one point
+   * of each suffices.
+   */
+  static boolean intersects(Geometry a, Geometry b) {
+    for (int ringA = 0; ringA < a.getRingCount(); ringA++) {
+      for (int ringB = 0; ringB < b.getRingCount(); ringB++) {
+        if (ringsTouch(a, ringA, b, ringB)) {
+          return true;
+        }
+      }
+    }
+    return anyRingInside(a, b) || anyRingInside(b, a);
+  }
+
+  private static boolean anyRingInside(Geometry rings, Geometry polygon) {
+    if (!isAreal(polygon)) {
+      return false;
+    }
+    for (int ring = 0; ring < rings.getRingCount(); ring++) {
+      int first = rings.getRingStart(ring);
+      if (contains(polygon, rings.getX(first), rings.getY(first))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean ringsTouch(Geometry a, int ringA, Geometry b, int ringB) {
+    int endA = a.getRingEnd(ringA);
+    int endB = b.getRingEnd(ringB);
+    for (int i = a.getRingStart(ringA); i < endA; i++) {
+      // a ring of a single point is a segment of length zero
+      int i2 = Math.min(i + 1, endA - 1);
+      if (i2 == i && endA - a.getRingStart(ringA) > 1) {
+        continue;
+      }
+      for (int j = b.getRingStart(ringB); j < endB; j++) {
+        int j2 = Math.min(j + 1, endB - 1);
+        if (j2 == j && endB - b.getRingStart(ringB) > 1) {
+          continue;
+        }
+        if (segmentsTouch(a.getX(i), a.getY(i), a.getX(i2), a.getY(i2),
+            b.getX(j), b.getY(j), b.getX(j2), b.getY(j2))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean segmentsTouch(double ax, double ay, double bx, double by,
+                                       double cx, double cy, double dx, double dy) {
+    double d1 = orientation(cx, cy, dx, dy, ax, ay);
+    double d2 = orientation(cx, cy, dx, dy, bx, by);
+    double d3 = orientation(ax, ay, bx, by, cx, cy);
+    double d4 = orientation(ax, ay, bx, by, dx, dy);
+    if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+      return true;
+    }
+    return (d1 == 0 && onSegment(cx, cy, dx, dy, ax, ay)) || (d2 == 0 && onSegment(cx, cy, dx, dy, bx, by))
+        || (d3 == 0 && onSegment(ax, ay, bx, by, cx, cy)) || (d4 == 0 && onSegment(ax, ay, bx, by, dx, dy));
+  }
+
+  private static double orientation(double ax, double ay, double bx, double by, double px, double py) {
+    return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+  }
+
+  /**
+   * @return true if the point, known to be collinear with the segment, lies within its bounding box.
+   */
+  private static boolean onSegment(double ax, double ay, double bx, double by, double px, double py) {
+    return px >= Math.min(ax, bx) && px <= Math.max(ax, bx) && py >= Math.min(ay, by) && py <= Math.max(ay, by);
+  }
+
+  private static boolean isAreal(Geometry geometry) {
+    return geometry.getType() == Geometry.Type.POLYGON || geometry.getType() == Geometry.Type.MULTI_POLYGON;
+  }
+
+  /**
+   * Even-odd test over all rings, so holes and the separate polygons of a MultiPolygon count correctly.
+   */
+  private static boolean contains(Geometry polygon, double x, double y) {
+    boolean inside = false;
+    for (int ring = 0; ring < polygon.getRingCount(); ring++) {
+      int start = polygon.getRingStart(ring);
+      int end = polygon.getRingEnd(ring);
+      for (int i = start, j = end - 1; i < end; j = i++) {
+        double yi = polygon.getY(i);
+        double yj = polygon.getY(j);
+        if ((yi > y) != (yj > y)
+            && x < (polygon.getX(j) - polygon.getX(i)) * (y - yi) / (yj - yi) + polygon.getX(i)) {
+          inside = !inside;
+        }
+      }
+    }
+    return inside;
+  }
+
+  private static double haversine(double x1, double y1, double x2, double y2) {
+    double dLat = Math.toRadians(y2 - y1);
+    double dLon = Math.toRadians(x2 - x1);
+    double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(y1)) * Math.cos(Math.toRadians(y2)) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.generator.geo.Geometry;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The query a binding issued for a sampled geo operation and the ids of the documents it returned, to be compared
+ * with the exact answer of the {@link GeoOracle}.
+ * <p>
+ * A binding that finds a check on the generator declares the query it sends (the geometry and relation it actually
+ * used) and adds the id of every returned document, reading the whole result instead of only the first document.
+It marks the check {@link #answered()} once it holds the answer it would return without verification, so the
+reading of the remaining results does not count into the latency of the operation.
+ * Bindings that cannot identify their results leave the check undeclared and the operation is not verified.
+ */
+public final class GeoQueryCheck {
+
+  /**
+   * The spatial relation of the query.
+   */
+  public enum Relation {
+    NEAR, WITHIN, INTERSECTS
+  }
+
+  private Relation relation;
+  private final double[] window = new double[4];
+  private double distance;
+  private Geometry geometry;
+  private boolean documentKeys;
+  private final Set<String> results = new HashSet<>();
+  private long answeredNanos;
+
+  void reset() {
+    answeredNanos = 0;
+    relation = null;
+    geometry = null;
+    documentKeys = false;
+    results.clear();
+  }
+
+  /**
+   * Documents within the distance in meters of the position.
+   */
+  public void near(double x, double y, double meters) {
+    relation = Relation.NEAR;
+    window[0] = x;
+    window[1] = y;
+    distance = meters;
+  }
+
+  /**
+   * Documents completely inside the box.
+   */
+  public void within(double minX, double minY, double maxX, double maxY) {
+    relation = Relation.WITHIN;
+    window[0] = Math.min(minX, maxX);
+    window[1] = Math.min(minY, maxY);
+    window[2] = Math.max(minX, maxX);
+    window[3] = Math.max(minY, maxY);
+  }
+
+  /**
+   * Documents that intersect the geometry.
+   */
+  public void intersects(Geometry query) {
+    relation = Relation.INTERSECTS;
+    geometry = query;
+    query.envelope(window);
+  }
+
+  /**
+   * Results are identified by document key instead of properties.OBJECTID.
+   */
+  public void useDocumentKeys() {
+    documentKeys = true;
+  }
+
+  /**
+   * The binding holds the answer of the operation; only the first call counts.
+   */
+  public void answered() {
+    if (answeredNanos == 0) {
+      answeredNanos = System.nanoTime();
+    }
+  }
+
+  /**
+   * @return the {@link System#nanoTime()} the binding held the answer at, or 0 if it did not mark it.
+   */
+  public long getAnsweredNanos() {
+    return answeredNanos;
+  }
+
+  public void addResult(Object id) {
+    results.add(String.valueOf(id));
+  }
+
+  public boolean isDeclared() {
+    return relation != null;
+  }
+
+  public Relation getRelation() {
+    return relation;
+  }
+
+  /**
+   * For NEAR the position in the first two values, otherwise the bounding box of the query.
+   */
+  double[] getWindow() {
+    return window;
+  }
+
+  double getDistance() {
+    return distance;
+  }
+
+  Geometry getGeometry() {
+    return geometry;
+  }
+
+  boolean usesDocumentKeys() {
+    return documentKeys;
+  }
+
+  public Set<String> getResults() {
+    return results;
+  }
+}
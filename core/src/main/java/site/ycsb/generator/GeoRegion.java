@@ -0,0 +1,230 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb.generator;
+
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.Arrays;
+
+/**
+ * The study region that query and insert locations are drawn from, and the coordinate reference system they are
+ * written in.
+ * <p>
+ * In WGS 84 a region whose west bound is greater than its east bound crosses the antimeridian. It is kept
+ * unwrapped internally, with an east bound above 180, so that distributions, query windows and space-filling
+ * curves work on a continuous range; {@link #wrap(Geometry)} brings the coordinates back into
+ * <code>[-180, 180]</code> before they are sent to a database. Latitudes are clamped to the poles, and uniform
+ * locations are drawn uniformly by area, so a polar region is not crowded at the pole.
+ * <p>
+ * A planar region is a plain cartesian rectangle, as for projected coordinates and planar <code>2d</code> indexes.
+ * Nothing is wrapped or clamped.
+ */
+public final class GeoRegion {
+
+  /**
+   * The supported coordinate reference systems.
+   */
+  public enum Crs {
+    WGS84,
+    PLANAR;
+
+    public static Crs parse(String name) {
+      if (name.equalsIgnoreCase("wgs84")) {
+        return WGS84;
+      } else if (name.equalsIgnoreCase("planar")) {
+        return PLANAR;
+      }
+      throw new IllegalArgumentException("Unknown " + GeoWorkload.GEO_CRS + " \"" + name + "\"");
+    }
+  }
+
+  private static final int LONGITUDE_BINS = 360;
+
+  private final Crs crs;
+  private final double[] bounds;
+
+  /**
+   * @param crs    The coordinate reference system.
+   * @param west   The minimum x, or in WGS 84 the west bound.
+   * @param south  The minimum y.
+   * @param east   The maximum x, or in WGS 84 the east bound, which is below the west bound across the antimeridian.
+   * @param north  The maximum y.
+   */
+  public GeoRegion(Crs crs, double west, double south, double east, double north) {
+    this.crs = crs;
+    if (crs == Crs.WGS84) {
+      if (south > north || south < -90 || north > 90 || west < -180 || west > 180 || east < -180 || east > 180) {
+        throw new IllegalArgumentException("A WGS 84 region needs longitudes within [-180, 180] and latitudes "
+            + "within [-90, 90] with south below north");
+      }
+      bounds = new double[]{west, south, east < west ? east + 360 : east, north};
+    } else {
+      bounds = new double[]{Math.min(west, east), Math.min(south, north), Math.max(west, east),
+          Math.max(south, north)};
+    }
+  }
+
+  /**
+   * Parse a region written as <code>west,south,east,north</code>.
+   */
+  public static GeoRegion parse(String region, Crs crs) {
+    String[] values = region.split(",");
+    if (values.length != 4) {
+      throw new IllegalArgumentException(GeoWorkload.GEO_REGION + " must be minX,minY,maxX,maxY or auto");
+    }
+    return new GeoRegion(crs, Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()),
+        Double.parseDouble(values[2].trim()), Double.parseDouble(values[3].trim()));
+  }
+
+  public Crs getCrs() {
+    return crs;
+  }
+
+  /**
+   * @return the region as <code>minX, minY, maxX, maxY</code>, with the east bound above 180 across the antimeridian.
+   */
+  public double[] getBounds() {
+    return bounds;
+  }
+
+  public boolean crossesAntimeridian() {
+    return crs == Crs.WGS84 && bounds[2] > 180;
+  }
+
+  /**
+   * @return the longitude in <code>[-180, 180]</code>, or x unchanged in a planar region.
+   */
+  public double wrapX(double x) {
+    if (crs == Crs.PLANAR || (x >= -180 && x <= 180)) {
+      return x;
+    }
+    double wrapped = (x + 180) % 360;
+    return (wrapped < 0 ? wrapped + 360 : wrapped) - 180;
+  }
+
+  /**
+   * @return the longitude in the unwrapped range of the region, the inverse of {@link #wrapX(double)}.
+   */
+  public double unwrapX(double x) {
+    if (crossesAntimeridian() && x < bounds[0]) {
+      return x + 360;
+    }
+    return x;
+  }
+
+  /**
+   * Wrap the longitudes and clamp the latitudes of the geometry in place.
+   */
+  public void wrap(Geometry geometry) {
+    if (crs == Crs.PLANAR) {
+      return;
+    }
+    double[] coordinates = geometry.getCoordinates();
+    for (int i = 0; i < geometry.getPointCount() << 1; i += 2) {
+      coordinates[i] = wrapX(coordinates[i]);
+      coordinates[i + 1] = Math.max(-90, Math.min(90, coordinates[i + 1]));
+    }
+  }
+
+  @Override
+  public String toString() {
+    return crs + Arrays.toString(bounds);
+  }
+
+  /**
+   * Collects the extent of the stored geometries. In WGS 84 the longitudes are binned by degree and the region is
+   * the complement of the widest empty arc, so data around the antimeridian yields a crossing region rather than
+   * one that spans the whole globe.
+   */
+  public static final class Builder {
+    private final Crs crs;
+    private final double[] envelope = new double[4];
+    private final double[] binMin = new double[LONGITUDE_BINS];
+    private final double[] binMax = new double[LONGITUDE_BINS];
+    private double minX = Double.POSITIVE_INFINITY;
+    private double minY = Double.POSITIVE_INFINITY;
+    private double maxX = Double.NEGATIVE_INFINITY;
+    private double maxY = Double.NEGATIVE_INFINITY;
+
+    public Builder(Crs crs) {
+      this.crs = crs;
+      Arrays.fill(binMin, Double.NaN);
+      Arrays.fill(binMax, Double.NaN);
+    }
+
+    public Builder add(Geometry geometry) {
+      if (geometry == null || geometry.getPointCount() == 0) {
+        return this;
+      }
+      geometry.envelope(envelope);
+      minX = Math.min(minX, envelope[0]);
+      minY = Math.min(minY, envelope[1]);
+      maxX = Math.max(maxX, envelope[2]);
+      maxY = Math.max(maxY, envelope[3]);
+      if (crs == Crs.WGS84) {
+        for (int i = 0; i < geometry.getPointCount(); i++) {
+          double x = Math.max(-180, Math.min(180, geometry.getX(i)));
+          int bin = Math.min(LONGITUDE_BINS - 1, (int) (x + 180));
+          if (Double.isNaN(binMin[bin]) || x < binMin[bin]) {
+            binMin[bin] = x;
+          }
+          if (Double.isNaN(binMax[bin]) || x > binMax[bin]) {
+            binMax[bin] = x;
+          }
+        }
+      }
+      return this;
+    }
+
+    /**
+     * @return the region, or null if no geometry was added.
+     */
+    public GeoRegion build() {
+      if (minX > maxX) {
+        return null;
+      }
+      if (crs == Crs.PLANAR) {
+        return new GeoRegion(crs, minX, minY, maxX, maxY);
+      }
+      int gapStart = -1;
+      int gapLength = 0;
+      for (int start = 0; start < LONGITUDE_BINS; start++) {
+        if (!Double.isNaN(binMin[start]) || Double.isNaN(binMin[(start + LONGITUDE_BINS - 1) % LONGITUDE_BINS])) {
+          continue;
+        }
+        int length = 0;
+        while (length < LONGITUDE_BINS && Double.isNaN(binMin[(start + length) % LONGITUDE_BINS])) {
+          length++;
+        }
+        if (length > gapLength) {
+          gapStart = start;
+          gapLength = length;
+        }
+      }
+      if (gapStart <= 0 || gapStart + gapLength >= LONGITUDE_BINS) {
+        // no gap, or the widest one touches the antimeridian: the plain extent does not cross it
+        return new GeoRegion(crs, Math.max(-180, minX), minY, Math.min(180, maxX), maxY);
+      }
+      double east = binMax[(gapStart + LONGITUDE_BINS - 1) % LONGITUDE_BINS];
+      double west = binMin[(gapStart + gapLength) % LONGITUDE_BINS];
+      return new GeoRegion(crs, west, minY, east, maxY);
+    }
+  }
+}
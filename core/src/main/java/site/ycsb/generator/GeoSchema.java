@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb.generator;
+
+import site.ycsb.workloads.GeoWorkload;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The shape of the documents of a geo dataset: where their geometry and their identifier live, and which fields
+ * are read back by queries and kept as tokens.
+ * <p>
+ * A schema is described by a properties file named with <code>geo_schema</code>:
+ * <pre>
+ * geometry=geometry
+ * id=properties.OBJECTID
+ * fields=_id:any,type,properties.OBJECTID:int,geometry.type,geometry.coordinates:position
+ * </pre>
+ * Paths name nested object fields separated by dots, and <code>fields</code> has the format of
+ * <code>geo_token_fields</code>. Without a descriptor the Graffiti dataset schema is used. Each descriptor is read
+ * once per process and compiled into the paths the bindings project, so the bindings only pay for the fields they
+ * return.
+ */
+public final class GeoSchema {
+
+  /**
+   * The descriptor entry with the path of the geometry.
+   */
+  public static final String GEOMETRY = "geometry";
+  /**
+   * The descriptor entry with the path of the identifier that addresses and verifies documents.
+   */
+  public static final String ID = "id";
+  /**
+   * The descriptor entry with the fields that queries return, as <code>path[:type]</code> entries.
+   */
+  public static final String FIELDS = "fields";
+
+  private static final GeoSchema GRAFFITI =
+      new GeoSchema("geometry", "properties.OBJECTID", GeoWorkload.GEO_TOKEN_FIELDS_DEFAULT);
+  private static final Map<String, GeoSchema> LOADED = new HashMap<>();
+
+  private final String geometryPath;
+  private final String idPath;
+  private final String fields;
+  private final List<String> geometrySegments;
+  private final List<String> idSegments;
+  private final String[] geometryMembers;
+  private final List<String> projection;
+
+  /**
+   * Return the schema named by <code>geo_schema</code>, reading its descriptor on first use.
+   */
+  public static synchronized GeoSchema load(Properties p) {
+    String path = p.getProperty(GeoWorkload.GEO_SCHEMA, GeoWorkload.GEO_SCHEMA_DEFAULT).trim();
+    if (path.isEmpty()) {
+      return GRAFFITI;
+    }
+    GeoSchema schema = LOADED.get(path);
+    if (schema == null) {
+      Properties descriptor = new Properties();
+      try (InputStream in = new FileInputStream(path)) {
+        descriptor.load(in);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not read the geo schema " + path, e);
+      }
+      schema = new GeoSchema(descriptor.getProperty(GEOMETRY, GRAFFITI.geometryPath).trim(),
+          descriptor.getProperty(ID, GRAFFITI.idPath).trim(),
+          descriptor.getProperty(FIELDS, GRAFFITI.fields));
+      LOADED.put(path, schema);
+    }
+    return schema;
+  }
+
+  public GeoSchema(String geometryPath, String idPath, String fields) {
+    this.geometryPath = geometryPath;
+    this.idPath = idPath;
+    geometrySegments = Collections.unmodifiableList(Arrays.asList(geometryPath.split("\\.")));
+    idSegments = Collections.unmodifiableList(Arrays.asList(idPath.split("\\.")));
+    geometryMembers = new String[geometrySegments.size()];
+    for (int i = 0; i < geometryMembers.length; i++) {
+      geometryMembers[i] = '"' + geometrySegments.get(i) + '"';
+    }
+
+    List<String> paths = new ArrayList<>();
+    for (String entry : fields.split(",")) {
+      int colon = entry.lastIndexOf(':');
+      String path = (colon < 0 ? entry : entry.substring(0, colon)).trim();
+      if (!path.isEmpty()) {
+        paths.add(path);
+      }
+    }
+    // the identifier is always kept as a token, so stored documents can be verified by it
+    this.fields = paths.contains(idPath) ? fields : fields + "," + idPath;
+    paths.add(idPath);
+    paths.add(geometryPath);
+    projection = Collections.unmodifiableList(compile(paths));
+  }
+
+  public String getGeometryPath() {
+    return geometryPath;
+  }
+
+  public List<String> getGeometrySegments() {
+    return geometrySegments;
+  }
+
+  /**
+   * @return the quoted member names of the geometry path, as expected by
+   * {@link site.ycsb.generator.geo.GeoJson#readFeatureGeometry(String, String[], site.ycsb.generator.geo.Geometries)}.
+   */
+  public String[] getGeometryMembers() {
+    return geometryMembers;
+  }
+
+  public String getIdPath() {
+    return idPath;
+  }
+
+  public List<String> getIdSegments() {
+    return idSegments;
+  }
+
+  /**
+   * @return the key of the identifier among the document tokens.
+   */
+  public String getIdToken() {
+    return idPath.replace(".", GeoGenerator.GEO_SYSTEMFIELD_DELIMITER);
+  }
+
+  /**
+   * @return the token fields in the format of <code>geo_token_fields</code>, including the identifier.
+   */
+  public String getFields() {
+    return fields;
+  }
+
+  /**
+   * @return the dotted paths a query projects: the fields, the identifier and the geometry, without paths that are
+   * already covered by one of their parents.
+   */
+  public List<String> getProjection() {
+    return projection;
+  }
+
+  private static List<String> compile(List<String> paths) {
+    List<String> compiled = new ArrayList<>();
+    for (String path : paths) {
+      if (compiled.contains(path) || covered(path, paths)) {
+        continue;
+      }
+      compiled.add(path);
+    }
+    return compiled;
+  }
+
+  private static boolean covered(String path, List<String> paths) {
+    for (String parent : paths) {
+      if (path.length() > parent.length() && path.startsWith(parent) && path.charAt(parent.length()) == '.') {
+        return true;
+      }
+    }
+    return false;
+  }
+}
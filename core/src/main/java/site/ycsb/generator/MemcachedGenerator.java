@@ -1,9 +1,19 @@
 package site.ycsb.generator;
 
 import site.ycsb.workloads.CoreWorkload;
+import site.ycsb.workloads.GeoWorkload;
 import net.spy.memcached.FailureMode;
+import net.spy.memcached.internal.BulkGetCompletionListener;
+import net.spy.memcached.internal.BulkGetFuture;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 
 
@@ -16,16 +26,38 @@ import java.util.Properties;
  *
  * It also provides the ability to query rich JSON documents by splitting JSON documents into query predicates
  * (field, value, type, field-value relation, logical operation)
+ *
+ * With geo_nearcache_size set, values read from memcached are kept in a process-wide {@link NearCache}. The seeded
+ * documents never change after the load phase, so most reads are then served without a network round-trip, while
+ * the counters shared between client hosts are always read from memcached.
  */
 public class MemcachedGenerator extends GeoGenerator {
 
   private net.spy.memcached.MemcachedClient client;
+  private final NearCache cache;
+  private final Set<String> counterKeys = new HashSet<>();
+  private final BulkGetCompletionListener fillCache = new BulkGetCompletionListener() {
+    @Override
+    public void onComplete(BulkGetFuture<?> future) throws Exception {
+      for (Map.Entry<String, ?> value : future.get().entrySet()) {
+        if (value.getValue() != null) {
+          cache.put(value.getKey(), value.getValue().toString());
+        }
+      }
+    }
+  };
 
   public MemcachedGenerator(Properties p, String memHost, String memPort, String totalDocs) throws Exception {
     super(p);
+    long cacheSize = Long.parseLong(
+        p.getProperty(GeoWorkload.GEO_NEARCACHE_SIZE, GeoWorkload.GEO_NEARCACHE_SIZE_DEFAULT));
+    cache = cacheSize > 0 ? NearCache.getInstance(cacheSize) : null;
     try {
       client = createMemcachedClient(memHost, Integer.parseInt(memPort));
       String prefix = GEO_DOCUMENT_PREFIX_COLLECTION + GEO_SYSTEMFIELD_DELIMITER;
+      counterKeys.add(prefix + GEO_SYSTEMFIELD_TOTALDOCS_COUNT);
+      counterKeys.add(prefix + GEO_SYSTEMFIELD_INSERTDOC_COUNTER);
+      counterKeys.add(prefix + GEO_SYSTEMFIELD_STORAGEDOCS_COUNT_DOCS);
 
       if (client.get(prefix + GEO_SYSTEMFIELD_TOTALDOCS_COUNT) == null){
         client.add(prefix + GEO_SYSTEMFIELD_TOTALDOCS_COUNT, 0, totalDocs);
@@ -68,15 +100,72 @@ public class MemcachedGenerator extends GeoGenerator {
     }
   }
 
+  /**
+   * Send all adds before waiting for any of them, so a batch costs about one round-trip.
+   */
+  @Override
+  protected void setVals(Map<String, String> values) {
+    List<Future<Boolean>> writes = new ArrayList<>(values.size());
+    for (Map.Entry<String, String> value : values.entrySet()) {
+      writes.add(client.add(value.getKey(), 0, value.getValue()));
+    }
+    for (Future<Boolean> write : writes) {
+      try {
+        write.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        System.err.println("error inserting value to memcached" + e.getMessage());
+      }
+    }
+  }
+
   @Override
   protected String getVal(String key) {
+    boolean cached = cache != null && !counterKeys.contains(key);
+    if (cached) {
+      String value = cache.get(key);
+      if (value != null) {
+        return value;
+      }
+    }
     try {
-      return client.get(key).toString();
+      String value = client.get(key).toString();
+      if (cached) {
+        cache.put(key, value);
+      }
+      return value;
     } catch (Exception e) {
       return null;
     }
   }
 
+  /**
+   * Fetch the keys that are not cached yet with a single multi-get. The values are put into the near-cache by the
+   * memcached I/O thread when the response arrives, the client thread does not wait for it.
+   */
+  @Override
+  protected void prefetch(List<String> keys) {
+    if (cache == null) {
+      return;
+    }
+    List<String> missing = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      if (!counterKeys.contains(key) && !cache.contains(key)) {
+        missing.add(key);
+      }
+    }
+    if (missing.isEmpty()) {
+      return;
+    }
+    try {
+      client.asyncGetBulk(missing).addListener(fillCache);
+    } catch (Exception e) {
+      System.err.println("Error prefetching values from memcached" + e.getMessage());
+    }
+  }
+
   @Override
   protected int increment(String key, int step) {
     try {
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, process-wide cache of the values a {@link MemcachedGenerator} reads from memcached.
+ * <p>
+ * The seeded documents and their tokens are written once with "add" and never change afterwards, so they can be
+ * kept close to the client threads without any invalidation. The cache is split into segments that each hold an
+ * access-ordered map and an equal share of the byte budget; a segment evicts its least recently used values once
+ * it is over its share. The size of a value is estimated from the characters of its key and value.
+ */
+public final class NearCache {
+
+  private static final int SEGMENTS = 16;
+  private static final int ENTRY_OVERHEAD = 64;
+
+  private static NearCache singleton = null;
+
+  private final Segment[] segments = new Segment[SEGMENTS];
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Return the cache shared by all threads of this process, creating it on first use.
+   *
+   * @param maxBytes The estimated number of bytes the cache may hold.
+   */
+  public static synchronized NearCache getInstance(long maxBytes) {
+    if (singleton == null) {
+      singleton = new NearCache(maxBytes);
+    }
+    return singleton;
+  }
+
+  /**
+   * @return the cache shared by this process, or null if none was created.
+   */
+  public static synchronized NearCache getExistingInstance() {
+    return singleton;
+  }
+
+  /**
+   * Release the cache shared by this process.
+   */
+  public static synchronized void closeInstance() {
+    singleton = null;
+  }
+
+  NearCache(long maxBytes) {
+    if (maxBytes <= 0) {
+      throw new IllegalArgumentException("The near-cache needs a positive size");
+    }
+    for (int i = 0; i < SEGMENTS; i++) {
+      segments[i] = new Segment(Math.max(1, maxBytes / SEGMENTS));
+    }
+  }
+
+  /**
+   * Return the cached value, or null if the key is not cached. Every call counts as a hit or a miss.
+   */
+  public String get(String key) {
+    String value = segment(key).get(key);
+    if (value == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return value;
+  }
+
+  /**
+   * @return true if the key is cached, without counting a hit or a miss or touching its recency.
+   */
+  public boolean contains(String key) {
+    return segment(key).contains(key);
+  }
+
+  /**
+   * Cache the value. Null values are ignored, so a key that is missing in memcached is looked up again.
+   */
+  public void put(String key, String value) {
+    if (value != null) {
+      segment(key).put(key, value);
+    }
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  /**
+   * @return the estimated number of bytes held by the cache.
+   */
+  public long getSize() {
+    long size = 0;
+    for (Segment segment : segments) {
+      size += segment.getSize();
+    }
+    return size;
+  }
+
+  private Segment segment(String key) {
+    int hash = key.hashCode();
+    return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+  }
+
+  private static long weight(String key, String value) {
+    return ENTRY_OVERHEAD + 2L * (key.length() + value.length());
+  }
+
+  /**
+   * One lock-protected share of the cache.
+   */
+  private final class Segment {
+    private final long maxBytes;
+    private final LinkedHashMap<String, String> values = new LinkedHashMap<>(64, 0.75f, true);
+    private long size = 0;
+
+    private Segment(long maxBytes) {
+      this.maxBytes = maxBytes;
+    }
+
+    private synchronized String get(String key) {
+      return values.get(key);
+    }
+
+    private synchronized boolean contains(String key) {
+      return values.containsKey(key);
+    }
+
+    private synchronized long getSize() {
+      return size;
+    }
+
+    private synchronized void put(String key, String value) {
+      String previous = values.put(key, value);
+      if (previous != null) {
+        size -= weight(key, previous);
+      }
+      size += weight(key, value);
+      Iterator<Map.Entry<String, String>> eldest = values.entrySet().iterator();
+      while (size > maxBytes && eldest.hasNext()) {
+        Map.Entry<String, String> entry = eldest.next();
+        size -= weight(entry.getKey(), entry.getValue());
+        eldest.remove();
+        evictions.incrementAndGet();
+      }
+    }
+  }
+}
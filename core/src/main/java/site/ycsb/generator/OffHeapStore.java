@@ -0,0 +1,252 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A process-wide key/value store for the {@link EmbeddedGenerator}, shared by all client threads.
+ * <p>
+ * Values are appended to large slabs that live outside of the Java heap: either direct buffers, or regions of a
+ * memory-mapped file when a file path is configured. A file-backed store survives the JVM, so the documents seeded
+ * during the load phase are available again to the transaction phase on the same host.
+ * <p>
+ * Values follow the memcached "add" semantics the generator was written against: a key is written once and never
+ * overwritten. Counters are kept in {@link AtomicLong}s and are lock-free; they are persisted as regular values when
+ * the store is closed.
+ * <p>
+ * Each record is laid out as <code>[int keyLength][key][int valueLength][value]</code>. A key length of
+ * <code>-1</code> marks the unused tail of a slab, a key length of <code>0</code> marks the end of the log.
+ */
+public final class OffHeapStore {
+
+  private static final int SLAB_END = -1;
+  private static final int INT_BYTES = 4;
+
+  private static OffHeapStore singleton = null;
+
+  private final int slabSize;
+  private final RandomAccessFile file;
+  private final List<ByteBuffer> slabs = new ArrayList<>();
+  private volatile ByteBuffer[] slabView = new ByteBuffer[0];
+  private final ConcurrentHashMap<String, Long> index = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+  private int writeSlab = -1;
+  private int writeOffset = 0;
+
+  /**
+   * Return the store shared by all threads of this process, creating it on first use.
+   *
+   * @param path     The file to memory-map, or null to keep the data in direct memory.
+   * @param slabSize The size of a single slab in bytes.
+   */
+  public static synchronized OffHeapStore getInstance(String path, int slabSize) throws IOException {
+    if (singleton == null) {
+      singleton = new OffHeapStore(path, slabSize);
+    }
+    return singleton;
+  }
+
+  /**
+   * Persist the counters and release the store shared by this process.
+   */
+  public static synchronized void closeInstance() throws IOException {
+    if (singleton != null) {
+      singleton.close();
+      singleton = null;
+    }
+  }
+
+  OffHeapStore(String path, int slabSize) throws IOException {
+    this.slabSize = slabSize;
+    if (path == null || path.isEmpty()) {
+      file = null;
+    } else {
+      file = new RandomAccessFile(path, "rw");
+      replay();
+    }
+  }
+
+  /**
+   * Store the value unless the key is already present.
+   *
+   * @return true if the value was stored.
+   */
+  public boolean add(String key, String value) {
+    if (index.containsKey(key) || counters.containsKey(key)) {
+      return false;
+    }
+    synchronized (this) {
+      if (index.containsKey(key)) {
+        return false;
+      }
+      index.put(key, append(key, value));
+      return true;
+    }
+  }
+
+  /**
+   * Return the value for the key, or null if it is not present.
+   */
+  public String get(String key) {
+    AtomicLong counter = counters.get(key);
+    if (counter != null) {
+      return String.valueOf(counter.get());
+    }
+    Long address = index.get(key);
+    if (address == null) {
+      return null;
+    }
+    return read(address);
+  }
+
+  /**
+   * Increment the numeric value of the key and return the new value, or -1 if the key is not present. The first
+   * increment promotes a stored value to a counter, every following one is a single atomic add.
+   */
+  public long incr(String key, long step) {
+    AtomicLong counter = counters.get(key);
+    if (counter == null) {
+      synchronized (this) {
+        counter = counters.get(key);
+        if (counter == null) {
+          String value = get(key);
+          if (value == null) {
+            return -1;
+          }
+          counter = new AtomicLong(Long.parseLong(value.trim()));
+          counters.put(key, counter);
+        }
+      }
+    }
+    return counter.addAndGet(step);
+  }
+
+  /**
+   * Write the counters to the log and flush a file-backed store to disk.
+   */
+  public synchronized void close() throws IOException {
+    if (file == null) {
+      return;
+    }
+    for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+      append(entry.getKey(), String.valueOf(entry.getValue().get()));
+    }
+    for (ByteBuffer slab : slabs) {
+      ((MappedByteBuffer) slab).force();
+    }
+    file.close();
+  }
+
+  private long append(String key, String value) {
+    byte[] k = key.getBytes(StandardCharsets.UTF_8);
+    byte[] v = value.getBytes(StandardCharsets.UTF_8);
+    int length = INT_BYTES + k.length + INT_BYTES + v.length;
+    if (length + INT_BYTES > slabSize) {
+      throw new IllegalArgumentException("Value of " + key + " does not fit into a slab of " + slabSize + " bytes");
+    }
+    if (writeSlab < 0 || writeOffset + length + INT_BYTES > slabSize) {
+      if (writeSlab >= 0) {
+        slabs.get(writeSlab).putInt(writeOffset, SLAB_END);
+      }
+      newSlab();
+    }
+    ByteBuffer slab = slabs.get(writeSlab);
+    int offset = writeOffset;
+    slab.putInt(offset, k.length);
+    ByteBuffer dup = slab.duplicate();
+    dup.position(offset + INT_BYTES);
+    dup.put(k);
+    dup.putInt(v.length);
+    int valueOffset = dup.position();
+    dup.put(v);
+    writeOffset = offset + length;
+    return ((long) writeSlab << 32) | valueOffset;
+  }
+
+  private String read(long address) {
+    ByteBuffer slab = slabView[(int) (address >>> 32)];
+    int valueOffset = (int) address;
+    int length = slab.getInt(valueOffset - INT_BYTES);
+    byte[] value = new byte[length];
+    ByteBuffer dup = slab.duplicate();
+    dup.position(valueOffset);
+    dup.get(value);
+    return new String(value, StandardCharsets.UTF_8);
+  }
+
+  private void newSlab() {
+    ByteBuffer slab;
+    int next = slabs.size();
+    if (file == null) {
+      slab = ByteBuffer.allocateDirect(slabSize);
+    } else {
+      try {
+        slab = file.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) next * slabSize, slabSize);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not map slab " + next + " of the geo storage file", e);
+      }
+    }
+    slabs.add(slab);
+    slabView = slabs.toArray(new ByteBuffer[0]);
+    writeSlab = next;
+    writeOffset = 0;
+  }
+
+  /**
+   * Rebuild the index of a file-backed store. Later records of a key win, which is how persisted counters
+   * override the initial values they were created from.
+   */
+  private void replay() throws IOException {
+    long slabCount = (file.length() + slabSize - 1) / slabSize;
+    for (int s = 0; s < slabCount; s++) {
+      newSlab();
+      ByteBuffer slab = slabs.get(s);
+      int offset = 0;
+      while (offset + INT_BYTES <= slabSize) {
+        int keyLength = slab.getInt(offset);
+        if (keyLength == 0) {
+          writeOffset = offset;
+          return;
+        }
+        if (keyLength == SLAB_END) {
+          break;
+        }
+        byte[] k = new byte[keyLength];
+        ByteBuffer dup = slab.duplicate();
+        dup.position(offset + INT_BYTES);
+        dup.get(k);
+        int valueLength = dup.getInt();
+        int valueOffset = dup.position();
+        index.put(new String(k, StandardCharsets.UTF_8), ((long) s << 32) | valueOffset);
+        offset = valueOffset + valueLength;
+      }
+      writeOffset = slabSize;
+    }
+  }
+}
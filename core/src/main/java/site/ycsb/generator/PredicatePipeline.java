@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background threads that draw the next operations of the client threads and build their geo predicates ahead of
+ * time, so that neither memcached lookups nor geometry construction run on a client thread.
+ * <p>
+ * Every producer thread owns a generator and an operation chooser and serves a fixed subset of the client threads'
+ * {@link PredicateQueue}s, so each queue keeps a single producer.
+ */
+public final class PredicatePipeline {
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+  private final List<Producer> producers = new ArrayList<>();
+  private int nextProducer = 0;
+
+  /**
+   * @param generators One generator per producer thread.
+   * @param choosers   One operation chooser per producer thread.
+   */
+  public PredicatePipeline(List<GeoGenerator> generators, List<DiscreteGenerator> choosers) {
+    for (int i = 0; i < generators.size(); i++) {
+      Producer producer = new Producer(generators.get(i), choosers.get(i));
+      producer.setName("GeoPredicateProducer-" + i);
+      producer.setDaemon(true);
+      producers.add(producer);
+      producer.start();
+    }
+  }
+
+  /**
+   * Attach a client thread's queue to one of the producers.
+   */
+  public synchronized void register(PredicateQueue queue) {
+    producers.get(nextProducer++ % producers.size()).queues.add(queue);
+  }
+
+  /**
+   * Stop and join all producers.
+   *
+   * @return the generators of the producers, to report on.
+   */
+  public List<GeoGenerator> close() throws InterruptedException {
+    List<GeoGenerator> generators = new ArrayList<>();
+    for (Producer producer : producers) {
+      producer.running = false;
+      LockSupport.unpark(producer);
+    }
+    for (Producer producer : producers) {
+      producer.join();
+      generators.add(producer.generator);
+    }
+    return generators;
+  }
+
+  /**
+   * A producer thread, filling its queues round-robin and parking briefly when all of them are full.
+   */
+  private static final class Producer extends Thread {
+    private final GeoGenerator generator;
+    private final DiscreteGenerator chooser;
+    private final List<PredicateQueue> queues = new CopyOnWriteArrayList<>();
+    private volatile boolean running = true;
+
+    Producer(GeoGenerator generator, DiscreteGenerator chooser) {
+      this.generator = generator;
+      this.chooser = chooser;
+    }
+
+    @Override
+    public void run() {
+      while (running) {
+        boolean filled = false;
+        for (PredicateQueue queue : queues) {
+          GeoGenerator.DataFilter predicate = queue.claim();
+          if (predicate != null) {
+            String operation = chooser.nextString();
+            boolean prepared = build(operation);
+            if (prepared) {
+              predicate.copyFrom(generator.getGeoPredicate());
+            }
+            queue.publish(operation, prepared);
+            filled = true;
+          }
+        }
+        if (!filled) {
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+      }
+    }
+
+    private boolean build(String operation) {
+      if (operation == null) {
+        return false;
+      }
+      try {
+        switch (operation) {
+        case "GEO_INSERT":
+          generator.buildGeoInsertDocument();
+          return true;
+        case "GEO_UPDATE":
+          generator.buildGeoUpdatePredicate();
+          return true;
+        case "GEO_NEAR":
+        case "GEO_BOX":
+        case "GEO_INTERSECT":
+          generator.buildGeoReadPredicate();
+          return true;
+        case "GEO_KNN":
+          generator.buildGeoKnnPredicate();
+          return true;
+        case "GEO_COUNT":
+        case "GEO_GRID":
+          generator.buildGeoAggregatePredicate();
+          return true;
+        default:
+          return false;
+        }
+      } catch (RuntimeException e) {
+        System.err.println("Could not pre-build a predicate for " + operation + ": " + e);
+        return false;
+      }
+    }
+  }
+}
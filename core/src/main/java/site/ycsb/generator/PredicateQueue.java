@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded single-producer, single-consumer ring of pre-built geo predicates for one client thread.
+ * <p>
+ * The slots are allocated once and refilled in place. A slot handed out by {@link #poll()} stays owned by the
+ * consumer until its next call to {@link #poll()}, so the operation can use the predicate while the producer keeps
+ * filling the other slots. Both sides only publish their position with an ordered write; there are no locks.
+ */
+public final class PredicateQueue {
+
+  /**
+   * A pre-drawn operation together with the predicate built for it.
+   */
+  public static final class Slot {
+    private String operation;
+    private boolean prepared;
+    private final GeoGenerator.DataFilter predicate = new GeoGenerator.DataFilter();
+
+    public String getOperation() {
+      return operation;
+    }
+
+    /**
+     * @return the pre-built predicate, or null if the operation needs none or building it failed.
+     */
+    public GeoGenerator.DataFilter getPredicate() {
+      return prepared ? predicate : null;
+    }
+  }
+
+  private final Slot[] slots;
+  private final int mask;
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+  private boolean holding = false;
+  private long hits = 0;
+  private long starved = 0;
+
+  /**
+   * @param capacity The number of slots, rounded up to a power of two.
+   */
+  public PredicateQueue(int capacity) {
+    int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+    slots = new Slot[size];
+    for (int i = 0; i < size; i++) {
+      slots[i] = new Slot();
+    }
+    mask = size - 1;
+  }
+
+  /**
+   * Producer side: the predicate to fill next, or null if the queue is full. Call
+   * {@link #publish(String, boolean)} once it is filled.
+   */
+  GeoGenerator.DataFilter claim() {
+    long t = tail.get();
+    if (t - head.get() >= slots.length) {
+      return null;
+    }
+    return slots[(int) t & mask].predicate;
+  }
+
+  /**
+   * Producer side: hand the slot returned by {@link #claim()} to the consumer.
+   */
+  void publish(String operation, boolean prepared) {
+    long t = tail.get();
+    Slot slot = slots[(int) t & mask];
+    slot.operation = operation;
+    slot.prepared = prepared;
+    tail.lazySet(t + 1);
+  }
+
+  /**
+   * Consumer side: release the slot of the previous call and return the next ready one, or null if the producer
+   * has not caught up.
+   */
+  public Slot poll() {
+    long h = head.get();
+    if (holding) {
+      h++;
+      head.lazySet(h);
+      holding = false;
+    }
+    if (h == tail.get()) {
+      starved++;
+      return null;
+    }
+    holding = true;
+    hits++;
+    return slots[(int) h & mask];
+  }
+
+  /**
+   * @return the number of operations that found a ready predicate.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of operations that found the queue empty and had to build their predicate inline.
+   */
+  public long getStarved() {
+    return starved;
+  }
+}
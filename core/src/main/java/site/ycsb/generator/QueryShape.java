@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb.generator;
+
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.MultiLineString;
+import site.ycsb.generator.geo.MultiPolygon;
+import site.ycsb.generator.geo.Polygon;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Builds query polygons of a configurable complexity inside a query box, so that the cost of the exact-geometry
+ * refinement of a database can be measured against the number of vertices of the query.
+ * <p>
+ * The shell of every polygon keeps the four corners of its box and spreads the remaining vertices over the sides,
+ * in proportion to their length. With a concavity set, every vertex on a side is pulled towards the center by a
+ * random share of up to the concavity. The shell stays star-shaped around the center and always contains the box
+ * scaled by <code>1 - concavity</code>, which is where the holes are placed. With more than one part, the box is
+ * split into columns with a gap between them and every column holds one polygon of a MultiPolygon.
+ * <p>
+ * With the defaults (4 vertices, no concavity, holes or parts) the query stays the plain rectangle.
+ * An instance is not thread-safe; every generator creates its own.
+ */
+public final class QueryShape {
+
+  private static final int MAX_VERTICES = 10000;
+  private static final double PART_GAP = 0.2;
+  private static final double HOLE_MARGIN = 0.8;
+
+  private final int minVertices;
+  private final int maxVertices;
+  private final double concavity;
+  private final int holes;
+  private final int parts;
+  private final Polygon polygon = new Polygon();
+  private final MultiPolygon multiPolygon = new MultiPolygon();
+
+  public QueryShape(Properties p) {
+    minVertices = Integer.parseInt(
+        p.getProperty(GeoWorkload.GEO_QUERY_VERTICES_MIN, GeoWorkload.GEO_QUERY_VERTICES_MIN_DEFAULT));
+    maxVertices = Integer.parseInt(
+        p.getProperty(GeoWorkload.GEO_QUERY_VERTICES_MAX, String.valueOf(minVertices)));
+    concavity = Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_QUERY_CONCAVITY, GeoWorkload.GEO_QUERY_CONCAVITY_DEFAULT));
+    holes = Integer.parseInt(p.getProperty(GeoWorkload.GEO_QUERY_HOLES, GeoWorkload.GEO_QUERY_HOLES_DEFAULT));
+    parts = Integer.parseInt(p.getProperty(GeoWorkload.GEO_QUERY_PARTS, GeoWorkload.GEO_QUERY_PARTS_DEFAULT));
+    if (minVertices < 4 || maxVertices < minVertices || maxVertices > MAX_VERTICES) {
+      throw new IllegalArgumentException("The query vertices must be between 4 and " + MAX_VERTICES);
+    }
+    if (concavity < 0 || concavity >= 1) {
+      throw new IllegalArgumentException(GeoWorkload.GEO_QUERY_CONCAVITY + " must be at least 0 and below 1");
+    }
+    if (holes < 0 || parts < 1) {
+      throw new IllegalArgumentException("A query polygon needs at least one part and no negative holes");
+    }
+  }
+
+  /**
+   * @return true if the configured shape is the plain rectangle of the query box.
+   */
+  public boolean isRectangle() {
+    return maxVertices == 4 && concavity == 0 && holes == 0 && parts == 1;
+  }
+
+  /**
+   * Build the query geometry inside the box between the two corners. The returned geometry is reused by the next
+   * call.
+   */
+  public Geometry build(double x1, double y1, double x2, double y2, Random random) {
+    double minX = Math.min(x1, x2);
+    double minY = Math.min(y1, y2);
+    double width = Math.abs(x2 - x1);
+    double height = Math.abs(y2 - y1);
+    int vertices = minVertices + random.nextInt(maxVertices - minVertices + 1);
+    if (parts == 1) {
+      polygon.clear();
+      part(polygon, minX, minY, width, height, vertices, random);
+      return polygon;
+    }
+    multiPolygon.clear();
+    double column = width / parts;
+    for (int i = 0; i < parts; i++) {
+      part(multiPolygon, minX + i * column, minY, column * (1 - PART_GAP), height, vertices, random);
+      multiPolygon.endPolygon();
+    }
+    return multiPolygon;
+  }
+
+  /**
+   * Replace the lines with the rings of the polygon, so that an intersect query line has the same complexity as the
+   * query polygon.
+   */
+  public static MultiLineString outline(Geometry polygon, MultiLineString lines) {
+    lines.clear();
+    for (int ring = 0; ring < polygon.getRingCount(); ring++) {
+      for (int i = polygon.getRingStart(ring); i < polygon.getRingEnd(ring); i++) {
+        lines.add(polygon.getX(i), polygon.getY(i));
+      }
+      lines.endLine();
+    }
+    return lines;
+  }
+
+  private void part(Geometry target, double minX, double minY, double width, double height, int vertices,
+                    Random random) {
+    double centerX = minX + width / 2;
+    double centerY = minY + height / 2;
+    double[] cornerX = {minX, minX + width, minX + width, minX};
+    double[] cornerY = {minY, minY, minY + height, minY + height};
+    double perimeter = 2 * (width + height);
+    int interior = vertices - 4;
+    int assigned = 0;
+    for (int side = 0; side < 4; side++) {
+      double length = side % 2 == 0 ? width : height;
+      int onSide = side == 3 ? interior - assigned
+          : (int) Math.round(perimeter > 0 ? interior * length / perimeter : interior / 4.0);
+      onSide = Math.max(0, Math.min(onSide, interior - assigned));
+      assigned += onSide;
+      double fromX = cornerX[side];
+      double fromY = cornerY[side];
+      double toX = cornerX[(side + 1) % 4];
+      double toY = cornerY[(side + 1) % 4];
+      add(target, fromX, fromY);
+      for (int i = 1; i <= onSide; i++) {
+        double t = (double) i / (onSide + 1);
+        double scale = 1 - concavity * random.nextDouble();
+        add(target, centerX + (fromX + t * (toX - fromX) - centerX) * scale,
+            centerY + (fromY + t * (toY - fromY) - centerY) * scale);
+      }
+    }
+    closeRing(target);
+
+    if (holes == 0) {
+      return;
+    }
+    int columns = (int) Math.ceil(Math.sqrt(holes));
+    int rows = (holes + columns - 1) / columns;
+    double kernelWidth = width * (1 - concavity) * HOLE_MARGIN;
+    double kernelHeight = height * (1 - concavity) * HOLE_MARGIN;
+    double cellWidth = kernelWidth / columns;
+    double cellHeight = kernelHeight / rows;
+    for (int h = 0; h < holes; h++) {
+      double left = centerX - kernelWidth / 2 + (h % columns + 0.25) * cellWidth;
+      double bottom = centerY - kernelHeight / 2 + (h / columns + 0.25) * cellHeight;
+      double right = left + cellWidth / 2;
+      double top = bottom + cellHeight / 2;
+      // holes run clockwise, against the counter-clockwise shell
+      add(target, left, bottom);
+      add(target, left, top);
+      add(target, right, top);
+      add(target, right, bottom);
+      closeRing(target);
+    }
+  }
+
+  private static void add(Geometry target, double x, double y) {
+    if (target instanceof MultiPolygon) {
+      ((MultiPolygon) target).add(x, y);
+    } else {
+      ((Polygon) target).add(x, y);
+    }
+  }
+
+  private static void closeRing(Geometry target) {
+    if (target instanceof MultiPolygon) {
+      ((MultiPolygon) target).closeRing();
+    } else {
+      ((Polygon) target).closeRing();
+    }
+  }
+}
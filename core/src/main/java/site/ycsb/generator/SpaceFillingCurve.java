@@ -0,0 +1,159 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+
+package site.ycsb.generator;
+
+/**
+ * Maps positions of a region to their index on a Hilbert or Z-order curve, so that document keys can be ordered by
+ * spatial locality.
+ * <p>
+ * The region is divided into a grid of 2^bits x 2^bits cells. The index of a cell is written as a fixed-width hex
+ * string, so the lexicographic order of keys is the order along the curve and a range of keys is a contiguous
+ * stretch of the curve. The Hilbert curve keeps neighbouring cells closer together in key order; the Z-order curve
+ * is the cheaper bit interleaving that jumps at the borders of its quadrants.
+ */
+public final class SpaceFillingCurve {
+
+  /**
+   * The supported curves.
+   */
+  public enum Order {
+    HILBERT,
+    ZORDER
+  }
+
+  public static final int MAX_BITS = 31;
+
+  private final Order order;
+  private final int bits;
+  private final int digits;
+  private final double minX;
+  private final double minY;
+  private final double maxX;
+  private final double maxY;
+  private final char[] key;
+
+  /**
+   * @param order  The curve.
+   * @param bits   The precision of each axis in bits, from 1 to {@link #MAX_BITS}.
+   * @param region The region as minX, minY, maxX, maxY. Positions outside of it are clamped to its border.
+   */
+  public SpaceFillingCurve(Order order, int bits, double[] region) {
+    if (bits < 1 || bits > MAX_BITS) {
+      throw new IllegalArgumentException("The curve precision must be between 1 and " + MAX_BITS + " bits");
+    }
+    this.order = order;
+    this.bits = bits;
+    this.digits = (2 * bits + 3) / 4;
+    this.minX = region[0];
+    this.minY = region[1];
+    this.maxX = region[2];
+    this.maxY = region[3];
+    this.key = new char[digits];
+  }
+
+  /**
+   * Create the curve with the name, or return null for "sequential" keys.
+   */
+  public static SpaceFillingCurve create(String name, int bits, double[] region) {
+    if (name.equals("sequential")) {
+      return null;
+    } else if (name.equals("hilbert")) {
+      return new SpaceFillingCurve(Order.HILBERT, bits, region);
+    } else if (name.equals("zorder")) {
+      return new SpaceFillingCurve(Order.ZORDER, bits, region);
+    }
+    throw new IllegalArgumentException("Unknown key order \"" + name + "\"");
+  }
+
+  /**
+   * @return the index of the cell holding the position along the curve.
+   */
+  public long index(double x, double y) {
+    int cellX = cell(x, minX, maxX);
+    int cellY = cell(y, minY, maxY);
+    if (order == Order.HILBERT) {
+      return hilbert(cellX, cellY, bits);
+    }
+    return interleave(cellX, cellY);
+  }
+
+  /**
+   * @return the index of the position as a fixed-width hex string.
+   */
+  public String key(double x, double y) {
+    long index = index(x, y);
+    for (int i = digits - 1; i >= 0; i--) {
+      key[i] = Character.forDigit((int) (index & 0xF), 16);
+      index >>>= 4;
+    }
+    return new String(key);
+  }
+
+  private int cell(double value, double min, double max) {
+    if (max <= min) {
+      return 0;
+    }
+    long cells = 1L << bits;
+    long cell = (long) ((value - min) / (max - min) * cells);
+    return (int) Math.max(0, Math.min(cells - 1, cell));
+  }
+
+  /**
+   * Interleave the bits of the two coordinates, x in the even and y in the odd bits.
+   */
+  static long interleave(int x, int y) {
+    return spread(x) | (spread(y) << 1);
+  }
+
+  private static long spread(int value) {
+    long v = value & 0xFFFFFFFFL;
+    v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+    v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+    v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+    v = (v | (v << 2)) & 0x3333333333333333L;
+    v = (v | (v << 1)) & 0x5555555555555555L;
+    return v;
+  }
+
+  /**
+   * The distance of the cell along a Hilbert curve through a grid of 2^bits x 2^bits cells.
+   */
+  static long hilbert(int x, int y, int bits) {
+    long n = 1L << bits;
+    long cx = x;
+    long cy = y;
+    long d = 0;
+    for (long s = n >> 1; s > 0; s >>= 1) {
+      int rx = (cx & s) > 0 ? 1 : 0;
+      int ry = (cy & s) > 0 ? 1 : 0;
+      d += s * s * ((3 * rx) ^ ry);
+      // rotate the quadrant so the curve continues where the previous one ended
+      if (ry == 0) {
+        if (rx == 1) {
+          cx = n - 1 - cx;
+          cy = n - 1 - cy;
+        }
+        long t = cx;
+        cx = cy;
+        cy = t;
+      }
+    }
+    return d;
+  }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Draws the locations of geo queries and inserts within a region.
+ * <p>
+ * Besides the uniform distribution, two skewed ones model traffic that concentrates on a few dense areas:
+ * <ul>
+ * <li><code>cells</code> splits the region into a grid of 2^level x 2^level cells, like a geohash or quadtree
+ * level, and picks cells with a zipfian distribution. The popularity ranks are scattered over the grid, so the hot
+ * cells are not neighbours.</li>
+ * <li><code>hotspots</code> is a mixture of Gaussians around configured or seeded centers with a uniform background
+ * share. With a speed set, the centers travel through the region and bounce off its borders. Their positions are a
+ * function of the wall clock, so all threads and client hosts see the same hotspots at the same time.</li>
+ * </ul>
+ * An instance is not thread-safe; every generator creates its own.
+ */
+public abstract class SpatialDistribution {
+
+  private final double minX;
+  private final double minY;
+  private final double maxX;
+  private final double maxY;
+  private final boolean equalArea;
+
+  /**
+   * Create the distribution with the name, configured from the geo_spatial_* properties.
+   *
+   * @param name   "uniform", "cells" or "hotspots".
+   * @param region The region as minX, minY, maxX, maxY.
+   */
+  public static SpatialDistribution create(String name, Properties p, double[] region) {
+    SpatialDistribution distribution;
+    if (name.equals("uniform")) {
+      distribution = new Uniform(p, region);
+    } else if (name.equals("cells")) {
+      distribution = new Cells(p, region);
+    } else if (name.equals("hotspots")) {
+      distribution = new Hotspots(p, region);
+    } else {
+      throw new IllegalArgumentException("Unknown spatial distribution \"" + name + "\"");
+    }
+    return distribution;
+  }
+
+  /**
+   * Set up the region and the CRS before a subclass draws any location, such as the seeded hotspot centers.
+   */
+  protected SpatialDistribution(Properties p, double[] region) {
+    minX = region[0];
+    minY = region[1];
+    maxX = region[2];
+    maxY = region[3];
+    equalArea = GeoRegion.Crs.parse(p.getProperty(GeoWorkload.GEO_CRS, GeoWorkload.GEO_CRS_DEFAULT))
+        == GeoRegion.Crs.WGS84;
+  }
+
+  /**
+   * Draw the next location and write it as <code>x, y</code> into the array.
+   */
+  public abstract void next(Random random, double[] out);
+
+  protected double uniformX(Random random) {
+    return minX + random.nextDouble() * (maxX - minX);
+  }
+
+  /**
+   * A uniform latitude is drawn uniformly by area on the sphere, so polar regions are not crowded at the pole.
+   */
+  protected double uniformY(Random random) {
+    if (equalArea) {
+      double low = Math.sin(Math.toRadians(minY));
+      double high = Math.sin(Math.toRadians(maxY));
+      return clampY(Math.toDegrees(Math.asin(low + random.nextDouble() * (high - low))));
+    }
+    return minY + random.nextDouble() * (maxY - minY);
+  }
+
+  protected double clampX(double x) {
+    return Math.max(minX, Math.min(maxX, x));
+  }
+
+  protected double clampY(double y) {
+    return Math.max(minY, Math.min(maxY, y));
+  }
+
+  /**
+   * Every location of the region is equally likely.
+   */
+  static final class Uniform extends SpatialDistribution {
+
+    Uniform(Properties p, double[] region) {
+      super(p, region);
+    }
+
+    @Override
+    public void next(Random random, double[] out) {
+      out[0] = uniformX(random);
+      out[1] = uniformY(random);
+    }
+  }
+
+  /**
+   * Zipfian over the cells of a regular grid, uniform within a cell.
+   */
+  static final class Cells extends SpatialDistribution {
+    private static final long SCATTER = 0x9E3779B97F4A7C15L;
+    /**
+     * Zeta over 4^level items takes seconds at the deeper levels, so all generators of a level and skew share it.
+     */
+    private static final ConcurrentHashMap<String, Double> ZETAN = new ConcurrentHashMap<>();
+
+    private final int level;
+    private final long mask;
+    private final ZipfianGenerator ranks;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final double originX;
+    private final double originY;
+
+    Cells(Properties p, double[] region) {
+      super(p, region);
+      level = Integer.parseInt(
+          p.getProperty(GeoWorkload.GEO_SPATIAL_CELL_LEVEL, GeoWorkload.GEO_SPATIAL_CELL_LEVEL_DEFAULT));
+      if (level < 0 || level > 15) {
+        throw new IllegalArgumentException(GeoWorkload.GEO_SPATIAL_CELL_LEVEL + " must be between 0 and 15");
+      }
+      double skew = Double.parseDouble(p.getProperty(GeoWorkload.GEO_SPATIAL_SKEW,
+          GeoWorkload.GEO_SPATIAL_SKEW_DEFAULT));
+      mask = (1L << (level << 1)) - 1;
+      ranks = new ZipfianGenerator(0, mask, skew, zetan(level, skew));
+      cellWidth = (region[2] - region[0]) / (1 << level);
+      cellHeight = (region[3] - region[1]) / (1 << level);
+      originX = region[0];
+      originY = region[1];
+    }
+
+    @Override
+    public void next(Random random, double[] out) {
+      long cell = cell(ranks.nextValue());
+      out[0] = originX + ((cell >>> level) + random.nextDouble()) * cellWidth;
+      out[1] = originY + ((cell & ((1L << level) - 1)) + random.nextDouble()) * cellHeight;
+    }
+
+    /**
+     * The zeta constant over the 4^level cells, computed once per level and skew.
+     */
+    static double zetan(int level, double skew) {
+      return ZETAN.computeIfAbsent(level + ":" + skew,
+          key -> ZipfianGenerator.zetastatic(1L << (level << 1), skew));
+    }
+
+    /**
+     * Map a popularity rank to a cell. Multiplying with an odd constant is a bijection modulo the cell count.
+     */
+    long cell(long rank) {
+      return (rank * SCATTER) & mask;
+    }
+  }
+
+  /**
+   * A Gaussian mixture around hotspots that may move over time, plus a uniform background.
+   */
+  static final class Hotspots extends SpatialDistribution {
+    private final double[] centers;
+    private final double[] velocities;
+    private final double[] sigmas;
+    private final double[] weights;
+    private final double background;
+    private final double[] region;
+    private final double[] center = new double[2];
+
+    Hotspots(Properties p, double[] region) {
+      super(p, region);
+      this.region = region.clone();
+      long seed = Long.parseLong(p.getProperty(GeoWorkload.GEO_SPATIAL_SEED, GeoWorkload.GEO_SPATIAL_SEED_DEFAULT));
+      double speed = Double.parseDouble(
+          p.getProperty(GeoWorkload.GEO_SPATIAL_HOTSPOT_SPEED, GeoWorkload.GEO_SPATIAL_HOTSPOT_SPEED_DEFAULT));
+      background = Double.parseDouble(
+          p.getProperty(GeoWorkload.GEO_SPATIAL_BACKGROUND, GeoWorkload.GEO_SPATIAL_BACKGROUND_DEFAULT));
+      Random layout = new Random(seed);
+
+      String configured = p.getProperty(GeoWorkload.GEO_SPATIAL_HOTSPOTS, GeoWorkload.GEO_SPATIAL_HOTSPOTS_DEFAULT)
+          .trim();
+      int count;
+      String[] hotspots = null;
+      if (configured.isEmpty()) {
+        count = Integer.parseInt(p.getProperty(GeoWorkload.GEO_SPATIAL_HOTSPOT_COUNT,
+            GeoWorkload.GEO_SPATIAL_HOTSPOT_COUNT_DEFAULT));
+      } else {
+        hotspots = configured.split(";");
+        count = hotspots.length;
+      }
+      if (count < 1) {
+        throw new IllegalArgumentException("The hotspots distribution needs at least one hotspot");
+      }
+      centers = new double[count << 1];
+      velocities = new double[count << 1];
+      sigmas = new double[count];
+      weights = new double[count];
+      double sigma = Double.parseDouble(
+          p.getProperty(GeoWorkload.GEO_SPATIAL_HOTSPOT_SIGMA, GeoWorkload.GEO_SPATIAL_HOTSPOT_SIGMA_DEFAULT));
+      double skew = Double.parseDouble(p.getProperty(GeoWorkload.GEO_SPATIAL_SKEW,
+          GeoWorkload.GEO_SPATIAL_SKEW_DEFAULT));
+      double total = 0;
+      for (int i = 0; i < count; i++) {
+        if (hotspots == null) {
+          centers[i << 1] = uniformX(layout);
+          centers[(i << 1) + 1] = uniformY(layout);
+          sigmas[i] = sigma;
+          total += Math.pow(i + 1, -skew);
+        } else {
+          String[] fields = hotspots[i].split(",");
+          if (fields.length < 2 || fields.length > 4) {
+            throw new IllegalArgumentException(GeoWorkload.GEO_SPATIAL_HOTSPOTS +
+                " must be a list of x,y[,sigma[,weight]] separated by semicolons");
+          }
+          centers[i << 1] = Double.parseDouble(fields[0].trim());
+          centers[(i << 1) + 1] = Double.parseDouble(fields[1].trim());
+          sigmas[i] = fields.length > 2 ? Double.parseDouble(fields[2].trim()) : sigma;
+          total += fields.length > 3 ? Double.parseDouble(fields[3].trim()) : 1;
+        }
+        weights[i] = total;
+        double direction = layout.nextDouble() * 2 * Math.PI;
+        velocities[i << 1] = Math.cos(direction) * speed;
+        velocities[(i << 1) + 1] = Math.sin(direction) * speed;
+      }
+      for (int i = 0; i < count; i++) {
+        weights[i] /= total;
+      }
+    }
+
+    @Override
+    public void next(Random random, double[] out) {
+      if (random.nextDouble() < background) {
+        out[0] = uniformX(random);
+        out[1] = uniformY(random);
+        return;
+      }
+      double u = random.nextDouble();
+      int hotspot = Arrays.binarySearch(weights, u);
+      hotspot = hotspot < 0 ? Math.min(-hotspot - 1, weights.length - 1) : hotspot;
+      center(hotspot, System.currentTimeMillis() / 1000.0, center);
+      out[0] = clampX(center[0] + random.nextGaussian() * sigmas[hotspot]);
+      out[1] = clampY(center[1] + random.nextGaussian() * sigmas[hotspot]);
+    }
+
+    /**
+     * Write the center of the hotspot at the time, in seconds since the epoch, into the array.
+     */
+    void center(int hotspot, double seconds, double[] out) {
+      out[0] = bounce(centers[hotspot << 1] + velocities[hotspot << 1] * seconds, region[0], region[2]);
+      out[1] = bounce(centers[(hotspot << 1) + 1] + velocities[(hotspot << 1) + 1] * seconds, region[1], region[3]);
+    }
+
+    /**
+     * Fold a position that travelled out of the range back into it, as if it was reflected at the borders.
+     */
+    private static double bounce(double position, double min, double max) {
+      double width = max - min;
+      if (width <= 0) {
+        return min;
+      }
+      double offset = (position - min) % (2 * width);
+      if (offset < 0) {
+        offset += 2 * width;
+      }
+      return min + (offset > width ? 2 * width - offset : offset);
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.LineString;
+import site.ycsb.generator.geo.Polygon;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Generates GeoJSON features from their document id instead of reading them from a dataset.
+ * <p>
+ * Every document is derived from <code>geo_synthetic_seed</code> and its id alone, so the load phase and the
+ * transaction phase agree on the data even when they run on different hosts, and nothing has to be stored to
+ * build predicates. Positions are uniform over <code>geo_synthetic_region</code>, or drawn around Gaussian
+ * hotspots whose weights fall off like city sizes. Each document is a point, a line or a polygon, chosen by the
+ * configured proportions, with a padding property of <code>geo_synthetic_payload</code> characters.
+ * <p>
+ * An instance is not thread-safe; every generator creates its own.
+ */
+public final class SyntheticGeoSource implements GeoDocumentSource {
+
+  private static final String[] MONIKER_CLASSES = {"Graffiti", "Sign", "Wall", "Fence", "Pole", "Utility Box"};
+  private static final String[] PROP_TYPES = {"Commercial", "Residential", "Public", "Industrial"};
+  private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+  private final long seed;
+  private final int documentCount;
+  private final double minX;
+  private final double minY;
+  private final double maxX;
+  private final double maxY;
+  private final double[] hotspots;
+  private final double[] hotspotWeights;
+  private final double hotspotSigma;
+  private final double background;
+  private final double pointCutoff;
+  private final double lineCutoff;
+  private final int maxVertices;
+  private final double featureSize;
+  private final int payload;
+  private final Random random = new Random();
+  private final LineString line = new LineString();
+  private final Polygon polygon = new Polygon();
+  private final Geometries geometries = new Geometries();
+  private final double[] angles;
+  private final StringBuilder document = new StringBuilder();
+
+  public SyntheticGeoSource(Properties p) {
+    seed = Long.parseLong(p.getProperty(GeoWorkload.GEO_SYNTHETIC_SEED, GeoWorkload.GEO_SYNTHETIC_SEED_DEFAULT));
+    documentCount = Integer.parseInt(p.getProperty(GeoWorkload.RECORD_COUNT, GeoWorkload.RECORD_COUNT_DEFAULT));
+
+    String[] region = p.getProperty(GeoWorkload.GEO_SYNTHETIC_REGION, GeoWorkload.GEO_SYNTHETIC_REGION_DEFAULT)
+        .split(",");
+    if (region.length != 4) {
+      throw new IllegalArgumentException(GeoWorkload.GEO_SYNTHETIC_REGION + " must be minX,minY,maxX,maxY");
+    }
+    double x1 = Double.parseDouble(region[0].trim());
+    double y1 = Double.parseDouble(region[1].trim());
+    double x2 = Double.parseDouble(region[2].trim());
+    double y2 = Double.parseDouble(region[3].trim());
+    minX = Math.min(x1, x2);
+    minY = Math.min(y1, y2);
+    maxX = Math.max(x1, x2);
+    maxY = Math.max(y1, y2);
+
+    int hotspotCount = Integer.parseInt(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_HOTSPOTS, GeoWorkload.GEO_SYNTHETIC_HOTSPOTS_DEFAULT));
+    hotspotSigma = Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_HOTSPOT_SIGMA, GeoWorkload.GEO_SYNTHETIC_HOTSPOT_SIGMA_DEFAULT));
+    double skew = Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_HOTSPOT_SKEW, GeoWorkload.GEO_SYNTHETIC_HOTSPOT_SKEW_DEFAULT));
+    background = hotspotCount > 0 ? Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_BACKGROUND, GeoWorkload.GEO_SYNTHETIC_BACKGROUND_DEFAULT)) : 1;
+    hotspots = new double[hotspotCount << 1];
+    hotspotWeights = new double[hotspotCount];
+    Random layout = new Random(seed);
+    double total = 0;
+    for (int i = 0; i < hotspotCount; i++) {
+      hotspots[i << 1] = minX + layout.nextDouble() * (maxX - minX);
+      hotspots[(i << 1) + 1] = minY + layout.nextDouble() * (maxY - minY);
+      total += Math.pow(i + 1, -skew);
+      hotspotWeights[i] = total;
+    }
+    for (int i = 0; i < hotspotCount; i++) {
+      hotspotWeights[i] /= total;
+    }
+
+    double points = Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_POINTS, GeoWorkload.GEO_SYNTHETIC_POINTS_DEFAULT));
+    double lines = Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_LINES, GeoWorkload.GEO_SYNTHETIC_LINES_DEFAULT));
+    double polygons = Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_POLYGONS, GeoWorkload.GEO_SYNTHETIC_POLYGONS_DEFAULT));
+    if (points + lines + polygons <= 0) {
+      throw new IllegalArgumentException("At least one synthetic geometry type needs a positive proportion");
+    }
+    pointCutoff = points / (points + lines + polygons);
+    lineCutoff = (points + lines) / (points + lines + polygons);
+
+    maxVertices = Math.max(3, Integer.parseInt(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_VERTICES, GeoWorkload.GEO_SYNTHETIC_VERTICES_DEFAULT)));
+    featureSize = Double.parseDouble(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_FEATURE_SIZE, GeoWorkload.GEO_SYNTHETIC_FEATURE_SIZE_DEFAULT));
+    payload = Integer.parseInt(
+        p.getProperty(GeoWorkload.GEO_SYNTHETIC_PAYLOAD, GeoWorkload.GEO_SYNTHETIC_PAYLOAD_DEFAULT));
+    angles = new double[maxVertices];
+  }
+
+  @Override
+  public int getDocumentCount() {
+    return documentCount;
+  }
+
+  @Override
+  public void region(double[] out) {
+    out[0] = minX;
+    out[1] = minY;
+    out[2] = maxX;
+    out[3] = maxY;
+  }
+
+  @Override
+  public Geometry geometry(long docId, Geometries reuse) {
+    random.setSeed(mix(seed, docId));
+    double x;
+    double y;
+    double u = random.nextDouble();
+    if (u < background) {
+      x = minX + random.nextDouble() * (maxX - minX);
+      y = minY + random.nextDouble() * (maxY - minY);
+    } else {
+      int hotspot = Arrays.binarySearch(hotspotWeights, random.nextDouble());
+      hotspot = hotspot < 0 ? Math.min(-hotspot - 1, hotspotWeights.length - 1) : hotspot;
+      x = clamp(hotspots[hotspot << 1] + random.nextGaussian() * hotspotSigma, minX, maxX);
+      y = clamp(hotspots[(hotspot << 1) + 1] + random.nextGaussian() * hotspotSigma, minY, maxY);
+    }
+
+    double type = random.nextDouble();
+    if (type < pointCutoff) {
+      return reuse.getPoint().set(x, y);
+    }
+    if (type < lineCutoff) {
+      LineString out = (LineString) reuse.get(Geometry.Type.LINE_STRING);
+      int vertices = 2 + random.nextInt(maxVertices - 1);
+      out.add(x, y);
+      for (int i = 1; i < vertices; i++) {
+        x = clamp(x + (random.nextDouble() - 0.5) * featureSize, minX, maxX);
+        y = clamp(y + (random.nextDouble() - 0.5) * featureSize, minY, maxY);
+        out.add(x, y);
+      }
+      return out;
+    }
+    // a star-shaped ring around the position; increasing angles keep it simple and counter-clockwise
+    Polygon out = (Polygon) reuse.get(Geometry.Type.POLYGON);
+    int vertices = 3 + random.nextInt(maxVertices - 2);
+    for (int i = 0; i < vertices; i++) {
+      angles[i] = random.nextDouble() * 2 * Math.PI;
+    }
+    Arrays.sort(angles, 0, vertices);
+    for (int i = 0; i < vertices; i++) {
+      double radius = featureSize * (0.25 + 0.25 * random.nextDouble());
+      out.add(clamp(x + Math.cos(angles[i]) * radius, minX, maxX), clamp(y + Math.sin(angles[i]) * radius, minY,
+          maxY));
+    }
+    return out.closeRing();
+  }
+
+  /**
+   * @return the GeoJSON feature of the document, shaped like the documents of the Graffiti dataset.
+   */
+  @Override
+  public String document(long docId) {
+    Geometry shape = geometry(docId, geometries);
+    document.setLength(0);
+    document.append("{\"type\":\"Feature\",\"properties\":{\"OBJECTID\":").append(docId)
+        .append(",\"INCIDENT_NUMBER\":\"SYN").append(docId)
+        .append("\",\"LOCATION\":\"").append(random.nextInt(10000)).append(" SYNTHETIC ST")
+        .append("\",\"NOTIFICATION\":\"").append(random.nextBoolean() ? "Email" : "Phone")
+        .append("\",\"INCIDENT_DATE\":\"20").append(10 + random.nextInt(10)).append('-')
+        .append(twoDigits(1 + random.nextInt(12))).append('-').append(twoDigits(1 + random.nextInt(28)))
+        .append("T00:00:00.000Z\",\"TAG_COUNT\":").append(random.nextInt(20))
+        .append(",\"MONIKER_CLASS\":\"").append(MONIKER_CLASSES[random.nextInt(MONIKER_CLASSES.length)])
+        .append("\",\"SQ_FT\":").append(random.nextInt(500))
+        .append(",\"PROP_TYPE\":\"").append(PROP_TYPES[random.nextInt(PROP_TYPES.length)])
+        .append("\",\"Waiver\":\"").append(random.nextBoolean() ? "Yes" : "No")
+        .append("\",\"PAYLOAD\":\"");
+    for (int i = 0; i < payload; i++) {
+      document.append((char) ('a' + random.nextInt(26)));
+    }
+    document.append("\"},\"geometry\":");
+    GeoJson.append(document, shape);
+    return document.append('}').toString();
+  }
+
+  @Override
+  public String objectId(long docId) {
+    return String.valueOf(docId);
+  }
+
+  /**
+   * A well-spread seed per document (SplitMix64 finalizer), so neighbouring ids do not get correlated streams.
+   */
+  static long mix(long seed, long docId) {
+    long z = seed + (docId + 1) * GOLDEN_GAMMA;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  private static double clamp(double value, double min, double max) {
+    return Math.max(min, Math.min(max, value));
+  }
+
+  private static String twoDigits(int value) {
+    return value < 10 ? "0" + value : String.valueOf(value);
+  }
+}
@@ -0,0 +1,219 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import site.ycsb.workloads.GeoWorkload;
+import site.ycsb.workloads.TrajectoryWorkload;
+
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * The current positions of the moving entities of a {@link TrajectoryWorkload}.
+ * <p>
+ * Entity <code>e</code> belongs to shard <code>e % shardCount</code>, and every client thread owns one shard, so
+ * the positions are updated without locks. A shard keeps its entities in primitive arrays and orders them by the
+ * time their next update is due in a binary heap of indexes, so moving an entity allocates nothing.
+ * <p>
+ * The start of every entity (position, heading, speed and update interval) is derived from
+ * <code>geo_spatial_seed</code> and its id, so the load phase and the transaction phase agree on it without
+ * reading the database.
+ */
+public final class TrajectoryTable {
+
+  private static final double METERS_PER_DEGREE = 111320;
+
+  private final long entityCount;
+  private final double[] region;
+  private final SpatialDistribution start;
+  private final long seed;
+  private final double speed;
+  private final long interval;
+  private final double turn;
+
+  public TrajectoryTable(Properties p, long entityCount, double[] region) {
+    this.entityCount = entityCount;
+    this.region = region.clone();
+    start = SpatialDistribution.create(p.getProperty(GeoWorkload.GEO_SPATIAL_DISTRIBUTION,
+        GeoWorkload.GEO_SPATIAL_DISTRIBUTION_DEFAULT), p, region);
+    seed = Long.parseLong(p.getProperty(GeoWorkload.GEO_SPATIAL_SEED, GeoWorkload.GEO_SPATIAL_SEED_DEFAULT));
+    speed = Double.parseDouble(
+        p.getProperty(TrajectoryWorkload.TRAJECTORY_SPEED, TrajectoryWorkload.TRAJECTORY_SPEED_DEFAULT));
+    interval = (long) (1e6 * Double.parseDouble(p.getProperty(TrajectoryWorkload.TRAJECTORY_UPDATE_INTERVAL,
+        TrajectoryWorkload.TRAJECTORY_UPDATE_INTERVAL_DEFAULT)));
+    turn = Double.parseDouble(
+        p.getProperty(TrajectoryWorkload.TRAJECTORY_TURN, TrajectoryWorkload.TRAJECTORY_TURN_DEFAULT));
+    if (interval <= 0) {
+      throw new IllegalArgumentException(TrajectoryWorkload.TRAJECTORY_UPDATE_INTERVAL + " must be positive");
+    }
+  }
+
+  public long getEntityCount() {
+    return entityCount;
+  }
+
+  /**
+   * Write the start position of the entity as <code>x, y</code> into the array. The random is reseeded for the
+   * entity and can be used to draw the rest of its start state afterwards.
+   */
+  public void startPosition(long entity, Random random, double[] out) {
+    random.setSeed(SyntheticGeoSource.mix(seed, entity));
+    start.next(random, out);
+  }
+
+  /**
+   * Create the shard with the index, holding every entity whose id is the index modulo the shard count.
+   *
+   * @param now The current {@link System#nanoTime()}; the first updates are spread over one interval from it.
+   */
+  public Shard shard(int index, int shardCount, long now) {
+    return new Shard(index, shardCount, now);
+  }
+
+  /**
+   * The entities of one client thread. Not thread-safe.
+   */
+  public final class Shard {
+    private final int size;
+    private final long firstEntity;
+    private final int stride;
+    private final double[] x;
+    private final double[] y;
+    private final double[] heading;
+    private final double[] speeds;
+    private final long[] intervals;
+    private final long[] due;
+    private final long[] last;
+    private final int[] heap;
+    private final Random steps;
+    private final double[] position = new double[2];
+
+    private Shard(int index, int shardCount, long now) {
+      firstEntity = index;
+      stride = shardCount;
+      size = entityCount <= index ? 0 : (int) ((entityCount - 1 - index) / shardCount + 1);
+      x = new double[size];
+      y = new double[size];
+      heading = new double[size];
+      speeds = new double[size];
+      intervals = new long[size];
+      due = new long[size];
+      last = new long[size];
+      heap = new int[size];
+      steps = new Random(SyntheticGeoSource.mix(seed, -1 - index));
+      Random random = new Random();
+      for (int i = 0; i < size; i++) {
+        startPosition(entity(i), random, position);
+        x[i] = position[0];
+        y[i] = position[1];
+        heading[i] = random.nextDouble() * 2 * Math.PI;
+        speeds[i] = speed * (0.5 + random.nextDouble());
+        intervals[i] = Math.max(1, (long) (interval * (0.5 + random.nextDouble())));
+        due[i] = now + (long) (random.nextDouble() * intervals[i]);
+        last[i] = now;
+        heap[i] = i;
+      }
+      for (int i = size / 2 - 1; i >= 0; i--) {
+        siftDown(i);
+      }
+    }
+
+    public int size() {
+      return size;
+    }
+
+    /**
+     * @return the id of the entity at the index of this shard.
+     */
+    public long entity(int index) {
+      return firstEntity + (long) index * stride;
+    }
+
+    public double getX(int index) {
+      return x[index];
+    }
+
+    public double getY(int index) {
+      return y[index];
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} the next update of this shard is due at.
+     */
+    public long nextDue() {
+      return due[heap[0]];
+    }
+
+    /**
+     * @return the index of an entity of this shard, drawn uniformly.
+     */
+    public int randomEntity(Random rand) {
+      return rand.nextInt(size);
+    }
+
+    /**
+     * Move the entity whose update is due first by the distance it travelled since its last update, turning its
+     * heading a little and bouncing off the borders of the region, and schedule its next update.
+     *
+     * @param now The current {@link System#nanoTime()}.
+     * @return the index of the moved entity.
+     */
+    public int move(long now) {
+      int i = heap[0];
+      double meters = speeds[i] * Math.max(0, now - last[i]) / 1e9;
+      heading[i] += steps.nextGaussian() * turn;
+      double dx = Math.cos(heading[i]) * meters / (METERS_PER_DEGREE * Math.cos(Math.toRadians(y[i])));
+      double dy = Math.sin(heading[i]) * meters / METERS_PER_DEGREE;
+      double nx = x[i] + dx;
+      double ny = y[i] + dy;
+      if (nx < region[0] || nx > region[2]) {
+        heading[i] = Math.PI - heading[i];
+        nx = Math.max(region[0], Math.min(region[2], x[i] - dx));
+      }
+      if (ny < region[1] || ny > region[3]) {
+        heading[i] = -heading[i];
+        ny = Math.max(region[1], Math.min(region[3], y[i] - dy));
+      }
+      x[i] = nx;
+      y[i] = ny;
+      last[i] = now;
+      due[i] += intervals[i];
+      siftDown(0);
+      return i;
+    }
+
+    private void siftDown(int slot) {
+      int entity = heap[slot];
+      while (true) {
+        int child = 2 * slot + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && due[heap[child + 1]] < due[heap[child]]) {
+          child++;
+        }
+        if (due[heap[child]] >= due[entity]) {
+          break;
+        }
+        heap[slot] = heap[child];
+        slot = child;
+      }
+      heap[slot] = entity;
+    }
+  }
+}
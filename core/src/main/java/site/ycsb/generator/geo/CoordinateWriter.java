@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+/**
+ * Receives the GeoJSON "coordinates" of a {@link Geometry} as nested arrays of positions. Implementations write
+ * straight into a target encoding, so no intermediate JSON tree is built.
+ */
+public interface CoordinateWriter {
+
+  void startArray();
+
+  void endArray();
+
+  void position(double x, double y);
+}
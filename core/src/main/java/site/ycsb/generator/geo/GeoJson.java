@@ -0,0 +1,313 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+/**
+ * GeoJSON encoding of {@link Geometry}.
+ * <p>
+ * The writer appends to a caller-owned {@link StringBuilder}. The reader is a small scanner that only understands the
+ * <code>geometry</code> member of a document and fills a reusable geometry from {@link Geometries}; it never builds
+ * a JSON tree and parses plain decimal coordinates without going through {@link Double#parseDouble(String)}.
+ */
+public final class GeoJson {
+
+  private static final String[] GEOMETRY_PATH = {"\"geometry\""};
+  private static final double[] POW10 = new double[23];
+
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; i++) {
+      POW10[i] = POW10[i - 1] * 10;
+    }
+  }
+
+  private GeoJson() {
+    // utility class
+  }
+
+  public static String toString(Geometry geometry) {
+    return append(new StringBuilder(32 + geometry.getPointCount() * 40), geometry).toString();
+  }
+
+  /**
+   * Append the geometry as a GeoJSON object.
+   */
+  public static StringBuilder append(StringBuilder out, Geometry geometry) {
+    out.append("{\"type\":\"").append(geometry.getType().getGeoJsonName()).append("\",\"coordinates\":");
+    appendCoordinates(out, geometry);
+    return out.append('}');
+  }
+
+  /**
+   * Append only the GeoJSON "coordinates" array of the geometry.
+   */
+  public static StringBuilder appendCoordinates(final StringBuilder out, Geometry geometry) {
+    geometry.writeCoordinates(new CoordinateWriter() {
+      private boolean first = true;
+
+      @Override
+      public void startArray() {
+        separate();
+        out.append('[');
+        first = true;
+      }
+
+      @Override
+      public void endArray() {
+        out.append(']');
+        first = false;
+      }
+
+      @Override
+      public void position(double x, double y) {
+        separate();
+        out.append('[').append(x).append(',').append(y).append(']');
+        first = false;
+      }
+
+      private void separate() {
+        if (!first) {
+          out.append(',');
+        }
+      }
+    });
+    return out;
+  }
+
+  /**
+   * Read the <code>geometry</code> member of a GeoJSON feature.
+   *
+   * @return the filled geometry from <code>reuse</code>, or null if the document has no geometry.
+   */
+  public static Geometry readFeatureGeometry(String document, Geometries reuse) {
+    return readFeatureGeometry(document, GEOMETRY_PATH, reuse);
+  }
+
+  /**
+   * Read the geometry at a member path of a document. The path holds the quoted member name of every level; each
+   * member is looked up after the previous one without parsing the document, so it must be the first member of
+   * that name that follows.
+   *
+   * @return the filled geometry from <code>reuse</code>, or null if the document has no geometry at the path.
+   */
+  public static Geometry readFeatureGeometry(String document, String[] path, Geometries reuse) {
+    int at = 0;
+    for (String member : path) {
+      at = document.indexOf(member, at);
+      if (at < 0) {
+        return null;
+      }
+      at += member.length();
+    }
+    Scanner scanner = new Scanner(document, at);
+    scanner.expect(':');
+    if (scanner.peek() == 'n') {
+      return null;
+    }
+    return scanner.readGeometry(reuse);
+  }
+
+  /**
+   * Read a GeoJSON geometry object.
+   */
+  public static Geometry readGeometry(String geometry, Geometries reuse) {
+    return new Scanner(geometry, 0).readGeometry(reuse);
+  }
+
+  /**
+   * A forward-only scanner over a JSON string.
+   */
+  private static final class Scanner {
+    private final String json;
+    private int pos;
+
+    Scanner(String json, int pos) {
+      this.json = json;
+      this.pos = pos;
+    }
+
+    Geometry readGeometry(Geometries reuse) {
+      expect('{');
+      Geometry.Type type = null;
+      int coordinates = -1;
+      Geometry geometry = null;
+      while (peek() != '}') {
+        String key = readString();
+        expect(':');
+        if ("type".equals(key)) {
+          type = Geometry.Type.fromGeoJsonName(readString());
+          if (coordinates >= 0) {
+            int end = pos;
+            pos = coordinates;
+            geometry = reuse.get(type);
+            readCoordinates(geometry, type.getDepth());
+            pos = end;
+          }
+        } else if ("coordinates".equals(key)) {
+          if (type == null) {
+            coordinates = pos;
+            skipValue();
+          } else {
+            geometry = reuse.get(type);
+            readCoordinates(geometry, type.getDepth());
+          }
+        } else {
+          skipValue();
+        }
+        if (peek() == ',') {
+          pos++;
+        }
+      }
+      pos++;
+      if (geometry == null) {
+        throw new IllegalArgumentException("Geometry without type or coordinates at " + pos);
+      }
+      return geometry;
+    }
+
+    private void readCoordinates(Geometry geometry, int depth) {
+      if (depth == 0) {
+        expect('[');
+        double x = readNumber();
+        expect(',');
+        double y = readNumber();
+        while (peek() != ']') {
+          pos++;
+          readNumber();
+        }
+        pos++;
+        geometry.addPoint(x, y);
+        return;
+      }
+      expect('[');
+      while (peek() != ']') {
+        readCoordinates(geometry, depth - 1);
+        if (depth == 2) {
+          geometry.endCurrentRing();
+        } else if (depth == 3) {
+          geometry.endCurrentPart();
+        }
+        if (peek() == ',') {
+          pos++;
+        }
+      }
+      pos++;
+    }
+
+    private double readNumber() {
+      skipWhitespace();
+      int start = pos;
+      boolean negative = false;
+      if (json.charAt(pos) == '-') {
+        negative = true;
+        pos++;
+      }
+      long mantissa = 0;
+      int digits = 0;
+      int fraction = 0;
+      boolean dot = false;
+      char c;
+      while (pos < json.length()) {
+        c = json.charAt(pos);
+        if (c >= '0' && c <= '9') {
+          mantissa = mantissa * 10 + (c - '0');
+          digits++;
+          if (dot) {
+            fraction++;
+          }
+        } else if (c == '.' && !dot) {
+          dot = true;
+        } else {
+          break;
+        }
+        pos++;
+      }
+      if (pos < json.length() && (json.charAt(pos) == 'e' || json.charAt(pos) == 'E') || digits > 15
+          || fraction >= POW10.length) {
+        while (pos < json.length() && "+-0123456789.eE".indexOf(json.charAt(pos)) >= 0) {
+          pos++;
+        }
+        return Double.parseDouble(json.substring(start, pos));
+      }
+      if (digits == 0) {
+        throw new IllegalArgumentException("Number expected at " + start);
+      }
+      double value = mantissa / POW10[fraction];
+      return negative ? -value : value;
+    }
+
+    private String readString() {
+      expect('"');
+      int start = pos;
+      while (json.charAt(pos) != '"') {
+        if (json.charAt(pos) == '\\') {
+          pos++;
+        }
+        pos++;
+      }
+      return json.substring(start, pos++);
+    }
+
+    private void skipValue() {
+      char c = peek();
+      if (c == '"') {
+        readString();
+        return;
+      }
+      if (c != '{' && c != '[') {
+        while (pos < json.length() && ",}]".indexOf(json.charAt(pos)) < 0) {
+          pos++;
+        }
+        return;
+      }
+      int level = 0;
+      do {
+        c = json.charAt(pos);
+        if (c == '"') {
+          readString();
+          continue;
+        }
+        if (c == '{' || c == '[') {
+          level++;
+        } else if (c == '}' || c == ']') {
+          level--;
+        }
+        pos++;
+      } while (level > 0);
+    }
+
+    private char peek() {
+      skipWhitespace();
+      return json.charAt(pos);
+    }
+
+    private void expect(char c) {
+      if (peek() != c) {
+        throw new IllegalArgumentException("Expected '" + c + "' at " + pos + " but found '" + json.charAt(pos)
+            + "'");
+      }
+      pos++;
+    }
+
+    private void skipWhitespace() {
+      while (pos < json.length() && json.charAt(pos) <= ' ') {
+        pos++;
+      }
+    }
+  }
+}
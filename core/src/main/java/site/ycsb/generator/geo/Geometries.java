@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+/**
+ * One reusable instance of every geometry type, owned by a single thread. Readers fill the instance of the type
+ * they find instead of allocating a new geometry.
+ */
+public class Geometries {
+
+  private final Point point = new Point();
+  private final LineString lineString = new LineString();
+  private final MultiLineString multiLineString = new MultiLineString();
+  private final Polygon polygon = new Polygon();
+  private final MultiPolygon multiPolygon = new MultiPolygon();
+
+  public Point getPoint() {
+    return point;
+  }
+
+  public LineString getLineString() {
+    return lineString;
+  }
+
+  public MultiLineString getMultiLineString() {
+    return multiLineString;
+  }
+
+  public Polygon getPolygon() {
+    return polygon;
+  }
+
+  public MultiPolygon getMultiPolygon() {
+    return multiPolygon;
+  }
+
+  /**
+   * @return the cleared instance of the type.
+   */
+  public Geometry get(Geometry.Type type) {
+    Geometry geometry;
+    switch (type) {
+    case POINT:
+      geometry = point;
+      break;
+    case LINE_STRING:
+      geometry = lineString;
+      break;
+    case MULTI_LINE_STRING:
+      geometry = multiLineString;
+      break;
+    case POLYGON:
+      geometry = polygon;
+      break;
+    default:
+      geometry = multiPolygon;
+    }
+    geometry.clear();
+    return geometry;
+  }
+}
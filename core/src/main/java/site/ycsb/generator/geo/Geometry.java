@@ -0,0 +1,329 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+import java.util.Arrays;
+
+/**
+ * A GeoJSON geometry backed by primitive buffers that are reused between operations.
+ * <p>
+ * All coordinates are kept in one interleaved <code>x, y</code> array. Rings (the lines of a MultiLineString or the
+ * shell and holes of a polygon) and parts (the polygons of a MultiPolygon) are described by their end offsets, so a
+ * geometry can be refilled for every operation without allocating once its buffers have grown to size.
+ */
+public abstract class Geometry {
+
+  /**
+   * The supported geometry types and their GeoJSON names.
+   */
+  public enum Type {
+    POINT("Point", 0),
+    LINE_STRING("LineString", 1),
+    MULTI_LINE_STRING("MultiLineString", 2),
+    POLYGON("Polygon", 2),
+    MULTI_POLYGON("MultiPolygon", 3);
+
+    private final String geoJsonName;
+    private final int depth;
+
+    Type(String geoJsonName, int depth) {
+      this.geoJsonName = geoJsonName;
+      this.depth = depth;
+    }
+
+    public String getGeoJsonName() {
+      return geoJsonName;
+    }
+
+    /**
+     * @return the number of arrays that enclose a position in the GeoJSON coordinates.
+     */
+    public int getDepth() {
+      return depth;
+    }
+
+    public static Type fromGeoJsonName(String name) {
+      for (Type type : values()) {
+        if (type.geoJsonName.equals(name)) {
+          return type;
+        }
+      }
+      throw new IllegalArgumentException("Unsupported geometry type " + name);
+    }
+  }
+
+  private double[] coordinates = new double[16];
+  private int pointCount;
+  private int[] ringEnds = new int[4];
+  private int ringCount;
+  private int[] partEnds = new int[2];
+  private int partCount;
+
+  public abstract Type getType();
+
+  /**
+   * Forget all coordinates but keep the buffers.
+   */
+  public void clear() {
+    pointCount = 0;
+    ringCount = 0;
+    partCount = 0;
+  }
+
+  public int getPointCount() {
+    return pointCount;
+  }
+
+  public double getX(int point) {
+    return coordinates[point << 1];
+  }
+
+  public double getY(int point) {
+    return coordinates[(point << 1) + 1];
+  }
+
+  /**
+   * The raw interleaved coordinate buffer. Only the first <code>2 * getPointCount()</code> values are valid.
+   */
+  public double[] getCoordinates() {
+    return coordinates;
+  }
+
+  /**
+   * @return the number of rings (or lines), counting a ring that was started but not ended yet.
+   */
+  public int getRingCount() {
+    if (pointCount > lastRingEnd()) {
+      return ringCount + 1;
+    }
+    return ringCount;
+  }
+
+  public int getRingStart(int ring) {
+    if (ring == 0) {
+      return 0;
+    }
+    return ringEnds[ring - 1];
+  }
+
+  public int getRingEnd(int ring) {
+    if (ring < ringCount) {
+      return ringEnds[ring];
+    }
+    return pointCount;
+  }
+
+  /**
+   * @return the number of parts (polygons of a MultiPolygon), counting a part that was started but not ended yet.
+   */
+  public int getPartCount() {
+    if (getRingCount() > lastPartEnd()) {
+      return partCount + 1;
+    }
+    return partCount;
+  }
+
+  /**
+   * @return the index of the first ring of the part.
+   */
+  public int getPartStart(int part) {
+    if (part == 0) {
+      return 0;
+    }
+    return partEnds[part - 1];
+  }
+
+  /**
+   * @return the index after the last ring of the part.
+   */
+  public int getPartEnd(int part) {
+    if (part < partCount) {
+      return partEnds[part];
+    }
+    return getRingCount();
+  }
+
+  /**
+   * Write the bounding box as <code>minX, minY, maxX, maxY</code> into the array.
+   */
+  public void envelope(double[] out) {
+    double minX = Double.POSITIVE_INFINITY;
+    double minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY;
+    double maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < pointCount << 1; i += 2) {
+      minX = Math.min(minX, coordinates[i]);
+      maxX = Math.max(maxX, coordinates[i]);
+      minY = Math.min(minY, coordinates[i + 1]);
+      maxY = Math.max(maxY, coordinates[i + 1]);
+    }
+    out[0] = minX;
+    out[1] = minY;
+    out[2] = maxX;
+    out[3] = maxY;
+  }
+
+  /**
+   * Replace the coordinates of this geometry with the ones of the other geometry.
+   */
+  public void copyFrom(Geometry other) {
+    pointCount = other.pointCount;
+    coordinates = ensure(coordinates, pointCount << 1);
+    System.arraycopy(other.coordinates, 0, coordinates, 0, pointCount << 1);
+    ringCount = other.ringCount;
+    ringEnds = ensure(ringEnds, ringCount);
+    System.arraycopy(other.ringEnds, 0, ringEnds, 0, ringCount);
+    partCount = other.partCount;
+    partEnds = ensure(partEnds, partCount);
+    System.arraycopy(other.partEnds, 0, partEnds, 0, partCount);
+  }
+
+  /**
+   * @return a new geometry of the same type and coordinates, to keep beyond the next refill of this one.
+   */
+  public Geometry copy() {
+    Geometry copy;
+    switch (getType()) {
+    case POINT:
+      copy = new Point();
+      break;
+    case LINE_STRING:
+      copy = new LineString();
+      break;
+    case MULTI_LINE_STRING:
+      copy = new MultiLineString();
+      break;
+    case POLYGON:
+      copy = new Polygon();
+      break;
+    default:
+      copy = new MultiPolygon();
+    }
+    copy.copyFrom(this);
+    return copy;
+  }
+
+  /**
+   * Walk the GeoJSON "coordinates" of this geometry, array by array.
+   */
+  public void writeCoordinates(CoordinateWriter writer) {
+    switch (getType().getDepth()) {
+    case 0:
+      writer.position(getX(0), getY(0));
+      break;
+    case 1:
+      writeRing(writer, 0, pointCount);
+      break;
+    case 2:
+      writeRings(writer, 0, getRingCount());
+      break;
+    default:
+      writer.startArray();
+      for (int part = 0; part < getPartCount(); part++) {
+        writeRings(writer, getPartStart(part), getPartEnd(part));
+      }
+      writer.endArray();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return GeoJson.toString(this);
+  }
+
+  protected void addPoint(double x, double y) {
+    coordinates = ensure(coordinates, (pointCount + 1) << 1);
+    coordinates[pointCount << 1] = x;
+    coordinates[(pointCount << 1) + 1] = y;
+    pointCount++;
+  }
+
+  protected void endCurrentRing() {
+    if (pointCount > lastRingEnd()) {
+      ringEnds = ensure(ringEnds, ringCount + 1);
+      ringEnds[ringCount++] = pointCount;
+    }
+  }
+
+  /**
+   * Close the current ring by repeating its first point if necessary, then end it.
+   */
+  protected void closeCurrentRing() {
+    int start = lastRingEnd();
+    if (pointCount > start) {
+      double x = coordinates[start << 1];
+      double y = coordinates[(start << 1) + 1];
+      if (pointCount - start < 2 || getX(pointCount - 1) != x || getY(pointCount - 1) != y) {
+        addPoint(x, y);
+      }
+    }
+    endCurrentRing();
+  }
+
+  protected void endCurrentPart() {
+    endCurrentRing();
+    if (ringCount > lastPartEnd()) {
+      partEnds = ensure(partEnds, partCount + 1);
+      partEnds[partCount++] = ringCount;
+    }
+  }
+
+  private void writeRings(CoordinateWriter writer, int fromRing, int toRing) {
+    writer.startArray();
+    for (int ring = fromRing; ring < toRing; ring++) {
+      writeRing(writer, getRingStart(ring), getRingEnd(ring));
+    }
+    writer.endArray();
+  }
+
+  private void writeRing(CoordinateWriter writer, int fromPoint, int toPoint) {
+    writer.startArray();
+    for (int i = fromPoint; i < toPoint; i++) {
+      writer.position(getX(i), getY(i));
+    }
+    writer.endArray();
+  }
+
+  private int lastRingEnd() {
+    if (ringCount == 0) {
+      return 0;
+    }
+    return ringEnds[ringCount - 1];
+  }
+
+  private int lastPartEnd() {
+    if (partCount == 0) {
+      return 0;
+    }
+    return partEnds[partCount - 1];
+  }
+
+  private static double[] ensure(double[] buffer, int size) {
+    if (size <= buffer.length) {
+      return buffer;
+    }
+    return Arrays.copyOf(buffer, Math.max(size, buffer.length << 1));
+  }
+
+  private static int[] ensure(int[] buffer, int size) {
+    if (size <= buffer.length) {
+      return buffer;
+    }
+    return Arrays.copyOf(buffer, Math.max(size, buffer.length << 1));
+  }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+/**
+ * A single position.
+ */
+public class Point extends Geometry {
+
+  public Point() {
+  }
+
+  public Point(double x, double y) {
+    set(x, y);
+  }
+
+  @Override
+  public Type getType() {
+    return Type.POINT;
+  }
+
+  public Point set(double x, double y) {
+    clear();
+    addPoint(x, y);
+    return this;
+  }
+
+  public double getX() {
+    return getX(0);
+  }
+
+  public double getY() {
+    return getY(0);
+  }
+}
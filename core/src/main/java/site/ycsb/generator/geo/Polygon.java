@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+/**
+ * A polygon: an outer ring followed by optional holes. Positions are added to the current ring until
+ * {@link #closeRing()} closes it and starts the next one.
+ */
+public class Polygon extends Geometry {
+
+  @Override
+  public Type getType() {
+    return Type.POLYGON;
+  }
+
+  public Polygon add(double x, double y) {
+    addPoint(x, y);
+    return this;
+  }
+
+  public Polygon closeRing() {
+    closeCurrentRing();
+    return this;
+  }
+
+  /**
+   * Replace the coordinates with the axis-aligned rectangle between the two corners.
+   */
+  public Polygon rectangle(double x1, double y1, double x2, double y2) {
+    clear();
+    addPoint(x1, y1);
+    addPoint(x2, y1);
+    addPoint(x2, y2);
+    addPoint(x1, y2);
+    closeCurrentRing();
+    return this;
+  }
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A static R-tree over bounding boxes, bulk loaded with Sort-Tile-Recursive packing. The tree is immutable once
+ * built and can be searched by any number of threads.
+ * <p>
+ * Every level is stored as flat arrays: the boxes of its nodes and, for each node, the range of its children on the
+ * level below. Level 0 holds the indexed entries themselves.
+ */
+public final class RTree {
+
+  /**
+   * Receives the entries found by a search.
+   */
+  public interface Visitor {
+    /**
+     * @return false to stop the search.
+     */
+    boolean visit(int id, double minX, double minY, double maxX, double maxY);
+  }
+
+  private final int size;
+  private final int[] ids;
+  private final double[][] boxes;
+  private final int[][] childFrom;
+  private final int[][] childTo;
+
+  private RTree(int[] ids, double[][] boxes, int[][] childFrom, int[][] childTo) {
+    this.size = ids.length;
+    this.ids = ids;
+    this.boxes = boxes;
+    this.childFrom = childFrom;
+    this.childTo = childTo;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Write the bounding box of all entries as <code>minX, minY, maxX, maxY</code> into the array, or NaN for an empty
+   * tree.
+   */
+  public void envelope(double[] out) {
+    if (size == 0) {
+      Arrays.fill(out, 0, 4, Double.NaN);
+      return;
+    }
+    System.arraycopy(boxes[boxes.length - 1], 0, out, 0, 4);
+  }
+
+  /**
+   * Visit all entries whose box intersects the window.
+   */
+  public void search(double minX, double minY, double maxX, double maxY, Visitor visitor) {
+    if (size == 0) {
+      return;
+    }
+    int top = boxes.length - 1;
+    search(top, 0, boxes[top].length >> 2, new double[]{minX, minY, maxX, maxY}, visitor);
+  }
+
+  /**
+   * Count the entries whose box intersects the window, stopping at the limit.
+   */
+  public int count(double minX, double minY, double maxX, double maxY, final int limit) {
+    final int[] count = new int[1];
+    search(minX, minY, maxX, maxY, new Visitor() {
+      @Override
+      public boolean visit(int id, double x1, double y1, double x2, double y2) {
+        return ++count[0] < limit;
+      }
+    });
+    return count[0];
+  }
+
+  private boolean search(int level, int from, int to, double[] window, Visitor visitor) {
+    double[] box = boxes[level];
+    for (int i = from; i < to; i++) {
+      int b = i << 2;
+      if (box[b] > window[2] || box[b + 2] < window[0] || box[b + 1] > window[3] || box[b + 3] < window[1]) {
+        continue;
+      }
+      if (level == 0) {
+        if (!visitor.visit(ids[i], box[b], box[b + 1], box[b + 2], box[b + 3])) {
+          return false;
+        }
+      } else if (!search(level - 1, childFrom[level][i], childTo[level][i], window, visitor)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Collects entries and packs them into a tree.
+   */
+  public static final class Builder {
+    private final int nodeCapacity;
+    private int count = 0;
+    private int[] entryIds = new int[1024];
+    private double[] entryBoxes = new double[4096];
+
+    public Builder(int nodeCapacity) {
+      if (nodeCapacity < 2) {
+        throw new IllegalArgumentException("Node capacity must be at least 2");
+      }
+      this.nodeCapacity = nodeCapacity;
+    }
+
+    public Builder add(int id, double minX, double minY, double maxX, double maxY) {
+      if (count == entryIds.length) {
+        entryIds = Arrays.copyOf(entryIds, count << 1);
+        entryBoxes = Arrays.copyOf(entryBoxes, count << 3);
+      }
+      entryIds[count] = id;
+      int b = count << 2;
+      entryBoxes[b] = minX;
+      entryBoxes[b + 1] = minY;
+      entryBoxes[b + 2] = maxX;
+      entryBoxes[b + 3] = maxY;
+      count++;
+      return this;
+    }
+
+    /**
+     * Pack the entries. Every level is sorted into tiles and grouped into runs of <code>nodeCapacity</code>; the
+     * groups become the items of the next level, which is packed the same way until a single root is left.
+     */
+    public RTree build() {
+      List<double[]> levels = new ArrayList<>();
+      List<int[]> froms = new ArrayList<>();
+      List<int[]> tos = new ArrayList<>();
+      double[] level = Arrays.copyOf(entryBoxes, count << 2);
+      int[] ids = Arrays.copyOf(entryIds, count);
+      int[] from = null;
+      int[] to = null;
+      int levelSize = count;
+      while (true) {
+        Integer[] order = tileOrder(level, levelSize);
+        double[] sorted = new double[levelSize << 2];
+        int[] payloadA = new int[levelSize];
+        int[] payloadB = to == null ? null : new int[levelSize];
+        for (int i = 0; i < levelSize; i++) {
+          int item = order[i];
+          System.arraycopy(level, item << 2, sorted, i << 2, 4);
+          if (to == null) {
+            payloadA[i] = ids[item];
+          } else {
+            payloadA[i] = from[item];
+            payloadB[i] = to[item];
+          }
+        }
+        levels.add(sorted);
+        if (to == null) {
+          ids = payloadA;
+          froms.add(null);
+          tos.add(null);
+        } else {
+          froms.add(payloadA);
+          tos.add(payloadB);
+        }
+        if (levelSize <= 1) {
+          break;
+        }
+        int nodes = (levelSize + nodeCapacity - 1) / nodeCapacity;
+        level = new double[nodes << 2];
+        from = new int[nodes];
+        to = new int[nodes];
+        for (int n = 0; n < nodes; n++) {
+          from[n] = n * nodeCapacity;
+          to[n] = Math.min(levelSize, from[n] + nodeCapacity);
+          union(sorted, from[n], to[n], level, n);
+        }
+        levelSize = nodes;
+      }
+      return new RTree(ids, levels.toArray(new double[0][]), froms.toArray(new int[0][]),
+          tos.toArray(new int[0][]));
+    }
+
+    private static void union(double[] boxes, int from, int to, double[] out, int node) {
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      for (int i = from; i < to; i++) {
+        int b = i << 2;
+        minX = Math.min(minX, boxes[b]);
+        minY = Math.min(minY, boxes[b + 1]);
+        maxX = Math.max(maxX, boxes[b + 2]);
+        maxY = Math.max(maxY, boxes[b + 3]);
+      }
+      int o = node << 2;
+      out[o] = minX;
+      out[o + 1] = minY;
+      out[o + 2] = maxX;
+      out[o + 3] = maxY;
+    }
+
+    private Integer[] tileOrder(final double[] boxes, int n) {
+      Integer[] order = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer a, Integer b) {
+          return Double.compare(boxes[a << 2] + boxes[(a << 2) + 2], boxes[b << 2] + boxes[(b << 2) + 2]);
+        }
+      });
+      int leaves = (n + nodeCapacity - 1) / nodeCapacity;
+      int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * nodeCapacity;
+      for (int from = 0; from < n; from += sliceSize) {
+        Arrays.sort(order, from, Math.min(n, from + sliceSize), new Comparator<Integer>() {
+          @Override
+          public int compare(Integer a, Integer b) {
+            return Double.compare(boxes[(a << 2) + 1] + boxes[(a << 2) + 3],
+                boxes[(b << 2) + 1] + boxes[(b << 2) + 3]);
+          }
+        });
+      }
+      return order;
+    }
+  }
+}
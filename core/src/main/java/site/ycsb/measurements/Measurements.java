@@ -19,10 +19,15 @@ package site.ycsb.measurements;
 
 import site.ycsb.Status;
 import site.ycsb.measurements.exporter.MeasurementsExporter;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Collects latency measurements, and reports them when requested.
@@ -68,6 +73,8 @@ public class Measurements {
 
   private final ConcurrentHashMap<String, OneMeasurement> opToMesurementMap;
   private final ConcurrentHashMap<String, OneMeasurement> opToIntendedMesurementMap;
+  private final ConcurrentHashMap<String, AtomicLong> counterMap;
+  private volatile ConcurrentHashMap<String, Recorder> windowMap = null;
   private final MeasurementType measurementType;
   private final int measurementInterval;
   private final Properties props;
@@ -78,6 +85,7 @@ public class Measurements {
   public Measurements(Properties props) {
     opToMesurementMap = new ConcurrentHashMap<>();
     opToIntendedMesurementMap = new ConcurrentHashMap<>();
+    counterMap = new ConcurrentHashMap<>();
 
     this.props = props;
 
@@ -184,6 +192,9 @@ public class Measurements {
     if (measurementInterval == 1) {
       return;
     }
+    if (measurementInterval == 0) {
+      measureWindow(operation, latency);
+    }
     try {
       OneMeasurement m = getOpMeasurement(operation);
       m.measure(latency);
@@ -203,6 +214,7 @@ public class Measurements {
     if (measurementInterval == 0) {
       return;
     }
+    measureWindow(operation, latency);
     try {
       OneMeasurement m = getOpIntendedMeasurement(operation);
       m.measure(latency);
@@ -214,6 +226,57 @@ public class Measurements {
     }
   }
 
+  /**
+   * Also record every latency into a window per operation, which is read and restarted with
+   * {@link #takeWindows()} independently of the measurement type and of the intervals the status thread reports.
+   * The windows hold the intended latency unless <code>measurement.interval</code> is <code>op</code>.
+   */
+  public synchronized void trackWindows() {
+    if (windowMap == null) {
+      windowMap = new ConcurrentHashMap<>();
+    }
+  }
+
+  /**
+   * Return the latencies recorded since the last call by operation, and start new windows.
+   */
+  public Map<String, Histogram> takeWindows() {
+    Map<String, Histogram> windows = new HashMap<>();
+    ConcurrentHashMap<String, Recorder> recorders = windowMap;
+    if (recorders != null) {
+      for (Map.Entry<String, Recorder> entry : recorders.entrySet()) {
+        windows.put(entry.getKey(), entry.getValue().getIntervalHistogram());
+      }
+    }
+    return windows;
+  }
+
+  /**
+   * Drop everything measured so far, e.g. at the end of a warm-up. Measurements that are taken while this runs may
+   * be dropped as well.
+   */
+  public void discard() {
+    opToMesurementMap.clear();
+    opToIntendedMesurementMap.clear();
+    counterMap.clear();
+  }
+
+  private void measureWindow(String operation, int latency) {
+    ConcurrentHashMap<String, Recorder> recorders = windowMap;
+    if (recorders == null) {
+      return;
+    }
+    Recorder recorder = recorders.get(operation);
+    if (recorder == null) {
+      recorder = new Recorder(3);
+      Recorder other = recorders.putIfAbsent(operation, recorder);
+      if (other != null) {
+        recorder = other;
+      }
+    }
+    recorder.recordValue(latency);
+  }
+
   private OneMeasurement getOpMeasurement(String operation) {
     OneMeasurement m = opToMesurementMap.get(operation);
     if (m == null) {
@@ -249,6 +312,22 @@ public class Measurements {
     m.reportStatus(status);
   }
 
+  /**
+   * Add a value to a named counter. Counters are for events that have a count but no latency; they are
+   * exported as a single "Count" value.
+   */
+  public void count(final String name, final long delta) {
+    AtomicLong counter = counterMap.get(name);
+    if (counter == null) {
+      counter = new AtomicLong();
+      AtomicLong other = counterMap.putIfAbsent(name, counter);
+      if (other != null) {
+        counter = other;
+      }
+    }
+    counter.addAndGet(delta);
+  }
+
   /**
    * Export the current measurements to a suitable format.
    *
@@ -262,6 +341,9 @@ public class Measurements {
     for (OneMeasurement measurement : opToIntendedMesurementMap.values()) {
       measurement.exportMeasurements(exporter);
     }
+    for (Map.Entry<String, AtomicLong> counter : counterMap.entrySet()) {
+      exporter.write(counter.getKey(), "Count", counter.getValue().get());
+    }
   }
 
   /**
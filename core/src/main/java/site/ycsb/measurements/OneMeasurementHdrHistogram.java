@@ -181,7 +181,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    * @param percentileString - comma delimited string of Integer values
    * @return An Integer List of percentile values
    */
-  private List<Double> getPercentileValues(String percentileString) {
+  public static List<Double> getPercentileValues(String percentileString) {
     List<Double> percentileValues = new ArrayList<>();
 
     try {
@@ -205,7 +205,7 @@ public class OneMeasurementHdrHistogram extends OneMeasurement {
    * @param i number
    * @return ordinal string
    */
-  private String ordinal(Double i) {
+  public static String ordinal(Double i) {
     String[] suffixes = new String[]{"th", "st", "nd", "rd", "th", "th", "th", "th", "th", "th"};
     Integer j = i.intValue();
     if (i % 1 == 0) {
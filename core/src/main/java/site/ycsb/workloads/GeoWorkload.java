@@ -1,16 +1,37 @@
 package site.ycsb.workloads;
 
+import site.ycsb.AsyncGeoDB;
 import site.ycsb.ByteIterator;
+import site.ycsb.Client;
 import site.ycsb.GeoDB;
 import site.ycsb.Status;
 import site.ycsb.generator.DiscreteGenerator;
+import site.ycsb.generator.EmbeddedGenerator;
+import site.ycsb.generator.GeoDatasetFile;
+import site.ycsb.generator.GeoDocumentFile;
 import site.ycsb.generator.GeoGenerator;
+import site.ycsb.generator.GeoOracle;
+import site.ycsb.generator.GeoQueryCheck;
+import site.ycsb.generator.GeoRegion;
 import site.ycsb.generator.MemcachedGenerator;
+import site.ycsb.generator.NearCache;
+import site.ycsb.generator.OffHeapStore;
+import site.ycsb.generator.PredicatePipeline;
+import site.ycsb.generator.PredicateQueue;
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.RTree;
+import site.ycsb.measurements.Measurements;
 import site.ycsb.WorkloadException;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Author: original Yuvraj Kanwar. Adapted by Danylo Kravchenko
@@ -21,6 +42,18 @@ public class GeoWorkload extends CoreWorkload {
   public static final String STORAGE_HOST_DEFAULT = "localhost";
   public static final String STORAGE_PORT = "geo_storage_port";
   public static final String STORAGE_PORT_DEFAULT = "11211";
+  /**
+   * Where the generator keeps the pre-generated documents: "memcached" or "embedded" (in-process, off-heap).
+   */
+  public static final String STORAGE_TYPE = "geo_storage";
+  public static final String STORAGE_TYPE_DEFAULT = "memcached";
+  /**
+   * The file memory-mapped by the embedded storage. If empty, direct memory is used.
+   */
+  public static final String STORAGE_FILE = "geo_storage_file";
+  public static final String STORAGE_FILE_DEFAULT = "";
+  public static final String STORAGE_SLAB_SIZE = "geo_storage_slabsize";
+  public static final String STORAGE_SLAB_SIZE_DEFAULT = "67108864";
   public static final String TOTAL_DOCS = "totalrecordcount";
   public static final String TOTAL_DOCS_DEFAULT = "13348";
   public static final String DOCS_START_VALUE = "1001";
@@ -36,6 +69,89 @@ public class GeoWorkload extends CoreWorkload {
   public static final String GEO_BOX_PROPORTION_PROPERTY_DEFAULT = "0.00";
   public static final String GEO_INTERSECT_PROPORTION_PROPERTY = "geo_intersect";
   public static final String GEO_INTERSECT_PROPORTION_PROPERTY_DEFAULT = "0.00";
+  public static final String GEO_KNN_PROPORTION_PROPERTY = "geo_knn";
+  public static final String GEO_KNN_PROPORTION_PROPERTY_DEFAULT = "0.00";
+  /**
+   * The number of nearest documents a GEO_KNN operation asks for.
+   */
+  public static final String GEO_KNN_K = "geo_knn_k";
+  public static final String GEO_KNN_K_DEFAULT = "10";
+  /**
+   * Count the documents within a polygon.
+   */
+  public static final String GEO_COUNT_PROPORTION_PROPERTY = "geo_count";
+  public static final String GEO_COUNT_PROPORTION_PROPERTY_DEFAULT = "0.00";
+  /**
+   * Count the documents of a viewport per grid cell, as a heatmap would.
+   */
+  public static final String GEO_GRID_PROPORTION_PROPERTY = "geo_grid";
+  public static final String GEO_GRID_PROPORTION_PROPERTY_DEFAULT = "0.00";
+  /**
+   * The number of cells along each side of the viewport of a GEO_GRID operation.
+   */
+  public static final String GEO_GRID_CELLS = "geo_grid_cells";
+  public static final String GEO_GRID_CELLS_DEFAULT = "8";
+  /**
+   * The range of the number of vertices of the shell of a query polygon, from 4 (the rectangle) to 10000.
+   */
+  public static final String GEO_QUERY_VERTICES_MIN = "geo_query_vertices_min";
+  public static final String GEO_QUERY_VERTICES_MIN_DEFAULT = "4";
+  public static final String GEO_QUERY_VERTICES_MAX = "geo_query_vertices_max";
+  /**
+   * How far the vertices on the sides of a query polygon are pulled towards its center, from 0 (convex) to below 1.
+   */
+  public static final String GEO_QUERY_CONCAVITY = "geo_query_concavity";
+  public static final String GEO_QUERY_CONCAVITY_DEFAULT = "0";
+  /**
+   * The number of holes of every polygon of a query.
+   */
+  public static final String GEO_QUERY_HOLES = "geo_query_holes";
+  public static final String GEO_QUERY_HOLES_DEFAULT = "0";
+  /**
+   * The number of polygons of a query; more than one makes it a MultiPolygon.
+   */
+  public static final String GEO_QUERY_PARTS = "geo_query_parts";
+  public static final String GEO_QUERY_PARTS_DEFAULT = "1";
+  /**
+   * The order of document keys: sequential, or hilbert or zorder to key documents by the position of their center
+   * along a space-filling curve, which turns GEO_SCAN into a scan of a contiguous area. Couchbase addresses
+   * GEO_UPDATE documents by their sequential id and rejects curve keys with geo_update.
+   */
+  public static final String GEO_KEY_ORDER = "geo_key_order";
+  public static final String GEO_KEY_ORDER_DEFAULT = "sequential";
+  /**
+   * The precision of each axis of the space-filling curve in bits, up to 31.
+   */
+  public static final String GEO_KEY_BITS = "geo_key_bits";
+  public static final String GEO_KEY_BITS_DEFAULT = "16";
+  /**
+   * The region query and insert locations are drawn from, as minX,minY,maxX,maxY, or auto to use the extent of the
+   * dataset. In wgs84 a west bound above the east bound crosses the antimeridian.
+   */
+  public static final String GEO_REGION = "geo_region";
+  public static final String GEO_REGION_DEFAULT = "auto";
+  /**
+   * The coordinate reference system of generated coordinates: wgs84 (longitudes are wrapped, latitudes clamped) or
+   * planar (plain cartesian coordinates, as for planar 2d indexes).
+   */
+  public static final String GEO_CRS = "geo_crs";
+  public static final String GEO_CRS_DEFAULT = "wgs84";
+  /**
+   * The descriptor file of the dataset schema, see {@link site.ycsb.generator.GeoSchema}. Empty for the Graffiti
+   * dataset.
+   */
+  public static final String GEO_SCHEMA = "geo_schema";
+  public static final String GEO_SCHEMA_DEFAULT = "";
+  /**
+   * The document fields that are stored as query tokens, as <code>path[:type]</code> entries with the types text,
+   * int, position and any. See {@link site.ycsb.generator.DocumentTokenizer}. Defaults to the fields of the
+   * geo_schema; the default value below is the field list of the Graffiti dataset.
+   */
+  public static final String GEO_TOKEN_FIELDS = "geo_token_fields";
+  public static final String GEO_TOKEN_FIELDS_DEFAULT = "_id:any,type,properties.OBJECTID:int,"
+      + "properties.INCIDENT_NUMBER,properties.LOCATION,properties.NOTIFICATION,properties.INCIDENT_DATE,"
+      + "properties.TAG_COUNT:int,properties.MONIKER_CLASS,properties.SQ_FT:int,properties.PROP_TYPE,"
+      + "properties.Waiver,geometry.type,geometry.coordinates:position";
   public static final String GEO_SCAN_PROPORTION_PROPERTY = "geo_scan";
   public static final String GEO_SCAN_PROPORTION_PROPERTY_DEFAULT = "0.00";
   public static final String GEO_QUERY_LIMIT_MIN = "geo_querylimit_min";
@@ -48,8 +164,184 @@ public class GeoWorkload extends CoreWorkload {
   public static final String GEO_QUERY_OFFSET_MAX_DEFAULT = "100";
   public static final String GEO_REQUEST_DISTRIBUTION = "geo_request_distribution";
   public static final String GEO_REQUEST_DISTRIBUTION_DEFAULT = "uniform";
+  /**
+   * The number of document ids a generator reserves at once on the shared insert counter.
+   */
+  public static final String GEO_INSERT_LEASE_SIZE = "geo_insert_lease_size";
+  public static final String GEO_INSERT_LEASE_SIZE_DEFAULT = "1";
+  /**
+   * The distribution of query locations: "uniform", "cells" or "hotspots", see
+   * {@link site.ycsb.generator.SpatialDistribution}.
+   */
+  public static final String GEO_SPATIAL_DISTRIBUTION = "geo_spatial_distribution";
+  public static final String GEO_SPATIAL_DISTRIBUTION_DEFAULT = "uniform";
+  /**
+   * The distribution inserted documents are moved to, or "none" to keep the location of the source document.
+   */
+  public static final String GEO_SPATIAL_INSERT_DISTRIBUTION = "geo_spatial_insert_distribution";
+  public static final String GEO_SPATIAL_INSERT_DISTRIBUTION_DEFAULT = "none";
+  public static final String GEO_SPATIAL_SEED = "geo_spatial_seed";
+  public static final String GEO_SPATIAL_SEED_DEFAULT = "0";
+  /**
+   * The zipfian constant of the cell popularity, and the exponent of the weights of seeded hotspots.
+   */
+  public static final String GEO_SPATIAL_SKEW = "geo_spatial_skew";
+  public static final String GEO_SPATIAL_SKEW_DEFAULT = "0.99";
+  /**
+   * The grid of the "cells" distribution has 2^level cells along each axis.
+   */
+  public static final String GEO_SPATIAL_CELL_LEVEL = "geo_spatial_cell_level";
+  public static final String GEO_SPATIAL_CELL_LEVEL_DEFAULT = "6";
+  /**
+   * Explicit hotspots as x,y[,sigma[,weight]] separated by semicolons. Empty seeds geo_spatial_hotspot_count ones.
+   */
+  public static final String GEO_SPATIAL_HOTSPOTS = "geo_spatial_hotspots";
+  public static final String GEO_SPATIAL_HOTSPOTS_DEFAULT = "";
+  public static final String GEO_SPATIAL_HOTSPOT_COUNT = "geo_spatial_hotspot_count";
+  public static final String GEO_SPATIAL_HOTSPOT_COUNT_DEFAULT = "8";
+  /**
+   * The standard deviation of a hotspot in degrees.
+   */
+  public static final String GEO_SPATIAL_HOTSPOT_SIGMA = "geo_spatial_hotspot_sigma";
+  public static final String GEO_SPATIAL_HOTSPOT_SIGMA_DEFAULT = "0.01";
+  /**
+   * The speed hotspots move with in degrees per second. 0 keeps them in place.
+   */
+  public static final String GEO_SPATIAL_HOTSPOT_SPEED = "geo_spatial_hotspot_speed";
+  public static final String GEO_SPATIAL_HOTSPOT_SPEED_DEFAULT = "0";
+  /**
+   * The share of hotspot locations that are drawn uniformly over the region instead.
+   */
+  public static final String GEO_SPATIAL_BACKGROUND = "geo_spatial_background";
+  public static final String GEO_SPATIAL_BACKGROUND_DEFAULT = "0";
+  /**
+   * The estimated number of bytes of memcached values cached in the client process. 0 disables the near-cache.
+   */
+  public static final String GEO_NEARCACHE_SIZE = "geo_nearcache_size";
+  public static final String GEO_NEARCACHE_SIZE_DEFAULT = "0";
+  /**
+   * The number of stored documents drawn ahead and fetched into the near-cache with one multi-get. 0 disables it.
+   */
+  public static final String GEO_NEARCACHE_PREFETCH = "geo_nearcache_prefetch";
+  public static final String GEO_NEARCACHE_PREFETCH_DEFAULT = "0";
+  /**
+   * The number of background threads that build predicates ahead of the client threads. 0 builds them inline.
+   */
+  public static final String GEO_PREGEN_THREADS = "geo_pregen_threads";
+  public static final String GEO_PREGEN_THREADS_DEFAULT = "0";
+  /**
+   * The number of pre-built predicates queued per client thread.
+   */
+  public static final String GEO_PREGEN_QUEUE_SIZE = "geo_pregen_queue_size";
+  public static final String GEO_PREGEN_QUEUE_SIZE_DEFAULT = "64";
+  /**
+   * The number of documents near, box and intersect windows are sized to match, using an R-tree over the stored
+   * documents. 0 draws windows uniformly.
+   */
+  public static final String GEO_TARGET_HITS = "geo_target_hits";
+  public static final String GEO_TARGET_HITS_DEFAULT = "0";
+  /**
+   * The accepted relative deviation from geo_target_hits.
+   */
+  public static final String GEO_TARGET_HITS_TOLERANCE = "geo_target_hits_tolerance";
+  public static final String GEO_TARGET_HITS_TOLERANCE_DEFAULT = "0.1";
+  /**
+   * The fraction of near, box and intersect operations whose results are compared with the exact answer over the
+   * stored documents.
+   */
+  public static final String GEO_VERIFY_PROPORTION = "geo_verify_proportion";
+  public static final String GEO_VERIFY_PROPORTION_DEFAULT = "0";
+  /**
+   * Where documents come from: "stored" samples the documents of the loaded dataset, "synthetic" generates them
+   * from their id with a {@link site.ycsb.generator.SyntheticGeoSource} and "binary" reads them from a
+   * {@link site.ycsb.generator.GeoDatasetFile}.
+   */
+  public static final String GEO_DATASET = "geo_dataset";
+  public static final String GEO_DATASET_DEFAULT = "stored";
+  /**
+   * The dataset file memory-mapped by the "binary" dataset.
+   */
+  public static final String GEO_DATASET_FILE = "geo_dataset_file";
+  public static final String GEO_DATASET_FILE_DEFAULT = "geo.geods";
+  public static final String GEO_SYNTHETIC_SEED = "geo_synthetic_seed";
+  public static final String GEO_SYNTHETIC_SEED_DEFAULT = "0";
+  /**
+   * The bounding region of synthetic documents as minX,minY,maxX,maxY in degrees.
+   */
+  public static final String GEO_SYNTHETIC_REGION = "geo_synthetic_region";
+  public static final String GEO_SYNTHETIC_REGION_DEFAULT = "-112,33,-111,34";
+  /**
+   * The number of Gaussian hotspots synthetic documents cluster around. 0 spreads them uniformly.
+   */
+  public static final String GEO_SYNTHETIC_HOTSPOTS = "geo_synthetic_hotspots";
+  public static final String GEO_SYNTHETIC_HOTSPOTS_DEFAULT = "0";
+  /**
+   * The standard deviation of a hotspot in degrees.
+   */
+  public static final String GEO_SYNTHETIC_HOTSPOT_SIGMA = "geo_synthetic_hotspot_sigma";
+  public static final String GEO_SYNTHETIC_HOTSPOT_SIGMA_DEFAULT = "0.01";
+  /**
+   * The weight of the n-th hotspot is n^-skew, so larger values concentrate documents in fewer "cities".
+   */
+  public static final String GEO_SYNTHETIC_HOTSPOT_SKEW = "geo_synthetic_hotspot_skew";
+  public static final String GEO_SYNTHETIC_HOTSPOT_SKEW_DEFAULT = "1.0";
+  /**
+   * The fraction of documents spread uniformly over the region when hotspots are used.
+   */
+  public static final String GEO_SYNTHETIC_BACKGROUND = "geo_synthetic_background";
+  public static final String GEO_SYNTHETIC_BACKGROUND_DEFAULT = "0.1";
+  public static final String GEO_SYNTHETIC_POINTS = "geo_synthetic_points";
+  public static final String GEO_SYNTHETIC_POINTS_DEFAULT = "1";
+  public static final String GEO_SYNTHETIC_LINES = "geo_synthetic_lines";
+  public static final String GEO_SYNTHETIC_LINES_DEFAULT = "0";
+  public static final String GEO_SYNTHETIC_POLYGONS = "geo_synthetic_polygons";
+  public static final String GEO_SYNTHETIC_POLYGONS_DEFAULT = "0";
+  /**
+   * The maximum number of vertices of a synthetic line or polygon ring.
+   */
+  public static final String GEO_SYNTHETIC_VERTICES = "geo_synthetic_vertices";
+  public static final String GEO_SYNTHETIC_VERTICES_DEFAULT = "8";
+  /**
+   * The approximate extent of a synthetic line or polygon in degrees.
+   */
+  public static final String GEO_SYNTHETIC_FEATURE_SIZE = "geo_synthetic_feature_size";
+  public static final String GEO_SYNTHETIC_FEATURE_SIZE_DEFAULT = "0.001";
+  /**
+   * The number of padding characters added to the properties of a synthetic document.
+   */
+  public static final String GEO_SYNTHETIC_PAYLOAD = "geo_synthetic_payload";
+  public static final String GEO_SYNTHETIC_PAYLOAD_DEFAULT = "0";
+  /**
+   * A GeoJSON file with one feature per line that the load phase inserts in parallel, instead of copying documents
+   * already in the database.
+   */
+  public static final String GEO_LOAD_FILE = "geo_load_file";
+  public static final String GEO_LOAD_FILE_DEFAULT = "";
+  /**
+   * The number of documents of the load file or of a synthetic or binary dataset inserted with one bulk load
+   * operation.
+   */
+  public static final String GEO_LOAD_BATCH_SIZE = "geo_load_batchsize";
+  public static final String GEO_LOAD_BATCH_SIZE_DEFAULT = "1000";
+  /**
+   * The number of geo operations a client thread keeps in flight. With more than one, the thread issues operations
+   * of an {@link AsyncGeoDB} without waiting for them and only blocks while the window is full; verified queries
+   * still run one at a time.
+   */
+  public static final String GEO_ASYNC_INFLIGHT = "geo_async_inflight";
+  public static final String GEO_ASYNC_INFLIGHT_DEFAULT = "1";
   private static double recordCount = 1000000;
   protected DiscreteGenerator operationchooser;
+  private PredicatePipeline pipeline = null;
+  private int pregenQueueSize;
+  private RTree spatialIndex = null;
+  private GeoRegion storedRegion = null;
+  private GeoOracle oracle = null;
+  private double verifyProportion;
+  private GeoDocumentFile loadFile = null;
+  private int loadBatchSize;
+  private long sourceLoadEnd;
+  private int asyncInFlight;
 
 
   /**
@@ -87,6 +379,12 @@ public class GeoWorkload extends CoreWorkload {
         Double.parseDouble(p.getProperty(GEO_BOX_PROPORTION_PROPERTY, GEO_BOX_PROPORTION_PROPERTY_DEFAULT));
     final double geoIntersect =
         Double.parseDouble(p.getProperty(GEO_INTERSECT_PROPORTION_PROPERTY, GEO_INTERSECT_PROPORTION_PROPERTY_DEFAULT));
+    final double geoKnn =
+        Double.parseDouble(p.getProperty(GEO_KNN_PROPORTION_PROPERTY, GEO_KNN_PROPORTION_PROPERTY_DEFAULT));
+    final double geoCount =
+        Double.parseDouble(p.getProperty(GEO_COUNT_PROPORTION_PROPERTY, GEO_COUNT_PROPORTION_PROPERTY_DEFAULT));
+    final double geoGrid =
+        Double.parseDouble(p.getProperty(GEO_GRID_PROPORTION_PROPERTY, GEO_GRID_PROPORTION_PROPERTY_DEFAULT));
     final double geoScan =
         Double.parseDouble(p.getProperty(GEO_SCAN_PROPORTION_PROPERTY, GEO_SCAN_PROPORTION_PROPERTY_DEFAULT));
 
@@ -131,6 +429,18 @@ public class GeoWorkload extends CoreWorkload {
       operationchooser.addValue(geoIntersect, "GEO_INTERSECT");
     }
 
+    if (geoKnn > 0) {
+      operationchooser.addValue(geoKnn, "GEO_KNN");
+    }
+
+    if (geoCount > 0) {
+      operationchooser.addValue(geoCount, "GEO_COUNT");
+    }
+
+    if (geoGrid > 0) {
+      operationchooser.addValue(geoGrid, "GEO_GRID");
+    }
+
     if (geoScan > 0) {
       operationchooser.addValue(geoScan, "GEO_SCAN");
     }
@@ -142,9 +452,55 @@ public class GeoWorkload extends CoreWorkload {
   @Override
   public Object initThread(Properties p, int mythreadid, int threadcount) throws
       WorkloadException {
+    GeoGenerator generator = createGenerator(p);
+    if (loadFile != null) {
+      generator.setDocumentReader(loadFile.reader(mythreadid, threadcount));
+    }
+    if (pipeline != null) {
+      PredicateQueue queue = new PredicateQueue(pregenQueueSize);
+      generator.setPredicateQueue(queue);
+      pipeline.register(queue);
+    }
+    return generator;
+  }
+
+
+  protected GeoGenerator createGenerator(Properties p) throws
+      WorkloadException {
+    GeoGenerator generator = newGenerator(p);
+    if (storedRegion != null) {
+      generator.setRegion(storedRegion);
+    }
+    if (spatialIndex != null) {
+      generator.setSpatialIndex(spatialIndex);
+    }
+    return generator;
+  }
+
+
+  private GeoGenerator newGenerator(Properties p) throws
+      WorkloadException {
+    String totalDocs = p.getProperty(TOTAL_DOCS, TOTAL_DOCS_DEFAULT);
+    if (!p.getProperty(GEO_DATASET, GEO_DATASET_DEFAULT).equals("stored")) {
+      // transaction inserts continue after the documents loaded from the source
+      totalDocs = p.getProperty(RECORD_COUNT, RECORD_COUNT_DEFAULT);
+    } else if (loadFile != null) {
+      totalDocs = String.valueOf(loadFile.getDocumentCount());
+    }
+    String storageType = p.getProperty(STORAGE_TYPE, STORAGE_TYPE_DEFAULT);
+    if (storageType.equals("embedded")) {
+      try {
+        OffHeapStore store = OffHeapStore.getInstance(p.getProperty(STORAGE_FILE, STORAGE_FILE_DEFAULT),
+            Integer.parseInt(p.getProperty(STORAGE_SLAB_SIZE, STORAGE_SLAB_SIZE_DEFAULT)));
+        return new EmbeddedGenerator(p, store, totalDocs);
+      } catch (IOException e) {
+        throw new WorkloadException("Embedded generator init failed", e);
+      }
+    } else if (!storageType.equals("memcached")) {
+      throw new WorkloadException("Unknown " + STORAGE_TYPE + " \"" + storageType + "\"");
+    }
     String memHost = p.getProperty(STORAGE_HOST, STORAGE_HOST_DEFAULT);
     String memPort = p.getProperty(STORAGE_PORT, STORAGE_PORT_DEFAULT);
-    String totalDocs = p.getProperty(TOTAL_DOCS, TOTAL_DOCS_DEFAULT);
     try {
       return new MemcachedGenerator(p, memHost, memPort, totalDocs);
     } catch (Exception e) {
@@ -160,24 +516,228 @@ public class GeoWorkload extends CoreWorkload {
     super.init(p);
     operationchooser = createOperationGenerator(p);
     recordCount = Double.parseDouble(p.getProperty(RECORD_COUNT, RECORD_COUNT_DEFAULT));
+
+    int pregenThreads = Integer.parseInt(p.getProperty(GEO_PREGEN_THREADS, GEO_PREGEN_THREADS_DEFAULT));
+    pregenQueueSize = Integer.parseInt(p.getProperty(GEO_PREGEN_QUEUE_SIZE, GEO_PREGEN_QUEUE_SIZE_DEFAULT));
+    boolean dotransactions =
+        Boolean.parseBoolean(p.getProperty(Client.DO_TRANSACTIONS_PROPERTY, String.valueOf(true)));
+    verifyProportion = Double.parseDouble(p.getProperty(GEO_VERIFY_PROPORTION, GEO_VERIFY_PROPORTION_DEFAULT));
+    asyncInFlight = Integer.parseInt(p.getProperty(GEO_ASYNC_INFLIGHT, GEO_ASYNC_INFLIGHT_DEFAULT));
+    boolean targetHits = Integer.parseInt(p.getProperty(GEO_TARGET_HITS, GEO_TARGET_HITS_DEFAULT)) > 0;
+    // derive an auto region from the stored documents once, before the client threads start
+    storedRegion = newGenerator(p).useStoredRegion();
+    if ((targetHits || verifyProportion > 0) && dotransactions) {
+      long start = System.currentTimeMillis();
+      GeoGenerator generator = createGenerator(p);
+      spatialIndex = generator.buildSpatialIndex();
+      System.err.println("Built spatial index over " + spatialIndex.size() + " stored geometries in " +
+          (System.currentTimeMillis() - start) + " ms");
+      if (verifyProportion > 0) {
+        int stored = generator.getStoredDocumentCount();
+        String[] objectIds = new String[stored];
+        String[] docKeys = new String[stored];
+        Geometry[] geometries = new Geometry[stored];
+        Geometries reuse = new Geometries();
+        for (int i = 0; i < stored; i++) {
+          objectIds[i] = generator.getStoredObjectId(i);
+          docKeys[i] = generator.getStoredDocKey(i);
+          Geometry geometry = generator.getStoredGeometry(i, reuse);
+          geometries[i] = geometry == null ? null : geometry.copy();
+        }
+        oracle = new GeoOracle(spatialIndex, geometries, objectIds, docKeys);
+      }
+    }
+    loadBatchSize = Integer.parseInt(p.getProperty(GEO_LOAD_BATCH_SIZE, GEO_LOAD_BATCH_SIZE_DEFAULT));
+    long insertStart = Long.parseLong(p.getProperty(INSERT_START_PROPERTY, INSERT_START_PROPERTY_DEFAULT));
+    sourceLoadEnd = insertStart
+        + Long.parseLong(p.getProperty(INSERT_COUNT_PROPERTY, String.valueOf(recordcount - insertStart)));
+    String loadPath = p.getProperty(GEO_LOAD_FILE, GEO_LOAD_FILE_DEFAULT);
+    if (!loadPath.isEmpty() && !dotransactions) {
+      int threads = Integer.parseInt(p.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+      try {
+        loadFile = new GeoDocumentFile(loadPath, threads);
+      } catch (IOException e) {
+        throw new WorkloadException("Could not open " + GEO_LOAD_FILE + " " + loadPath, e);
+      }
+      System.err.println("Loading " + loadFile.getDocumentCount() + " documents from " + loadPath + " in " +
+          loadFile.getChunkCount() + " chunks");
+      checkLoadOperations(p, threads);
+    }
+    if (pregenThreads > 0 && dotransactions) {
+      List<GeoGenerator> generators = new ArrayList<>();
+      List<DiscreteGenerator> choosers = new ArrayList<>();
+      for (int i = 0; i < pregenThreads; i++) {
+        generators.add(createGenerator(p));
+        choosers.add(createOperationGenerator(p));
+      }
+      pipeline = new PredicatePipeline(generators, choosers);
+    }
+  }
+
+
+  /**
+   * Every insert operation of the load phase sends a batch of the load file, and a thread stops at its share of
+   * insertcount (or recordcount) operations. Fail if that share is too small for the batches of a thread's chunks,
+   * instead of silently leaving documents unloaded.
+   */
+  private void checkLoadOperations(Properties p, int threads) throws
+      WorkloadException {
+    int opcount = Integer.parseInt(p.getProperty(Client.INSERT_COUNT_PROPERTY,
+        p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT)));
+    if (opcount <= 0) {
+      return;
+    }
+    // the client runs no more threads than operations
+    int threadcount = Math.min(threads, opcount);
+    long needed = 0;
+    boolean tooFew = false;
+    for (int thread = 0; thread < threadcount; thread++) {
+      long batches = (loadFile.getDocumentCount(thread, threadcount) + loadBatchSize - 1) / loadBatchSize;
+      int operations = opcount / threadcount + (thread < opcount % threadcount ? 1 : 0);
+      needed = Math.max(needed, batches);
+      tooFew |= batches > operations;
+    }
+    if (tooFew) {
+      throw new WorkloadException(GEO_LOAD_FILE + " needs up to " + needed + " batches of " + loadBatchSize +
+          " documents per thread, but " + opcount + " insert operations over " + threadcount + " threads leave " +
+          "documents unloaded. Set " + Client.INSERT_COUNT_PROPERTY + " to at least " + needed * threadcount +
+          " or 0.");
+    }
+  }
+
+
+  @Override
+  public void cleanupThread(Object threadstate) {
+    GeoGenerator generator = (GeoGenerator) threadstate;
+    generator.flushTokens();
+    reportLeases(generator);
+    PredicateQueue queue = generator.getPredicateQueue();
+    if (queue != null) {
+      Measurements measurements = Measurements.getMeasurements();
+      measurements.count("GEO_PREGEN_HITS", queue.getHits());
+      measurements.count("GEO_PREGEN_STARVED", queue.getStarved());
+    }
+  }
+
+
+  private static void reportLeases(GeoGenerator generator) {
+    if (generator.getLeasedDocIds() > 0) {
+      Measurements measurements = Measurements.getMeasurements();
+      measurements.count("GEO_INSERT_IDS_LEASED", generator.getLeasedDocIds());
+      measurements.count("GEO_INSERT_IDS_UNUSED", generator.getUnusedLeasedDocIds());
+    }
+  }
+
+
+  @Override
+  public void cleanup() throws
+      WorkloadException {
+    if (pipeline != null) {
+      try {
+        for (GeoGenerator generator : pipeline.close()) {
+          reportLeases(generator);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      pipeline = null;
+    }
+    NearCache cache = NearCache.getExistingInstance();
+    if (cache != null) {
+      Measurements measurements = Measurements.getMeasurements();
+      measurements.count("GEO_NEARCACHE_HITS", cache.getHits());
+      measurements.count("GEO_NEARCACHE_MISSES", cache.getMisses());
+      measurements.count("GEO_NEARCACHE_EVICTIONS", cache.getEvictions());
+      NearCache.closeInstance();
+    }
+    try {
+      if (loadFile != null) {
+        loadFile.close();
+        loadFile = null;
+      }
+      OffHeapStore.closeInstance();
+      GeoDatasetFile.closeInstance();
+    } catch (IOException e) {
+      throw new WorkloadException("Could not close the geo storage", e);
+    }
   }
 
 
   @Override
   public boolean doInsert(GeoDB db, Object threadstate) {
-    Status status;
-    status = db.geoLoad(table, (MemcachedGenerator) threadstate, recordCount);
+    GeoGenerator generator = (GeoGenerator) threadstate;
+    if (generator.getDocumentReader() != null) {
+      return doBulkLoad(db, generator);
+    }
+    if (generator.hasDocumentSource()) {
+      return doSourceLoad(db, generator);
+    }
+    Status status = db.geoLoad(table, generator, recordCount);
+    return null != status && status.isOk();
+  }
+
+
+  /**
+   * Insert the next batch of this thread's share of the load file. The first document of every batch is also
+   * stored by the generator, so the transaction phase has real documents to build predicates from.
+   *
+   * @return false once the thread has loaded all of its documents.
+   */
+  private boolean doBulkLoad(GeoDB db, GeoGenerator generator) {
+    GeoDocumentFile.Reader reader = generator.getDocumentReader();
+    List<String> keys = new ArrayList<>(loadBatchSize);
+    List<String> documents = new ArrayList<>(loadBatchSize);
+    while (documents.size() < loadBatchSize && reader.next()) {
+      String document = reader.document();
+      keys.add(generator.documentKey(reader.ordinal(), document));
+      documents.add(document);
+    }
+    if (documents.isEmpty()) {
+      return false;
+    }
+    try {
+      generator.putDocument(keys.get(0), documents.get(0));
+    } catch (Exception e) {
+      System.err.println("Could not store document " + keys.get(0) + ": " + e.getMessage());
+    }
+    Status status = db.geoBulkLoad(table, keys, documents);
+    return null != status && status.isOk();
+  }
+
+
+  /**
+   * Insert the next batch of the documents with the ids insertstart to insertstart + insertcount - 1 of the
+   * synthetic or binary dataset. The threads share the key sequence, so every id is loaded once.
+   *
+   * @return false once all ids are taken.
+   */
+  private boolean doSourceLoad(GeoDB db, GeoGenerator generator) {
+    List<String> keys = new ArrayList<>(loadBatchSize);
+    List<String> documents = new ArrayList<>(loadBatchSize);
+    while (documents.size() < loadBatchSize) {
+      long docId = keysequence.nextValue().longValue();
+      if (docId >= sourceLoadEnd) {
+        break;
+      }
+      String document = generator.getSourceDocument(docId);
+      keys.add(generator.documentKey(docId, document));
+      documents.add(document);
+    }
+    if (documents.isEmpty()) {
+      return false;
+    }
+    Status status = db.geoBulkLoad(table, keys, documents);
     return null != status && status.isOk();
   }
 
 
   @Override
   public boolean doTransaction(GeoDB db, Object threadstate) {
-    String operation = operationchooser.nextString();
+    GeoGenerator generator = (GeoGenerator) threadstate;
+    String operation = nextOperation(generator);
     if (operation == null) {
       return false;
     }
-    MemcachedGenerator generator = (MemcachedGenerator) threadstate;
     System.out.println(operation);
     switch (operation) {
     case "READ":
@@ -204,6 +764,15 @@ public class GeoWorkload extends CoreWorkload {
     case "GEO_INTERSECT":
       doTransactionGeoIntersect(db, generator);
       break;
+    case "GEO_KNN":
+      doTransactionGeoKnn(db, generator);
+      break;
+    case "GEO_COUNT":
+      doTransactionGeoCount(db, generator);
+      break;
+    case "GEO_GRID":
+      doTransactionGeoGrid(db, generator);
+      break;
     case "GEO_SCAN":
       doTransactionGeoScan(db, generator);
       break;
@@ -215,9 +784,85 @@ public class GeoWorkload extends CoreWorkload {
   }
 
 
+  /**
+   * Take the next operation and its pre-built predicate from the thread's queue. If the producers have not caught
+   * up, the operation is drawn here and its predicate is built inline. A predicate an earlier operation did not
+   * take is dropped either way.
+   */
+  private String nextOperation(GeoGenerator generator) {
+    PredicateQueue queue = generator.getPredicateQueue();
+    PredicateQueue.Slot slot = queue == null ? null : queue.poll();
+    generator.usePreparedPredicate(slot == null ? null : slot.getPredicate());
+    if (slot != null) {
+      return slot.getOperation();
+    }
+    return operationchooser.nextString();
+  }
+
+
+  /**
+   * @return the database to issue the operation asynchronously with, or null to run it blocking.
+   */
+  private AsyncGeoDB async(GeoDB db) {
+    if (asyncInFlight > 1 && db instanceof AsyncGeoDB) {
+      return (AsyncGeoDB) db;
+    }
+    return null;
+  }
+
+
+  private boolean startVerification(GeoGenerator generator) {
+    if (oracle == null || ThreadLocalRandom.current().nextDouble() >= verifyProportion) {
+      return false;
+    }
+    generator.startQueryCheck();
+    return true;
+  }
+
+
+  /**
+   * Compare the documents the binding returned with the exact answer of the oracle, reporting the verification
+   * time as VERIFY_GEO_*, and recall, precision and the number of results in percent and documents.
+   */
+  private void verifyGeoQuery(String operation, GeoGenerator generator) {
+    long startTime = System.nanoTime();
+    GeoQueryCheck check = generator.finishQueryCheck();
+    if (!check.isDeclared()) {
+      return;
+    }
+    Set<String> expected = oracle.expected(check);
+    int known = 0;
+    int found = 0;
+    for (String id : check.getResults()) {
+      if (oracle.isKnown(id, check)) {
+        known++;
+        if (expected.contains(id)) {
+          found++;
+        }
+      }
+    }
+    int recall = expected.isEmpty() ? 100 : (int) (100L * found / expected.size());
+    int precision = known == 0 ? 100 : (int) (100L * found / known);
+    Status verifyStatus = recall == 100 && precision == 100 ? Status.OK : Status.UNEXPECTED_STATE;
+    long endTime = System.nanoTime();
+
+    Measurements measurements = Measurements.getMeasurements();
+    measurements.measure("VERIFY_" + operation, (int) ((endTime - startTime) / 1000));
+    measurements.reportStatus("VERIFY_" + operation, verifyStatus);
+    measurements.measure(operation + "_RECALL", recall);
+    measurements.measure(operation + "_PRECISION", precision);
+    measurements.measure(operation + "_RESULTS", check.getResults().size());
+  }
+
+
   public void doTransactionGeoInsert(GeoDB db, GeoGenerator generator) {
     try {
       HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+      AsyncGeoDB async = async(db);
+      if (async != null) {
+        async.geoInsertAsync(table, cells, generator);
+        return;
+      }
       db.geoInsert(table, cells, generator);
     } catch (Exception ex) {
       ex.printStackTrace();
@@ -229,6 +874,11 @@ public class GeoWorkload extends CoreWorkload {
   public void doTransactionGeoUpdate(GeoDB db, GeoGenerator generator) {
     try {
       HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+      AsyncGeoDB async = async(db);
+      if (async != null) {
+        async.geoUpdateAsync(table, cells, generator);
+        return;
+      }
       db.geoUpdate(table, cells, generator);
     } catch (Exception ex) {
       ex.printStackTrace();
@@ -240,7 +890,16 @@ public class GeoWorkload extends CoreWorkload {
   public void doTransactionGeoNear(GeoDB db, GeoGenerator generator) {
     try {
       HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+      boolean verify = startVerification(generator);
+      AsyncGeoDB async = async(db);
+      if (async != null && !verify) {
+        async.geoNearAsync(table, cells, generator);
+        return;
+      }
       db.geoNear(table, cells, generator);
+      if (verify) {
+        verifyGeoQuery("GEO_NEAR", generator);
+      }
     } catch (Exception ex) {
       ex.printStackTrace();
       ex.printStackTrace(System.out);
@@ -251,7 +910,16 @@ public class GeoWorkload extends CoreWorkload {
   public void doTransactionGeoBox(GeoDB db, GeoGenerator generator) {
     try {
       HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+      boolean verify = startVerification(generator);
+      AsyncGeoDB async = async(db);
+      if (async != null && !verify) {
+        async.geoBoxAsync(table, cells, generator);
+        return;
+      }
       db.geoBox(table, cells, generator);
+      if (verify) {
+        verifyGeoQuery("GEO_BOX", generator);
+      }
     } catch (Exception ex) {
       ex.printStackTrace();
       ex.printStackTrace(System.out);
@@ -262,7 +930,61 @@ public class GeoWorkload extends CoreWorkload {
   public void doTransactionGeoIntersect(GeoDB db, GeoGenerator generator) {
     try {
       HashMap<String, ByteIterator> cells = new HashMap<String, ByteIterator>();
+      boolean verify = startVerification(generator);
+      AsyncGeoDB async = async(db);
+      if (async != null && !verify) {
+        async.geoIntersectAsync(table, cells, generator);
+        return;
+      }
       db.geoIntersect(table, cells, generator);
+      if (verify) {
+        verifyGeoQuery("GEO_INTERSECT", generator);
+      }
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      ex.printStackTrace(System.out);
+    }
+  }
+
+
+  public void doTransactionGeoKnn(GeoDB db, GeoGenerator generator) {
+    try {
+      AsyncGeoDB async = async(db);
+      if (async != null) {
+        async.geoKnnAsync(table, new HashMap<String, ByteIterator>(), generator);
+        return;
+      }
+      db.geoKnn(table, new HashMap<String, ByteIterator>(), generator);
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      ex.printStackTrace(System.out);
+    }
+  }
+
+
+  public void doTransactionGeoCount(GeoDB db, GeoGenerator generator) {
+    try {
+      AsyncGeoDB async = async(db);
+      if (async != null) {
+        async.geoCountAsync(table, new HashMap<String, ByteIterator>(), generator);
+        return;
+      }
+      db.geoCount(table, new HashMap<String, ByteIterator>(), generator);
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      ex.printStackTrace(System.out);
+    }
+  }
+
+
+  public void doTransactionGeoGrid(GeoDB db, GeoGenerator generator) {
+    try {
+      AsyncGeoDB async = async(db);
+      if (async != null) {
+        async.geoGridAggregateAsync(table, new HashMap<String, ByteIterator>(), generator);
+        return;
+      }
+      db.geoGridAggregate(table, new HashMap<String, ByteIterator>(), generator);
     } catch (Exception ex) {
       ex.printStackTrace();
       ex.printStackTrace(System.out);
@@ -272,6 +994,11 @@ public class GeoWorkload extends CoreWorkload {
 
   public void doTransactionGeoScan(GeoDB db, GeoGenerator generator) {
     try {
+      AsyncGeoDB async = async(db);
+      if (async != null) {
+        async.geoScanAsync(table, new Vector<HashMap<String, ByteIterator>>(), generator);
+        return;
+      }
       db.geoScan(table, new Vector<HashMap<String, ByteIterator>>(), generator);
     } catch (Exception ex) {
       ex.printStackTrace();
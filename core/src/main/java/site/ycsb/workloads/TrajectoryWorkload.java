@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.workloads;
+
+import site.ycsb.ByteIterator;
+import site.ycsb.Client;
+import site.ycsb.GeoDB;
+import site.ycsb.Status;
+import site.ycsb.WorkloadException;
+import site.ycsb.generator.DiscreteGenerator;
+import site.ycsb.generator.GeoGenerator;
+import site.ycsb.generator.TrajectoryTable;
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Point;
+import site.ycsb.measurements.Measurements;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A moving-objects workload, modelled on fleet, telematics and ride-hailing traffic.
+ * <p>
+ * The load phase inserts <code>trajectory_entities</code> point features, one per entity, with the entity id as
+ * OBJECTID. In the transaction phase every client thread owns a shard of the {@link TrajectoryTable} and either
+ * moves the entity whose update is due first (GEO_MOVE) by the distance it travelled since its last update, or asks
+ * who is near one of its entities right now (GEO_NEAR around the current position, within
+ * <code>trajectory_near_radius</code> meters).
+ * <p>
+ * Every entity has its own update interval around <code>trajectory_update_interval</code>. With
+ * <code>trajectory_paced</code> a thread waits until the next update of its shard is due, so the write rate follows
+ * the entity frequencies; otherwise it moves entities as fast as the database allows. GEO_MOVE_LAG reports how late
+ * the updates were, in microseconds.
+ */
+public class TrajectoryWorkload extends GeoWorkload {
+
+  public static final String TRAJECTORY_ENTITIES = "trajectory_entities";
+  public static final String TRAJECTORY_ENTITIES_DEFAULT = "10000";
+  /**
+   * The bounding region of the entities as minX,minY,maxX,maxY in degrees.
+   */
+  public static final String TRAJECTORY_REGION = "trajectory_region";
+  public static final String TRAJECTORY_REGION_DEFAULT = "-112,33,-111,34";
+  /**
+   * The mean speed of an entity in meters per second. Each entity moves at 0.5 to 1.5 times of it.
+   */
+  public static final String TRAJECTORY_SPEED = "trajectory_speed";
+  public static final String TRAJECTORY_SPEED_DEFAULT = "10";
+  /**
+   * The mean time between two updates of an entity in milliseconds. Each entity uses 0.5 to 1.5 times of it.
+   */
+  public static final String TRAJECTORY_UPDATE_INTERVAL = "trajectory_update_interval";
+  public static final String TRAJECTORY_UPDATE_INTERVAL_DEFAULT = "1000";
+  /**
+   * The standard deviation of the change of heading per update in radians.
+   */
+  public static final String TRAJECTORY_TURN = "trajectory_turn";
+  public static final String TRAJECTORY_TURN_DEFAULT = "0.3";
+  public static final String TRAJECTORY_MOVE_PROPORTION = "trajectory_move";
+  public static final String TRAJECTORY_MOVE_PROPORTION_DEFAULT = "0.9";
+  public static final String TRAJECTORY_NEAR_PROPORTION = "trajectory_near";
+  public static final String TRAJECTORY_NEAR_PROPORTION_DEFAULT = "0.1";
+  public static final String TRAJECTORY_NEAR_RADIUS = "trajectory_near_radius";
+  public static final String TRAJECTORY_NEAR_RADIUS_DEFAULT = "500";
+  /**
+   * Wait until the next update of a thread's entities is due instead of moving them back to back.
+   */
+  public static final String TRAJECTORY_PACED = "trajectory_paced";
+  public static final String TRAJECTORY_PACED_DEFAULT = "true";
+
+  private TrajectoryTable trajectories;
+  private DiscreteGenerator trajectoryChooser;
+  private final AtomicLong loadCursor = new AtomicLong();
+  private int entityBatchSize;
+  private int threadCount;
+  private double nearRadius;
+  private boolean paced;
+
+  @Override
+  public void init(Properties p) throws
+      WorkloadException {
+    super.init(p);
+    long entities = Long.parseLong(p.getProperty(TRAJECTORY_ENTITIES, TRAJECTORY_ENTITIES_DEFAULT));
+    threadCount = Integer.parseInt(p.getProperty(Client.THREAD_COUNT_PROPERTY, "1"));
+    if (entities < threadCount) {
+      throw new WorkloadException(TRAJECTORY_ENTITIES + " must be at least the number of threads");
+    }
+    String[] bounds = p.getProperty(TRAJECTORY_REGION, TRAJECTORY_REGION_DEFAULT).split(",");
+    if (bounds.length != 4) {
+      throw new WorkloadException(TRAJECTORY_REGION + " must be minX,minY,maxX,maxY");
+    }
+    double[] region = new double[4];
+    for (int i = 0; i < 4; i++) {
+      region[i] = Double.parseDouble(bounds[i].trim());
+    }
+    try {
+      trajectories = new TrajectoryTable(p, entities, region);
+    } catch (IllegalArgumentException e) {
+      throw new WorkloadException(e.getMessage(), e);
+    }
+    entityBatchSize = Integer.parseInt(p.getProperty(GEO_LOAD_BATCH_SIZE, GEO_LOAD_BATCH_SIZE_DEFAULT));
+    nearRadius = Double.parseDouble(p.getProperty(TRAJECTORY_NEAR_RADIUS, TRAJECTORY_NEAR_RADIUS_DEFAULT));
+    paced = Boolean.parseBoolean(p.getProperty(TRAJECTORY_PACED, TRAJECTORY_PACED_DEFAULT));
+
+    trajectoryChooser = new DiscreteGenerator();
+    double move = Double.parseDouble(p.getProperty(TRAJECTORY_MOVE_PROPORTION, TRAJECTORY_MOVE_PROPORTION_DEFAULT));
+    double near = Double.parseDouble(p.getProperty(TRAJECTORY_NEAR_PROPORTION, TRAJECTORY_NEAR_PROPORTION_DEFAULT));
+    if (move > 0) {
+      trajectoryChooser.addValue(move, "GEO_MOVE");
+    }
+    if (near > 0) {
+      trajectoryChooser.addValue(near, "GEO_NEAR");
+    }
+  }
+
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws
+      WorkloadException {
+    GeoGenerator generator = (GeoGenerator) super.initThread(p, mythreadid, threadcount);
+    generator.setTrajectoryShard(trajectories.shard(mythreadid, threadCount, System.nanoTime()));
+    return generator;
+  }
+
+
+  /**
+   * Insert the next batch of entities at their start positions.
+   *
+   * @return false once all entities are loaded.
+   */
+  @Override
+  public boolean doInsert(GeoDB db, Object threadstate) {
+    long first = loadCursor.getAndAdd(entityBatchSize);
+    long end = Math.min(first + entityBatchSize, trajectories.getEntityCount());
+    if (first >= end) {
+      return false;
+    }
+    List<String> keys = new ArrayList<>((int) (end - first));
+    List<String> documents = new ArrayList<>((int) (end - first));
+    Random random = new Random();
+    double[] position = new double[2];
+    Point point = new Point();
+    StringBuilder document = new StringBuilder();
+    for (long entity = first; entity < end; entity++) {
+      trajectories.startPosition(entity, random, position);
+      document.setLength(0);
+      document.append("{\"type\":\"Feature\",\"properties\":{\"OBJECTID\":").append(entity)
+          .append(",\"ENTITY\":\"E").append(entity).append("\"},\"geometry\":");
+      GeoJson.append(document, point.set(position[0], position[1])).append('}');
+      keys.add(GeoGenerator.GEO_DOCUMENT_PREFIX_COLLECTION + GeoGenerator.GEO_SYSTEMFIELD_DELIMITER + entity);
+      documents.add(document.toString());
+    }
+    Status status = db.geoBulkLoad(table, keys, documents);
+    return null != status && status.isOk();
+  }
+
+
+  @Override
+  public boolean doTransaction(GeoDB db, Object threadstate) {
+    GeoGenerator generator = (GeoGenerator) threadstate;
+    String operation = trajectoryChooser.nextString();
+    if (operation == null) {
+      return false;
+    }
+    if (operation.equals("GEO_MOVE")) {
+      doTransactionGeoMove(db, generator);
+    } else {
+      doTransactionGeoNearMe(db, generator);
+    }
+    return true;
+  }
+
+
+  /**
+   * Move the entity of the thread's shard whose update is due first.
+   */
+  public void doTransactionGeoMove(GeoDB db, GeoGenerator generator) {
+    TrajectoryTable.Shard shard = generator.getTrajectoryShard();
+    long due = shard.nextDue();
+    long now = System.nanoTime();
+    if (paced && due > now) {
+      while (due > now && !isStopRequested()) {
+        LockSupport.parkNanos(due - now);
+        now = System.nanoTime();
+      }
+    }
+    if (now > due) {
+      Measurements.getMeasurements().measure("GEO_MOVE_LAG", (int) Math.min(Integer.MAX_VALUE, (now - due) / 1000));
+    }
+    int entity = shard.move(now);
+    generator.buildGeoMovePredicate(shard.entity(entity), shard.getX(entity), shard.getY(entity));
+    try {
+      db.geoMove(table, generator);
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      ex.printStackTrace(System.out);
+    }
+  }
+
+
+  /**
+   * Find the entities near the current position of a random entity of the thread's shard.
+   */
+  public void doTransactionGeoNearMe(GeoDB db, GeoGenerator generator) {
+    TrajectoryTable.Shard shard = generator.getTrajectoryShard();
+    int entity = shard.randomEntity(ThreadLocalRandom.current());
+    generator.prepareNearPredicate(shard.getX(entity), shard.getY(entity), nearRadius);
+    try {
+      db.geoNear(table, new HashMap<String, ByteIterator>(), generator);
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      ex.printStackTrace(System.out);
+    }
+  }
+}
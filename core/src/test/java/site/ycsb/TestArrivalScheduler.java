@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestArrivalScheduler {
+
+  @Test
+  public void noneKeepsPerThreadPacing() throws Exception {
+    assertNull(ArrivalScheduler.create(new Properties()));
+  }
+
+  @Test
+  public void constantArrivalsAreEvenlySpaced() {
+    ArrivalScheduler arrivals = new ArrivalScheduler(ArrivalScheduler.Process.CONSTANT, 1000);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(arrivals.nextOffset(), i * 1000000L);
+    }
+  }
+
+  @Test
+  public void poissonArrivalsHaveTheTargetRate() {
+    ArrivalScheduler arrivals = new ArrivalScheduler(ArrivalScheduler.Process.POISSON, 1000);
+    int count = 100000;
+    long previous = 0;
+    for (int i = 0; i < count; i++) {
+      long offset = arrivals.nextOffset();
+      assertTrue(offset >= previous);
+      previous = offset;
+    }
+    double meanGap = (double) previous / count;
+    assertTrue(Math.abs(meanGap - 1000000) < 20000, "mean gap " + meanGap);
+  }
+
+  @Test
+  public void traceIsReplayedAndRepeated() {
+    ArrivalScheduler arrivals = new ArrivalScheduler(new long[]{100, 110, 130});
+    long[] expected = {0, 10000, 30000, 45000, 55000, 75000};
+    for (long offset : expected) {
+      assertEquals(arrivals.nextOffset(), offset);
+    }
+  }
+
+  @Test
+  public void rateChangeRestartsTheTimelineFromNow() {
+    ArrivalScheduler arrivals = new ArrivalScheduler(ArrivalScheduler.Process.CONSTANT, 1000);
+    long first = arrivals.next();
+    for (int i = 0; i < 1000; i++) {
+      arrivals.next();
+    }
+    arrivals.setRate(10);
+    long now = System.nanoTime();
+    long restart = arrivals.next();
+    // the 999 arrivals of the old rate ahead of now are dropped
+    assertTrue(restart <= now && restart > first);
+    assertEquals(arrivals.next() - restart, 100000000L);
+    assertEquals(arrivals.getRate(), 10.0, 0.001);
+  }
+
+  @Test
+  public void concurrentClaimsAreDistinct() throws Exception {
+    final ArrivalScheduler arrivals = new ArrivalScheduler(ArrivalScheduler.Process.POISSON, 1000000);
+    final Set<Long> claimed = ConcurrentHashMap.newKeySet();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          for (int i = 0; i < 10000; i++) {
+            claimed.add(arrivals.nextOffset());
+          }
+        }
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    // a zero gap repeats an offset, which is unlikely at a mean gap of a microsecond
+    assertTrue(claimed.size() > 39900, "claimed " + claimed.size());
+  }
+
+  @Test
+  public void processNeedsATarget() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(ArrivalScheduler.ARRIVAL_PROCESS_PROPERTY, "poisson");
+    try {
+      ArrivalScheduler.create(p);
+      fail("poisson without a target");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    p.setProperty(Client.TARGET_PROPERTY, "500");
+    assertEquals(ArrivalScheduler.create(p).getProcess(), ArrivalScheduler.Process.POISSON);
+    p.setProperty(ArrivalScheduler.ARRIVAL_PROCESS_PROPERTY, "bursty");
+    try {
+      ArrivalScheduler.create(p);
+      fail("unknown process");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
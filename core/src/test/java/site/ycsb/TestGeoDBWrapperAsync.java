@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.apache.htrace.core.HTraceConfiguration;
+import org.apache.htrace.core.Tracer;
+import org.testng.annotations.Test;
+import site.ycsb.generator.GeoGenerator;
+import site.ycsb.measurements.Measurements;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestGeoDBWrapperAsync {
+
+  /**
+   * Completes its scans only when the test says so.
+   */
+  private static final class PendingGeoDB extends AsyncGeoDB {
+    private final List<CompletableFuture<Status>> pending = new ArrayList<>();
+
+    @Override
+    public synchronized CompletableFuture<Status> geoScanAsync(String table,
+                                                               Vector<HashMap<String, ByteIterator>> result,
+                                                               GeoGenerator gen) {
+      CompletableFuture<Status> future = new CompletableFuture<>();
+      pending.add(future);
+      return future;
+    }
+
+    synchronized CompletableFuture<Status> get(int index) {
+      return pending.get(index);
+    }
+
+    @Override
+    public Status read(String table, String key, Set<String> fields, Map<String, ByteIterator> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status scan(String table, String startkey, int recordcount, Set<String> fields,
+                       Vector<HashMap<String, ByteIterator>> result) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status update(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status insert(String table, String key, Map<String, ByteIterator> values) {
+      return Status.OK;
+    }
+
+    @Override
+    public Status delete(String table, String key) {
+      return Status.OK;
+    }
+  }
+
+  private static GeoDBWrapper wrap(GeoDB db, int inFlight) throws DBException {
+    Measurements.setProperties(new Properties());
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_ASYNC_INFLIGHT, String.valueOf(inFlight));
+    db.setProperties(p);
+    GeoDBWrapper wrapper = new GeoDBWrapper(db, new Tracer.Builder("test").conf(HTraceConfiguration.EMPTY).build());
+    wrapper.init();
+    return wrapper;
+  }
+
+  @Test
+  public void windowLimitsOperationsInFlight() throws Exception {
+    PendingGeoDB db = new PendingGeoDB();
+    final GeoDBWrapper wrapper = wrap(db, 2);
+    CompletableFuture<Status> first = wrapper.geoScanAsync("t", new Vector<HashMap<String, ByteIterator>>(), null);
+    wrapper.geoScanAsync("t", new Vector<HashMap<String, ByteIterator>>(), null);
+
+    final CompletableFuture<CompletableFuture<Status>> third = new CompletableFuture<>();
+    Thread submitter = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        third.complete(wrapper.geoScanAsync("t", new Vector<HashMap<String, ByteIterator>>(), null));
+      }
+    });
+    submitter.start();
+    submitter.join(200);
+    assertFalse(third.isDone());
+
+    db.get(0).complete(Status.OK);
+    assertEquals(first.get(), Status.OK);
+    third.get(5, TimeUnit.SECONDS);
+    db.get(1).completeExceptionally(new IllegalStateException("connection lost"));
+    db.get(2).complete(Status.NOT_FOUND);
+    assertEquals(third.get().get(), Status.NOT_FOUND);
+    wrapper.cleanup();
+  }
+
+  @Test
+  public void failuresCompleteWithError() throws Exception {
+    PendingGeoDB db = new PendingGeoDB();
+    GeoDBWrapper wrapper = wrap(db, 4);
+    CompletableFuture<Status> scan = wrapper.geoScanAsync("t", new Vector<HashMap<String, ByteIterator>>(), null);
+    db.get(0).completeExceptionally(new IllegalStateException("connection lost"));
+    assertEquals(scan.get(), Status.ERROR);
+    assertTrue(scan.isDone());
+    wrapper.cleanup();
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import site.ycsb.measurements.Measurements;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestPhaseController {
+
+  @Test
+  public void phasesTakeTheirDefaultsFromTheRun() {
+    Properties p = new Properties();
+    p.setProperty(PhaseController.PHASES_PROPERTY, "warmup, ramp, steady");
+    p.setProperty(Client.TARGET_PROPERTY, "200");
+    p.setProperty(Client.THREAD_COUNT_PROPERTY, "4");
+    p.setProperty("phase.warmup.duration", "30");
+    p.setProperty("phase.ramp.duration", "10");
+    p.setProperty("phase.ramp.target", "1000");
+    p.setProperty("phase.steady.duration", "0.5");
+    p.setProperty("phase.steady.threads", "8");
+    List<PhaseController.Phase> phases = PhaseController.parsePhases(p);
+    assertEquals(phases.size(), 3);
+    assertFalse(phases.get(0).isMeasured());
+    assertFalse(phases.get(0).isRamp());
+    assertEquals(phases.get(0).getTarget(), 200.0);
+    assertEquals(phases.get(0).getThreads(), 4);
+    assertTrue(phases.get(1).isRamp());
+    assertTrue(phases.get(1).isMeasured());
+    assertEquals(phases.get(2).getDurationMs(), 500);
+    assertEquals(new PhaseController(p, null, null).getMaxThreads(), 8);
+  }
+
+  @Test
+  public void onlyLeadingPhasesCanBeDiscarded() {
+    Properties p = new Properties();
+    p.setProperty(PhaseController.PHASES_PROPERTY, "steady,cooldown");
+    p.setProperty("phase.steady.duration", "10");
+    p.setProperty("phase.cooldown.duration", "10");
+    p.setProperty("phase.cooldown.measure", "false");
+    try {
+      PhaseController.parsePhases(p);
+      fail("discarded phase after a measured one");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    p.remove("phase.cooldown.duration");
+    p.remove("phase.cooldown.measure");
+    try {
+      PhaseController.parsePhases(p);
+      fail("phase without a duration");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void threadsWaitForTheirPhase() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(PhaseController.PHASES_PROPERTY, "warmup,steady");
+    p.setProperty("phase.warmup.duration", "0.2");
+    p.setProperty("phase.warmup.threads", "1");
+    p.setProperty("phase.steady.duration", "0.2");
+    p.setProperty("phase.steady.threads", "2");
+    Measurements.setProperties(p);
+    final Workload workload = new Workload() {
+      @Override
+      public boolean doInsert(GeoDB db, Object threadstate) {
+        return true;
+      }
+
+      @Override
+      public boolean doTransaction(GeoDB db, Object threadstate) {
+        return true;
+      }
+    };
+    final PhaseController controller = new PhaseController(p, PhaseController.createArrivals(p), workload);
+    final AtomicLong turn = new AtomicLong();
+    Thread second = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        controller.awaitTurn(1);
+        turn.set(System.nanoTime());
+      }
+    });
+    long start = System.nanoTime();
+    controller.start();
+    second.start();
+    second.join(5000);
+    assertTrue(turn.get() - start >= 150000000L, "second thread ran during the warmup");
+    controller.join(5000);
+    assertTrue(workload.isStopRequested());
+  }
+}
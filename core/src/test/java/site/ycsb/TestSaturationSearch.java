@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.HdrHistogram.Histogram;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestSaturationSearch {
+
+  @Test
+  public void objectivesAreParsed() {
+    Properties p = new Properties();
+    p.setProperty("slo.GEO_NEAR.p99", "20ms");
+    p.setProperty("slo.GEO_NEAR.p999", "1.5s");
+    p.setProperty("slo.GEO_BOX.p50", "800");
+    Map<String, SaturationSearch.Objective> byKey = new HashMap<>();
+    for (SaturationSearch.Objective objective : SaturationSearch.parseObjectives(p)) {
+      byKey.put(objective.getOperation() + "@" + objective.getPercentile(), objective);
+    }
+    assertEquals(byKey.size(), 3);
+    assertEquals(byKey.get("GEO_NEAR@99.0").getLimitMicros(), 20000);
+    assertEquals(byKey.get("GEO_NEAR@99.9").getLimitMicros(), 1500000);
+    assertEquals(byKey.get("GEO_BOX@50.0").getLimitMicros(), 800);
+  }
+
+  @Test
+  public void p100IsTheMaximum() {
+    Properties p = new Properties();
+    p.setProperty("slo.GEO_NEAR.p100", "50ms");
+    assertEquals(SaturationSearch.parseObjectives(p).get(0).getPercentile(), 100.0);
+  }
+
+  @Test
+  public void unreadableObjectiveIsRejected() {
+    Properties p = new Properties();
+    p.setProperty("slo.GEO_NEAR.99th", "20ms");
+    try {
+      SaturationSearch.parseObjectives(p);
+      fail("objective without a percentile");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void linearSearchFindsTheKneeOfEveryOperation() {
+    Properties p = props("linear");
+    SaturationSearch search = new SaturationSearch(p, null, null);
+    run(search);
+    List<SaturationSearch.Step> steps = search.getSteps();
+    // GEO_BOX misses from 600, GEO_NEAR from 1100 ops/sec
+    assertEquals(steps.get(steps.size() - 1).getRate(), 1100.0);
+    assertEquals(search.getMaxRate(), 500.0);
+  }
+
+  @Test
+  public void binarySearchConvergesWithinTheStep() {
+    Properties p = props("binary");
+    p.setProperty(SaturationSearch.MAX_PROPERTY, "5000");
+    p.remove("slo.GEO_BOX.p99");
+    SaturationSearch search = new SaturationSearch(p, null, null);
+    run(search);
+    assertTrue(search.getSteps().size() < 10, "steps " + search.getSteps().size());
+    assertTrue(search.getMaxRate() <= 1052 && search.getMaxRate() >= 952, "max " + search.getMaxRate());
+  }
+
+  @Test
+  public void binarySearchNeedsAMaximum() {
+    try {
+      new SaturationSearch(props("binary"), null, null);
+      fail("binary search without a maximum");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private static Properties props(String search) {
+    Properties p = new Properties();
+    p.setProperty(SaturationSearch.SATURATION_SEARCH_PROPERTY, search);
+    p.setProperty("slo.GEO_NEAR.p99", "20ms");
+    p.setProperty("slo.GEO_BOX.p99", "10ms");
+    return p;
+  }
+
+  /**
+   * Hold the rates of the search against a database whose latency is 19us per op/sec.
+   */
+  private static void run(SaturationSearch search) {
+    double rate = 100;
+    while (rate > 0) {
+      Histogram window = new Histogram(3);
+      window.recordValueWithCount((long) (rate * 19), 100);
+      Map<String, Histogram> windows = new HashMap<>();
+      windows.put("GEO_NEAR", window);
+      windows.put("GEO_BOX", window);
+      search.getSteps().add(search.evaluate(rate, windows, 1));
+      rate = search.nextRate();
+    }
+  }
+}
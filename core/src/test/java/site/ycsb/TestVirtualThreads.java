@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb;
+
+import org.testng.annotations.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class TestVirtualThreads {
+
+  @Test
+  public void supportFollowsTheRuntime() {
+    boolean java21 = Integer.parseInt(System.getProperty("java.specification.version").replaceFirst("^1\\.", ""))
+        >= 21;
+    assertTrue(VirtualThreads.isSupported() == java21);
+    assertTrue(VirtualThreads.featureVersion() >= 21 == java21);
+  }
+
+  @Test
+  public void virtualThreadRunsTheTaskOnceStarted() throws Exception {
+    if (!VirtualThreads.isSupported()) {
+      return;
+    }
+    final AtomicBoolean ran = new AtomicBoolean();
+    Thread thread = VirtualThreads.newThread(new Runnable() {
+      @Override
+      public void run() {
+        ran.set(true);
+      }
+    });
+    assertFalse(thread.isAlive());
+    thread.start();
+    thread.join();
+    assertTrue(ran.get());
+    assertTrue(thread.isDaemon());
+  }
+
+  @Test
+  public void unsupportedRuntimeIsRejected() {
+    if (VirtualThreads.isSupported()) {
+      return;
+    }
+    try {
+      VirtualThreads.newThread(new Runnable() {
+        @Override
+        public void run() {
+        }
+      });
+      fail("Created a virtual thread on Java " + System.getProperty("java.version"));
+    } catch (IllegalStateException expected) {
+      // the client falls back to platform threads
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestDocumentTokenizer {
+
+  private static final String DOCUMENT = "{\"_id\":{\"$oid\":\"5f1\"},\"type\":\"Feature\","
+      + "\"properties\":{\"OBJECTID\":\"42\",\"LOCATION\":\"Main St\",\"TAG_COUNT\":3.7,\"SQ_FT\":null,"
+      + "\"extra\":{\"a\":[1,2,{\"b\":3}]}},"
+      + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[-111.92,33.41]}}";
+
+  @Test
+  public void defaultFieldsAreExtracted() {
+    DocumentTokenizer tokenizer = new DocumentTokenizer(GeoWorkload.GEO_TOKEN_FIELDS_DEFAULT);
+    Map<String, String> tokens = new HashMap<>();
+    tokenizer.tokenize(DOCUMENT, tokens);
+
+    assertEquals(tokens.size(), 14);
+    assertEquals(tokens.get("_id"), "{\"$oid\":\"5f1\"}");
+    assertEquals(tokens.get("type"), "Feature");
+    assertEquals(tokens.get("properties:::OBJECTID"), "42");
+    assertEquals(tokens.get("properties:::LOCATION"), "Main St");
+    assertEquals(tokens.get("properties:::TAG_COUNT"), "3");
+    assertNull(tokens.get("properties:::SQ_FT"));
+    assertNull(tokens.get("properties:::Waiver"));
+    assertTrue(tokens.containsKey("properties:::Waiver"));
+    assertEquals(tokens.get("geometry:::type"), "Point");
+    assertEquals(tokens.get("geometry:::coordinates"), "-111,33");
+  }
+
+  @Test
+  public void nestedCoordinatesHaveNoPosition() {
+    DocumentTokenizer tokenizer = new DocumentTokenizer("geometry.coordinates:position,geometry.type");
+    Map<String, String> tokens = new HashMap<>();
+    tokenizer.tokenize("{\"geometry\":{\"coordinates\":[[1,2],[3,4]],\"type\":\"LineString\"}}", tokens);
+    assertNull(tokens.get("geometry:::coordinates"));
+    assertEquals(tokens.get("geometry:::type"), "LineString");
+  }
+
+  @Test
+  public void deepPathsAndStaleValuesAreCleared() {
+    DocumentTokenizer tokenizer = new DocumentTokenizer("a.b.c:int, a.d");
+    Map<String, String> tokens = new HashMap<>();
+    tokenizer.tokenize("{\"a\":{\"d\":{\"x\":1},\"b\":{\"c\":7}}}", tokens);
+    assertEquals(tokens.get("a:::b:::c"), "7");
+    assertNull(tokens.get("a:::d"));
+
+    tokenizer.tokenize("{\"a\":{\"b\":5}}", tokens);
+    assertNull(tokens.get("a:::b:::c"));
+    assertEquals(tokens.size(), 2);
+  }
+
+  @Test
+  public void malformedDocumentKeepsParsedTokens() {
+    DocumentTokenizer tokenizer = new DocumentTokenizer("type,geometry.type");
+    Map<String, String> tokens = new HashMap<>();
+    tokenizer.tokenize("{\"type\":\"Feature\",\"geometry\":{\"type\":", tokens);
+    assertEquals(tokens.get("type"), "Feature");
+    assertNull(tokens.get("geometry:::type"));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void duplicateFieldIsRejected() {
+    new DocumentTokenizer("type,type:int");
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestGeoDatasetFile {
+
+  private static File write(List<String> documents) throws Exception {
+    File json = File.createTempFile("geodataset", ".json");
+    json.deleteOnExit();
+    try (Writer out = new OutputStreamWriter(new FileOutputStream(json), StandardCharsets.UTF_8)) {
+      for (String document : documents) {
+        out.write(document);
+        out.write('\n');
+      }
+    }
+    File dataset = File.createTempFile("geodataset", ".geods");
+    dataset.deleteOnExit();
+    assertEquals(GeoDatasetFile.write(json.getPath(), dataset.getPath()), documents.size());
+    return dataset;
+  }
+
+  @Test
+  public void geometriesAndDocumentsSurviveTheRoundTrip() throws Exception {
+    List<String> documents = new ArrayList<>();
+    documents.add("{\"type\":\"Feature\",\"properties\":{\"OBJECTID\":\"a-1\"},\"geometry\":" +
+        "{\"type\":\"MultiLineString\",\"coordinates\":[[[1.0,2.0],[3.0,4.0]],[[5.0,6.0],[7.0,8.0],[9.0,1.0]]]}}");
+    documents.add("{\"type\":\"Feature\",\"properties\":{\"NAME\":\"hole\"},\"geometry\":" +
+        "{\"type\":\"Polygon\",\"coordinates\":[[[0.0,0.0],[4.0,0.0],[4.0,4.0],[0.0,4.0],[0.0,0.0]]," +
+        "[[1.0,1.0],[1.0,2.0],[2.0,2.0],[1.0,1.0]]]}}");
+    documents.add("{\"type\":\"Feature\",\"properties\":{\"OBJECTID\":7},\"geometry\":" +
+        "{\"type\":\"MultiPolygon\",\"coordinates\":[[[[0.0,0.0],[1.0,0.0],[1.0,1.0],[0.0,0.0]]]," +
+        "[[[5.0,5.0],[6.0,5.0],[6.0,6.0],[5.0,5.0]],[[5.2,5.1],[5.8,5.1],[5.8,5.7],[5.2,5.1]]]]}}");
+    documents.add("{\"type\":\"Feature\",\"properties\":{\"OBJECTID\":8},\"geometry\":null}");
+
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.RECORD_COUNT, "200");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_LINES, "1");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_POLYGONS, "1");
+    SyntheticGeoSource synthetic = new SyntheticGeoSource(p);
+    for (int i = 0; i < 200; i++) {
+      documents.add(synthetic.document(i));
+    }
+
+    try (GeoDatasetFile dataset = new GeoDatasetFile(write(documents).getPath())) {
+      assertEquals(dataset.getDocumentCount(), documents.size());
+      Geometries expected = new Geometries();
+      Geometries actual = new Geometries();
+      for (int i = 0; i < documents.size(); i++) {
+        assertEquals(dataset.document(i), documents.get(i));
+        if (i == 3) {
+          assertNull(dataset.geometry(i, actual));
+        } else {
+          assertEquals(GeoJson.toString(dataset.geometry(i, actual)),
+              GeoJson.toString(GeoJson.readFeatureGeometry(documents.get(i), expected)));
+        }
+      }
+      assertEquals(dataset.objectId(0), "a-1");
+      assertNull(dataset.objectId(1));
+      assertEquals(dataset.objectId(2), "7");
+      assertEquals(dataset.objectId(4 + 17), "17");
+      // ids beyond the dataset wrap around
+      assertEquals(dataset.document(documents.size() + 2), documents.get(2));
+
+      double[] region = new double[4];
+      dataset.region(region);
+      assertEquals(region[1], 0.0);
+      assertEquals(region[2], 9.0);
+      assertTrue(region[0] >= -112 && region[0] < -111);
+    }
+  }
+
+  @Test
+  public void valuesSpanningSegmentsAreRead() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.RECORD_COUNT, "50");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_POLYGONS, "1");
+    SyntheticGeoSource synthetic = new SyntheticGeoSource(p);
+    List<String> documents = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      documents.add(synthetic.document(i));
+    }
+    String path = write(documents).getPath();
+    // 32 byte segments put many of the unaligned blob length headers across a segment end
+    try (GeoDatasetFile whole = new GeoDatasetFile(path); GeoDatasetFile split = new GeoDatasetFile(path, 5)) {
+      Geometries expected = new Geometries();
+      Geometries actual = new Geometries();
+      for (int i = 0; i < documents.size(); i++) {
+        assertEquals(split.document(i), documents.get(i));
+        assertEquals(split.objectId(i), whole.objectId(i));
+        assertEquals(GeoJson.toString(split.geometry(i, actual)), GeoJson.toString(whole.geometry(i, expected)));
+      }
+    }
+  }
+
+  @Test
+  public void onlyPropertiesAreStoredBesideTheCoordinates() throws Exception {
+    List<String> documents = new ArrayList<>();
+    documents.add("{ \"type\": \"Feature\", \"id\": 3, \"geometry\": { \"type\": \"Point\", "
+        + "\"coordinates\": [1.5, 2.5] }, \"properties\": { \"OBJECTID\": 3, \"NOTE\": \"a \\\"}\\\" b\" } }");
+    File file = write(documents);
+    try (GeoDatasetFile dataset = new GeoDatasetFile(file.getPath())) {
+      assertEquals(dataset.document(0), "{\"type\":\"Feature\",\"properties\":"
+          + "{ \"OBJECTID\": 3, \"NOTE\": \"a \\\"}\\\" b\" },"
+          + "\"geometry\":{\"type\":\"Point\",\"coordinates\":[1.5,2.5]}}");
+      assertEquals(dataset.objectId(0), "3");
+    }
+    assertTrue(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).indexOf("coordinates") < 0);
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void emptyInputIsRejected() throws Exception {
+    write(new ArrayList<String>());
+  }
+}
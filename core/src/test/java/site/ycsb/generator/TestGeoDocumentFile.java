@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+
+public class TestGeoDocumentFile {
+
+  private static String feature(int i) {
+    return "{\"type\":\"Feature\",\"properties\":{\"OBJECTID\":" + i + ",\"NAME\":\"straße " + i +
+        "\"},\"geometry\":{\"type\":\"Point\",\"coordinates\":[-111.5,33.5]}}";
+  }
+
+  private static File featureCollection(int documents) throws Exception {
+    File file = File.createTempFile("geodocuments", ".json");
+    file.deleteOnExit();
+    try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+      out.write("{\r\n\"type\": \"FeatureCollection\",\r\n\"features\": [\r\n");
+      for (int i = 0; i < documents; i++) {
+        out.write(feature(i));
+        out.write(i < documents - 1 ? ",\r\n" : "\r\n");
+      }
+      out.write("]\r\n}\r\n");
+    }
+    return file;
+  }
+
+  @Test
+  public void readersShareTheDocumentsOnce() throws Exception {
+    File file = featureCollection(1000);
+    for (int threads : new int[]{1, 3, 8, 64}) {
+      try (GeoDocumentFile documents = new GeoDocumentFile(file.getPath(), threads)) {
+        assertEquals(documents.getDocumentCount(), 1000);
+        Map<Long, String> read = new TreeMap<>();
+        for (int t = 0; t < threads; t++) {
+          GeoDocumentFile.Reader reader = documents.reader(t, threads);
+          int before = read.size();
+          while (reader.next()) {
+            assertNull(read.put(reader.ordinal(), reader.document()));
+          }
+          assertFalse(reader.next());
+          assertEquals(documents.getDocumentCount(t, threads), read.size() - before);
+        }
+        assertEquals(read.size(), 1000);
+        for (int i = 0; i < 1000; i++) {
+          assertEquals(read.get((long) i), feature(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void emptyFileHasNoDocuments() throws Exception {
+    File file = File.createTempFile("geodocuments", ".json");
+    file.deleteOnExit();
+    try (GeoDocumentFile documents = new GeoDocumentFile(file.getPath(), 4)) {
+      assertEquals(documents.getDocumentCount(), 0);
+      assertFalse(documents.reader(0, 4).next());
+    }
+  }
+}
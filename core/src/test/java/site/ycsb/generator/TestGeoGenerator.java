@@ -0,0 +1,327 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.RTree;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestGeoGenerator {
+
+  private static final String POINT = "{\"type\": \"Point\", \"coordinates\": [-111.5, 33.5]}";
+  private static final String LINE = "{\"type\": \"LineString\", \"coordinates\": [[-111.5, 33.5], [-111.4, 33.6]]}";
+
+  private static GeoGenerator newGenerator(OffHeapStore store, Properties p) {
+    return new EmbeddedGenerator(p, store, "100");
+  }
+
+  /**
+   * A store seeded with one feature per geometry, given as GeoJSON, with the OBJECTIDs 0, 1, ...
+   */
+  static OffHeapStore seededStore(String... geometries) throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 1 << 16);
+    GeoGenerator seeder = new EmbeddedGenerator(new Properties(), store, String.valueOf(geometries.length));
+    for (int i = 0; i < geometries.length; i++) {
+      seeder.putDocument("doc" + i, "{\"type\": \"Feature\", \"properties\": {\"OBJECTID\": " + i + "}, "
+          + "\"geometry\": " + geometries[i] + "}");
+    }
+    return store;
+  }
+
+  /**
+   * A generator over a store seeded with the geometries.
+   */
+  static GeoGenerator seededGenerator(Properties p, String... geometries) throws Exception {
+    return new EmbeddedGenerator(p, seededStore(geometries), String.valueOf(geometries.length));
+  }
+
+  /**
+   * Five points at x -111.5 and y 33.0 to 33.4.
+   */
+  private static String[] fivePoints() {
+    String[] points = new String[5];
+    for (int i = 0; i < 5; i++) {
+      points[i] = "{\"type\": \"Point\", \"coordinates\": [-111.5, 33." + i + "]}";
+    }
+    return points;
+  }
+
+  @Test
+  public void leasedIdsAreUniqueAcrossGenerators() throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 1 << 16);
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_INSERT_LEASE_SIZE, "10");
+    GeoGenerator first = newGenerator(store, p);
+    GeoGenerator second = newGenerator(store, p);
+
+    Set<Integer> ids = new HashSet<>();
+    for (int i = 0; i < 25; i++) {
+      assertTrue(ids.add(first.nextInsertDocId()));
+      assertTrue(ids.add(second.nextInsertDocId()));
+    }
+    assertEquals(first.getLeasedDocIds(), 30);
+    assertEquals(first.getUnusedLeasedDocIds(), 5);
+    assertEquals(second.getUnusedLeasedDocIds(), 5);
+  }
+
+  @Test
+  public void singleIdLeaseMatchesCounter() throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 1 << 16);
+    GeoGenerator generator = newGenerator(store, new Properties());
+    assertEquals(generator.nextInsertDocId(), 102);
+    assertEquals(generator.nextInsertDocId(), 103);
+    assertEquals(generator.getUnusedLeasedDocIds(), 0);
+  }
+
+  @Test
+  public void missingTokensAreFilledWithoutLookups() throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 1 << 16);
+    final AtomicInteger lookups = new AtomicInteger();
+    GeoGenerator generator = new EmbeddedGenerator(new Properties(), store, "4") {
+      @Override
+      protected String getVal(String key) {
+        lookups.incrementAndGet();
+        return super.getVal(key);
+      }
+    };
+    String[] objectIds = {null, "5", null, "9"};
+    for (String objectId : objectIds) {
+      String properties = objectId == null ? "{}" : "{\"OBJECTID\": " + objectId + "}";
+      generator.putDocument("doc", "{\"type\": \"Feature\", \"properties\": " + properties + ", "
+          + "\"geometry\": {\"type\": \"Point\", \"coordinates\": [-111.5, 33.5]}}");
+    }
+    assertEquals(lookups.get(), 0);
+    generator.flushTokens();
+
+    assertEquals(generator.getStoredObjectId(0), "5");
+    assertEquals(generator.getStoredObjectId(1), "5");
+    assertEquals(generator.getStoredObjectId(2), "5");
+    assertEquals(generator.getStoredObjectId(3), "9");
+  }
+
+  @Test
+  public void upcomingDocumentsArePrefetchedInBatches() throws Exception {
+    OffHeapStore store = seededStore(fivePoints());
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_NEARCACHE_PREFETCH, "4");
+    final List<String> prefetched = new ArrayList<>();
+    final List<String> read = new ArrayList<>();
+    GeoGenerator generator = new EmbeddedGenerator(p, store, "5") {
+      @Override
+      protected void prefetch(List<String> keys) {
+        prefetched.addAll(keys);
+      }
+
+      @Override
+      protected String getVal(String key) {
+        if (key.contains("GEO_insert_document:::")) {
+          read.add(key);
+        }
+        return super.getVal(key);
+      }
+    };
+    for (int i = 0; i < 6; i++) {
+      generator.buildGeoInsertDocument();
+    }
+    assertEquals(prefetched.size(), 8);
+    assertEquals(read, prefetched.subList(0, 6));
+  }
+
+  @Test
+  public void insertsAreMovedToTheInsertDistribution() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_SPATIAL_INSERT_DISTRIBUTION, "hotspots");
+    p.setProperty(GeoWorkload.GEO_SPATIAL_HOTSPOTS, "-111.9,33.1,0.0001");
+    GeoGenerator generator = seededGenerator(p, LINE);
+    generator.buildGeoInsertDocument();
+    Geometry moved = GeoJson.readFeatureGeometry(generator.getGeoPredicate().getValue(), new Geometries());
+    assertEquals(moved.getX(0), -111.9, 0.01);
+    assertEquals(moved.getY(0), 33.1, 0.01);
+    assertEquals(moved.getX(1) - moved.getX(0), 0.1, 1e-9);
+    assertEquals(moved.getY(1) - moved.getY(0), 0.1, 1e-9);
+  }
+
+  @Test
+  public void knnPredicateIsAPoint() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_KNN_K, "5");
+    GeoGenerator generator = seededGenerator(p, LINE);
+    generator.buildGeoKnnPredicate();
+    Geometry point = generator.getGeoPredicate().getNestedPredicateA().getGeometry();
+    assertEquals(point.getType(), Geometry.Type.POINT);
+    assertEquals(point.getX(0), -111.5);
+    assertEquals(point.getY(0), 33.5);
+    assertEquals(generator.getKnnK(), 5);
+  }
+
+  @Test
+  public void aggregationGridCoversTheQueryPolygon() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_GRID_CELLS, "4");
+    GeoGenerator generator = seededGenerator(p, POINT);
+    generator.buildGeoAggregatePredicate();
+    double[] box = new double[4];
+    generator.getGeoPredicate().getNestedPredicateD().getGeometry().envelope(box);
+    double[] viewport = generator.getGridViewport();
+    for (int i = 0; i < 4; i++) {
+      assertEquals(viewport[i], box[i]);
+    }
+    assertEquals(generator.getGridCells(), 4);
+    assertEquals(generator.gridCell(viewport[0], viewport[1]), 0);
+    assertEquals(generator.gridCell(viewport[2], viewport[3]), 15);
+    assertEquals(generator.gridCell(viewport[2], viewport[1]), 3);
+    assertEquals(generator.gridCell(viewport[0] - 1, viewport[1]), -1);
+  }
+
+  @Test
+  public void queryShapeSpansTheBoxOfTheReadPredicate() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_QUERY_VERTICES_MIN, "32");
+    GeoGenerator generator = seededGenerator(p, POINT);
+    for (int i = 0; i < 10; i++) {
+      generator.buildGeoReadPredicate();
+      GeoGenerator.DataFilter predicate = generator.getGeoPredicate();
+      Geometry corner = predicate.getNestedPredicateB().getGeometry();
+      double[] box = new double[4];
+      predicate.getNestedPredicateD().getGeometry().envelope(box);
+      assertEquals(box[0], Math.min(-111.5, corner.getX(0)), 1e-9);
+      assertEquals(box[1], Math.min(33.5, corner.getY(0)), 1e-9);
+      assertEquals(box[2], Math.max(-111.5, corner.getX(0)), 1e-9);
+      assertEquals(box[3], Math.max(33.5, corner.getY(0)), 1e-9);
+      assertEquals(generator.getQueryVertexCount(), 33);
+    }
+  }
+
+  @Test
+  public void curveKeysStartWithTheCurvePosition() throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 1 << 16);
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_KEY_ORDER, "hilbert");
+    p.setProperty(GeoWorkload.GEO_KEY_BITS, "8");
+    GeoGenerator generator = new EmbeddedGenerator(p, store, "1");
+    String doc = "{\"type\": \"Feature\", \"properties\": {\"OBJECTID\": 1}, "
+        + "\"geometry\": {\"type\": \"LineString\", \"coordinates\": [[-111.6, 33.4], [-111.4, 33.6]]}}";
+    String prefix = GeoGenerator.GEO_DOCUMENT_PREFIX_COLLECTION + GeoGenerator.GEO_SYSTEMFIELD_DELIMITER;
+    String curve = new SpaceFillingCurve(SpaceFillingCurve.Order.HILBERT, 8, new double[]{-112, 33, -111, 34})
+        .key(-111.5, 33.5);
+    assertEquals(generator.documentKey(7, doc), prefix + curve + GeoGenerator.GEO_SYSTEMFIELD_DELIMITER + 7);
+    assertTrue(generator.getScanStartKey().matches(prefix + "[0-9a-f]{4}"));
+    assertEquals(newGenerator(store, new Properties()).documentKey(7, doc), prefix + 7);
+  }
+
+  @Test
+  public void storedSourceKeysFollowTheCurve() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_DATASET, "synthetic");
+    p.setProperty(GeoWorkload.GEO_KEY_ORDER, "zorder");
+    GeoGenerator generator = new EmbeddedGenerator(p, new OffHeapStore(null, 1 << 16), "100");
+    assertEquals(generator.getStoredDocKey(3), generator.documentKey(3, generator.getSourceDocument(3)));
+    assertNotEquals(generator.getStoredDocKey(3),
+        GeoGenerator.GEO_DOCUMENT_PREFIX_COLLECTION + GeoGenerator.GEO_SYSTEMFIELD_DELIMITER + 3);
+  }
+
+  @Test
+  public void pipelineDeliversPreparedReadPredicates() throws Exception {
+    OffHeapStore store = seededStore(fivePoints());
+    DiscreteGenerator chooser = new DiscreteGenerator();
+    chooser.addValue(1.0, "GEO_NEAR");
+    PredicatePipeline pipeline = new PredicatePipeline(
+        Collections.singletonList(newGenerator(store, new Properties())), Collections.singletonList(chooser));
+    PredicateQueue queue = new PredicateQueue(8);
+    pipeline.register(queue);
+
+    GeoGenerator consumer = newGenerator(store, new Properties());
+    PredicateQueue.Slot slot;
+    do {
+      slot = queue.poll();
+    } while (slot == null);
+    assertEquals(slot.getOperation(), "GEO_NEAR");
+    consumer.usePreparedPredicate(slot.getPredicate());
+    consumer.buildGeoReadPredicate();
+    GeoGenerator.DataFilter predicate = consumer.getGeoPredicate();
+    assertEquals(predicate.getNestedPredicateA().getGeometry().getX(0), -111.5);
+    assertEquals(predicate.getNestedPredicateD().getGeometry().getRingCount(), 1);
+
+    List<GeoGenerator> producers = pipeline.close();
+    assertNotSame(producers.get(0).getGeoPredicate().getNestedPredicateA(), predicate.getNestedPredicateA());
+  }
+
+  @Test
+  public void untakenPreparedPredicatesAreDropped() throws Exception {
+    GeoGenerator generator = seededGenerator(new Properties(), fivePoints());
+
+    generator.prepareNearPredicate(-100, 40, 500);
+    generator.buildGeoMovePredicate(3, -110, 33);
+    generator.buildGeoReadPredicate();
+    assertEquals(generator.getGeoPredicate().getNestedPredicateA().getGeometry().getX(0), -111.5);
+
+    generator.prepareNearPredicate(-100, 40, 500);
+    generator.usePreparedPredicate(null);
+    generator.buildGeoReadPredicate();
+    assertEquals(generator.getGeoPredicate().getNestedPredicateA().getGeometry().getX(0), -111.5);
+  }
+
+  @Test
+  public void windowsAreSizedToTargetHits() throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 1 << 20);
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_TARGET_HITS, "20");
+    GeoGenerator generator = new EmbeddedGenerator(p, store, "1000");
+    Random random = new Random(7);
+    for (int i = 0; i < 1000; i++) {
+      generator.putDocument("doc" + i, "{\"type\": \"Feature\", \"geometry\": {\"type\": \"Point\", "
+          + "\"coordinates\": [" + (-112 + random.nextDouble()) + ", " + (33 + random.nextDouble()) + "]}}");
+    }
+    RTree index = generator.buildSpatialIndex();
+    assertEquals(index.size(), 1000);
+    generator.setSpatialIndex(index);
+
+    double[] box = new double[4];
+    int matched = 0;
+    for (int i = 0; i < 20; i++) {
+      generator.buildGeoReadPredicate();
+      GeoGenerator.DataFilter predicate = generator.getGeoPredicate();
+      predicate.getNestedPredicateD().getGeometry().envelope(box);
+      int hits = index.count(box[0], box[1], box[2], box[3], Integer.MAX_VALUE);
+      assertTrue(hits <= 22);
+      if (hits >= 18) {
+        matched++;
+      }
+      assertTrue(predicate.getNestedPredicateA().getMaxDistance() > 0);
+    }
+    // windows anchored near the upper right corner of the region cannot reach the target
+    assertTrue(matched >= 15);
+  }
+}
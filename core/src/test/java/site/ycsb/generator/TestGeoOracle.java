@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.LineString;
+import site.ycsb.generator.geo.Point;
+import site.ycsb.generator.geo.Polygon;
+import site.ycsb.generator.geo.RTree;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestGeoOracle {
+
+  /**
+   * Points at (-111 + i / 100, 33) for i = 0..9.
+   */
+  private static GeoOracle pointsOnALine() {
+    RTree.Builder builder = new RTree.Builder(4);
+    Geometry[] geometries = new Geometry[10];
+    String[] objectIds = new String[10];
+    String[] keys = new String[10];
+    for (int i = 0; i < 10; i++) {
+      double x = -111 + i / 100.0;
+      builder.add(i, x, 33, x, 33);
+      geometries[i] = new Point(x, 33);
+      objectIds[i] = String.valueOf(100 + i);
+      keys[i] = "doc" + i;
+    }
+    return new GeoOracle(builder.build(), geometries, objectIds, keys);
+  }
+
+  /**
+   * A diagonal line from (-111, 33) to (-110.9, 33.1) as document "1".
+   */
+  private static GeoOracle diagonalLine() {
+    LineString line = new LineString();
+    line.add(-111, 33);
+    line.add(-110.9, 33.1);
+    RTree.Builder builder = new RTree.Builder(4);
+    builder.add(0, -111, 33, -110.9, 33.1);
+    return new GeoOracle(builder.build(), new Geometry[] {line}, new String[] {"1"}, new String[] {"doc1"});
+  }
+
+  @Test
+  public void nearUsesGreatCircleDistance() {
+    GeoQueryCheck check = new GeoQueryCheck();
+    // 0.01 degrees of longitude at 33N are about 934 meters
+    check.near(-111, 33, 1000);
+    assertEquals(pointsOnALine().expected(check), new HashSet<>(Arrays.asList("100", "101")));
+  }
+
+  @Test
+  public void withinUsesDocumentKeysOnRequest() {
+    GeoQueryCheck check = new GeoQueryCheck();
+    check.within(-110.955, 33.1, -110.985, 32.9);
+    check.useDocumentKeys();
+    assertEquals(pointsOnALine().expected(check), new HashSet<>(Arrays.asList("doc2", "doc3", "doc4")));
+  }
+
+  @Test
+  public void intersectsFollowsTheLineSegments() {
+    LineString line = new LineString();
+    line.add(-111.005, 32.9);
+    line.add(-111.005, 33.1);
+    line.add(-110.985, 33.1);
+    line.add(-110.985, 32.9);
+    GeoQueryCheck check = new GeoQueryCheck();
+    check.intersects(line);
+    // the envelope covers the first two points, but the line only crosses the x axis left and right of them
+    assertEquals(pointsOnALine().expected(check), new HashSet<String>());
+  }
+
+  @Test
+  public void nearMeasuresToTheLineNotItsBoundingBox() {
+    GeoQueryCheck check = new GeoQueryCheck();
+    // inside the bounding box of the line, but about 6 km from it
+    check.near(-110.9, 33, 1000);
+    assertEquals(diagonalLine().expected(check), new HashSet<String>());
+    // a few hundred meters from the middle of the line
+    check.near(-110.95, 33.055, 1000);
+    assertEquals(diagonalLine().expected(check), new HashSet<>(Arrays.asList("1")));
+  }
+
+  @Test
+  public void intersectsTestsTheStoredLine() {
+    LineString corner = new LineString();
+    corner.add(-110.92, 33);
+    corner.add(-110.92, 33.02);
+    GeoQueryCheck check = new GeoQueryCheck();
+    check.intersects(corner);
+    assertEquals(diagonalLine().expected(check), new HashSet<String>());
+
+    LineString crossing = new LineString();
+    crossing.add(-111, 33.1);
+    crossing.add(-110.9, 33);
+    check.intersects(crossing);
+    assertEquals(diagonalLine().expected(check), new HashSet<>(Arrays.asList("1")));
+  }
+
+  @Test
+  public void intersectsFindsALineInsideAPolygon() {
+    Polygon polygon = new Polygon();
+    polygon.add(-111.1, 32.9);
+    polygon.add(-110.8, 32.9);
+    polygon.add(-110.8, 33.2);
+    polygon.add(-111.1, 33.2);
+    polygon.add(-111.1, 32.9);
+    GeoQueryCheck check = new GeoQueryCheck();
+    check.intersects(polygon);
+    assertEquals(diagonalLine().expected(check), new HashSet<>(Arrays.asList("1")));
+  }
+
+  @Test
+  public void onlyStoredDocumentsAreKnown() {
+    GeoOracle oracle = pointsOnALine();
+    GeoQueryCheck check = new GeoQueryCheck();
+    check.near(-111, 33, 1000);
+    assertTrue(oracle.isKnown("105", check));
+    assertFalse(oracle.isKnown("5000", check));
+    check.useDocumentKeys();
+    assertTrue(oracle.isKnown("doc5", check));
+  }
+
+  @Test
+  public void onlyTheFirstAnswerCounts() {
+    GeoQueryCheck check = new GeoQueryCheck();
+    assertEquals(check.getAnsweredNanos(), 0);
+    check.answered();
+    long answered = check.getAnsweredNanos();
+    assertTrue(answered != 0);
+    check.answered();
+    assertEquals(check.getAnsweredNanos(), answered);
+    check.reset();
+    assertEquals(check.getAnsweredNanos(), 0);
+  }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.LineString;
+import site.ycsb.generator.geo.Point;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.Properties;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+public class TestGeoRegion {
+
+  @Test
+  public void regionAcrossTheAntimeridianIsUnwrapped() {
+    GeoRegion region = GeoRegion.parse("170,-10,-170,10", GeoRegion.Crs.WGS84);
+    assertTrue(region.crossesAntimeridian());
+    assertEquals(region.getBounds()[2], 190.0);
+    assertEquals(region.wrapX(185), -175.0);
+    assertEquals(region.wrapX(175), 175.0);
+    assertEquals(region.unwrapX(-175), 185.0);
+    assertEquals(region.unwrapX(175), 175.0);
+
+    LineString line = new LineString();
+    line.add(179, 95).add(181, 0);
+    region.wrap(line);
+    assertEquals(line.getX(1), -179.0);
+    assertEquals(line.getY(0), 90.0);
+  }
+
+  @Test
+  public void planarRegionIsNeverWrapped() {
+    GeoRegion region = GeoRegion.parse("500000,4000000,400000,4100000", GeoRegion.Crs.PLANAR);
+    assertFalse(region.crossesAntimeridian());
+    assertEquals(region.getBounds()[0], 400000.0);
+    assertEquals(region.wrapX(450000), 450000.0);
+  }
+
+  @Test
+  public void extentOfDataAroundTheAntimeridianCrossesIt() {
+    GeoRegion.Builder builder = new GeoRegion.Builder(GeoRegion.Crs.WGS84);
+    for (double x : new double[]{172.5, 178, -179.5, -171.25}) {
+      builder.add(new Point().set(x, x / 10));
+    }
+    double[] bounds = builder.build().getBounds();
+    assertEquals(bounds[0], 172.5);
+    assertEquals(bounds[2], -171.25 + 360);
+    assertEquals(bounds[1], -17.95, 1e-9);
+    assertEquals(bounds[3], 17.8, 1e-9);
+
+    GeoRegion.Builder phoenix = new GeoRegion.Builder(GeoRegion.Crs.WGS84);
+    phoenix.add(new Point().set(-112, 33)).add(new Point().set(-111.2, 33.9));
+    GeoRegion plain = phoenix.build();
+    assertFalse(plain.crossesAntimeridian());
+    assertEquals(plain.getBounds()[0], -112.0);
+    assertEquals(plain.getBounds()[2], -111.2);
+  }
+
+  @Test
+  public void polarLocationsAreUniformByArea() {
+    Properties p = new Properties();
+    SpatialDistribution distribution = SpatialDistribution.create("uniform", p, new double[]{-180, 60, 180, 90});
+    Random random = new Random(1);
+    double[] location = new double[2];
+    int nearPole = 0;
+    for (int i = 0; i < 100000; i++) {
+      distribution.next(random, location);
+      if (location[1] > 80) {
+        nearPole++;
+      }
+    }
+    double expected = (1 - Math.sin(Math.toRadians(80))) / (1 - Math.sin(Math.toRadians(60)));
+    assertEquals(nearPole / 100000.0, expected, 0.01);
+  }
+
+  @Test
+  public void generatedWindowsHaveValidLongitudes() throws Exception {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_REGION, "179,0,-179,1");
+    GeoGenerator generator = TestGeoGenerator.seededGenerator(p,
+        "{\"type\": \"Point\", \"coordinates\": [179.5, 0.5]}");
+    for (int i = 0; i < 100; i++) {
+      generator.buildGeoReadPredicate();
+      Geometry box = generator.getGeoPredicate().getNestedPredicateD().getGeometry();
+      for (int j = 0; j < box.getPointCount(); j++) {
+        assertTrue(box.getX(j) >= 179 || box.getX(j) <= -179);
+      }
+    }
+  }
+
+  @Test
+  public void storedRegionIsDerivedOnce() throws Exception {
+    OffHeapStore store = TestGeoGenerator.seededStore("{\"type\": \"Point\", \"coordinates\": [10, 50]}",
+        "{\"type\": \"Point\", \"coordinates\": [11, 51]}");
+    GeoGenerator generator = new EmbeddedGenerator(new Properties(), store, "2");
+    assertEquals(generator.getRegion().getBounds()[0], -112.0);
+    GeoRegion derived = generator.useStoredRegion();
+    assertSame(generator.getRegion(), derived);
+    assertEquals(derived.getBounds(), new double[]{10, 50, 11, 51});
+    GeoGenerator other = new EmbeddedGenerator(new Properties(), store, "2");
+    other.useStoredRegion();
+    assertEquals(other.getRegion().getBounds(), new double[]{10, 50, 11, 51});
+  }
+}
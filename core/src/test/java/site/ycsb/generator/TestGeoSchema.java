@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class TestGeoSchema {
+
+  @Test
+  public void graffitiIsTheDefault() {
+    GeoSchema schema = GeoSchema.load(new Properties());
+    assertEquals(schema.getGeometryPath(), "geometry");
+    assertEquals(schema.getIdToken(), "properties:::OBJECTID");
+    assertEquals(schema.getFields(), GeoWorkload.GEO_TOKEN_FIELDS_DEFAULT);
+    assertEquals(schema.getProjection(), Arrays.asList("_id", "type", "properties.OBJECTID",
+        "properties.INCIDENT_NUMBER", "properties.LOCATION", "properties.NOTIFICATION", "properties.INCIDENT_DATE",
+        "properties.TAG_COUNT", "properties.MONIKER_CLASS", "properties.SQ_FT", "properties.PROP_TYPE",
+        "properties.Waiver", "geometry"));
+  }
+
+  @Test
+  public void descriptorIsLoadedOnce() throws Exception {
+    File file = File.createTempFile("geoschema", ".properties");
+    file.deleteOnExit();
+    try (Writer out = new FileWriter(file)) {
+      out.write("geometry=location.shape\nid=meta.key\nfields=name,payload:any,meta.key.part\n");
+    }
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_SCHEMA, file.getPath());
+    GeoSchema schema = GeoSchema.load(p);
+    assertSame(GeoSchema.load(p), schema);
+
+    assertEquals(schema.getIdSegments(), Arrays.asList("meta", "key"));
+    assertEquals(schema.getFields(), "name,payload:any,meta.key.part,meta.key");
+    assertEquals(schema.getProjection(), Arrays.asList("name", "payload", "meta.key", "location.shape"));
+
+    Geometries reuse = new Geometries();
+    Geometry geometry = GeoJson.readFeatureGeometry("{\"shape\":1,\"location\":{\"shape\":"
+        + "{\"type\":\"Point\",\"coordinates\":[2.5,3.5]}}}", schema.getGeometryMembers(), reuse);
+    assertEquals(geometry.getX(0), 2.5);
+    assertEquals(geometry.getY(0), 3.5);
+    assertNull(GeoJson.readFeatureGeometry("{\"location\":{}}", schema.getGeometryMembers(), reuse));
+  }
+}
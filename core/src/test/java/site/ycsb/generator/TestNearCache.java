@@ -0,0 +1,56 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestNearCache {
+
+  @Test
+  public void countsHitsAndMisses() {
+    NearCache cache = new NearCache(1 << 20);
+    assertNull(cache.get("a"));
+    cache.put("a", "1");
+    cache.put("b", null);
+    assertEquals(cache.get("a"), "1");
+    assertNull(cache.get("b"));
+    assertEquals(cache.getHits(), 1);
+    assertEquals(cache.getMisses(), 2);
+    assertTrue(cache.contains("a"));
+    assertFalse(cache.contains("b"));
+  }
+
+  @Test
+  public void evictsLeastRecentlyUsedValues() {
+    NearCache cache = new NearCache(16 * 1024);
+    cache.put("key0", "0123456789");
+    for (int i = 1; i < 1000; i++) {
+      assertEquals(cache.get("key0"), "0123456789");
+      cache.put("key" + i, "0123456789");
+    }
+    assertTrue(cache.getSize() <= 16 * 1024);
+    assertTrue(cache.getEvictions() > 0);
+    assertTrue(cache.contains("key999"));
+    assertFalse(cache.contains("key1"));
+  }
+}
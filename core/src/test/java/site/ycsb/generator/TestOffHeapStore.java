@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.io.File;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class TestOffHeapStore {
+
+  @Test
+  public void addDoesNotOverwrite() throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 1024);
+    assertTrue(store.add("a", "1"));
+    assertFalse(store.add("a", "2"));
+    assertEquals(store.get("a"), "1");
+    assertNull(store.get("b"));
+  }
+
+  @Test
+  public void valuesSpanSlabs() throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 64);
+    for (int i = 0; i < 100; i++) {
+      store.add("key" + i, "value" + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals(store.get("key" + i), "value" + i);
+    }
+  }
+
+  @Test
+  public void incrementPromotesValueToCounter() throws Exception {
+    OffHeapStore store = new OffHeapStore(null, 1024);
+    assertEquals(store.incr("missing", 1), -1);
+    store.add("counter", "10");
+    assertEquals(store.incr("counter", 1), 11);
+    assertEquals(store.incr("counter", 5), 16);
+    assertEquals(store.get("counter"), "16");
+    assertFalse(store.add("counter", "0"));
+  }
+
+  @Test
+  public void fileBackedStoreSurvivesReopen() throws Exception {
+    File file = File.createTempFile("offheapstore", ".bin");
+    file.deleteOnExit();
+    OffHeapStore store = new OffHeapStore(file.getPath(), 128);
+    for (int i = 0; i < 20; i++) {
+      store.add("doc" + i, "body" + i);
+    }
+    store.add("counter", "0");
+    store.incr("counter", 42);
+    store.close();
+
+    OffHeapStore reopened = new OffHeapStore(file.getPath(), 128);
+    for (int i = 0; i < 20; i++) {
+      assertEquals(reopened.get("doc" + i), "body" + i);
+    }
+    assertEquals(reopened.get("counter"), "42");
+    assertEquals(reopened.incr("counter", 1), 43);
+    reopened.add("doc20", "body20");
+    assertEquals(reopened.get("doc20"), "body20");
+    reopened.close();
+  }
+}
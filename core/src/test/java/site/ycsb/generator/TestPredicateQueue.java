@@ -0,0 +1,62 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class TestPredicateQueue {
+
+  @Test
+  public void consumerHoldsSlotUntilNextPoll() {
+    PredicateQueue queue = new PredicateQueue(2);
+    GeoGenerator.DataFilter first = queue.claim();
+    first.setDocid("first");
+    queue.publish("GEO_NEAR", true);
+    GeoGenerator.DataFilter second = queue.claim();
+    queue.publish("GEO_SCAN", false);
+    assertNull(queue.claim());
+
+    PredicateQueue.Slot slot = queue.poll();
+    assertEquals(slot.getOperation(), "GEO_NEAR");
+    assertSame(slot.getPredicate(), first);
+    assertNull(queue.claim());
+
+    slot = queue.poll();
+    assertEquals(slot.getOperation(), "GEO_SCAN");
+    assertNull(slot.getPredicate());
+    assertSame(queue.claim(), first);
+    assertNotNull(second);
+  }
+
+  @Test
+  public void emptyQueueCountsStarvation() {
+    PredicateQueue queue = new PredicateQueue(4);
+    assertNull(queue.poll());
+    queue.claim();
+    queue.publish("GEO_BOX", true);
+    assertNotNull(queue.poll());
+    assertNull(queue.poll());
+    assertEquals(queue.getHits(), 1);
+    assertEquals(queue.getStarved(), 2);
+  }
+}
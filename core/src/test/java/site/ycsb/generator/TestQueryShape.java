@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.generator.geo.MultiLineString;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.Properties;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class TestQueryShape {
+
+  @Test
+  public void defaultsAreTheRectangle() {
+    QueryShape shape = new QueryShape(new Properties());
+    assertTrue(shape.isRectangle());
+    Geometry box = shape.build(0, 0, 2, 1, new Random(1));
+    assertEquals(box.getPointCount(), 5);
+    assertEquals(box.getX(2), 2.0);
+    assertEquals(box.getY(2), 1.0);
+  }
+
+  @Test
+  public void concaveShellKeepsCornersAndKernel() {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_QUERY_VERTICES_MIN, "100");
+    p.setProperty(GeoWorkload.GEO_QUERY_CONCAVITY, "0.5");
+    p.setProperty(GeoWorkload.GEO_QUERY_HOLES, "3");
+    QueryShape shape = new QueryShape(p);
+    assertFalse(shape.isRectangle());
+    Geometry polygon = shape.build(0, 0, 4, 2, new Random(1));
+    assertEquals(polygon.getType(), Geometry.Type.POLYGON);
+    assertEquals(polygon.getRingCount(), 4);
+    assertEquals(polygon.getRingEnd(0), 101);
+    for (int i = 0; i < polygon.getRingEnd(0); i++) {
+      double x = polygon.getX(i);
+      double y = polygon.getY(i);
+      assertTrue(x >= 0 && x <= 4 && y >= 0 && y <= 2);
+      // no shell vertex enters the box scaled by 1 - concavity around the center
+      assertFalse(Math.abs(x - 2) < 1 && Math.abs(y - 1) < 0.5);
+    }
+    for (int i = polygon.getRingStart(1); i < polygon.getPointCount(); i++) {
+      assertTrue(Math.abs(polygon.getX(i) - 2) < 1 && Math.abs(polygon.getY(i) - 1) < 0.5);
+    }
+  }
+
+  @Test
+  public void partsBecomeAMultiPolygonAndLines() {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_QUERY_VERTICES_MIN, "8");
+    p.setProperty(GeoWorkload.GEO_QUERY_VERTICES_MAX, "16");
+    p.setProperty(GeoWorkload.GEO_QUERY_PARTS, "3");
+    Geometry multi = new QueryShape(p).build(0, 0, 3, 1, new Random(1));
+    assertEquals(multi.getType(), Geometry.Type.MULTI_POLYGON);
+    assertEquals(multi.getPartCount(), 3);
+    int shell = multi.getRingEnd(0) - multi.getRingStart(0) - 1;
+    assertTrue(shell >= 8 && shell <= 16);
+    MultiLineString lines = QueryShape.outline(multi, new MultiLineString());
+    assertEquals(lines.getRingCount(), 3);
+    assertEquals(lines.getPointCount(), multi.getPointCount());
+  }
+}
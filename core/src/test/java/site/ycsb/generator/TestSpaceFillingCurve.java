@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestSpaceFillingCurve {
+
+  @Test
+  public void hilbertVisitsNeighbouringCells() {
+    int bits = 4;
+    int side = 1 << bits;
+    long[] cellX = new long[side * side];
+    long[] cellY = new long[side * side];
+    Set<Long> seen = new HashSet<>();
+    for (int x = 0; x < side; x++) {
+      for (int y = 0; y < side; y++) {
+        long d = SpaceFillingCurve.hilbert(x, y, bits);
+        assertTrue(seen.add(d));
+        cellX[(int) d] = x;
+        cellY[(int) d] = y;
+      }
+    }
+    assertEquals(seen.size(), side * side);
+    for (int d = 1; d < side * side; d++) {
+      assertEquals(Math.abs(cellX[d] - cellX[d - 1]) + Math.abs(cellY[d] - cellY[d - 1]), 1);
+    }
+  }
+
+  @Test
+  public void zOrderInterleavesBits() {
+    assertEquals(SpaceFillingCurve.interleave(0, 0), 0);
+    assertEquals(SpaceFillingCurve.interleave(1, 0), 1);
+    assertEquals(SpaceFillingCurve.interleave(0, 1), 2);
+    assertEquals(SpaceFillingCurve.interleave(3, 5), 0b100111);
+    assertEquals(SpaceFillingCurve.interleave(Integer.MAX_VALUE, 0), 0x1555555555555555L);
+  }
+
+  @Test
+  public void keysHaveFixedWidthAndFollowTheIndex() {
+    double[] region = {0, 0, 1, 1};
+    SpaceFillingCurve curve = SpaceFillingCurve.create("zorder", 10, region);
+    assertEquals(curve.key(0, 0), "00000");
+    assertEquals(curve.key(1, 1), "fffff");
+    assertEquals(curve.key(-5, 7), curve.key(0, 1));
+    String low = curve.key(0.1, 0.1);
+    String high = curve.key(0.9, 0.9);
+    assertTrue(low.compareTo(high) < 0);
+    assertEquals(Long.parseLong(low, 16), curve.index(0.1, 0.1));
+    assertEquals(SpaceFillingCurve.create("sequential", 10, region), null);
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestSpatialDistribution {
+
+  private static final double[] REGION = {-112, 33, -111, 34};
+
+  @Test
+  public void cellsConcentrateOnFewCells() {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_SPATIAL_CELL_LEVEL, "4");
+    SpatialDistribution distribution = SpatialDistribution.create("cells", p, REGION);
+    Random random = new Random(1);
+    double[] location = new double[2];
+    Map<Long, Integer> counts = new HashMap<>();
+    for (int i = 0; i < 10000; i++) {
+      distribution.next(random, location);
+      assertInRegion(location);
+      long cell = (long) ((location[0] - REGION[0]) * 16) * 16 + (long) ((location[1] - REGION[1]) * 16);
+      counts.merge(cell, 1, Integer::sum);
+    }
+    int top = 0;
+    for (int count : counts.values()) {
+      top = Math.max(top, count);
+    }
+    // a uniform draw puts about 1/256 of the locations into each cell
+    assertTrue(top > 10000 / 256 * 10);
+  }
+
+  @Test
+  public void cellRanksAreABijection() {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_SPATIAL_CELL_LEVEL, "3");
+    SpatialDistribution.Cells cells = (SpatialDistribution.Cells) SpatialDistribution.create("cells", p, REGION);
+    boolean[] seen = new boolean[64];
+    for (long rank = 0; rank < 64; rank++) {
+      int cell = (int) cells.cell(rank);
+      assertTrue(!seen[cell]);
+      seen[cell] = true;
+    }
+  }
+
+  @Test
+  public void cellZetaIsComputedOncePerLevelAndSkew() {
+    double zetan = SpatialDistribution.Cells.zetan(5, 0.99);
+    assertEquals(zetan, ZipfianGenerator.zetastatic(1024, 0.99));
+    assertTrue(SpatialDistribution.Cells.zetan(5, 0.99) == zetan);
+    assertNotEquals(SpatialDistribution.Cells.zetan(5, 0.8), zetan);
+  }
+
+  @Test
+  public void configuredHotspotsAttractLocations() {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_SPATIAL_HOTSPOTS, "-111.9,33.4,0.001,3;-111.2,33.8,0.001,1");
+    SpatialDistribution distribution = SpatialDistribution.create("hotspots", p, REGION);
+    Random random = new Random(2);
+    double[] location = new double[2];
+    int first = 0;
+    int second = 0;
+    for (int i = 0; i < 4000; i++) {
+      distribution.next(random, location);
+      if (Math.abs(location[0] + 111.9) < 0.01 && Math.abs(location[1] - 33.4) < 0.01) {
+        first++;
+      } else if (Math.abs(location[0] + 111.2) < 0.01 && Math.abs(location[1] - 33.8) < 0.01) {
+        second++;
+      }
+    }
+    assertEquals(first + second, 4000);
+    assertTrue(first > 2 * second);
+  }
+
+  @Test
+  public void movingHotspotsStayInTheRegion() {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.GEO_SPATIAL_HOTSPOT_COUNT, "3");
+    p.setProperty(GeoWorkload.GEO_SPATIAL_HOTSPOT_SPEED, "0.01");
+    SpatialDistribution.Hotspots hotspots =
+        (SpatialDistribution.Hotspots) SpatialDistribution.create("hotspots", p, REGION);
+    double[] center = new double[2];
+    double[] later = new double[2];
+    for (int hotspot = 0; hotspot < 3; hotspot++) {
+      for (double seconds = 0; seconds < 1000; seconds += 7.3) {
+        hotspots.center(hotspot, seconds, center);
+        assertInRegion(center);
+      }
+      hotspots.center(hotspot, 1.7e9, center);
+      hotspots.center(hotspot, 1.7e9 + 10, later);
+      assertNotEquals(center[0] + center[1], later[0] + later[1]);
+    }
+  }
+
+  @Test
+  public void seededHotspotsAreDrawnByArea() {
+    double[] region = {0, 0, 10, 80};
+    Properties p = new Properties();
+    SpatialDistribution.Hotspots sphere = (SpatialDistribution.Hotspots) SpatialDistribution.create("hotspots", p,
+        region);
+    p.setProperty(GeoWorkload.GEO_CRS, "planar");
+    SpatialDistribution.Hotspots plane = (SpatialDistribution.Hotspots) SpatialDistribution.create("hotspots", p,
+        region);
+    double[] onSphere = new double[2];
+    double[] onPlane = new double[2];
+    for (int hotspot = 0; hotspot < 8; hotspot++) {
+      sphere.center(hotspot, 0, onSphere);
+      plane.center(hotspot, 0, onPlane);
+      // the same seeded draws, but equal-area latitudes lie below the uniform ones in degrees
+      assertEquals(onSphere[0], onPlane[0]);
+      assertTrue(onSphere[1] < onPlane[1], onSphere[1] + " < " + onPlane[1]);
+    }
+  }
+
+  private static void assertInRegion(double[] location) {
+    assertTrue(location[0] >= REGION[0] && location[0] <= REGION[2], "x " + location[0]);
+    assertTrue(location[1] >= REGION[1] && location[1] <= REGION[3], "y " + location[1]);
+  }
+}
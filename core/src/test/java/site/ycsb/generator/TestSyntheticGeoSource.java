@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.json.JSONObject;
+import org.testng.annotations.Test;
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Geometries;
+import site.ycsb.generator.geo.Geometry;
+import site.ycsb.workloads.GeoWorkload;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestSyntheticGeoSource {
+
+  private static Properties properties() {
+    Properties p = new Properties();
+    p.setProperty(GeoWorkload.RECORD_COUNT, "1000");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_SEED, "7");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_REGION, "10,20,11,21");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_POINTS, "1");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_LINES, "1");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_POLYGONS, "1");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_PAYLOAD, "64");
+    return p;
+  }
+
+  @Test
+  public void documentsDependOnlyOnSeedAndId() {
+    SyntheticGeoSource first = new SyntheticGeoSource(properties());
+    SyntheticGeoSource second = new SyntheticGeoSource(properties());
+    // generate in different orders, the mapping must not depend on the history of the instance
+    for (int i = 999; i >= 0; i--) {
+      second.document(i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(second.document(i), first.document(i));
+    }
+    Properties other = properties();
+    other.setProperty(GeoWorkload.GEO_SYNTHETIC_SEED, "8");
+    assertNotEquals(new SyntheticGeoSource(other).document(0), first.document(0));
+  }
+
+  @Test
+  public void documentsAreFeaturesInsideTheRegion() {
+    SyntheticGeoSource source = new SyntheticGeoSource(properties());
+    Geometries reuse = new Geometries();
+    double[] envelope = new double[4];
+    Map<Geometry.Type, Integer> types = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      String document = source.document(i);
+      JSONObject feature = new JSONObject(document);
+      assertEquals(feature.getJSONObject("properties").getInt("OBJECTID"), i);
+      assertEquals(feature.getJSONObject("properties").getString("PAYLOAD").length(), 64);
+
+      Geometry geometry = GeoJson.readFeatureGeometry(document, reuse);
+      geometry.envelope(envelope);
+      assertTrue(envelope[0] >= 10 && envelope[2] <= 11 && envelope[1] >= 20 && envelope[3] <= 21);
+      Integer count = types.get(geometry.getType());
+      types.put(geometry.getType(), count == null ? 1 : count + 1);
+    }
+    assertEquals(types.size(), 3);
+    for (int count : types.values()) {
+      assertTrue(count > 250, types.toString());
+    }
+  }
+
+  @Test
+  public void hotspotsConcentrateDocuments() {
+    Properties p = properties();
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_POINTS, "1");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_LINES, "0");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_POLYGONS, "0");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_HOTSPOTS, "1");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_HOTSPOT_SIGMA, "0.005");
+    p.setProperty(GeoWorkload.GEO_SYNTHETIC_BACKGROUND, "0");
+    SyntheticGeoSource source = new SyntheticGeoSource(p);
+    Geometries reuse = new Geometries();
+    double sumX = 0;
+    double sumY = 0;
+    for (int i = 0; i < 1000; i++) {
+      Geometry point = source.geometry(i, reuse);
+      sumX += point.getX(0);
+      sumY += point.getY(0);
+    }
+    double centerX = sumX / 1000;
+    double centerY = sumY / 1000;
+    int close = 0;
+    for (int i = 0; i < 1000; i++) {
+      Geometry point = source.geometry(i, reuse);
+      if (Math.abs(point.getX(0) - centerX) < 0.015 && Math.abs(point.getY(0) - centerY) < 0.015) {
+        close++;
+      }
+    }
+    assertTrue(close > 950, "only " + close + " documents near the hotspot");
+  }
+}
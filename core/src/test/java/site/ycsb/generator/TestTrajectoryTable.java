@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator;
+
+import org.testng.annotations.Test;
+import site.ycsb.workloads.TrajectoryWorkload;
+
+import java.util.Properties;
+import java.util.Random;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestTrajectoryTable {
+
+  private static final double[] REGION = {-112, 33, -111, 34};
+
+  @Test
+  public void shardsPartitionTheEntities() {
+    TrajectoryTable table = new TrajectoryTable(new Properties(), 10, REGION);
+    long now = System.nanoTime();
+    boolean[] seen = new boolean[10];
+    for (int s = 0; s < 3; s++) {
+      TrajectoryTable.Shard shard = table.shard(s, 3, now);
+      for (int i = 0; i < shard.size(); i++) {
+        long entity = shard.entity(i);
+        assertEquals(entity % 3, s);
+        seen[(int) entity] = true;
+      }
+    }
+    for (boolean entity : seen) {
+      assertTrue(entity);
+    }
+  }
+
+  @Test
+  public void shardsStartWhereTheLoadPhasePutTheEntities() {
+    TrajectoryTable table = new TrajectoryTable(new Properties(), 100, REGION);
+    TrajectoryTable.Shard shard = table.shard(1, 4, System.nanoTime());
+    double[] position = new double[2];
+    for (int i = 0; i < shard.size(); i++) {
+      table.startPosition(shard.entity(i), new Random(), position);
+      assertEquals(shard.getX(i), position[0]);
+      assertEquals(shard.getY(i), position[1]);
+    }
+  }
+
+  @Test
+  public void entitiesMoveInDueOrderBySmallSteps() {
+    Properties p = new Properties();
+    p.setProperty(TrajectoryWorkload.TRAJECTORY_SPEED, "10");
+    p.setProperty(TrajectoryWorkload.TRAJECTORY_UPDATE_INTERVAL, "1000");
+    TrajectoryTable table = new TrajectoryTable(p, 50, REGION);
+    long start = 0;
+    TrajectoryTable.Shard shard = table.shard(0, 1, start);
+    long lastDue = Long.MIN_VALUE;
+    for (int step = 0; step < 1000; step++) {
+      long due = shard.nextDue();
+      assertTrue(due >= lastDue);
+      lastDue = due;
+      int probe = shard.randomEntity(new Random(step));
+      double x = shard.getX(probe);
+      double y = shard.getY(probe);
+      int moved = shard.move(due);
+      if (moved == probe) {
+        // at most 15 m/s for one interval of at most 1.5 s, about 0.0003 degrees
+        assertTrue(Math.abs(shard.getX(moved) - x) < 0.001, "x step");
+        assertTrue(Math.abs(shard.getY(moved) - y) < 0.001, "y step");
+      }
+      assertTrue(shard.getX(moved) >= REGION[0] && shard.getX(moved) <= REGION[2]);
+      assertTrue(shard.getY(moved) >= REGION[1] && shard.getY(moved) <= REGION[3]);
+    }
+    assertTrue(lastDue > start + 1_000_000_000L);
+  }
+}
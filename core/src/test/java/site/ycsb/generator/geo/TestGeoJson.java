@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+public class TestGeoJson {
+
+  @Test
+  public void writesPoint() {
+    assertEquals(GeoJson.toString(new Point(-111.5, 33.25)), "{\"type\":\"Point\",\"coordinates\":[-111.5,33.25]}");
+  }
+
+  @Test
+  public void polygonRingsAreClosed() {
+    Polygon polygon = new Polygon();
+    polygon.add(0, 0).add(4, 0).add(4, 4).add(0, 4).closeRing();
+    polygon.add(1, 1).add(2, 1).add(2, 2).closeRing();
+    assertEquals(polygon.getRingCount(), 2);
+    assertEquals(polygon.getPointCount(), 9);
+    assertEquals(GeoJson.toString(polygon), "{\"type\":\"Polygon\",\"coordinates\":"
+        + "[[[0.0,0.0],[4.0,0.0],[4.0,4.0],[0.0,4.0],[0.0,0.0]],[[1.0,1.0],[2.0,1.0],[2.0,2.0],[1.0,1.0]]]}");
+  }
+
+  @Test
+  public void multiPolygonRoundTrip() {
+    MultiPolygon multiPolygon = new MultiPolygon();
+    multiPolygon.add(0, 0).add(1, 0).add(1, 1).endPolygon();
+    multiPolygon.add(5, 5).add(6, 5).add(6, 6).closeRing();
+    multiPolygon.add(5.2, 5.1).add(5.4, 5.1).add(5.4, 5.3).endPolygon();
+    String json = GeoJson.toString(multiPolygon);
+
+    Geometries reuse = new Geometries();
+    Geometry read = GeoJson.readGeometry(json, reuse);
+    assertSame(read, reuse.getMultiPolygon());
+    assertEquals(read.getPartCount(), 2);
+    assertEquals(read.getRingCount(), 3);
+    assertEquals(GeoJson.toString(read), json);
+  }
+
+  @Test
+  public void readsFeatureGeometry() {
+    String feature = "{\"_id\": {\"$oid\": \"5e\"}, \"type\": \"Feature\", \"properties\": {\"OBJECTID\": 1001, "
+        + "\"LOCATION\": \"[1, 2]\"}, \"geometry\": { \"coordinates\" : [ -112.0753, 3.35e1, 7 ], "
+        + "\"type\" : \"Point\" } }";
+    Geometries reuse = new Geometries();
+    Geometry geometry = GeoJson.readFeatureGeometry(feature, reuse);
+    assertEquals(geometry.getType(), Geometry.Type.POINT);
+    assertEquals(geometry.getX(0), -112.0753);
+    assertEquals(geometry.getY(0), 33.5);
+
+    assertNull(GeoJson.readFeatureGeometry("{\"geometry\": null}", reuse));
+  }
+
+  @Test
+  public void readsMultiLineString() {
+    Geometry lines = GeoJson.readGeometry(
+        "{\"type\":\"MultiLineString\",\"coordinates\":[[[1,2],[3,4]],[[5,6],[7,8],[9,10]]]}", new Geometries());
+    assertEquals(lines.getRingCount(), 2);
+    assertEquals(lines.getRingStart(1), 2);
+    assertEquals(lines.getRingEnd(1), 5);
+    assertEquals(lines.getX(4), 9.0);
+  }
+}
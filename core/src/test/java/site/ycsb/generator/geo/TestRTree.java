@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.generator.geo;
+
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class TestRTree {
+
+  @Test
+  public void searchMatchesBruteForce() {
+    Random random = new Random(42);
+    int n = 5000;
+    double[] boxes = new double[n * 4];
+    RTree.Builder builder = new RTree.Builder(8);
+    for (int i = 0; i < n; i++) {
+      double x = random.nextDouble() * 100;
+      double y = random.nextDouble() * 100;
+      double w = random.nextDouble() < 0.5 ? 0 : random.nextDouble();
+      boxes[i * 4] = x;
+      boxes[i * 4 + 1] = y;
+      boxes[i * 4 + 2] = x + w;
+      boxes[i * 4 + 3] = y + w;
+      builder.add(i, x, y, x + w, y + w);
+    }
+    RTree tree = builder.build();
+    assertEquals(tree.size(), n);
+
+    for (int q = 0; q < 50; q++) {
+      double x = random.nextDouble() * 100;
+      double y = random.nextDouble() * 100;
+      double side = random.nextDouble() * 20;
+      Set<Integer> expected = new HashSet<>();
+      for (int i = 0; i < n; i++) {
+        if (boxes[i * 4] <= x + side && boxes[i * 4 + 2] >= x && boxes[i * 4 + 1] <= y + side
+            && boxes[i * 4 + 3] >= y) {
+          expected.add(i);
+        }
+      }
+      final Set<Integer> found = new HashSet<>();
+      tree.search(x, y, x + side, y + side, new RTree.Visitor() {
+        @Override
+        public boolean visit(int id, double minX, double minY, double maxX, double maxY) {
+          found.add(id);
+          return true;
+        }
+      });
+      assertEquals(found, expected);
+      assertEquals(tree.count(x, y, x + side, y + side, Integer.MAX_VALUE), expected.size());
+    }
+  }
+
+  @Test
+  public void countStopsAtLimit() {
+    RTree.Builder builder = new RTree.Builder(4);
+    for (int i = 0; i < 10; i++) {
+      builder.add(i, i, i, i, i);
+    }
+    RTree tree = builder.build();
+    assertEquals(tree.count(0, 0, 9, 9, 3), 3);
+    assertEquals(new RTree.Builder(4).add(7, 1, 1, 1, 1).build().count(0, 0, 2, 2, 10), 1);
+  }
+
+  @Test
+  public void emptyTreeHasNoEnvelope() {
+    RTree tree = new RTree.Builder(4).build();
+    double[] envelope = new double[4];
+    tree.envelope(envelope);
+    for (double value : envelope) {
+      assertTrue(Double.isNaN(value));
+    }
+    assertEquals(tree.count(0, 0, 1, 1, 10), 0);
+  }
+}
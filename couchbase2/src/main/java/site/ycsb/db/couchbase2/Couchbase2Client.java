@@ -28,7 +28,6 @@ import com.couchbase.client.core.metrics.MetricsCollectorConfig;
 import com.couchbase.client.deps.com.fasterxml.jackson.core.JsonFactory;
 import com.couchbase.client.deps.com.fasterxml.jackson.core.JsonGenerator;
 import com.couchbase.client.deps.com.fasterxml.jackson.databind.JsonNode;
-import com.couchbase.client.deps.com.fasterxml.jackson.databind.ObjectMapper;
 import com.couchbase.client.deps.com.fasterxml.jackson.databind.node.ObjectNode;
 import com.couchbase.client.deps.io.netty.channel.DefaultSelectStrategyFactory;
 import com.couchbase.client.deps.io.netty.channel.EventLoopGroup;
@@ -53,15 +52,19 @@ import com.couchbase.client.java.error.TemporaryFailureException;
 import com.couchbase.client.java.query.*;
 import com.couchbase.client.java.search.SearchQuery;
 import com.couchbase.client.java.search.queries.GeoDistanceQuery;
+import com.couchbase.client.java.search.result.AsyncSearchQueryResult;
 import com.couchbase.client.java.search.result.SearchQueryResult;
+import com.couchbase.client.java.search.result.SearchQueryRow;
+import com.couchbase.client.java.search.sort.SearchSort;
 import com.couchbase.client.java.transcoder.JacksonTransformers;
 import com.couchbase.client.java.util.Blocking;
+import com.couchbase.client.java.view.AsyncSpatialViewResult;
 import com.couchbase.client.java.view.SpatialViewQuery;
 import com.couchbase.client.java.view.SpatialViewResult;
-import org.json.JSONObject;
+import com.couchbase.client.java.view.SpatialViewRow;
 import site.ycsb.ByteIterator;
 import site.ycsb.DBException;
-import site.ycsb.GeoDB;
+import site.ycsb.AsyncGeoDB;
 import site.ycsb.Status;
 import site.ycsb.StringByteIterator;
 import rx.Observable;
@@ -72,11 +75,15 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.channels.spi.SelectorProvider;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
 
 import site.ycsb.generator.GeoGenerator;
+import site.ycsb.generator.GeoQueryCheck;
+import site.ycsb.generator.geo.GeoJson;
+import site.ycsb.generator.geo.Geometry;
 import site.ycsb.workloads.GeoWorkload;
 
 /**
@@ -106,11 +113,13 @@ import site.ycsb.workloads.GeoWorkload;
  *      Couchbase.</li>
  * </ul>
  */
-public class Couchbase2Client extends GeoDB {
+public class Couchbase2Client extends AsyncGeoDB {
 
   private static final String SEPARATOR = ":";
   private static final CouchbaseLogger LOGGER = CouchbaseLoggerFactory.getInstance(Couchbase2Client.class);
   private static final Object INIT_COORDINATOR = new Object();
+  private static final int VERIFY_RESULT_LIMIT = 10000;
+  private static final String KNN_MAX_DISTANCE = "20000km";
   private static volatile CouchbaseEnvironment env = null;
 
   static {
@@ -279,6 +288,14 @@ public class Couchbase2Client extends GeoDB {
     documentExpiry = Integer.parseInt(props.getProperty("couchbase.documentExpiry", "0"));
     scanAllQuery = "SELECT RAW meta().id FROM `" + bucketName + "` WHERE meta().id >= '$1' ORDER BY meta().id LIMIT $2";
     geoInsertN1qlQuery = "INSERT INTO `" + bucketName + "`(KEY,VALUE) VALUES ($1,$2)";
+    // GEO_UPDATE addresses documents by their sequential id, which is not their key under a space-filling curve
+    boolean curveKeys = !GeoWorkload.GEO_KEY_ORDER_DEFAULT.equals(
+        props.getProperty(GeoWorkload.GEO_KEY_ORDER, GeoWorkload.GEO_KEY_ORDER_DEFAULT));
+    if (curveKeys && Double.parseDouble(props.getProperty(GeoWorkload.GEO_UPDATE_PROPORTION_PROPERTY,
+        GeoWorkload.GEO_UPDATE_PROPORTION_PROPERTY_DEFAULT)) > 0) {
+      throw new DBException("GEO_UPDATE needs " + GeoWorkload.GEO_KEY_ORDER + "=" +
+          GeoWorkload.GEO_KEY_ORDER_DEFAULT + " with Couchbase");
+    }
 
     try {
       synchronized (INIT_COORDINATOR) {
@@ -855,6 +872,30 @@ public class Couchbase2Client extends GeoDB {
     return Status.OK;
   }
 
+  // *********************  GEO Bulk Load ********************************
+
+  /**
+   * Upserts the batch through the key/value API with all mutations in flight at once, in both kv and N1QL mode.
+   */
+  @Override
+  public Status geoBulkLoad(String table, List<String> keys, List<String> documents) {
+    try {
+      List<RawJsonDocument> batch = new ArrayList<>(documents.size());
+      for (int i = 0; i < documents.size(); i++) {
+        batch.add(RawJsonDocument.create(keys.get(i), documentExpiry, documents.get(i)));
+      }
+      Observable.from(batch)
+          .flatMap(doc -> bucket.async().upsert(doc, persistTo, replicateTo))
+          .toList()
+          .toBlocking()
+          .single();
+      return Status.OK;
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      return Status.ERROR;
+    }
+  }
+
   // *********************  GEO Insert ********************************
 
   @Override
@@ -924,7 +965,7 @@ public class Couchbase2Client extends GeoDB {
   private Status geoUpdateKv(GeoGenerator gen) {
     waitForMutationResponse(bucket.async().replace(
         RawJsonDocument.create(gen.getDocIdWithDistribution(), documentExpiry,
-            gen.getGeoPredicate().getNestedPredicateA().getValueA().toString()), persistTo, replicateTo));
+            GeoJson.toString(gen.getGeoPredicate().getNestedPredicateA().getGeometry())), persistTo, replicateTo));
 
     return Status.OK;
   }
@@ -936,7 +977,8 @@ public class Couchbase2Client extends GeoDB {
             " = $2";
 
     N1qlQueryResult queryResult = bucket.query(N1qlQuery.parameterized(updateQuery,
-        JsonArray.from(gen.getDocIdWithDistribution(), gen.getGeoPredicate().getNestedPredicateA().getValueA()),
+        JsonArray.from(gen.getDocIdWithDistribution(),
+            GeoJsonObjects.toJsonObject(gen.getGeoPredicate().getNestedPredicateA().getGeometry())),
         N1qlParams.build().adhoc(adhoc).maxParallelism(maxParallelism)));
 
     if (!queryResult.parseSuccess() || !queryResult.finalSuccess()) {
@@ -945,51 +987,103 @@ public class Couchbase2Client extends GeoDB {
     return Status.OK;
   }
 
+  // *********************  GEO Move ********************************
+  @Override
+  public Status geoMove(String table, GeoGenerator gen) {
+    try {
+      String key = gen.getGeoPredicate().getDocid();
+      String moveFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      JsonObject position = GeoJsonObjects.toJsonObject(gen.getGeoPredicate().getNestedPredicateA().getGeometry());
+      if (kv) {
+        bucket.mutateIn(key).replace(moveFieldName, position).execute();
+        return Status.OK;
+      }
+      N1qlQueryResult queryResult = bucket.query(N1qlQuery.parameterized(
+          "UPDATE `" + bucketName + "` USE KEYS [$1] SET " + moveFieldName + " = $2", JsonArray.from(key, position),
+          N1qlParams.build().adhoc(adhoc).maxParallelism(maxParallelism)));
+      if (!queryResult.parseSuccess() || !queryResult.finalSuccess()) {
+        return Status.ERROR;
+      }
+      return Status.OK;
+    } catch (Exception ex) {
+      ex.printStackTrace();
+      return Status.ERROR;
+    }
+  }
+
   // *********************  GEO Centre Based ********************************
   @Override
   public Status geoNear(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
     try {
-      JSONObject nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getValueA();
-
-      HashMap<String, Object> boxFields = new ObjectMapper().readValue(nearFieldValue.toString(), HashMap.class);
-      ArrayList coords1 = ((ArrayList) boxFields.get("coordinates"));
+      Geometry nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      Double maxDistance = gen.getGeoPredicate().getNestedPredicateA().getMaxDistance();
 
-      GeoDistanceQuery fts = SearchQuery.geoDistance((Double) coords1.get(0), (Double) coords1.get(1), "1000m");
+      double distance = maxDistance != null ? maxDistance : 1000.0;
+      GeoDistanceQuery fts = SearchQuery.geoDistance(nearFieldValue.getX(0), nearFieldValue.getY(0),
+          distance + "m");
       SearchQuery query = new SearchQuery("Index", fts);
+      GeoQueryCheck check = gen.getQueryCheck();
+      if (check != null) {
+        check.near(nearFieldValue.getX(0), nearFieldValue.getY(0), distance);
+        check.useDocumentKeys();
+        query.limit(VERIFY_RESULT_LIMIT);
+      }
 
       SearchQueryResult queryResult = bucket.query(query);
+      if (check != null && queryResult != null) {
+        check.answered();
+        for (SearchQueryRow row : queryResult.hits()) {
+          check.addResult(row.id());
+        }
+      }
 
-      return queryResult != null ? Status.OK : Status.NOT_FOUND;
+      return queryResult != null && !queryResult.hits().isEmpty() ? Status.OK : Status.NOT_FOUND;
     } catch (Exception e) {
       System.err.println(e);
       return Status.ERROR;
     }
   }
 
-  // *********************  GEO Box Based ********************************
+  // *********************  GEO Knn ********************************
   @Override
-  public Status geoBox(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+  public Status geoKnn(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
     try {
-      JSONObject boxFieldValue1 = gen.getGeoPredicate().getNestedPredicateA().getValueA();
-      JSONObject boxFieldValue2 = gen.getGeoPredicate().getNestedPredicateB().getValueA();
-
-      HashMap<String, Object> boxFields = new ObjectMapper().readValue(boxFieldValue1.toString(), HashMap.class);
-      HashMap<String, Object> boxFields1 = new ObjectMapper().readValue(boxFieldValue2.toString(), HashMap.class);
-      List<Double> rp = new ArrayList<>();
-      List coords = (ArrayList) boxFields.get("coordinates");
-      for (Object element : coords) {
-        rp.add((Double) element);
+      String nearFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      double x = nearFieldValue.getX(0);
+      double y = nearFieldValue.getY(0);
+      // full text search needs a distance; half the earth's circumference matches every document
+      SearchQuery query = new SearchQuery("Index", SearchQuery.geoDistance(x, y, KNN_MAX_DISTANCE))
+          .sort(SearchSort.sortGeoDistance(x, y, nearFieldName))
+          .limit(gen.getKnnK());
+      SearchQueryResult queryResult = bucket.query(query);
+      if (queryResult == null) {
+        return Status.NOT_FOUND;
       }
-      ArrayList coords2 = ((ArrayList) boxFields1.get("coordinates"));
-      for (Object element : coords2) {
-        rp.add((Double) element);
+      int found = 0;
+      for (SearchQueryRow row : queryResult) {
+        found++;
       }
+      return found > 0 ? Status.OK : Status.NOT_FOUND;
+    } catch (Exception e) {
+      System.err.println(e);
+      return Status.ERROR;
+    }
+  }
+
+  // *********************  GEO Box Based ********************************
+  @Override
+  public Status geoBox(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+    try {
+      Geometry boxFieldValue1 = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      Geometry boxFieldValue2 = gen.getGeoPredicate().getNestedPredicateB().getGeometry();
 
-      SpatialViewQuery q =
-          SpatialViewQuery.from("_design/dev_spatial", "SpatialView").startRange(JsonArray.from(rp.get(0), rp.get(1)))
-              .endRange(JsonArray.from(rp.get(2), rp.get(3)));
+      SpatialViewQuery q = SpatialViewQuery.from("_design/dev_spatial", "SpatialView")
+          .startRange(JsonArray.from(boxFieldValue1.getX(0), boxFieldValue1.getY(0)))
+          .endRange(JsonArray.from(boxFieldValue2.getX(0), boxFieldValue2.getY(0)));
       SpatialViewResult queryResult = bucket.query(q);
-      return queryResult != null ? Status.OK : Status.NOT_FOUND;
+      collectSpatialViewResults(gen.getQueryCheck(), boxFieldValue1, boxFieldValue2, queryResult);
+      return spatialViewStatus(queryResult);
     } catch (Exception e) {
       System.err.println(e);
       return Status.ERROR;
@@ -1000,32 +1094,132 @@ public class Couchbase2Client extends GeoDB {
   @Override
   public Status geoIntersect(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
     try {
-      JSONObject boxFieldValue1 = gen.getGeoPredicate().getNestedPredicateA().getValueA();
-      JSONObject boxFieldValue2 = gen.getGeoPredicate().getNestedPredicateB().getValueA();
-      HashMap<String, Object> boxFields = new ObjectMapper().readValue(boxFieldValue1.toString(), HashMap.class);
-      HashMap<String, Object> boxFields1 = new ObjectMapper().readValue(boxFieldValue2.toString(), HashMap.class);
-      List<Double> rp = new ArrayList<>();
-      List coords = (ArrayList) boxFields.get("coordinates");
-      for (Object element : coords) {
-        rp.add((Double) element);
-      }
-      ArrayList coords2 = ((ArrayList) boxFields1.get("coordinates"));
-      for (Object element : coords2) {
-        rp.add((Double) element);
-      }
+      Geometry boxFieldValue1 = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      Geometry boxFieldValue2 = gen.getGeoPredicate().getNestedPredicateB().getGeometry();
 
-      SpatialViewQuery q =
-          SpatialViewQuery.from("_design/dev_spatial", "SpatialView").startRange(JsonArray.from(rp.get(0), rp.get(1)))
-              .endRange(JsonArray.from(rp.get(2), rp.get(3)));
+      SpatialViewQuery q = SpatialViewQuery.from("_design/dev_spatial", "SpatialView")
+          .startRange(JsonArray.from(boxFieldValue1.getX(0), boxFieldValue1.getY(0)))
+          .endRange(JsonArray.from(boxFieldValue2.getX(0), boxFieldValue2.getY(0)));
       SpatialViewResult queryResult = bucket.query(q);
+      collectSpatialViewResults(gen.getQueryCheck(), boxFieldValue1, boxFieldValue2, queryResult);
 
-      return queryResult != null ? Status.OK : Status.NOT_FOUND;
+      return spatialViewStatus(queryResult);
     } catch (Exception e) {
       System.err.println(e);
       return Status.ERROR;
     }
   }
 
+  /**
+   * OK if the view returned rows, NOT_FOUND if it returned none, as for the asynchronous queries.
+   */
+  private static Status spatialViewStatus(SpatialViewResult queryResult) {
+    return queryResult != null && !queryResult.allRows().isEmpty() ? Status.OK : Status.NOT_FOUND;
+  }
+
+  /**
+   * If the operation is verified, declare the spatial view range as the query and collect the keys it returned.
+   */
+  private static void collectSpatialViewResults(GeoQueryCheck check, Geometry corner1, Geometry corner2,
+                                                SpatialViewResult queryResult) {
+    if (check == null || queryResult == null) {
+      return;
+    }
+    check.answered();
+    check.within(corner1.getX(0), corner1.getY(0), corner2.getX(0), corner2.getY(0));
+    check.useDocumentKeys();
+    for (SpatialViewRow row : queryResult.allRows()) {
+      check.addResult(row.id());
+    }
+  }
+
+  // *********************  GEO Async ********************************
+
+  /**
+   * Inserts through the asynchronous key/value API in kv mode; N1QL inserts stay blocking.
+   */
+  @Override
+  public CompletableFuture<Status> geoInsertAsync(String table, HashMap<String, ByteIterator> result,
+                                                  GeoGenerator gen) {
+    if (!kv) {
+      return super.geoInsertAsync(table, result, gen);
+    }
+    return toFuture(bucket.async().insert(
+        RawJsonDocument.create(gen.getGeoPredicate().getDocid(), documentExpiry, gen.getGeoPredicate().getValue()),
+        persistTo, replicateTo));
+  }
+
+  @Override
+  public CompletableFuture<Status> geoNearAsync(String table, HashMap<String, ByteIterator> result,
+                                                GeoGenerator gen) {
+    Geometry nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+    Double maxDistance = gen.getGeoPredicate().getNestedPredicateA().getMaxDistance();
+    double distance = maxDistance != null ? maxDistance : 1000.0;
+    SearchQuery query = new SearchQuery("Index", SearchQuery.geoDistance(nearFieldValue.getX(0),
+        nearFieldValue.getY(0), distance + "m"));
+    return toFuture(bucket.async().query(query).flatMap(AsyncSearchQueryResult::hits));
+  }
+
+  @Override
+  public CompletableFuture<Status> geoKnnAsync(String table, HashMap<String, ByteIterator> result,
+                                               GeoGenerator gen) {
+    String nearFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+    Geometry nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+    double x = nearFieldValue.getX(0);
+    double y = nearFieldValue.getY(0);
+    SearchQuery query = new SearchQuery("Index", SearchQuery.geoDistance(x, y, KNN_MAX_DISTANCE))
+        .sort(SearchSort.sortGeoDistance(x, y, nearFieldName))
+        .limit(gen.getKnnK());
+    return toFuture(bucket.async().query(query).flatMap(AsyncSearchQueryResult::hits));
+  }
+
+  @Override
+  public CompletableFuture<Status> geoBoxAsync(String table, HashMap<String, ByteIterator> result,
+                                               GeoGenerator gen) {
+    return toFuture(bucket.async().query(spatialViewQuery(gen)).flatMap(AsyncSpatialViewResult::rows));
+  }
+
+  @Override
+  public CompletableFuture<Status> geoIntersectAsync(String table, HashMap<String, ByteIterator> result,
+                                                     GeoGenerator gen) {
+    return toFuture(bucket.async().query(spatialViewQuery(gen)).flatMap(AsyncSpatialViewResult::rows));
+  }
+
+  private static SpatialViewQuery spatialViewQuery(GeoGenerator gen) {
+    Geometry corner1 = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+    Geometry corner2 = gen.getGeoPredicate().getNestedPredicateB().getGeometry();
+    return SpatialViewQuery.from("_design/dev_spatial", "SpatialView")
+        .startRange(JsonArray.from(corner1.getX(0), corner1.getY(0)))
+        .endRange(JsonArray.from(corner2.getX(0), corner2.getY(0)));
+  }
+
+  /**
+   * Complete with OK once the observable emitted anything and NOT_FOUND if it completed empty, the same rule as the
+   * blocking operations. A failure completes the future exceptionally and is reported as ERROR by the wrapper.
+   */
+  private static CompletableFuture<Status> toFuture(Observable<?> input) {
+    final CompletableFuture<Status> future = new CompletableFuture<>();
+    input.subscribe(new Subscriber<Object>() {
+      private boolean found = false;
+
+      @Override
+      public void onCompleted() {
+        future.complete(found ? Status.OK : Status.NOT_FOUND);
+      }
+
+      @Override
+      public void onError(Throwable e) {
+        future.completeExceptionally(e);
+      }
+
+      @Override
+      public void onNext(Object item) {
+        found = true;
+      }
+    });
+    return future;
+  }
+
   // ************************************************************************************************
 }
 
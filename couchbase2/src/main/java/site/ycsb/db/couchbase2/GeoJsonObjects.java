@@ -0,0 +1,63 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.db.couchbase2;
+
+import com.couchbase.client.java.document.json.JsonArray;
+import com.couchbase.client.java.document.json.JsonObject;
+import site.ycsb.generator.geo.CoordinateWriter;
+import site.ycsb.generator.geo.Geometry;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Builds Couchbase {@link JsonObject}s from a {@link Geometry} without going through JSON text.
+ */
+public final class GeoJsonObjects {
+
+  private GeoJsonObjects() {
+    // utility class
+  }
+
+  public static JsonObject toJsonObject(Geometry geometry) {
+    final Deque<JsonArray> arrays = new ArrayDeque<>();
+    final JsonArray root = JsonArray.create();
+    arrays.push(root);
+    geometry.writeCoordinates(new CoordinateWriter() {
+      @Override
+      public void startArray() {
+        JsonArray array = JsonArray.create();
+        arrays.peek().add(array);
+        arrays.push(array);
+      }
+
+      @Override
+      public void endArray() {
+        arrays.pop();
+      }
+
+      @Override
+      public void position(double x, double y) {
+        arrays.peek().add(JsonArray.create().add(x).add(y));
+      }
+    });
+    return JsonObject.create()
+        .put("type", geometry.getType().getGeoJsonName())
+        .put("coordinates", root.get(0));
+  }
+}
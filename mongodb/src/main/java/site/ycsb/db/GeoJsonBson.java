@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2024 YCSB contributors. All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package site.ycsb.db;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentWriter;
+import org.bson.BsonWriter;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import site.ycsb.generator.geo.CoordinateWriter;
+import site.ycsb.generator.geo.Geometry;
+
+/**
+ * Writes a {@link Geometry} as a GeoJSON BSON document straight from its coordinate buffer, so geo filters and
+ * updates need no JSON text or intermediate maps. The driver still builds a {@link BsonDocument} of it, as for any
+ * {@link Bson}, when it encodes the command.
+ */
+public final class GeoJsonBson implements Bson {
+
+  private final Geometry geometry;
+
+  public GeoJsonBson(Geometry geometry) {
+    this.geometry = geometry;
+  }
+
+  @Override
+  public <TDocument> BsonDocument toBsonDocument(Class<TDocument> documentClass, CodecRegistry codecRegistry) {
+    return toBsonDocument();
+  }
+
+  public BsonDocument toBsonDocument() {
+    BsonDocument document = new BsonDocument();
+    write(new BsonDocumentWriter(document));
+    return document;
+  }
+
+  public void write(final BsonWriter writer) {
+    writer.writeStartDocument();
+    writer.writeString("type", geometry.getType().getGeoJsonName());
+    writer.writeName("coordinates");
+    geometry.writeCoordinates(new CoordinateWriter() {
+      @Override
+      public void startArray() {
+        writer.writeStartArray();
+      }
+
+      @Override
+      public void endArray() {
+        writer.writeEndArray();
+      }
+
+      @Override
+      public void position(double x, double y) {
+        writer.writeStartArray();
+        writer.writeDouble(x);
+        writer.writeDouble(y);
+        writer.writeEndArray();
+      }
+    });
+    writer.writeEndDocument();
+  }
+}
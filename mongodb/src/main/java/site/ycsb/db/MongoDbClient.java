@@ -24,7 +24,6 @@
  */
 package site.ycsb.db;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mongodb.DBObject;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoClientURI;
@@ -34,6 +33,8 @@ import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.InsertManyOptions;
 import com.mongodb.client.model.UpdateOneModel;
@@ -44,17 +45,20 @@ import com.mongodb.util.JSON;
 
 import java.util.Random;
 
-import org.json.JSONObject;
 import site.ycsb.ByteArrayByteIterator;
 import site.ycsb.ByteIterator;
+import site.ycsb.Client;
 import site.ycsb.DBException;
 import site.ycsb.GeoDB;
 import site.ycsb.Status;
 
+import org.bson.BsonDocument;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.Binary;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -65,7 +69,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import site.ycsb.StringByteIterator;
 import site.ycsb.generator.GeoGenerator;
+import site.ycsb.generator.GeoQueryCheck;
+import site.ycsb.generator.GeoRegion;
+import site.ycsb.generator.geo.Geometry;
 import site.ycsb.workloads.GeoWorkload;
+import site.ycsb.workloads.TrajectoryWorkload;
 
 /**
  * MongoDB binding for YCSB framework using the MongoDB Inc. <a
@@ -86,6 +94,9 @@ public class MongoDbClient extends GeoDB {
   /** The options to use for inserting many documents. */
   private static final InsertManyOptions INSERT_UNORDERED = new InsertManyOptions().ordered(false);
 
+  /** The meters per coordinate unit the generator sizes near radii with, to scale them for planar queries. */
+  private static final double METERS_PER_UNIT = 111320;
+
   /** The options to use for inserting a single document. */
   private static final UpdateOptions UPDATE_WITH_UPSERT = new UpdateOptions().upsert(true);
   /**
@@ -117,6 +128,9 @@ public class MongoDbClient extends GeoDB {
   /** The bulk inserts pending for the thread. */
   private final List<Document> bulkInserts = new ArrayList<Document>();
 
+  /** The projection of the geo schema fields, built on the first geo query of the thread. */
+  private Document geoProjection;
+
   /**
    * Cleanup any state for this DB. Called once per DB instance; there is one DB
    * instance per client thread.
@@ -225,6 +239,16 @@ public class MongoDbClient extends GeoDB {
             mongoClient.getDatabase(databaseName).withReadPreference(readPreference).withWriteConcern(writeConcern);
 
         System.out.println("mongo client connection created with " + url);
+
+        boolean curveKeys = !GeoWorkload.GEO_KEY_ORDER_DEFAULT.equals(
+            props.getProperty(GeoWorkload.GEO_KEY_ORDER, GeoWorkload.GEO_KEY_ORDER_DEFAULT));
+        boolean trajectories = TrajectoryWorkload.class.getName().equals(props.getProperty(Client.WORKLOAD_PROPERTY));
+        if (curveKeys || trajectories) {
+          // keys in curve order make GEO_SCAN a range scan, and GEO_MOVE finds its entity by key; both need an
+          // index on the key so they do not scan the collection
+          String table = props.getProperty(GeoWorkload.TABLENAME_PROPERTY, GeoWorkload.TABLENAME_PROPERTY_DEFAULT);
+          database.getCollection(table).createIndex(new Document("OBJECTID", 1));
+        }
       } catch (Exception e1) {
         System.err.println("Could not initialize MongoDB connection pool for Loader: " + e1);
         e1.printStackTrace();
@@ -468,7 +492,7 @@ public class MongoDbClient extends GeoDB {
       int objId = rand.nextInt(
           (Integer.parseInt(GeoWorkload.TOTAL_DOCS_DEFAULT) - Integer.parseInt(GeoWorkload.DOCS_START_VALUE)) + 1) +
           Integer.parseInt(GeoWorkload.DOCS_START_VALUE);
-      Document query = new Document("properties.OBJECTID", objId);
+      Document query = new Document(generator.getSchema().getIdPath(), objId);
       FindIterable<Document> findIterable = collection.find(query);
       Document queryResult = findIterable.first();
       if (queryResult == null) {
@@ -493,6 +517,28 @@ public class MongoDbClient extends GeoDB {
     return Status.ERROR;
   }
 
+  // *********************  GEO Bulk Load ********************************
+
+  @Override
+  public Status geoBulkLoad(String table, List<String> keys, List<String> documents) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      List<Document> batch = new ArrayList<Document>(documents.size());
+      for (int i = 0; i < documents.size(); i++) {
+        Document document = Document.parse(documents.get(i));
+        // the key is the scan order of GEO_SCAN, as for single inserts
+        document.put("OBJECTID", keys.get(i));
+        batch.add(document);
+      }
+      collection.insertMany(batch, INSERT_UNORDERED);
+      return Status.OK;
+    } catch (Exception e) {
+      System.err.println("Exception while trying bulk load with " + documents.size() + " documents");
+      e.printStackTrace();
+      return Status.ERROR;
+    }
+  }
+
   // *********************  GEO Insert ********************************
 
   @Override
@@ -526,15 +572,11 @@ public class MongoDbClient extends GeoDB {
           (Integer.parseInt(GeoWorkload.TOTAL_DOCS_DEFAULT) - Integer.parseInt(GeoWorkload.DOCS_START_VALUE)) + 1) +
           Integer.parseInt(GeoWorkload.DOCS_START_VALUE);
       String updateFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
-      JSONObject updateFieldValue = gen.getGeoPredicate().getNestedPredicateA().getValueA();
+      Geometry updateFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
 
-      HashMap<String, Object> updateFields = new ObjectMapper().readValue(updateFieldValue.toString(), HashMap.class);
-      Document refPoint = new Document(updateFields);
-      Document query = new Document().append("properties.OBJECTID", key);
-      Document fieldsToSet = new Document();
-
-      fieldsToSet.put(updateFieldName, refPoint);
-      Document update = new Document("$set", fieldsToSet);
+      Document query = new Document().append(gen.getSchema().getIdPath(), key);
+      BsonDocument fieldsToSet = new BsonDocument(updateFieldName, new GeoJsonBson(updateFieldValue).toBsonDocument());
+      BsonDocument update = new BsonDocument("$set", fieldsToSet);
 
       UpdateResult res = collection.updateMany(query, update);
       if (res.wasAcknowledged() && res.getMatchedCount() == 0) {
@@ -548,6 +590,31 @@ public class MongoDbClient extends GeoDB {
     return Status.OK;
   }
 
+  // *********************  GEO Move ********************************
+
+  @Override
+  public Status geoMove(String table, GeoGenerator gen) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      String key = gen.getGeoPredicate().getDocid();
+      String moveFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry moveFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+
+      // the bulk load stores the key as the indexed top-level OBJECTID
+      Document query = new Document("OBJECTID", key);
+      BsonDocument update = new BsonDocument("$set",
+          new BsonDocument(moveFieldName, new GeoJsonBson(moveFieldValue).toBsonDocument()));
+      UpdateResult res = collection.updateOne(query, update);
+      if (res.wasAcknowledged() && res.getMatchedCount() == 0) {
+        return Status.NOT_FOUND;
+      }
+    } catch (Exception e) {
+      System.err.println(e);
+      return Status.ERROR;
+    }
+    return Status.OK;
+  }
+
   // *********************  GEO Near ********************************
 
   @Override
@@ -555,18 +622,25 @@ public class MongoDbClient extends GeoDB {
     try {
       MongoCollection<Document> collection = database.getCollection(table);
       String nearFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
-      JSONObject nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getValueA();
-
-      HashMap<String, Object> nearFields = new ObjectMapper().readValue(nearFieldValue.toString(), HashMap.class);
-      Document refPoint = new Document(nearFields);
-      FindIterable<Document> findIterable = collection.find(Filters.near(nearFieldName, refPoint, 1000.0, 0.0));
-      Document projection = new Document();
-      for (String field : gen.getAllGeoFields()) {
-        projection.put(field, INCLUDE);
+      Geometry nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      Double maxDistance = gen.getGeoPredicate().getNestedPredicateA().getMaxDistance();
+
+      double distance = maxDistance != null ? maxDistance : 1000.0;
+      FindIterable<Document> findIterable;
+      GeoQueryCheck check = gen.getQueryCheck();
+      if (isPlanar(gen)) {
+        // the oracle measures great-circle distances, so planar near queries are left unverified
+        findIterable = collection.find(Filters.near(legacyField(nearFieldName), nearFieldValue.getX(0),
+            nearFieldValue.getY(0), distance / METERS_PER_UNIT, 0.0));
+      } else {
+        findIterable = collection.find(Filters.near(nearFieldName, new GeoJsonBson(nearFieldValue), distance, 0.0));
+        if (check != null) {
+          check.near(nearFieldValue.getX(0), nearFieldValue.getY(0), distance);
+        }
       }
-      findIterable.projection(projection);
+      findIterable.projection(geoProjection(gen));
 
-      Document queryResult = findIterable.first();
+      Document queryResult = geoFirst(findIterable, check, gen);
 
       if (queryResult != null) {
         geoFillMap(result, queryResult);
@@ -580,6 +654,118 @@ public class MongoDbClient extends GeoDB {
   }
 
 
+  // *********************  GEO Knn ********************************
+
+  @Override
+  public Status geoKnn(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      String nearFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      int k = gen.getKnnK();
+
+      // $near without a maximum distance returns the documents nearest first, the cursor streams k of them
+      Bson near = isPlanar(gen)
+          ? Filters.near(legacyField(nearFieldName), nearFieldValue.getX(0), nearFieldValue.getY(0), null, null)
+          : Filters.near(nearFieldName, new GeoJsonBson(nearFieldValue), null, null);
+      FindIterable<Document> findIterable = collection
+          .find(near)
+          .limit(k)
+          .batchSize(Math.min(k, 1000));
+      findIterable.projection(geoProjection(gen));
+
+      int found = 0;
+      try (MongoCursor<Document> cursor = findIterable.iterator()) {
+        while (cursor.hasNext()) {
+          Document doc = cursor.next();
+          if (found++ == 0) {
+            geoFillMap(result, doc);
+          }
+        }
+      }
+      return found > 0 ? Status.OK : Status.NOT_FOUND;
+    } catch (Exception e) {
+      System.err.println(e);
+      e.printStackTrace();
+      return Status.ERROR;
+    }
+  }
+
+  // *********************  GEO Aggregations ********************************
+
+  @Override
+  public Status geoCount(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      String fieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry polygon = gen.getGeoPredicate().getNestedPredicateD().getGeometry();
+
+      List<Bson> pipeline = new ArrayList<>();
+      pipeline.add(Aggregates.match(geoWithinPolygon(fieldName, polygon, gen)));
+      pipeline.add(Aggregates.group(null, Accumulators.sum("count", 1)));
+      Document counted = collection.aggregate(pipeline).first();
+      long count = counted == null ? 0 : ((Number) counted.get("count")).longValue();
+      result.put("count", new StringByteIterator(String.valueOf(count)));
+      return count > 0 ? Status.OK : Status.NOT_FOUND;
+    } catch (Exception e) {
+      System.err.println(e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public Status geoGridAggregate(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+      String fieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry polygon = gen.getGeoPredicate().getNestedPredicateD().getGeometry();
+      double[] viewport = gen.getGridViewport();
+      int cells = gen.getGridCells();
+
+      List<Bson> pipeline = new ArrayList<>();
+      pipeline.add(Aggregates.match(geoWithinPolygon(fieldName, polygon, gen)));
+      pipeline.add(Aggregates.project(new Document("p", firstPosition("$" + fieldName + ".coordinates"))));
+      Document column = gridIndex(new Document("$arrayElemAt", Arrays.asList("$p", 0)), viewport[0], viewport[2],
+          cells);
+      Document row = gridIndex(new Document("$arrayElemAt", Arrays.asList("$p", 1)), viewport[1], viewport[3],
+          cells);
+      pipeline.add(Aggregates.group(
+          new Document("$add", Arrays.asList(new Document("$multiply", Arrays.asList(row, cells)), column)),
+          Accumulators.sum("count", 1)));
+      for (Document cell : collection.aggregate(pipeline)) {
+        result.put(String.valueOf(((Number) cell.get("_id")).intValue()),
+            new StringByteIterator(String.valueOf(cell.get("count"))));
+      }
+      return result.isEmpty() ? Status.NOT_FOUND : Status.OK;
+    } catch (Exception e) {
+      System.err.println(e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * The first position of a GeoJSON coordinates array of any depth up to a MultiPolygon: descend into the first
+   * element while it is an array itself.
+   */
+  private static Object firstPosition(String coordinates) {
+    Object position = coordinates;
+    for (int depth = 0; depth < 3; depth++) {
+      Document first = new Document("$arrayElemAt", Arrays.asList(position, 0));
+      position = new Document("$cond", Arrays.asList(new Document("$isArray", first), first, position));
+    }
+    return position;
+  }
+
+  /**
+   * The cell of a value along one side of the grid, matching {@link GeoGenerator#gridCell(double, double)}.
+   */
+  private static Document gridIndex(Object value, double min, double max, int cells) {
+    double span = max > min ? max - min : 1;
+    Document scaled = new Document("$multiply", Arrays.asList(
+        new Document("$divide", Arrays.asList(new Document("$subtract", Arrays.asList(value, min)), span)), cells));
+    return new Document("$min", Arrays.asList(cells - 1, new Document("$floor", scaled)));
+  }
+
   // *********************  GEO Box ********************************
 
   @Override
@@ -587,34 +773,27 @@ public class MongoDbClient extends GeoDB {
     try {
       MongoCollection<Document> collection = database.getCollection(table);
       String boxFieldName1 = gen.getGeoPredicate().getNestedPredicateA().getName();
-      JSONObject boxFieldValue1 = gen.getGeoPredicate().getNestedPredicateA().getValueA();
-      JSONObject boxFieldValue2 = gen.getGeoPredicate().getNestedPredicateB().getValueA();
-
-      HashMap<String, Object> boxFields = new ObjectMapper().readValue(boxFieldValue1.toString(), HashMap.class);
-      Document refPoint = new Document();
-      refPoint.putAll(boxFields);
-      HashMap<String, Object> boxFields1 = new ObjectMapper().readValue(boxFieldValue2.toString(), HashMap.class);
-      Document refPoint2 = new Document();
-      refPoint2.putAll(boxFields1);
-      ArrayList coords1 = ((ArrayList) refPoint.get("coordinates"));
-      List<Double> rp = new ArrayList<>();
-      for (Object element : coords1) {
-        rp.add((Double) element);
-      }
-      ArrayList coords2 = ((ArrayList) refPoint2.get("coordinates"));
-      for (Object element : coords2) {
-        rp.add((Double) element);
+      Geometry boxFieldValue1 = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      Geometry boxFieldValue2 = gen.getGeoPredicate().getNestedPredicateB().getGeometry();
+
+      FindIterable<Document> findIterable;
+      GeoQueryCheck check = gen.getQueryCheck();
+      if (gen.getQueryVertexCount() > 0) {
+        // a configured query shape replaces the box with a polygon inside the same box; the check only knows
+        // boxes, so it is left undeclared
+        Geometry polygon = gen.getGeoPredicate().getNestedPredicateD().getGeometry();
+        findIterable = collection.find(geoWithinPolygon(boxFieldName1, polygon, gen));
+      } else {
+        String boxField = isPlanar(gen) ? legacyField(boxFieldName1) : boxFieldName1;
+        findIterable = collection.find(Filters.geoWithinBox(boxField,
+            boxFieldValue1.getX(0), boxFieldValue1.getY(0), boxFieldValue2.getX(0), boxFieldValue2.getY(0)));
       }
-
-      FindIterable<Document> findIterable =
-          collection.find(Filters.geoWithinBox(boxFieldName1, rp.get(0), rp.get(1), rp.get(2), rp.get(3)));
-      Document projection = new Document();
-      for (String field : gen.getAllGeoFields()) {
-        projection.put(field, INCLUDE);
+      if (check != null && gen.getQueryVertexCount() == 0) {
+        check.within(boxFieldValue1.getX(0), boxFieldValue1.getY(0), boxFieldValue2.getX(0), boxFieldValue2.getY(0));
       }
-      findIterable.projection(projection);
+      findIterable.projection(geoProjection(gen));
 
-      Document queryResult = findIterable.first();
+      Document queryResult = geoFirst(findIterable, check, gen);
 
       if (queryResult != null) {
         geoFillMap(result, queryResult);
@@ -631,21 +810,23 @@ public class MongoDbClient extends GeoDB {
   @Override
   public Status geoIntersect(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
     try {
+      if (isPlanar(gen)) {
+        // a 2d index answers no intersection queries, only $geoWithin and legacy $near
+        return Status.NOT_IMPLEMENTED;
+      }
       MongoCollection<Document> collection = database.getCollection(table);
       String fieldName1 = gen.getGeoPredicate().getNestedPredicateA().getName();
-      JSONObject intersectFieldValue2 = gen.getGeoPredicate().getNestedPredicateC().getValueA();
+      Geometry intersectFieldValue2 = gen.getGeoPredicate().getNestedPredicateC().getGeometry();
 
-      HashMap<String, Object> intersectFields =
-          new ObjectMapper().readValue(intersectFieldValue2.toString(), HashMap.class);
-      Document refPoint = new Document(intersectFields);
-      FindIterable<Document> findIterable = collection.find(Filters.geoIntersects(fieldName1, refPoint));
-      Document projection = new Document();
-      for (String field : gen.getAllGeoFields()) {
-        projection.put(field, INCLUDE);
+      FindIterable<Document> findIterable =
+          collection.find(Filters.geoIntersects(fieldName1, new GeoJsonBson(intersectFieldValue2)));
+      GeoQueryCheck check = gen.getQueryCheck();
+      if (check != null) {
+        check.intersects(intersectFieldValue2);
       }
-      findIterable.projection(projection);
+      findIterable.projection(geoProjection(gen));
 
-      Document queryResult = findIterable.first();
+      Document queryResult = geoFirst(findIterable, check, gen);
 
       if (queryResult != null) {
         geoFillMap(result, queryResult);
@@ -660,7 +841,7 @@ public class MongoDbClient extends GeoDB {
   // *********************  GEO Scan ********************************
   @Override
   public Status geoScan(String table, final Vector<HashMap<String, ByteIterator>> result, GeoGenerator gen) {
-    String startkey = gen.getDocIdWithDistribution();
+    String startkey = gen.getScanStartKey();
     int recordcount = gen.getRandomLimit();
     MongoCursor<Document> cursor = null;
     try {
@@ -670,12 +851,12 @@ public class MongoDbClient extends GeoDB {
       Document query = new Document("OBJECTID", scanRange);
 
       FindIterable<Document> findIterable = collection.find(query).limit(recordcount);
-
-      Document projection = new Document();
-      for (String field : gen.getAllGeoFields()) {
-        projection.put(field, INCLUDE);
+      if (!GeoWorkload.GEO_KEY_ORDER_DEFAULT.equals(
+          getProperties().getProperty(GeoWorkload.GEO_KEY_ORDER, GeoWorkload.GEO_KEY_ORDER_DEFAULT))) {
+        findIterable.sort(new Document("OBJECTID", 1));
       }
-      findIterable.projection(projection);
+
+      findIterable.projection(geoProjection(gen));
 
       cursor = findIterable.iterator();
 
@@ -704,6 +885,80 @@ public class MongoDbClient extends GeoDB {
     }
   }
 
+  /**
+   * @return true if geo_crs is planar: queries then use the legacy coordinate operators that a 2d index serves
+   * instead of the GeoJSON ones that need a 2dsphere index.
+   */
+  private static boolean isPlanar(GeoGenerator gen) {
+    return gen.getRegion().getCrs() == GeoRegion.Crs.PLANAR;
+  }
+
+  /**
+   * The legacy coordinate pair of a GeoJSON point is its coordinates array, which is what a planar 2d index covers.
+   */
+  private static String legacyField(String geometryField) {
+    return geometryField + ".coordinates";
+  }
+
+  /**
+   * Documents within the polygon: a GeoJSON $geometry, or in planar mode a legacy $polygon of the outer ring of the
+   * first part, which is all a 2d index can query.
+   */
+  private static Bson geoWithinPolygon(String fieldName, Geometry polygon, GeoGenerator gen) {
+    if (!isPlanar(gen)) {
+      return Filters.geoWithin(fieldName, new GeoJsonBson(polygon));
+    }
+    List<List<Double>> points = new ArrayList<>();
+    int end = polygon.getRingEnd(0);
+    if (end > 1 && polygon.getX(end - 1) == polygon.getX(0) && polygon.getY(end - 1) == polygon.getY(0)) {
+      end--;
+    }
+    for (int i = polygon.getRingStart(0); i < end; i++) {
+      points.add(Arrays.asList(polygon.getX(i), polygon.getY(i)));
+    }
+    return Filters.geoWithinPolygon(legacyField(fieldName), points);
+  }
+
+  /**
+   * Return the projection of the schema fields, compiled once per client.
+   */
+  private Document geoProjection(GeoGenerator gen) {
+    if (geoProjection == null) {
+      Document projection = new Document();
+      for (String field : gen.getSchema().getProjection()) {
+        projection.put(field, INCLUDE);
+      }
+      geoProjection = projection;
+    }
+    return geoProjection;
+  }
+
+  /**
+   * Return the first document of the result. If the operation is verified, mark it answered at the first document,
+   * then read the whole result and collect the schema identifier of every document.
+   */
+  private Document geoFirst(FindIterable<Document> findIterable, GeoQueryCheck check, GeoGenerator gen) {
+    if (check == null) {
+      return findIterable.first();
+    }
+    Document first = null;
+    try (MongoCursor<Document> cursor = findIterable.iterator()) {
+      while (cursor.hasNext()) {
+        Document doc = cursor.next();
+        if (first == null) {
+          first = doc;
+          check.answered();
+        }
+        Object id = doc.getEmbedded(gen.getSchema().getIdSegments(), Object.class);
+        if (id != null) {
+          check.addResult(id);
+        }
+      }
+    }
+    check.answered();
+    return first;
+  }
+
   protected void geoFillMap(Map<String, ByteIterator> resultMap, Document obj) {
     for (Map.Entry<String, Object> entry : obj.entrySet()) {
       String value = "null";
@@ -18,14 +18,18 @@
 package site.ycsb.db.polyphenydb;
 
 
-import org.json.JSONObject;
+import com.fasterxml.jackson.databind.JsonNode;
 import site.ycsb.ByteIterator;
 import site.ycsb.DBException;
 import site.ycsb.GeoDB;
 import site.ycsb.Status;
+import site.ycsb.StringByteIterator;
 import site.ycsb.db.polyphenydb.connection.DocResult;
 import site.ycsb.db.polyphenydb.connection.MongoConnection;
 import site.ycsb.generator.GeoGenerator;
+import site.ycsb.generator.GeoQueryCheck;
+import site.ycsb.generator.GeoSchema;
+import site.ycsb.generator.geo.Geometry;
 import site.ycsb.workloads.GeoWorkload;
 
 import java.io.BufferedReader;
@@ -65,11 +69,52 @@ public class PolyphenyDbClient extends GeoDB {
    */
   private static MongoConnection mongoConnection;
   private Random rand;
+  /**
+   * The projection of the geo schema fields, built on the first geo query of the thread.
+   */
+  private String geoProjection;
 
   private static boolean containsResults(DocResult queryResult) {
     return queryResult.getData() != null && queryResult.getData().length != 0 && queryResult.getData()[0] != null;
   }
 
+  /**
+   * Return the projection of the schema fields, compiled once per client.
+   */
+  private String geoProjection(GeoGenerator gen) {
+    if (geoProjection == null) {
+      List<String> fields = new ArrayList<>();
+      for (String field : gen.getSchema().getProjection()) {
+        fields.add(kv(string(field), 1));
+      }
+      geoProjection = document(fields.toArray(new String[0]));
+    }
+    return geoProjection;
+  }
+
+  /**
+   * Add the schema identifier of every returned document to the check of a verified operation.
+   */
+  private static void collectResults(GeoQueryCheck check, GeoSchema schema, DocResult queryResult)
+      throws IOException {
+    check.answered();
+    if (queryResult.getData() == null) {
+      return;
+    }
+    for (String doc : queryResult.getData()) {
+      if (doc == null) {
+        continue;
+      }
+      JsonNode objectId = MAPPER.readTree(doc);
+      for (String member : schema.getIdSegments()) {
+        objectId = objectId.path(member);
+      }
+      if (!objectId.isMissingNode()) {
+        check.addResult(objectId.asText());
+      }
+    }
+  }
+
   /**
    * Cleanup any state for this DB. Called once per DB instance; there is one DB
    * instance per client thread.
@@ -115,7 +160,12 @@ public class PolyphenyDbClient extends GeoDB {
         synchronized (INIT_COORDINATOR) {
           mongoConnection = new MongoConnection(host, port, protocol, databaseName, username, password);
           rand = new Random();
-          importData();
+          if (props.getProperty(GeoWorkload.GEO_LOAD_FILE, GeoWorkload.GEO_LOAD_FILE_DEFAULT).isEmpty()) {
+            importData();
+          } else {
+            // the workload loads the dataset file in parallel through geoBulkLoad
+            mongoConnection.initDatabase();
+          }
         }
       } catch (Exception ex) {
         throw new DBException("Could not connect to PolyphenyDB.", ex);
@@ -187,7 +237,7 @@ public class PolyphenyDbClient extends GeoDB {
       int objId = rand.nextInt(
           (Integer.parseInt(GeoWorkload.TOTAL_DOCS_DEFAULT) - Integer.parseInt(GeoWorkload.DOCS_START_VALUE)) + 1) +
           Integer.parseInt(GeoWorkload.DOCS_START_VALUE);
-      String query = document(kv(string("properties.OBJECTID"), objId));
+      String query = document(kv(string(generator.getSchema().getIdPath()), objId));
       DocResult result = mongoConnection.find(query, document());
       String[] queryResult = result.getData();
       if (queryResult.length == 0) {
@@ -212,6 +262,17 @@ public class PolyphenyDbClient extends GeoDB {
     return Status.ERROR;
   }
 
+  @Override
+  public Status geoBulkLoad(String table, List<String> keys, List<String> documents) {
+    try {
+      mongoConnection.insertMany(documents);
+      return Status.OK;
+    } catch (Exception e) {
+      System.err.println(e);
+      return Status.ERROR;
+    }
+  }
+
   @Override
   public Status geoInsert(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
     try {
@@ -236,8 +297,8 @@ public class PolyphenyDbClient extends GeoDB {
           (Integer.parseInt(GeoWorkload.TOTAL_DOCS_DEFAULT) - Integer.parseInt(GeoWorkload.DOCS_START_VALUE)) + 1) +
           Integer.parseInt(GeoWorkload.DOCS_START_VALUE);
       String updateFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
-      JSONObject updateFieldValue = gen.getGeoPredicate().getNestedPredicateA().getValueA();
-      String query = document(kv("properties.OBJECTID", key));
+      Geometry updateFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      String query = document(kv(gen.getSchema().getIdPath(), key));
       String update = set(document(kv(updateFieldName, updateFieldValue)));
       mongoConnection.update(query, update);
 
@@ -253,15 +314,53 @@ public class PolyphenyDbClient extends GeoDB {
     return Status.OK;
   }
 
+  @Override
+  public Status geoMove(String table, GeoGenerator gen) {
+    try {
+      long key = Long.parseLong(gen.getGeoPredicate().getValue());
+      String moveFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry moveFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      mongoConnection.update(document(kv(gen.getSchema().getIdPath(), key)),
+          set(document(kv(moveFieldName, moveFieldValue))));
+    } catch (Exception e) {
+      System.err.println(e);
+      return Status.ERROR;
+    }
+    return Status.OK;
+  }
+
   @Override
   public Status geoNear(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
     try {
       String nearFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
-      JSONObject nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getValueA();
+      Geometry nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
+      Double maxDistance = gen.getGeoPredicate().getNestedPredicateA().getMaxDistance();
+      double distance = maxDistance != null ? maxDistance : 1000.0;
+      DocResult queryResult = mongoConnection.find(document(kv(string(nearFieldName), document(
+              kv(string("$near"), document(kv(string(GEOMETRY), nearFieldValue),
+                  kv(string("$maxDistance"), distance)))))),
+          geoProjection(gen));
+      GeoQueryCheck check = gen.getQueryCheck();
+      if (check != null) {
+        check.near(nearFieldValue.getX(0), nearFieldValue.getY(0), distance);
+        collectResults(check, gen.getSchema(), queryResult);
+      }
+      return containsResults(queryResult) ? Status.OK : Status.NOT_FOUND;
+    } catch (Exception e) {
+      System.err.println(e);
+      e.printStackTrace();
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public Status geoKnn(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+    try {
+      String nearFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry nearFieldValue = gen.getGeoPredicate().getNestedPredicateA().getGeometry();
       DocResult queryResult = mongoConnection.find(document(kv(string(nearFieldName), document(
-              kv(string("$near"), document(
-                  kv(string(GEOMETRY), nearFieldValue), kv(string("$maxDistance"), 1000.0)))))),
-          document());
+              kv(string("$near"), document(kv(string(GEOMETRY), nearFieldValue)))))),
+          geoProjection(gen), gen.getKnnK());
       return containsResults(queryResult) ? Status.OK : Status.NOT_FOUND;
     } catch (Exception e) {
       System.err.println(e);
@@ -270,15 +369,97 @@ public class PolyphenyDbClient extends GeoDB {
     }
   }
 
+  @Override
+  public Status geoCount(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+    try {
+      String fieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry polygon = gen.getGeoPredicate().getNestedPredicateD().getGeometry();
+      DocResult queryResult = mongoConnection.aggregate(
+          match(document(kv(string(fieldName), document(
+              kv(string("$geoWithin"), document(kv(string(GEOMETRY), polygon))))))),
+          group(document(kv(string("_id"), null), kv(string("count"), document(kv(string("$sum"), 1))))));
+      long count = 0;
+      if (containsResults(queryResult)) {
+        count = MAPPER.readTree(queryResult.getData()[0]).path("count").asLong();
+      }
+      result.put("count", new StringByteIterator(String.valueOf(count)));
+      return count > 0 ? Status.OK : Status.NOT_FOUND;
+    } catch (Exception e) {
+      System.err.println(e);
+      return Status.ERROR;
+    }
+  }
+
+  @Override
+  public Status geoGridAggregate(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
+    try {
+      String fieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
+      Geometry polygon = gen.getGeoPredicate().getNestedPredicateD().getGeometry();
+      double[] viewport = gen.getGridViewport();
+      int cells = gen.getGridCells();
+      String column = gridIndex("{\"$arrayElemAt\": [\"$p\", 0]}", viewport[0], viewport[2], cells);
+      String row = gridIndex("{\"$arrayElemAt\": [\"$p\", 1]}", viewport[1], viewport[3], cells);
+      String cell = "{\"$add\": [{\"$multiply\": [" + row + ", " + cells + "]}, " + column + "]}";
+      DocResult queryResult = mongoConnection.aggregate(
+          match(document(kv(string(fieldName), document(
+              kv(string("$geoWithin"), document(kv(string(GEOMETRY), polygon))))))),
+          project(document(kv(string("p"), firstPosition(string("$" + fieldName + ".coordinates"))))),
+          group(document(kv(string("_id"), cell), kv(string("count"), document(kv(string("$sum"), 1))))));
+      if (queryResult.getData() != null) {
+        for (String doc : queryResult.getData()) {
+          if (doc == null) {
+            continue;
+          }
+          JsonNode counted = MAPPER.readTree(doc);
+          result.put(String.valueOf(counted.path("_id").asInt()),
+              new StringByteIterator(counted.path("count").asText()));
+        }
+      }
+      return result.isEmpty() ? Status.NOT_FOUND : Status.OK;
+    } catch (Exception e) {
+      System.err.println(e);
+      return Status.ERROR;
+    }
+  }
+
+  /**
+   * The first position of a GeoJSON coordinates array of any depth up to a MultiPolygon: descend into the first
+   * element while it is an array itself.
+   */
+  private static String firstPosition(String coordinates) {
+    String position = coordinates;
+    for (int depth = 0; depth < 3; depth++) {
+      String first = "{\"$arrayElemAt\": [" + position + ", 0]}";
+      position = "{\"$cond\": [{\"$isArray\": " + first + "}, " + first + ", " + position + "]}";
+    }
+    return position;
+  }
+
+  /**
+   * The cell of a value along one side of the grid, matching {@link GeoGenerator#gridCell(double, double)}.
+   */
+  private static String gridIndex(String value, double min, double max, int cells) {
+    double span = max > min ? max - min : 1;
+    return "{\"$min\": [" + (cells - 1) + ", {\"$floor\": {\"$multiply\": [{\"$divide\": [{\"$subtract\": ["
+        + value + ", " + min + "]}, " + span + "]}, " + cells + "]}}]}";
+  }
+
   @Override
   public Status geoBox(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
     try {
       String boxFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
-      JSONObject boxFieldValue = gen.getGeoPredicate().getNestedPredicateD().getValueA();
+      Geometry boxFieldValue = gen.getGeoPredicate().getNestedPredicateD().getGeometry();
       DocResult queryResult = mongoConnection.find(document(
               kv(string(boxFieldName), document(
                   kv(string("$geoWithin"), document(kv(string(GEOMETRY), boxFieldValue)))))),
-          document());
+          geoProjection(gen));
+      GeoQueryCheck check = gen.getQueryCheck();
+      if (check != null && gen.getQueryVertexCount() == 0) {
+        double[] box = new double[4];
+        boxFieldValue.envelope(box);
+        check.within(box[0], box[1], box[2], box[3]);
+        collectResults(check, gen.getSchema(), queryResult);
+      }
       return containsResults(queryResult) ? Status.OK : Status.NOT_FOUND;
     } catch (Exception e) {
       System.err.println(e);
@@ -290,9 +471,15 @@ public class PolyphenyDbClient extends GeoDB {
   public Status geoIntersect(String table, HashMap<String, ByteIterator> result, GeoGenerator gen) {
     try {
       String intersectFieldName = gen.getGeoPredicate().getNestedPredicateA().getName();
-      JSONObject intersectFieldValue = gen.getGeoPredicate().getNestedPredicateD().getValueA();
+      Geometry intersectFieldValue = gen.getGeoPredicate().getNestedPredicateD().getGeometry();
       DocResult queryResult = mongoConnection.find(document(kv(string(intersectFieldName),
-          document(kv(string("$geoIntersects"), document(kv(string(GEOMETRY), intersectFieldValue)))))), document());
+          document(kv(string("$geoIntersects"), document(kv(string(GEOMETRY), intersectFieldValue)))))),
+          geoProjection(gen));
+      GeoQueryCheck check = gen.getQueryCheck();
+      if (check != null) {
+        check.intersects(intersectFieldValue);
+        collectResults(check, gen.getSchema(), queryResult);
+      }
       return containsResults(queryResult) ? Status.OK : Status.NOT_FOUND;
     } catch (Exception e) {
       System.err.println(e);
@@ -229,6 +229,13 @@ public class MongoConnection {
     return executeGetResponse("db." + db + ".find(" + query + "," + project + ")");
   }
 
+  /**
+   * Find at most limit documents, so the server stops after the first ones of an ordered query such as $near.
+   */
+  public DocResult find(String query, String project, int limit) {
+    return executeGetResponse("db." + database + ".find(" + query + "," + project + ").limit(" + limit + ")");
+  }
+
   public DocResult aggregate(String... stages) {
     return aggregate(database, Arrays.asList(stages));
   }